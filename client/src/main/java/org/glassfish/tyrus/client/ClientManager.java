@@ -576,12 +576,13 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
                                           Boolean.class, false);
                 final ReconnectHandler userReconnectHandler =
                         Utils.getProperty(copiedProperties, ClientProperties.RECONNECT_HANDLER, ReconnectHandler.class);
+                final ReconnectBackoff reconnectBackoff =
+                        Utils.getProperty(copiedProperties, ClientProperties.RECONNECT_BACKOFF, ReconnectBackoff.class);
 
                 final Runnable connector = new Runnable() {
 
                     private final ReconnectHandler reconnectHandler =
-                            retryAfterEnabled ? new RetryAfterReconnectHandler(userReconnectHandler)
-                                    : userReconnectHandler;
+                            createReconnectHandler(userReconnectHandler, reconnectBackoff, retryAfterEnabled);
 
                     @Override
                     public void run() {
@@ -635,12 +636,12 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
                                                                         CloseReason closeReason) {
                                                         if (reconnectHandler != null
                                                                 && reconnectHandler.onDisconnect(closeReason)) {
-                                                            long delay = reconnectHandler.getDelay();
+                                                            long delay = reconnectHandler.getDelayInMillis();
                                                             if (delay <= 0) {
                                                                 run();
                                                             } else {
                                                                 getScheduledExecutorService()
-                                                                        .schedule(that, delay, TimeUnit.SECONDS);
+                                                                        .schedule(that, delay, TimeUnit.MILLISECONDS);
                                                             }
                                                         } else {
                                                             clientActivityListener.onConnectionTerminated();
@@ -697,9 +698,9 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
                                     future.setFailure(e);
                                     return;
                                 } else {
-                                    long delay = reconnectHandler.getDelay();
+                                    long delay = reconnectHandler.getDelayInMillis();
                                     if (delay > 0) {
-                                        getScheduledExecutorService().schedule(this, delay, TimeUnit.SECONDS);
+                                        getScheduledExecutorService().schedule(this, delay, TimeUnit.MILLISECONDS);
                                         return;
                                     }
                                 }
@@ -716,6 +717,18 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
         return future;
     }
 
+    private static ReconnectHandler createReconnectHandler(ReconnectHandler userReconnectHandler,
+                                                           ReconnectBackoff reconnectBackoff,
+                                                           boolean retryAfterEnabled) {
+        ReconnectHandler reconnectHandler = userReconnectHandler;
+
+        if (reconnectBackoff != null) {
+            reconnectHandler = new BackoffReconnectHandler(reconnectHandler, reconnectBackoff.newSchedule());
+        }
+
+        return retryAfterEnabled ? new RetryAfterReconnectHandler(reconnectHandler) : reconnectHandler;
+    }
+
     private int getHandshakeTimeout() {
         final Object o = properties.get(ClientProperties.HANDSHAKE_TIMEOUT);
         if (o != null && o instanceof Integer) {
@@ -915,6 +928,22 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
         public long getDelay() {
             return RECONNECT_DELAY;
         }
+
+        /**
+         * Get reconnect delay in milliseconds.
+         * <p/>
+         * Called after {@link #onDisconnect(CloseReason)} or {@link #onConnectFailure(Exception)} when {@code true} is
+         * returned. When positive value is returned, next connection attempt will be made after that number of
+         * milliseconds.
+         * <p/>
+         * Default implementation converts value returned from {@link #getDelay()} to milliseconds; override this
+         * method when finer granularity is required.
+         *
+         * @return reconnect delay in milliseconds.
+         */
+        public long getDelayInMillis() {
+            return TimeUnit.SECONDS.toMillis(getDelay());
+        }
     }
 
     private static class RetryAfterReconnectHandler extends ReconnectHandler {
@@ -926,6 +955,7 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
         private final ReconnectHandler userReconnectHandler;
 
         private long delay = 0;
+        private boolean retryAfter = false;
 
         RetryAfterReconnectHandler(final ReconnectHandler userReconnectHandler) {
             this.userReconnectHandler = userReconnectHandler;
@@ -933,11 +963,13 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
 
         @Override
         public boolean onDisconnect(CloseReason closeReason) {
+            retryAfter = false;
             return userReconnectHandler != null && userReconnectHandler.onDisconnect(closeReason);
         }
 
         @Override
         public boolean onConnectFailure(final Exception exception) {
+            retryAfter = false;
             Throwable t = exception;
             if (t instanceof DeploymentException) {
                 t = t.getCause();
@@ -948,6 +980,7 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
                                 && retryAfterException.getDelay() <= RETRY_AFTER_MAX_DELAY) {
 
                             delay = retryAfterException.getDelay() < 0 ? 0 : retryAfterException.getDelay();
+                            retryAfter = true;
                             return true;
                         }
                     }
@@ -961,6 +994,67 @@ public class ClientManager extends BaseContainer implements WebSocketContainer {
         public long getDelay() {
             return delay;
         }
+
+        @Override
+        public long getDelayInMillis() {
+            if (!retryAfter && userReconnectHandler instanceof BackoffReconnectHandler) {
+                return userReconnectHandler.getDelayInMillis();
+            }
+            return super.getDelayInMillis();
+        }
+    }
+
+    /**
+     * Reconnect handler computing delays using {@link ReconnectBackoff} policy.
+     * <p/>
+     * Decision whether to reconnect is delegated to user registered {@link ReconnectHandler}, if there is any.
+     */
+    private static class BackoffReconnectHandler extends ReconnectHandler {
+
+        private final ReconnectHandler userReconnectHandler;
+        private final ReconnectBackoff.Schedule schedule;
+
+        private long delay = 0;
+
+        BackoffReconnectHandler(final ReconnectHandler userReconnectHandler, final ReconnectBackoff.Schedule schedule) {
+            this.userReconnectHandler = userReconnectHandler;
+            this.schedule = schedule;
+        }
+
+        @Override
+        public boolean onDisconnect(CloseReason closeReason) {
+            // connection was established, new series of reconnect attempts starts.
+            schedule.reset();
+
+            final boolean reconnect = userReconnectHandler == null
+                    ? closeReason.getCloseCode().getCode() != CloseReason.CloseCodes.NORMAL_CLOSURE.getCode()
+                    : userReconnectHandler.onDisconnect(closeReason);
+
+            return reconnect && scheduleNext();
+        }
+
+        @Override
+        public boolean onConnectFailure(Exception exception) {
+            final boolean reconnect =
+                    userReconnectHandler == null || userReconnectHandler.onConnectFailure(exception);
+
+            return reconnect && scheduleNext();
+        }
+
+        private boolean scheduleNext() {
+            delay = schedule.nextDelay();
+            return delay >= 0;
+        }
+
+        @Override
+        public long getDelay() {
+            return TimeUnit.MILLISECONDS.toSeconds(delay);
+        }
+
+        @Override
+        public long getDelayInMillis() {
+            return delay;
+        }
     }
 
     /**
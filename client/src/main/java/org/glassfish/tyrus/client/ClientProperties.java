@@ -72,6 +72,28 @@ public final class ClientProperties {
      */
     public static final String RECONNECT_HANDLER = "org.glassfish.tyrus.client.ClientManager.ReconnectHandler";
 
+    /**
+     * Property usable in {@link ClientManager#getProperties()}.
+     * <p/>
+     * Value must be {@link org.glassfish.tyrus.client.ReconnectBackoff} instance. When set, delays between reconnect
+     * attempts are computed by the backoff policy (in millisecond granularity) instead of {@link
+     * ClientManager.ReconnectHandler#getDelay()} and the reconnect rate of all connections sharing the same instance
+     * can be limited.
+     * <p/>
+     * Sample below demonstrates use of this feature:
+     * <pre>
+     *     client.getProperties().put(ClientProperties.RECONNECT_BACKOFF, ReconnectBackoff.builder()
+     *         .baseDelay(100, TimeUnit.MILLISECONDS)
+     *         .maxDelay(30, TimeUnit.SECONDS)
+     *         .rateLimit(200, 50)
+     *         .build());
+     * </pre>
+     *
+     * @see ReconnectBackoff
+     * @see ClientProperties#RECONNECT_HANDLER
+     */
+    public static final String RECONNECT_BACKOFF = "org.glassfish.tyrus.client.reconnectBackoff";
+
     /**
      * User property to set proxy URI.
      * <p/>
@@ -296,7 +318,8 @@ public final class ClientProperties {
 
     /**
      * Property name for registering a custom masking key generator. The expected value is an instance of
-     * {@link org.glassfish.tyrus.core.MaskingKeyGenerator}.
+     * {@link org.glassfish.tyrus.core.MaskingKeyGenerator} or a name of a built-in generator, see
+     * {@link org.glassfish.tyrus.core.MaskingKeyGenerator#forName(String)}.
      * <p/>
      * As a security measure, all frames originating on websocket client have to be masked with random 4B value, which
      * should be freshly generated for each frame. Moreover to fully comply with the security requirements of RFC 6455,
@@ -307,7 +330,9 @@ public final class ClientProperties {
      * uses a synchronized singleton as a random entropy provider in its internals.
      * <p/>
      * This property allows replacing the default {@link java.security.SecureRandom} with a more scalable provider
-     * of masking keys.
+     * of masking keys. Value {@value org.glassfish.tyrus.core.MaskingKeyGenerator#CHACHA20} selects
+     * {@link org.glassfish.tyrus.core.ChaCha20MaskingKeyGenerator}, which generates masking keys from a per-thread
+     * ChaCha20 key stream periodically rekeyed from {@link java.security.SecureRandom}.
      */
     public static final String MASKING_KEY_GENERATOR = "org.glassfish.tyrus.client.maskingKeyGenerator";
 }
@@ -0,0 +1,329 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.tyrus.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.CloseReason;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * Reconnect backoff policy.
+ * <p/>
+ * Computes delays between reconnect attempts using exponential backoff with decorrelated jitter, i.e. each delay is
+ * chosen randomly between the base delay and three times the previous delay, capped by the maximal delay. Jitter
+ * spreads reconnect attempts of many clients disconnected at the same moment (for instance when a server node is
+ * restarted), so they don't hit the server all at once.
+ * <p/>
+ * Series of reconnect attempts can be limited by the number of attempts and by the time elapsed since the first
+ * attempt in the series; the series is reset when an established connection is closed. Additionally, the rate of
+ * reconnect attempts can be capped by a token bucket, which is shared by all connections using the same {@link
+ * ReconnectBackoff} instance, so registering the instance in {@link ClientManager#getProperties()} limits the reconnect
+ * rate of the whole client container.
+ * <p/>
+ * Sample below demonstrates use of this feature:
+ * <pre>
+ *     client.getProperties().put(ClientProperties.RECONNECT_BACKOFF, ReconnectBackoff.builder()
+ *         .baseDelay(100, TimeUnit.MILLISECONDS)
+ *         .maxDelay(30, TimeUnit.SECONDS)
+ *         .maxAttempts(20)
+ *         .rateLimit(200, 50)
+ *         .build());
+ * </pre>
+ * When {@link ClientProperties#RECONNECT_HANDLER} is registered as well, the reconnect handler decides whether the
+ * client should reconnect and this policy computes the delay. Otherwise the client reconnects after any connection
+ * failure and after any close with close code other than {@link CloseReason.CloseCodes#NORMAL_CLOSURE}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see ClientProperties#RECONNECT_BACKOFF
+ * @see ClientManager.ReconnectHandler
+ */
+@Beta
+public final class ReconnectBackoff {
+
+    private static final long DEFAULT_BASE_DELAY = 100L;
+    private static final long DEFAULT_MAX_DELAY = 30000L;
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxAttempts;
+    private final long maxElapsedTime;
+    private final ReconnectRateLimiter rateLimiter;
+
+    private ReconnectBackoff(Builder builder) {
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.maxAttempts = builder.maxAttempts;
+        this.maxElapsedTime = builder.maxElapsedTime;
+        this.rateLimiter = builder.permitsPerSecond > 0
+                ? new ReconnectRateLimiter(builder.permitsPerSecond, builder.burst) : null;
+    }
+
+    /**
+     * Create new {@link Builder} instance.
+     *
+     * @return builder instance.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get base (minimal) delay between reconnect attempts.
+     *
+     * @return base delay in milliseconds.
+     */
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    /**
+     * Get maximal delay between reconnect attempts.
+     *
+     * @return maximal delay in milliseconds.
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Get maximal number of reconnect attempts in one series.
+     *
+     * @return maximal number of attempts, {@code 0} means unlimited.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Get maximal time spent reconnecting in one series.
+     *
+     * @return maximal time in milliseconds, {@code 0} means unlimited.
+     */
+    public long getMaxElapsedTime() {
+        return maxElapsedTime;
+    }
+
+    /**
+     * Create new reconnect schedule tracking state of one client connection.
+     *
+     * @return new schedule.
+     */
+    Schedule newSchedule() {
+        return new Schedule();
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectBackoff{baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", maxAttempts=" + maxAttempts
+                + ", maxElapsedTime=" + maxElapsedTime + ", rateLimited=" + (rateLimiter != null) + "}";
+    }
+
+    /**
+     * State of reconnect attempts of one client connection.
+     * <p/>
+     * Not thread safe; reconnect attempts of one connection are never executed concurrently.
+     */
+    class Schedule {
+
+        private int attempts = 0;
+        private long seriesStart = 0;
+        private long previousDelay = 0;
+
+        /**
+         * Reset the series, called when an established connection is closed.
+         */
+        void reset() {
+            attempts = 0;
+            seriesStart = 0;
+            previousDelay = 0;
+        }
+
+        /**
+         * Compute delay before the next reconnect attempt.
+         *
+         * @return delay in milliseconds or {@code -1} when the reconnect budget of the current series is exhausted.
+         */
+        long nextDelay() {
+            final long now = System.nanoTime();
+            if (attempts == 0) {
+                seriesStart = now;
+            }
+
+            if ((maxAttempts > 0 && attempts >= maxAttempts)
+                    || (maxElapsedTime > 0 && TimeUnit.NANOSECONDS.toMillis(now - seriesStart) >= maxElapsedTime)) {
+                return -1;
+            }
+
+            attempts++;
+
+            // decorrelated jitter: random value in [base, previous * 3], first attempt uses [base, base * 3].
+            final long upper = Math.min(maxDelay, Math.max(baseDelay, previousDelay) * 3);
+            long delay = upper > baseDelay ? ThreadLocalRandom.current().nextLong(baseDelay, upper + 1) : upper;
+            previousDelay = delay;
+
+            if (rateLimiter != null) {
+                delay = Math.max(delay, rateLimiter.reserve());
+            }
+
+            return delay;
+        }
+
+        /**
+         * Get number of attempts made in the current series.
+         *
+         * @return number of attempts.
+         */
+        int getAttempts() {
+            return attempts;
+        }
+    }
+
+    /**
+     * The ReconnectBackoff.Builder is a class used for creating an instance of {@link ReconnectBackoff}.
+     */
+    public static final class Builder {
+
+        private long baseDelay = DEFAULT_BASE_DELAY;
+        private long maxDelay = DEFAULT_MAX_DELAY;
+        private int maxAttempts = 0;
+        private long maxElapsedTime = 0;
+        private double permitsPerSecond = 0;
+        private int burst = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * Set base (minimal) delay between reconnect attempts. Default value is 100 ms.
+         *
+         * @param delay base delay, must be positive.
+         * @param unit  time unit of the delay.
+         * @return updated {@link ReconnectBackoff.Builder} instance.
+         */
+        public Builder baseDelay(long delay, TimeUnit unit) {
+            if (delay <= 0) {
+                throw new IllegalArgumentException("Base delay must be positive.");
+            }
+            this.baseDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Set maximal delay between reconnect attempts. Default value is 30 seconds.
+         *
+         * @param delay maximal delay, must be positive.
+         * @param unit  time unit of the delay.
+         * @return updated {@link ReconnectBackoff.Builder} instance.
+         */
+        public Builder maxDelay(long delay, TimeUnit unit) {
+            if (delay <= 0) {
+                throw new IllegalArgumentException("Max delay must be positive.");
+            }
+            this.maxDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Set maximal number of reconnect attempts after which the client gives up. Unlimited by default.
+         *
+         * @param maxAttempts maximal number of attempts, {@code 0} means unlimited.
+         * @return updated {@link ReconnectBackoff.Builder} instance.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 0) {
+                throw new IllegalArgumentException("Max attempts must not be negative.");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Set maximal time spent reconnecting after which the client gives up. Unlimited by default.
+         *
+         * @param time maximal time, {@code 0} means unlimited.
+         * @param unit time unit.
+         * @return updated {@link ReconnectBackoff.Builder} instance.
+         */
+        public Builder maxElapsedTime(long time, TimeUnit unit) {
+            if (time < 0) {
+                throw new IllegalArgumentException("Max elapsed time must not be negative.");
+            }
+            this.maxElapsedTime = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Limit the rate of reconnect attempts of all connections sharing built {@link ReconnectBackoff} instance.
+         * Not limited by default.
+         *
+         * @param permitsPerSecond maximal sustained number of reconnect attempts per second.
+         * @param burst            number of reconnect attempts which can be made at once.
+         * @return updated {@link ReconnectBackoff.Builder} instance.
+         */
+        public Builder rateLimit(double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0) {
+                throw new IllegalArgumentException("Permits per second must be positive.");
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException("Burst must be at least 1.");
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Build an instance of {@link ReconnectBackoff}.
+         *
+         * @return an instance of {@link ReconnectBackoff}.
+         */
+        public ReconnectBackoff build() {
+            if (maxDelay < baseDelay) {
+                throw new IllegalArgumentException("Max delay must not be lower than base delay.");
+            }
+            return new ReconnectBackoff(this);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.tyrus.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the rate of reconnect attempts.
+ * <p/>
+ * Implemented as a generic cell rate algorithm, which is equivalent to a token bucket, but the whole state is stored
+ * in single "theoretical arrival time" value and can be updated by a CAS loop. Permits are never refused, {@link
+ * #reserve()} returns time the caller has to wait before the reserved permit becomes valid instead, so the reconnect
+ * attempts are spread evenly when the burst is depleted.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class ReconnectRateLimiter {
+
+    private final long interval;
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * Create new rate limiter.
+     *
+     * @param permitsPerSecond maximal sustained rate of permits.
+     * @param burst            number of permits which can be obtained at once after a quiet period.
+     */
+    ReconnectRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive.");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1.");
+        }
+
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstTolerance = interval * (burst - 1);
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserve one permit.
+     *
+     * @return time in milliseconds after which the reserved permit can be used; {@code 0} when it can be used
+     * immediately.
+     */
+    long reserve() {
+        final long now = System.nanoTime();
+
+        while (true) {
+            final long tat = theoreticalArrivalTime.get();
+            // bucket is full, the elapsed time must not be accumulated over the burst size.
+            final long base = tat - now < 0 ? now : tat;
+            if (theoreticalArrivalTime.compareAndSet(tat, base + interval)) {
+                final long wait = base - burstTolerance - now;
+                return wait <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+            }
+        }
+    }
+}
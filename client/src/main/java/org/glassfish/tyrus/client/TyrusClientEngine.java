@@ -148,8 +148,20 @@ public class TyrusClientEngine implements ClientEngine {
         this.properties = properties;
         this.connectToServerUriParam = connectToServerUriParam;
 
-        MaskingKeyGenerator maskingKeyGenerator = Utils.getProperty(properties, ClientProperties
-                .MASKING_KEY_GENERATOR, MaskingKeyGenerator.class, null);
+        MaskingKeyGenerator maskingKeyGenerator = null;
+        final Object maskingKeyGeneratorName =
+                properties == null ? null : properties.get(ClientProperties.MASKING_KEY_GENERATOR);
+        if (maskingKeyGeneratorName instanceof String) {
+            try {
+                maskingKeyGenerator = MaskingKeyGenerator.forName((String) maskingKeyGeneratorName);
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.CONFIG, "Invalid value of " + ClientProperties.MASKING_KEY_GENERATOR
+                        + ", using default masking key generator: " + e.getMessage());
+            }
+        } else {
+            maskingKeyGenerator = Utils.getProperty(properties, ClientProperties.MASKING_KEY_GENERATOR,
+                                                    MaskingKeyGenerator.class, null);
+        }
         protocolHandler = DEFAULT_VERSION.createHandler(true, maskingKeyGenerator);
 
         this.redirectUriHistory = Collections.synchronizedSet(new HashSet<URI>(DEFAULT_REDIRECT_THRESHOLD));
@@ -166,9 +178,11 @@ public class TyrusClientEngine implements ClientEngine {
         this.logUpgradeMessages =
                 Utils.getProperty(properties, ClientProperties.LOG_HTTP_UPGRADE, Boolean.class, false);
 
-        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Redirect enabled: ",
-                                      redirectEnabled);
-        if (redirectEnabled) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Redirect enabled: ",
+                                          redirectEnabled);
+        }
+        if (redirectEnabled && LOGGER.isLoggable(Level.FINE)) {
             debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Redirect threshold: ",
                                           redirectThreshold);
         }
@@ -224,8 +238,10 @@ public class TyrusClientEngine implements ClientEngine {
                     String authorizationHeader;
                     try {
                         final Credentials credentials = (Credentials) properties.get(ClientProperties.CREDENTIALS);
-                        debugContext.appendLogMessage(LOGGER, Level.CONFIG, DebugContext.Type.MESSAGE_OUT, "Using "
-                                + "credentials: ", credentials);
+                        if (LOGGER.isLoggable(Level.CONFIG)) {
+                            debugContext.appendLogMessage(LOGGER, Level.CONFIG, DebugContext.Type.MESSAGE_OUT, "Using "
+                                    + "credentials: ", credentials);
+                        }
                         authorizationHeader =
                                 clientEngineState.getAuthenticator()
                                                  .generateAuthorizationHeader(
@@ -357,8 +373,10 @@ public class TyrusClientEngine implements ClientEngine {
         AuthConfig authConfig = Utils.getProperty(properties, ClientProperties.AUTH_CONFIG,
                                                   AuthConfig.class,
                                                   AuthConfig.Builder.create().build());
-        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_OUT, "Using "
-                + "authentication config: ", authConfig);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_OUT, "Using "
+                    + "authentication config: ", authConfig);
+        }
         if (authConfig == null) {
             clientEngineState = TyrusClientEngineState.FAILED;
             listener.onError(new AuthenticationException(LocalizationMessages.AUTHENTICATION_FAILED()));
@@ -381,8 +399,10 @@ public class TyrusClientEngine implements ClientEngine {
         final String[] tokens = wwwAuthenticateHeader.trim().split("\\s+", 2);
         final String scheme = tokens[0];
 
-        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_OUT, "Using "
-                + "authentication scheme: ", scheme);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_OUT, "Using "
+                    + "authentication scheme: ", scheme);
+        }
         final Authenticator authenticator = authConfig.getAuthenticators().get(scheme);
         if (authenticator == null) {
             clientEngineState = TyrusClientEngineState.FAILED;
@@ -554,8 +574,10 @@ public class TyrusClientEngine implements ClientEngine {
                         }
 
                         extensions.add(installedExtension);
-                        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Installed "
-                                + "extension: ", installedExtension.getName());
+                        if (LOGGER.isLoggable(Level.FINE)) {
+                            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Installed "
+                                    + "extension: ", installedExtension.getName());
+                        }
                     }
                 }
             }
@@ -592,8 +614,10 @@ public class TyrusClientEngine implements ClientEngine {
             incomingBufferSize = tyrusIncomingBufferSize;
         }
 
-        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Incoming buffer size: ",
-                                      incomingBufferSize);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Incoming buffer size: ",
+                                          incomingBufferSize);
+        }
 
         return new ClientUpgradeInfo() {
             @Override
@@ -624,6 +648,11 @@ public class TyrusClientEngine implements ClientEngine {
                         return closeListener;
                     }
 
+                    @Override
+                    public void setReadControl(ReadControl readControl) {
+                        protocolHandler.setReadControl(readControl);
+                    }
+
                     @Override
                     public void close(CloseReason reason) {
                         try {
@@ -680,7 +709,7 @@ public class TyrusClientEngine implements ClientEngine {
         public void onError(Throwable exception);
     }
 
-    private static class TyrusReadHandler implements ReadHandler {
+    private static class TyrusReadHandler implements ReadHandler, ProtocolHandler.ReadBuffer {
 
         private final int incomingBufferSize;
         private final ProtocolHandler handler;
@@ -688,7 +717,7 @@ public class TyrusClientEngine implements ClientEngine {
         private final List<Extension> negotiatedExtensions;
         private final ExtendedExtension.ExtensionContext extensionContext;
 
-        private ByteBuffer buffer = null;
+        private volatile ByteBuffer buffer = null;
 
         TyrusReadHandler(final ProtocolHandler protocolHandler, final TyrusWebSocket socket, int incomingBufferSize,
                          List<Extension> negotiatedExtensions, ExtendedExtension.ExtensionContext extensionContext) {
@@ -699,33 +728,27 @@ public class TyrusClientEngine implements ClientEngine {
             this.extensionContext = extensionContext;
 
             protocolHandler.setExtensionContext(extensionContext);
+            protocolHandler.setReadBuffer(this);
         }
 
         @Override
         public void handle(ByteBuffer data) {
+            handler.startRead();
             try {
                 if (data != null && data.hasRemaining()) {
 
-                    if (buffer != null) {
+                    final boolean leftover = buffer != null && buffer.hasRemaining();
+                    if (leftover) {
                         data = Utils.appendBuffers(buffer, data, incomingBufferSize, BUFFER_STEP_SIZE);
-                    } else {
-                        int newSize = data.remaining();
-                        if (newSize > incomingBufferSize) {
-                            throw new IllegalArgumentException("Buffer overflow.");
-                        } else {
-                            final int roundedSize = (newSize % BUFFER_STEP_SIZE) > 0 ? ((newSize / BUFFER_STEP_SIZE)
-                                    + 1) * BUFFER_STEP_SIZE : newSize;
-                            final ByteBuffer result = ByteBuffer.allocate(roundedSize > incomingBufferSize ? newSize
-                                                                                  : roundedSize);
-                            result.flip();
-                            data = Utils.appendBuffers(result, data, incomingBufferSize, BUFFER_STEP_SIZE);
-                        }
+                    } else if (data.remaining() > incomingBufferSize) {
+                        throw new IllegalArgumentException("Buffer overflow.");
                     }
+                    // frames are parsed directly from the container buffer, only incomplete frame is copied.
 
                     do {
                         Frame frame = handler.unframe(data);
                         if (frame == null) {
-                            buffer = data;
+                            buffer = handler.retainRemaining(leftover ? data : buffer, data, incomingBufferSize);
                             break;
                         } else {
                             for (Extension extension : negotiatedExtensions) {
@@ -755,7 +778,25 @@ public class TyrusClientEngine implements ClientEngine {
                 LOGGER.log(Level.FINE, e.getMessage(), e);
                 socket.onClose(new CloseFrame(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, e
                         .getMessage())));
+            } finally {
+                handler.finishRead();
+            }
+        }
+
+        @Override
+        public int getRetainedSize() {
+            final ByteBuffer localBuffer = buffer;
+            return localBuffer == null ? 0 : localBuffer.capacity();
+        }
+
+        @Override
+        public boolean release() {
+            if (buffer != null && buffer.hasRemaining()) {
+                return false;
             }
+
+            buffer = null;
+            return true;
         }
     }
 
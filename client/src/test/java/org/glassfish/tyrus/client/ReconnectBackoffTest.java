@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.tyrus.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ReconnectBackoff} and {@link ReconnectRateLimiter}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void testDelayBounds() {
+        final ReconnectBackoff backoff = ReconnectBackoff.builder()
+                                                         .baseDelay(10, TimeUnit.MILLISECONDS)
+                                                         .maxDelay(1, TimeUnit.SECONDS)
+                                                         .build();
+
+        final ReconnectBackoff.Schedule schedule = backoff.newSchedule();
+        long previous = 10;
+        for (int i = 0; i < 100; i++) {
+            final long delay = schedule.nextDelay();
+            assertTrue("Delay " + delay + " lower than base delay.", delay >= 10);
+            assertTrue("Delay " + delay + " higher than max delay.", delay <= 1000);
+            assertTrue("Delay " + delay + " not decorrelated from " + previous, delay <= previous * 3);
+            previous = delay;
+        }
+    }
+
+    @Test
+    public void testJitter() {
+        final ReconnectBackoff backoff = ReconnectBackoff.builder()
+                                                         .baseDelay(100, TimeUnit.MILLISECONDS)
+                                                         .build();
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            final long delay = backoff.newSchedule().nextDelay();
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        // first delays of different connections have to be spread over [base, 3 * base].
+        assertTrue(min >= 100);
+        assertTrue(max <= 300);
+        assertTrue(max - min > 100);
+    }
+
+    @Test
+    public void testMaxAttempts() {
+        final ReconnectBackoff backoff = ReconnectBackoff.builder()
+                                                         .baseDelay(1, TimeUnit.MILLISECONDS)
+                                                         .maxAttempts(3)
+                                                         .build();
+
+        final ReconnectBackoff.Schedule schedule = backoff.newSchedule();
+        assertTrue(schedule.nextDelay() >= 0);
+        assertTrue(schedule.nextDelay() >= 0);
+        assertTrue(schedule.nextDelay() >= 0);
+        assertEquals(-1, schedule.nextDelay());
+        assertEquals(3, schedule.getAttempts());
+
+        schedule.reset();
+        assertTrue(schedule.nextDelay() >= 0);
+    }
+
+    @Test
+    public void testMaxElapsedTime() throws InterruptedException {
+        final ReconnectBackoff backoff = ReconnectBackoff.builder()
+                                                         .baseDelay(1, TimeUnit.MILLISECONDS)
+                                                         .maxElapsedTime(50, TimeUnit.MILLISECONDS)
+                                                         .build();
+
+        final ReconnectBackoff.Schedule schedule = backoff.newSchedule();
+        assertTrue(schedule.nextDelay() >= 0);
+        Thread.sleep(100);
+        assertEquals(-1, schedule.nextDelay());
+    }
+
+    @Test
+    public void testRateLimit() {
+        final ReconnectBackoff backoff = ReconnectBackoff.builder()
+                                                         .baseDelay(1, TimeUnit.MILLISECONDS)
+                                                         .maxDelay(1, TimeUnit.MILLISECONDS)
+                                                         .rateLimit(10, 5)
+                                                         .build();
+
+        long maxDelay = 0;
+        for (int i = 0; i < 25; i++) {
+            maxDelay = Math.max(maxDelay, backoff.newSchedule().nextDelay());
+        }
+
+        // 5 permits are available immediately, remaining 20 are spread over 2 seconds.
+        assertTrue("Max delay: " + maxDelay, maxDelay >= 1900);
+        assertTrue("Max delay: " + maxDelay, maxDelay <= 2100);
+    }
+
+    @Test
+    public void testRateLimiterBurst() {
+        final ReconnectRateLimiter rateLimiter = new ReconnectRateLimiter(1, 3);
+
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(0, rateLimiter.reserve());
+        assertTrue(rateLimiter.reserve() > 900);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDelays() {
+        ReconnectBackoff.builder().baseDelay(10, TimeUnit.SECONDS).maxDelay(1, TimeUnit.SECONDS).build();
+    }
+}
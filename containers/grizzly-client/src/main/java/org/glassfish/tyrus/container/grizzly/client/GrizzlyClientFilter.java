@@ -104,6 +104,9 @@ class GrizzlyClientFilter extends BaseFilter {
     private static final Attribute<TaskProcessor> TASK_PROCESSOR = Grizzly.DEFAULT_ATTRIBUTE_BUILDER
             .createAttribute(TaskProcessor.class.getName() + ".TaskProcessor");
 
+    private static final Attribute<GrizzlyReadControl> READ_CONTROL = Grizzly.DEFAULT_ATTRIBUTE_BUILDER
+            .createAttribute(GrizzlyReadControl.class.getName() + ".ReadControl");
+
     private static final Attribute<Boolean> PROXY_CONNECTED = Grizzly.DEFAULT_ATTRIBUTE_BUILDER
             .createAttribute(GrizzlyClientFilter.class.getName() + ".ProxyConnected");
 
@@ -271,7 +274,9 @@ class GrizzlyClientFilter extends BaseFilter {
                 TaskProcessor taskProcessor = TASK_PROCESSOR.get(ctx.getConnection());
                 taskProcessor.processTask(new ProcessTask(webSocketBuffer, readHandler));
             }
-            return ctx.getStopAction();
+
+            final GrizzlyReadControl readControl = READ_CONTROL.get(grizzlyConnection);
+            return readControl == null ? ctx.getStopAction() : readControl.getReadAction(ctx);
         }
 
         // tyrusConnection == null
@@ -373,6 +378,9 @@ class GrizzlyClientFilter extends BaseFilter {
                 return ctx.getInvokeAction();
             case SUCCESS:
                 tyrusConnection = clientUpgradeInfo.createConnection();
+                final GrizzlyReadControl readControl = new GrizzlyReadControl();
+                tyrusConnection.setReadControl(readControl);
+                READ_CONTROL.set(ctx.getConnection(), readControl);
                 break;
             default:
                 return ctx.getStopAction();
@@ -494,6 +502,7 @@ class GrizzlyClientFilter extends BaseFilter {
             connection.close(closeReason);
             TYRUS_CONNECTION.remove(grizzlyConnection);
             TASK_PROCESSOR.remove(grizzlyConnection);
+            READ_CONTROL.remove(grizzlyConnection);
         }
     }
 }
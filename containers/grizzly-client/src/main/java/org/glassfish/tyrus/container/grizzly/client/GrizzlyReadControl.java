@@ -0,0 +1,98 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.container.grizzly.client;
+
+import org.glassfish.tyrus.spi.Connection;
+
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+
+/**
+ * {@link Connection.ReadControl} implementation for Grizzly connections.
+ * <p/>
+ * Grizzly does not deliver another read event for a connection until the current one is processed. When reading is
+ * paused, the read event which is being processed is suspended instead of completed, so no more data are read from
+ * the connection until it is resumed.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class GrizzlyReadControl implements Connection.ReadControl {
+
+    private boolean paused = false;
+    private FilterChainContext suspendedContext = null;
+
+    @Override
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    @Override
+    public void resume() {
+        final FilterChainContext context;
+        synchronized (this) {
+            paused = false;
+            context = suspendedContext;
+            suspendedContext = null;
+        }
+
+        if (context != null) {
+            context.resume(context.getStopAction());
+        }
+    }
+
+    /**
+     * Get action finishing processing of a read event.
+     * <p/>
+     * Should be returned from {@link org.glassfish.grizzly.filterchain.Filter#handleRead(FilterChainContext)} once
+     * read data are passed to Tyrus.
+     *
+     * @param ctx context of the read event.
+     * @return suspend action when reading is paused, stop action otherwise.
+     */
+    public synchronized NextAction getReadAction(FilterChainContext ctx) {
+        if (paused) {
+            ctx.suspend();
+            suspendedContext = ctx;
+            return ctx.getSuspendAction();
+        }
+
+        return ctx.getStopAction();
+    }
+}
@@ -40,6 +40,11 @@
 package org.glassfish.tyrus.container.grizzly.client;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,15 +56,30 @@ import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.WriteHandler;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 import static org.glassfish.tyrus.container.grizzly.client.TaskProcessor.Task;
 
 /**
+ * Grizzly {@link Writer} implementation.
+ * <p/>
+ * Frames are not written one by one; all frames pending at the time when the connection can be written to are
+ * combined into one {@link CompositeBuffer} (up to {@value #MAX_GATHERED_BYTES} bytes) and written by a single
+ * {@link Connection#write(Object, org.glassfish.grizzly.CompletionHandler)} call, which results in a gathering write.
+ *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
 public class GrizzlyWriter extends Writer {
 
+    /**
+     * Maximal number of bytes combined into one write.
+     */
+    private static final int MAX_GATHERED_BYTES = 64 * 1024;
+
     private final TaskProcessor taskProcessor;
+    private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+    private final FlushTask flushTask = new FlushTask();
     final org.glassfish.grizzly.Connection connection;
 
     public GrizzlyWriter(final org.glassfish.grizzly.Connection connection) {
@@ -75,32 +95,10 @@ public class GrizzlyWriter extends Writer {
             return;
         }
 
-        final Buffer message = Buffers.wrap(connection.getTransport().getMemoryManager(), buffer);
-
-        final EmptyCompletionHandler emptyCompletionHandler = new EmptyCompletionHandler() {
-            @Override
-            public void cancelled() {
-                if (completionHandler != null) {
-                    completionHandler.cancelled();
-                }
-            }
-
-            @Override
-            public void completed(Object result) {
-                if (completionHandler != null) {
-                    completionHandler.completed(buffer);
-                }
-            }
-
-            @Override
-            public void failed(Throwable throwable) {
-                if (completionHandler != null) {
-                    completionHandler.failed(throwable);
-                }
-            }
-        };
-
-        taskProcessor.processTask(new WriteTask(connection, message, emptyCompletionHandler));
+        pendingWrites.offer(new PendingWrite(buffer, completionHandler));
+        // each write schedules a flush; flush gathers all pending writes, so the following ones might have nothing
+        // to do.
+        taskProcessor.processTask(flushTask);
     }
 
     private class WriterCondition implements TaskProcessor.Condition {
@@ -152,21 +150,101 @@ public class GrizzlyWriter extends Writer {
         return this.getClass().getName() + " " + connection.toString() + " " + connection.hashCode();
     }
 
-    private class WriteTask extends Task {
-        private final Connection connection;
-        private final Buffer message;
-        private final EmptyCompletionHandler completionHandler;
+    private static class PendingWrite {
+        private final ByteBuffer buffer;
+        private final CompletionHandler<ByteBuffer> completionHandler;
 
-        private WriteTask(Connection connection, Buffer message, EmptyCompletionHandler completionHandler) {
-            this.connection = connection;
-            this.message = message;
+        private PendingWrite(ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+            this.buffer = buffer;
             this.completionHandler = completionHandler;
         }
+    }
+
+    /**
+     * Writes all pending frames (up to {@link #MAX_GATHERED_BYTES}) using single {@link Connection#write(Object,
+     * org.glassfish.grizzly.CompletionHandler)} call.
+     * <p/>
+     * Executed by {@link TaskProcessor}, so there is always at most one thread executing this task.
+     */
+    private class FlushTask extends Task {
 
         @Override
         public void execute() {
+            final PendingWrite first = pendingWrites.poll();
+            if (first == null) {
+                // already written by previous flush.
+                return;
+            }
+
+            final MemoryManager memoryManager = connection.getTransport().getMemoryManager();
+            final Buffer firstBuffer = Buffers.wrap(memoryManager, first.buffer);
+
+            PendingWrite next = pendingWrites.peek();
+            if (next == null || firstBuffer.remaining() + next.buffer.remaining() > MAX_GATHERED_BYTES) {
+                //noinspection unchecked
+                connection.write(firstBuffer, new WriteCompletionHandler(Collections.singletonList(first)));
+                return;
+            }
+
+            final CompositeBuffer composite = CompositeBuffer.newBuffer(memoryManager);
+            final List<PendingWrite> writes = new ArrayList<PendingWrite>();
+            composite.append(firstBuffer);
+            writes.add(first);
+            int gathered = firstBuffer.remaining();
+
+            while (next != null && gathered + next.buffer.remaining() <= MAX_GATHERED_BYTES) {
+                // peeked element can only be removed by this thread.
+                pendingWrites.poll();
+
+                final Buffer nextBuffer = Buffers.wrap(memoryManager, next.buffer);
+                composite.append(nextBuffer);
+                writes.add(next);
+                gathered += nextBuffer.remaining();
+
+                next = pendingWrites.peek();
+            }
+
             //noinspection unchecked
-            connection.write(message, completionHandler);
+            connection.write(composite, new WriteCompletionHandler(writes));
+        }
+    }
+
+    /**
+     * Notifies completion handlers of all frames written by single {@link Connection#write(Object,
+     * org.glassfish.grizzly.CompletionHandler)} call, in the order in which the frames were written.
+     */
+    private static class WriteCompletionHandler extends EmptyCompletionHandler {
+        private final List<PendingWrite> writes;
+
+        private WriteCompletionHandler(List<PendingWrite> writes) {
+            this.writes = writes;
+        }
+
+        @Override
+        public void cancelled() {
+            for (PendingWrite write : writes) {
+                if (write.completionHandler != null) {
+                    write.completionHandler.cancelled();
+                }
+            }
+        }
+
+        @Override
+        public void completed(Object result) {
+            for (PendingWrite write : writes) {
+                if (write.completionHandler != null) {
+                    write.completionHandler.completed(write.buffer);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+            for (PendingWrite write : writes) {
+                if (write.completionHandler != null) {
+                    write.completionHandler.failed(throwable);
+                }
+            }
         }
     }
 
@@ -122,6 +122,9 @@ public class GrizzlyServerContainer extends ServerContainerFactory {
                 Utils.getProperty(localProperties, TyrusWebSocketEngine.MAX_SESSIONS_PER_APP, Integer.class);
         final Integer maxSessionsPerRemoteAddr =
                 Utils.getProperty(localProperties, TyrusWebSocketEngine.MAX_SESSIONS_PER_REMOTE_ADDR, Integer.class);
+        final Integer remoteAddrIpv6PrefixLength =
+                Utils.getProperty(localProperties, TyrusWebSocketEngine.MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX,
+                                  Integer.class);
         final Boolean parallelBroadcastEnabled =
                 Utils.getProperty(localProperties, TyrusWebSocketEngine.PARALLEL_BROADCAST_ENABLED, Boolean.class);
         final DebugContext.TracingType tracingType =
@@ -140,6 +143,7 @@ public class GrizzlyServerContainer extends ServerContainerFactory {
                                         .applicationEventListener(applicationEventListener)
                                         .maxSessionsPerApp(maxSessionsPerApp)
                                         .maxSessionsPerRemoteAddr(maxSessionsPerRemoteAddr)
+                                        .remoteAddrIpv6PrefixLength(remoteAddrIpv6PrefixLength)
                                         .parallelBroadcastEnabled(parallelBroadcastEnabled)
                                         .tracingType(tracingType)
                                         .tracingThreshold(tracingThreshold)
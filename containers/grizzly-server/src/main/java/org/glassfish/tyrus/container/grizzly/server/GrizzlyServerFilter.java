@@ -42,7 +42,6 @@ package org.glassfish.tyrus.container.grizzly.server;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +50,7 @@ import java.util.logging.Logger;
 
 import javax.websocket.CloseReason;
 
+import org.glassfish.tyrus.container.grizzly.client.GrizzlyReadControl;
 import org.glassfish.tyrus.container.grizzly.client.GrizzlyWriter;
 import org.glassfish.tyrus.container.grizzly.client.TaskProcessor;
 import org.glassfish.tyrus.core.CloseReasons;
@@ -84,7 +84,6 @@ import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.HttpServerFilter;
 import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.util.Parameters;
-import org.glassfish.grizzly.memory.ByteBufferArray;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -108,6 +107,9 @@ class GrizzlyServerFilter extends BaseFilter {
     private static final Attribute<TaskProcessor> TASK_PROCESSOR = Grizzly.DEFAULT_ATTRIBUTE_BUILDER
             .createAttribute(TaskProcessor.class.getName() + ".TaskProcessor");
 
+    private static final Attribute<GrizzlyReadControl> READ_CONTROL = Grizzly.DEFAULT_ATTRIBUTE_BUILDER
+            .createAttribute(GrizzlyReadControl.class.getName() + ".ReadControl");
+
     private final ServerContainer serverContainer;
     private final String contextPath;
 
@@ -211,20 +213,11 @@ class GrizzlyServerFilter extends BaseFilter {
             message.recycle();
             final ReadHandler readHandler = tyrusConnection.getReadHandler();
             TaskProcessor taskProcessor = getTaskProcessor(ctx);
-            if (!buffer.isComposite()) {
-                taskProcessor.processTask(new ProcessTask(buffer.toByteBuffer(), readHandler));
-            } else {
-                final ByteBufferArray byteBufferArray = buffer.toByteBufferArray();
-                final ByteBuffer[] array = byteBufferArray.getArray();
-
-                for (int i = 0; i < byteBufferArray.size(); i++) {
-                    taskProcessor.processTask(new ProcessTask(array[i], readHandler));
-                }
-
-                byteBufferArray.recycle();
-            }
+            taskProcessor.processTask(new ProcessTask(buffer, readHandler));
         }
-        return ctx.getStopAction();
+
+        final GrizzlyReadControl readControl = READ_CONTROL.get(ctx.getConnection());
+        return readControl == null ? ctx.getStopAction() : readControl.getReadAction(ctx);
     }
 
     private org.glassfish.tyrus.spi.Connection getConnection(FilterChainContext ctx) {
@@ -270,8 +263,12 @@ class GrizzlyServerFilter extends BaseFilter {
                                               }
                                           });
 
+                final GrizzlyReadControl readControl = new GrizzlyReadControl();
+                connection.setReadControl(readControl);
+
                 TYRUS_CONNECTION.set(grizzlyConnection, connection);
                 TASK_PROCESSOR.set(grizzlyConnection, new TaskProcessor());
+                READ_CONTROL.set(grizzlyConnection, readControl);
 
                 grizzlyConnection.addCloseListener(new CloseListener() {
                     @Override
@@ -281,6 +278,7 @@ class GrizzlyServerFilter extends BaseFilter {
                         // might not be necessary, connection is going to be recycled/freed anyway
                         TYRUS_CONNECTION.remove(grizzlyConnection);
                         TASK_PROCESSOR.remove(grizzlyConnection);
+                        READ_CONTROL.remove(grizzlyConnection);
                     }
                 });
 
@@ -365,18 +363,30 @@ class GrizzlyServerFilter extends BaseFilter {
         return requestContext;
     }
 
+    /**
+     * Passes the whole Grizzly {@link Buffer} to the {@link ReadHandler} at once.
+     * <p/>
+     * Frames are parsed directly from the buffer ({@link ReadHandler} copies only incomplete frame), so the buffer is
+     * released back to the Grizzly {@link org.glassfish.grizzly.memory.MemoryManager} right after it is processed.
+     * Composite buffer is converted to a single {@link java.nio.ByteBuffer} only when it really consists of multiple
+     * components.
+     */
     private class ProcessTask extends TaskProcessor.Task {
-        private final ByteBuffer buffer;
+        private final Buffer buffer;
         private final ReadHandler readHandler;
 
-        private ProcessTask(ByteBuffer buffer, ReadHandler readHandler) {
+        private ProcessTask(Buffer buffer, ReadHandler readHandler) {
             this.buffer = buffer;
             this.readHandler = readHandler;
         }
 
         @Override
         public void execute() {
-            readHandler.handle(buffer);
+            try {
+                readHandler.handle(buffer.toByteBuffer());
+            } finally {
+                buffer.tryDispose();
+            }
         }
     }
 
@@ -397,6 +407,7 @@ class GrizzlyServerFilter extends BaseFilter {
             connection.close(closeReason);
             TYRUS_CONNECTION.remove(grizzlyConnection);
             TASK_PROCESSOR.remove(grizzlyConnection);
+            READ_CONTROL.remove(grizzlyConnection);
         }
     }
 }
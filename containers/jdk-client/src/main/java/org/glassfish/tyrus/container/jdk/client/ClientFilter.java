@@ -211,6 +211,17 @@ class ClientFilter extends Filter {
                     break;
                 case SUCCESS:
                     wsConnection = clientUpgradeInfo.createConnection();
+                    wsConnection.setReadControl(new Connection.ReadControl() {
+                        @Override
+                        public void pause() {
+                            downstreamFilter.pauseRead();
+                        }
+
+                        @Override
+                        public void resume() {
+                            downstreamFilter.resumeRead();
+                        }
+                    });
 
                     if (data.hasRemaining()) {
                         wsConnection.getReadHandler().handle(data);
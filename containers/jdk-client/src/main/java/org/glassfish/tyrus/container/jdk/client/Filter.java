@@ -88,6 +88,27 @@ class Filter {
     void startSsl() {
     }
 
+    /**
+     * Stop reading data, it is passed on in the filter chain until a filter responsible for reading is reached.
+     * <p/>
+     * Data which has already been read are still passed to {@link #onRead(ByteBuffer)}.
+     */
+    void pauseRead() {
+        if (downstreamFilter != null) {
+            downstreamFilter.pauseRead();
+        }
+    }
+
+    /**
+     * Resume reading stopped by {@link #pauseRead()}, it is passed on in the filter chain until a filter responsible
+     * for reading is reached.
+     */
+    void resumeRead() {
+        if (downstreamFilter != null) {
+            downstreamFilter.resumeRead();
+        }
+    }
+
     /**
      * Initiate connect.
      * <p/>
@@ -109,6 +109,16 @@ class TransportFilter extends Filter {
 
     private volatile AsynchronousSocketChannel socketChannel;
 
+    private final Object readLock = new Object();
+    /**
+     * Guarded by {@link #readLock}.
+     */
+    private boolean readPaused = false;
+    /**
+     * Input buffer of the read which has not been started because reading is paused, guarded by {@link #readLock}.
+     */
+    private ByteBuffer pausedInputBuffer = null;
+
     /**
      * Constructor.
      * <p/>
@@ -298,6 +308,15 @@ class TransportFilter extends Filter {
                 inputBuffer.flip();
                 onRead(inputBuffer);
                 inputBuffer.compact();
+
+                synchronized (readLock) {
+                    if (readPaused) {
+                        // next read is started in resumeRead()
+                        pausedInputBuffer = inputBuffer;
+                        return;
+                    }
+                }
+
                 _read(inputBuffer);
             }
 
@@ -316,6 +335,27 @@ class TransportFilter extends Filter {
         });
     }
 
+    @Override
+    void pauseRead() {
+        synchronized (readLock) {
+            readPaused = true;
+        }
+    }
+
+    @Override
+    void resumeRead() {
+        final ByteBuffer inputBuffer;
+        synchronized (readLock) {
+            readPaused = false;
+            inputBuffer = pausedInputBuffer;
+            pausedInputBuffer = null;
+        }
+
+        if (inputBuffer != null) {
+            _read(inputBuffer);
+        }
+    }
+
     private void scheduleClose() {
         closeWaitTask = connectionCloseScheduler.schedule(new Runnable() {
             @Override
@@ -43,6 +43,7 @@ package org.glassfish.tyrus.servlet;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -86,7 +87,19 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
     private Connection connection;
     private WebSocketEngine.UpgradeInfo upgradeInfo;
     private Writer writer;
+    private ExecutorService executorService;
 
+    private final Object readLock = new Object();
+    /**
+     * {@code true} when the Tyrus runtime asked to stop reading, guarded by {@link #readLock}.
+     */
+    private boolean readPaused = false;
+    /**
+     * {@code true} when {@link #onDataAvailable()} returned because of {@link #readPaused} even though there might be
+     * more data to read; the container won't call it again, so it has to be rescheduled on resume. Guarded by {@link
+     * #readLock}.
+     */
+    private boolean readSuspended = false;
 
     private boolean authenticated = false;
 
@@ -118,6 +131,36 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
             }
         });
 
+        if (executorService != null) {
+            connection.setReadControl(new Connection.ReadControl() {
+                @Override
+                public void pause() {
+                    synchronized (readLock) {
+                        readPaused = true;
+                    }
+                }
+
+                @Override
+                public void resume() {
+                    synchronized (readLock) {
+                        readPaused = false;
+                        if (!readSuspended) {
+                            return;
+                        }
+                        readSuspended = false;
+                    }
+
+                    // the read loop cannot run on the thread which resumed reading.
+                    executorService.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            onDataAvailable();
+                        }
+                    });
+                }
+            });
+        }
+
         connectionLatch.countDown();
     }
 
@@ -127,6 +170,17 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
         this.authenticated = authenticated;
     }
 
+    /**
+     * Set the executor service used for resuming reads paused by the Tyrus runtime.
+     * <p/>
+     * Reading is never paused when no executor service is set.
+     *
+     * @param executorService executor service used to resume reading.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
     @Override
     public void onDataAvailable() {
         try {
@@ -143,27 +197,15 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
                     available = 16384;
                 }
 
-                int toRead;
-                if (buf == null) {
-                    if (available > incomingBufferSize) {
-                        toRead = incomingBufferSize;
-                    } else {
-                        toRead = available;
-                    }
-                } else {
-                    if (buf.remaining() + available > incomingBufferSize) {
-                        toRead = incomingBufferSize - buf.remaining();
-                    } else {
-                        toRead = buf.remaining() + available;
-                    }
-                }
+                final int leftover = buf == null ? 0 : buf.remaining();
+                final int toRead = Math.min(available, incomingBufferSize - leftover);
 
-                if (toRead == 0) {
+                if (toRead <= 0) {
                     throw new IOException(String.format("Tyrus input buffer exceeded. Current buffer size is %s bytes.",
                                                         incomingBufferSize));
                 }
 
-                available -= fillBuf(toRead);
+                fillBuf(leftover, toRead);
 
                 if (buf != null) {
 
@@ -176,57 +218,53 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
             } catch (IOException e) {
                 connection.close(CloseReasons.CANNOT_ACCEPT.getCloseReason());
             }
-        } while (!closed && is.isReady());
+        } while (!closed && !suspendIfPaused() && is.isReady());
+
+        // incomplete frames are kept by the read handler, which releases them when the session hibernates; an empty
+        // buffer is not kept between passes, so that an idle connection does not retain it.
+        if (buf != null && !buf.hasRemaining()) {
+            buf = null;
+        }
+    }
+
+    private boolean suspendIfPaused() {
+        synchronized (readLock) {
+            if (readPaused) {
+                readSuspended = true;
+            }
+            return readPaused;
+        }
     }
 
     /**
      * Fill the buf with some more websocket protocol data.
+     * <p/>
+     * The buffer is reused for subsequent reads of one {@link #onDataAvailable()} pass; data not consumed by the {@link
+     * org.glassfish.tyrus.spi.ReadHandler} are moved to the beginning of the buffer and new data are read directly
+     * behind them.
      *
-     * @param length length of data available to read.
-     * @return legth of actually read data.
+     * @param leftover length of data left in the buffer from previous read.
+     * @param length   length of data available to read.
+     * @return length of actually read data.
      * @throws IOException if some other I/O error occurs.
      */
-    private int fillBuf(int length) throws IOException {
-        byte[] data = new byte[length];
-        int len = is.read(data);
-        if (len == 0) {
-            return 0;
-        }
-        if (buf == null) {
-            LOGGER.finest("No Buffer. Allocating new one");
-            buf = ByteBuffer.wrap(data);
-            buf.limit(len);
-        } else {
-            int limit = buf.limit();
-            int capacity = buf.capacity();
-            int remaining = buf.remaining();
-
-            if (capacity - limit >= len) {
-                // Remaining data need not be changed. New data is just appended
-                LOGGER.finest("Remaining data need not be moved. New data is just appended");
-                buf.mark();
-                buf.position(limit);
-                buf.limit(capacity);
-                buf.put(data, 0, len);
-                buf.limit(limit + len);
-                buf.reset();
-            } else if (remaining + len < capacity) {
-                // Remaining data is moved to left. Then new data is appended
-                LOGGER.finest("Remaining data is moved to left. Then new data is appended");
-                buf.compact();
-                buf.put(data, 0, len);
-                buf.flip();
-            } else {
-                // Remaining data + new > capacity. So allocate new one
-                LOGGER.finest("Remaining data + new > capacity. So allocate new one");
-                byte[] array = new byte[remaining + len];
-                buf.get(array, 0, remaining);
-                System.arraycopy(data, 0, array, remaining, len);
-                buf = ByteBuffer.wrap(array);
-                buf.limit(remaining + len);
+    private int fillBuf(int leftover, int length) throws IOException {
+        if (buf == null || buf.capacity() < leftover + length) {
+            LOGGER.finest("Allocating new buffer");
+            final ByteBuffer newBuf = ByteBuffer.allocate(leftover + length);
+            if (buf != null) {
+                newBuf.put(buf);
             }
+            buf = newBuf;
+        } else {
+            // Remaining data is moved to left. Then new data is appended
+            buf.compact();
         }
 
+        final int len = is.read(buf.array(), buf.arrayOffset() + leftover, length);
+        buf.position(0);
+        buf.limit(leftover + (len > 0 ? len : 0));
+
         return len;
     }
 
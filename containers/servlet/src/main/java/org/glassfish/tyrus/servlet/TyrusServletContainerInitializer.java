@@ -98,6 +98,8 @@ public class TyrusServletContainerInitializer implements ServletContainerInitial
         final Integer maxSessionsPerApp = getIntContextParam(ctx, TyrusWebSocketEngine.MAX_SESSIONS_PER_APP);
         final Integer maxSessionsPerRemoteAddr = getIntContextParam(
                 ctx, TyrusWebSocketEngine.MAX_SESSIONS_PER_REMOTE_ADDR);
+        final Integer remoteAddrIpv6PrefixLength = getIntContextParam(
+                ctx, TyrusWebSocketEngine.MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX);
         final Boolean parallelBroadcastEnabled = getBooleanContextParam(
                 ctx, TyrusWebSocketEngine.PARALLEL_BROADCAST_ENABLED);
         final DebugContext.TracingType tracingType = getEnumContextParam(
@@ -115,6 +117,7 @@ public class TyrusServletContainerInitializer implements ServletContainerInitial
                                         .incomingBufferSize(incomingBufferSize)
                                         .maxSessionsPerApp(maxSessionsPerApp)
                                         .maxSessionsPerRemoteAddr(maxSessionsPerRemoteAddr)
+                                        .remoteAddrIpv6PrefixLength(remoteAddrIpv6PrefixLength)
                                         .parallelBroadcastEnabled(parallelBroadcastEnabled)
                                         .tracingType(tracingType)
                                         .tracingThreshold(tracingThreshold)
@@ -45,6 +45,7 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import javax.websocket.server.HandshakeRequest;
@@ -187,6 +188,11 @@ class TyrusServletFilter implements Filter, HttpSessionListener {
             handler.setIncomingBufferSize(incomingBufferSize);
         }
 
+        @Override
+        public void setExecutorService(ExecutorService executorService) {
+            handler.setExecutorService(executorService);
+        }
+
         @Override
         WebConnection getWebConnection() {
             return handler.getWebConnection();
@@ -269,6 +275,7 @@ class TyrusServletFilter implements Filter, HttpSessionListener {
                         handler.setIncomingBufferSize(Integer.parseInt(frameBufferSize));
                     }
 
+                    handler.setExecutorService(serverContainer.getExecutorService());
                     handler.preInit(upgradeInfo, webSocketConnection, httpServletRequest.getUserPrincipal() != null);
 
                     if (requestContext.getHttpSession() != null) {
@@ -41,8 +41,9 @@ package org.glassfish.tyrus.servlet;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,13 +55,21 @@ import org.glassfish.tyrus.spi.Writer;
 
 /**
  * {@link org.glassfish.tyrus.spi.Writer} implementation used in Servlet integration.
+ * <p/>
+ * Frames which cannot be written immediately are queued and when {@link #onWritePossible()} is invoked, consecutive
+ * queued frames are coalesced into a per-connection write buffer and written (and flushed) at once.
  *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
 class TyrusServletWriter extends Writer implements WriteListener {
 
+    /**
+     * Maximal size of the per-connection write buffer which is retained between writes.
+     */
+    private static final int MAX_WRITE_BUFFER_SIZE = 64 * 1024;
+
     private final TyrusHttpUpgradeHandler tyrusHttpUpgradeHandler;
-    private final Deque<QueuedFrame> queue = new LinkedList<QueuedFrame>();
+    private final Deque<QueuedFrame> queue = new ArrayDeque<QueuedFrame>();
 
     private static final Logger LOGGER = Logger.getLogger(TyrusServletWriter.class.getName());
 
@@ -72,6 +81,13 @@ class TyrusServletWriter extends Writer implements WriteListener {
      */
     private ServletOutputStream servletOutputStream = null;
 
+    /**
+     * Reusable buffer used for coalescing queued frames and for writing buffers which are not backed by an array.
+     * <p/>
+     * Access synchronized via "this".
+     */
+    private byte[] writeBuffer = null;
+
     private boolean isListenerSet;
 
     private static class QueuedFrame {
@@ -101,7 +117,13 @@ class TyrusServletWriter extends Writer implements WriteListener {
             final QueuedFrame queuedFrame = queue.poll();
             assert queuedFrame != null;
 
-            _write(queuedFrame.dataFrame, queuedFrame.completionHandler);
+            final QueuedFrame next = queue.peek();
+            if (next == null
+                    || queuedFrame.dataFrame.remaining() + next.dataFrame.remaining() > MAX_WRITE_BUFFER_SIZE) {
+                _write(queuedFrame.dataFrame, queuedFrame.completionHandler);
+            } else {
+                _writeCoalesced(queuedFrame);
+            }
         }
     }
 
@@ -150,9 +172,9 @@ class TyrusServletWriter extends Writer implements WriteListener {
                 servletOutputStream.write(array, buffer.arrayOffset() + buffer.position(), buffer.remaining());
             } else {
                 final int remaining = buffer.remaining();
-                final byte[] array = new byte[remaining];
-                buffer.get(array);
-                servletOutputStream.write(array);
+                final byte[] array = getWriteBuffer(remaining);
+                buffer.get(array, 0, remaining);
+                servletOutputStream.write(array, 0, remaining);
             }
 
             servletOutputStream.flush();
@@ -167,6 +189,80 @@ class TyrusServletWriter extends Writer implements WriteListener {
         }
     }
 
+    /**
+     * Write the first frame and as many following queued frames as fits into {@link #MAX_WRITE_BUFFER_SIZE} using
+     * single write (and flush) call.
+     *
+     * @param first first frame, already removed from the queue.
+     */
+    private void _writeCoalesced(QueuedFrame first) {
+        int length = first.dataFrame.remaining();
+        int count = 1;
+        for (QueuedFrame queuedFrame : queue) {
+            if (length + queuedFrame.dataFrame.remaining() > MAX_WRITE_BUFFER_SIZE) {
+                break;
+            }
+            length += queuedFrame.dataFrame.remaining();
+            count++;
+        }
+
+        final byte[] array = getWriteBuffer(length);
+        int offset = copy(first.dataFrame, array, 0);
+        final Iterator<QueuedFrame> iterator = queue.iterator();
+        for (int i = 1; i < count; i++) {
+            offset = copy(iterator.next().dataFrame, array, offset);
+        }
+
+        Exception failure = null;
+        try {
+            servletOutputStream.write(array, 0, length);
+            servletOutputStream.flush();
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        complete(first, failure);
+        for (int i = 1; i < count; i++) {
+            complete(queue.poll(), failure);
+        }
+    }
+
+    private static int copy(ByteBuffer source, byte[] target, int offset) {
+        final int remaining = source.remaining();
+        // do not change position of the source buffer, it is passed to the completion handler.
+        source.duplicate().get(target, offset, remaining);
+        return offset + remaining;
+    }
+
+    private static void complete(QueuedFrame queuedFrame, Exception failure) {
+        if (queuedFrame.completionHandler != null) {
+            if (failure == null) {
+                queuedFrame.completionHandler.completed(queuedFrame.dataFrame);
+            } else {
+                queuedFrame.completionHandler.failed(failure);
+            }
+        }
+    }
+
+    /**
+     * Get the reusable write buffer of at least given size.
+     * <p/>
+     * Buffers bigger than {@link #MAX_WRITE_BUFFER_SIZE} are not retained.
+     *
+     * @param size required size.
+     * @return byte array of at least given size.
+     */
+    private byte[] getWriteBuffer(int size) {
+        if (size > MAX_WRITE_BUFFER_SIZE) {
+            return new byte[size];
+        }
+
+        if (writeBuffer == null || writeBuffer.length < size) {
+            writeBuffer = new byte[size];
+        }
+        return writeBuffer;
+    }
+
     @Override
     public void close() {
         try {
@@ -89,12 +89,9 @@ public class AnnotatedEndpoint extends Endpoint {
 
     private final Object annotatedInstance;
     private final Class<?> annotatedClass;
-    private final Method onOpenMethod;
-    private final Method onCloseMethod;
-    private final Method onErrorMethod;
-    private final ParameterExtractor[] onOpenParameters;
-    private final ParameterExtractor[] onCloseParameters;
-    private final ParameterExtractor[] onErrorParameters;
+    private final EndpointMethodInvoker onOpenInvoker;
+    private final EndpointMethodInvoker onCloseInvoker;
+    private final EndpointMethodInvoker onErrorInvoker;
     private final EndpointConfig configuration;
     private final ComponentProviderService componentProvider;
     private final EndpointEventListener endpointEventListener;
@@ -158,10 +155,16 @@ public class AnnotatedEndpoint extends Endpoint {
         ParameterExtractor[] onErrorParameters = null;
 
         Map<Integer, Class<?>> unknownParams = new HashMap<Integer, Class<?>>();
-        AnnotatedClassValidityChecker validityChecker = new AnnotatedClassValidityChecker(
-                annotatedClass, configuration.getEncoders(), configuration.getDecoders(), collector);
 
-        for (Method m : annotatedClass.getMethods()) {
+        // classes indexed at compile time expose only their annotated methods; validated ones are not checked again
+        final EndpointIndex.Entry indexEntry =
+                EndpointIndex.getInstance(annotatedClass.getClassLoader()).getEntry(annotatedClass);
+        final Method[] methods = indexEntry == null ? annotatedClass.getMethods() : indexEntry.getMethods();
+        AnnotatedClassValidityChecker validityChecker = indexEntry != null && indexEntry.isValidated()
+                ? null : new AnnotatedClassValidityChecker(annotatedClass, configuration.getEncoders(),
+                                                           configuration.getDecoders(), collector);
+
+        for (Method m : methods) {
             if (m.isBridge()) {
                 continue;
             }
@@ -172,7 +175,9 @@ public class AnnotatedEndpoint extends Endpoint {
                     if (onOpen == null) {
                         onOpen = m;
                         onOpenParameters = getParameterExtractors(m, unknownParams, collector);
-                        validityChecker.checkOnOpenParams(m, unknownParams);
+                        if (validityChecker != null) {
+                            validityChecker.checkOnOpenParams(m, unknownParams);
+                        }
                     } else {
                         collector.addException(new DeploymentException(
                                 LocalizationMessages.ENDPOINT_MULTIPLE_METHODS(
@@ -185,7 +190,9 @@ public class AnnotatedEndpoint extends Endpoint {
                     if (onClose == null) {
                         onClose = m;
                         onCloseParameters = getOnCloseParameterExtractors(m, unknownParams, collector);
-                        validityChecker.checkOnCloseParams(m, unknownParams);
+                        if (validityChecker != null) {
+                            validityChecker.checkOnCloseParams(m, unknownParams);
+                        }
                         if (unknownParams.size() == 1 && unknownParams.values().iterator().next() != CloseReason
                                 .class) {
                             onCloseParameters[unknownParams.keySet().iterator().next()] = new ParamValue(0);
@@ -202,7 +209,9 @@ public class AnnotatedEndpoint extends Endpoint {
                     if (onError == null) {
                         onError = m;
                         onErrorParameters = getParameterExtractors(m, unknownParams, collector);
-                        validityChecker.checkOnErrorParams(m, unknownParams);
+                        if (validityChecker != null) {
+                            validityChecker.checkOnErrorParams(m, unknownParams);
+                        }
                         if (unknownParams.size() == 1
                                 && Throwable.class == unknownParams.values().iterator().next()) {
                             onErrorParameters[unknownParams.keySet().iterator().next()] = new ParamValue(0);
@@ -235,7 +244,9 @@ public class AnnotatedEndpoint extends Endpoint {
                         handlerFactory = new WholeHandler(componentProvider.getInvocableMethod(m), extractors,
                                                           entry.getValue(), maxMessageSize);
                         messageHandlerFactories.add(handlerFactory);
-                        validityChecker.checkOnMessageParams(m, handlerFactory.create(null));
+                        if (validityChecker != null) {
+                            validityChecker.checkOnMessageParams(m, handlerFactory.create(null));
+                        }
                     } else if (unknownParams.size() == 2) {
                         Iterator<Map.Entry<Integer, Class<?>>> it = unknownParams.entrySet().iterator();
                         Map.Entry<Integer, Class<?>> message = it.next();
@@ -252,7 +263,9 @@ public class AnnotatedEndpoint extends Endpoint {
                             handlerFactory = new PartialHandler(componentProvider.getInvocableMethod(m), extractors,
                                                                 message.getValue(), maxMessageSize);
                             messageHandlerFactories.add(handlerFactory);
-                            validityChecker.checkOnMessageParams(m, handlerFactory.create(null));
+                            if (validityChecker != null) {
+                                validityChecker.checkOnMessageParams(m, handlerFactory.create(null));
+                            }
                         } else {
                             collector.addException(new DeploymentException(
                                     LocalizationMessages.ENDPOINT_WRONG_PARAMS(annotatedClass.getName(), m.getName())));
@@ -265,12 +278,12 @@ public class AnnotatedEndpoint extends Endpoint {
             }
         }
 
-        this.onOpenMethod = onOpen == null ? null : componentProvider.getInvocableMethod(onOpen);
-        this.onErrorMethod = onError == null ? null : componentProvider.getInvocableMethod(onError);
-        this.onCloseMethod = onClose == null ? null : componentProvider.getInvocableMethod(onClose);
-        this.onOpenParameters = onOpenParameters;
-        this.onErrorParameters = onErrorParameters;
-        this.onCloseParameters = onCloseParameters;
+        this.onOpenInvoker = onOpen == null ? null : EndpointMethodInvoker.create(
+                componentProvider.getInvocableMethod(onOpen), onOpenParameters);
+        this.onErrorInvoker = onError == null ? null : EndpointMethodInvoker.create(
+                componentProvider.getInvocableMethod(onError), onErrorParameters);
+        this.onCloseInvoker = onClose == null ? null : EndpointMethodInvoker.create(
+                componentProvider.getInvocableMethod(onClose), onCloseParameters);
     }
 
     private EndpointConfig createEndpointConfig(Class<?> annotatedClass, boolean isServerEndpoint, ErrorCollector
@@ -423,7 +436,7 @@ public class AnnotatedEndpoint extends Endpoint {
                             .get(PrimitivesToWrappers.getPrimitiveWrapper(type));
 
                     @Override
-                    public Object value(Session session, Object... values) throws DecodeException {
+                    public Object value(Session session, Object first, Object second) throws DecodeException {
                         Object result = null;
 
                         if (decoder != null) {
@@ -444,25 +457,26 @@ public class AnnotatedEndpoint extends Endpoint {
                 }
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
+                    public Object value(Session session, Object first, Object second) {
                         return session;
                     }
                 };
             } else if (type == EndpointConfig.class) {
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
+                    public Object value(Session session, Object first, Object second) {
                         return getEndpointConfig();
                     }
                 };
             } else if (params.contains(type)) {
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
-                        for (Object value : values) {
-                            if (value != null && type.isAssignableFrom(value.getClass())) {
-                                return value;
-                            }
+                    public Object value(Session session, Object first, Object second) {
+                        if (first != null && type.isAssignableFrom(first.getClass())) {
+                            return first;
+                        }
+                        if (second != null && type.isAssignableFrom(second.getClass())) {
+                            return second;
                         }
 
                         return null;
@@ -485,44 +499,43 @@ public class AnnotatedEndpoint extends Endpoint {
         return null;
     }
 
-    private Object callMethod(Method method, ParameterExtractor[] extractors, Session session, boolean callOnError,
-                              Object... params) {
-        ErrorCollector collector = new ErrorCollector();
-        Object[] paramValues = new Object[extractors.length];
-
+    private Object callMethod(EndpointMethodInvoker invoker, Session session, boolean callOnError, Object first,
+                              Object second) {
         try {
-            final Object endpoint = annotatedInstance != null
-                    ? annotatedInstance
-                    : componentProvider.getInstance(annotatedClass, session, collector);
+            Object endpoint = annotatedInstance;
+            if (endpoint == null) {
+                // instance created by previous invocation is returned without collecting errors
+                endpoint = componentProvider.getCachedInstance(annotatedClass, session);
+            }
+            if (endpoint == null) {
+                final ErrorCollector collector = new ErrorCollector();
+                endpoint = componentProvider.getInstance(annotatedClass, session, collector);
+
+                // TYRUS-325: Server do not close session properly if non-instantiable endpoint class is provided
+                if (callOnError && endpoint == null) {
+                    if (!collector.isEmpty()) {
+                        Throwable t = collector.composeComprehensiveException();
+                        LOGGER.log(Level.FINE, t.getMessage(), t);
+                    }
+                    try {
+                        session.close(CloseReasons.UNEXPECTED_CONDITION.getCloseReason());
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINEST, e.getMessage(), e);
+                    }
+                    return null;
+                }
 
-            // TYRUS-325: Server do not close session properly if non-instantiable endpoint class is provided
-            if (callOnError && endpoint == null) {
                 if (!collector.isEmpty()) {
-                    Throwable t = collector.composeComprehensiveException();
-                    LOGGER.log(Level.FINE, t.getMessage(), t);
-                }
-                try {
-                    session.close(CloseReasons.UNEXPECTED_CONDITION.getCloseReason());
-                } catch (Exception e) {
-                    LOGGER.log(Level.FINEST, e.getMessage(), e);
+                    throw collector.composeComprehensiveException();
                 }
-                return null;
-            }
-
-            if (!collector.isEmpty()) {
-                throw collector.composeComprehensiveException();
-            }
-
-            for (int i = 0; i < paramValues.length; i++) {
-                paramValues[i] = extractors[i].value(session, params);
             }
 
-            return method.invoke(endpoint, paramValues);
+            return invoker.invoke(endpoint, session, first, second);
         } catch (Exception e) {
             if (callOnError) {
                 onError(session, (e instanceof InvocationTargetException ? e.getCause() : e));
             } else {
-                LOGGER.log(Level.INFO, LocalizationMessages.ENDPOINT_EXCEPTION_FROM_ON_ERROR(method), e);
+                LOGGER.log(Level.INFO, LocalizationMessages.ENDPOINT_EXCEPTION_FROM_ON_ERROR(invoker.method), e);
             }
         }
 
@@ -531,8 +544,8 @@ public class AnnotatedEndpoint extends Endpoint {
 
     void onClose(CloseReason closeReason, Session session) {
         try {
-            if (onCloseMethod != null) {
-                callMethod(onCloseMethod, onCloseParameters, session, true, closeReason);
+            if (onCloseInvoker != null) {
+                callMethod(onCloseInvoker, session, true, closeReason, null);
             }
         } finally {
             componentProvider.removeSession(session);
@@ -546,8 +559,8 @@ public class AnnotatedEndpoint extends Endpoint {
 
     @Override
     public void onError(Session session, Throwable thr) {
-        if (onErrorMethod != null) {
-            callMethod(onErrorMethod, onErrorParameters, session, false, thr);
+        if (onErrorInvoker != null) {
+            callMethod(onErrorInvoker, session, false, thr, null);
         } else {
             LOGGER.log(Level.INFO,
                        LocalizationMessages.ENDPOINT_UNHANDLED_EXCEPTION(annotatedClass.getCanonicalName()), thr);
@@ -566,13 +579,13 @@ public class AnnotatedEndpoint extends Endpoint {
             session.addMessageHandler(f.create(session));
         }
 
-        if (onOpenMethod != null) {
-            callMethod(onOpenMethod, onOpenParameters, session, true);
+        if (onOpenInvoker != null) {
+            callMethod(onOpenInvoker, session, true, null, null);
         }
     }
 
     static interface ParameterExtractor {
-        Object value(Session session, Object... paramValues) throws DecodeException;
+        Object value(Session session, Object first, Object second) throws DecodeException;
     }
 
     static class ParamValue implements ParameterExtractor {
@@ -583,20 +596,18 @@ public class AnnotatedEndpoint extends Endpoint {
         }
 
         @Override
-        public Object value(Session session, Object... paramValues) {
-            return paramValues[index];
+        public Object value(Session session, Object first, Object second) {
+            return index == 0 ? first : second;
         }
     }
 
     private abstract class MessageHandlerFactory {
-        final Method method;
-        final ParameterExtractor[] extractors;
+        final EndpointMethodInvoker invoker;
         final Class<?> type;
         final long maxMessageSize;
 
         MessageHandlerFactory(Method method, ParameterExtractor[] extractors, Class<?> type, long maxMessageSize) {
-            this.method = method;
-            this.extractors = extractors;
+            this.invoker = EndpointMethodInvoker.create(method, extractors);
             this.type = (PrimitivesToWrappers.getPrimitiveWrapper(type) == null)
                     ? type
                     : PrimitivesToWrappers.getPrimitiveWrapper(type);
@@ -616,7 +627,7 @@ public class AnnotatedEndpoint extends Endpoint {
             return new BasicMessageHandler() {
                 @Override
                 public void onMessage(Object message) {
-                    Object result = callMethod(method, extractors, session, true, message);
+                    Object result = callMethod(invoker, session, true, message, null);
                     if (result != null) {
                         try {
                             session.getBasicRemote().sendObject(result);
@@ -650,7 +661,7 @@ public class AnnotatedEndpoint extends Endpoint {
 
                 @Override
                 public void onMessage(Object partialMessage, boolean last) {
-                    Object result = callMethod(method, extractors, session, true, partialMessage, last);
+                    Object result = callMethod(invoker, session, true, partialMessage, last);
                     if (result != null) {
                         try {
                             session.getBasicRemote().sendObject(result);
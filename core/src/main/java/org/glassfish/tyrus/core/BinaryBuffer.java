@@ -97,6 +97,15 @@ class BinaryBuffer {
         return b;
     }
 
+    /**
+     * Get number of buffered bytes.
+     *
+     * @return number of bytes buffered until the last part of the message is received.
+     */
+    int getRetainedSize() {
+        return currentlyBuffered;
+    }
+
     /**
      * Reset buffer with setting maximal buffer size.
      *
@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.websocket.CloseReason;
+
+import org.glassfish.tyrus.core.frame.CloseFrame;
+
+/**
+ * Closes many sessions at once, e.g. when a server is drained before restart.
+ * <p/>
+ * The close frame is serialized once and the same bytes are written to all connections without extensions. Sessions
+ * are divided into batches processed by a bounded number of workers; each worker first writes close frames to all
+ * sessions of a batch, so peers are notified as soon as possible, and then invokes {@link javax.websocket.OnClose}
+ * annotated methods (or {@link javax.websocket.Endpoint#onClose(javax.websocket.Session, CloseReason)}) and closes
+ * the connections. When a peer replies before its batch gets to this phase, the endpoint is notified by the thread
+ * reading the reply, still with the local close reason. Progress is reported after each batch.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see TyrusWebSocketEngine#closeAll(CloseReason, boolean, TyrusWebSocketEngine.CloseProgressListener)
+ */
+class BulkCloser {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkCloser.class.getName());
+
+    /**
+     * Number of sessions processed by a worker at once.
+     */
+    static final int BATCH_SIZE = 64;
+
+    private final List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions;
+    private final boolean shutdown;
+    private final TyrusWebSocketEngine.CloseProgressListener listener;
+    private final CloseFrame closeFrame;
+    private final CloseFrame outgoingCloseFrame;
+    private final int batchCount;
+    private final AtomicInteger nextBatch = new AtomicInteger(0);
+    private final AtomicInteger closed = new AtomicInteger(0);
+    private final AtomicInteger runningWorkers = new AtomicInteger(0);
+    private final TyrusFuture<Integer> future = new TyrusFuture<Integer>();
+    private final byte[] sharedCloseFrame;
+
+    /**
+     * Constructor.
+     *
+     * @param sessions    sessions to be closed together with web sockets they are bound to.
+     * @param closeReason close reason sent to peers and passed to the endpoints.
+     * @param shutdown    {@code true} when the container is going to be shut down, scheduled tasks of the sessions are
+     *                    not cancelled then.
+     * @param listener    progress listener, can be {@code null}.
+     */
+    BulkCloser(List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions, CloseReason closeReason, boolean shutdown,
+               TyrusWebSocketEngine.CloseProgressListener listener) {
+        this.sessions = sessions;
+        this.shutdown = shutdown;
+        this.listener = listener;
+        this.closeFrame = new CloseFrame(closeReason);
+        this.outgoingCloseFrame = new CloseFrame(ProtocolHandler.getOutgoingCloseReason(false, closeReason));
+        this.batchCount = (sessions.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+
+        // server side frames are not masked, so the same bytes can be written to all connections without extensions.
+        byte[] frame = null;
+        for (Map.Entry<TyrusWebSocket, TyrusSession> e : sessions) {
+            final ProtocolHandler protocolHandler = e.getKey().getProtocolHandler();
+            if (!protocolHandler.hasExtensions()) {
+                frame = Utils.getRemainingArray(protocolHandler.frame(outgoingCloseFrame));
+                break;
+            }
+        }
+        this.sharedCloseFrame = frame;
+    }
+
+    /**
+     * Close the sessions.
+     *
+     * @param executor    executor running the workers, the sessions are closed in the calling thread when {@code
+     *                    null}.
+     * @param parallelism maximal number of workers.
+     * @return future completed when all sessions are closed, its value is the number of sessions closed by this
+     * invocation.
+     */
+    Future<Integer> close(Executor executor, int parallelism) {
+        if (batchCount == 0) {
+            future.setResult(0);
+            return future;
+        }
+
+        final int workers = executor == null ? 1 : Math.max(1, Math.min(parallelism, batchCount));
+        runningWorkers.set(workers);
+
+        for (int i = 0; i < workers; i++) {
+            final Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int batch;
+                        while ((batch = nextBatch.getAndIncrement()) < batchCount) {
+                            closeBatch(batch);
+                        }
+                    } finally {
+                        if (runningWorkers.decrementAndGet() == 0) {
+                            future.setResult(closed.get());
+                        }
+                    }
+                }
+            };
+
+            if (executor == null) {
+                worker.run();
+            } else {
+                try {
+                    executor.execute(worker);
+                } catch (RejectedExecutionException e) {
+                    // executor is being shut down; the remaining batches are closed in the calling thread.
+                    worker.run();
+                }
+            }
+        }
+
+        return future;
+    }
+
+    private void closeBatch(int batch) {
+        final int from = batch * BATCH_SIZE;
+        final int to = Math.min(from + BATCH_SIZE, sessions.size());
+        final boolean[] sent = new boolean[to - from];
+
+        for (int i = from; i < to; i++) {
+            final TyrusWebSocket socket = sessions.get(i).getKey();
+            final ProtocolHandler protocolHandler = socket.getProtocolHandler();
+            if (shutdown) {
+                sessions.get(i).getValue().setContainerShutdown();
+            }
+
+            try {
+                final ByteBuffer frame = sharedCloseFrame == null || protocolHandler.hasExtensions()
+                        ? protocolHandler.frame(outgoingCloseFrame) : ByteBuffer.wrap(sharedCloseFrame);
+                sent[i - from] = socket.sendClose(frame, outgoingCloseFrame.getPayloadLength(), closeFrame);
+            } catch (RuntimeException e) {
+                // connection is already broken, the endpoint is still notified.
+                LOGGER.log(Level.FINE, e.getMessage(), e);
+                sent[i - from] = true;
+            }
+        }
+
+        int batchClosed = 0;
+        for (int i = from; i < to; i++) {
+            if (sent[i - from]) {
+                try {
+                    sessions.get(i).getKey().onClose(closeFrame);
+                    batchClosed++;
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, e.getMessage(), e);
+                }
+            }
+        }
+
+        final int closedCount = closed.addAndGet(batchClosed);
+        if (listener != null) {
+            listener.onProgress(closedCount, sessions.size());
+        }
+    }
+}
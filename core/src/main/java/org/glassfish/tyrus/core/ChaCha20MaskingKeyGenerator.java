@@ -0,0 +1,247 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.security.SecureRandom;
+
+/**
+ * {@link MaskingKeyGenerator} producing masking keys from a per-thread ChaCha20 key stream.
+ * <p/>
+ * Each thread owns a ChaCha20 state keyed from a shared {@link SecureRandom}. One ChaCha20 block yields 16 masking
+ * keys, so the shared {@link SecureRandom} (and its lock) is only touched when a thread's state is rekeyed, which
+ * happens every {@value #REKEY_INTERVAL} blocks. Masking keys therefore stay unpredictable from the previous ones,
+ * as required by RFC 6455, without contending on {@link SecureRandom} for every frame.
+ * <p/>
+ * Can be selected by {@link MaskingKeyGenerator#CHACHA20} name.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public class ChaCha20MaskingKeyGenerator implements MaskingKeyGenerator {
+
+    /**
+     * Number of ChaCha20 blocks generated by a thread before its state is rekeyed from {@link SecureRandom}.
+     */
+    /* package */ static final int REKEY_INTERVAL = 4096;
+
+    private static final SecureRandom SEED = new SecureRandom();
+
+    private static final ThreadLocal<KeyStream> KEY_STREAM = new ThreadLocal<KeyStream>() {
+        @Override
+        protected KeyStream initialValue() {
+            return new KeyStream();
+        }
+    };
+
+    @Override
+    public int nextInt() {
+        return KEY_STREAM.get().nextInt();
+    }
+
+    /**
+     * Compute one ChaCha20 block (RFC 7539, section 2.3).
+     *
+     * @param state  16 words of input state (constants, key, block counter and nonce).
+     * @param output array the 16 words of the block will be written to.
+     */
+    /* package */
+    static void block(int[] state, int[] output) {
+        int x0 = state[0];
+        int x1 = state[1];
+        int x2 = state[2];
+        int x3 = state[3];
+        int x4 = state[4];
+        int x5 = state[5];
+        int x6 = state[6];
+        int x7 = state[7];
+        int x8 = state[8];
+        int x9 = state[9];
+        int x10 = state[10];
+        int x11 = state[11];
+        int x12 = state[12];
+        int x13 = state[13];
+        int x14 = state[14];
+        int x15 = state[15];
+
+        for (int i = 0; i < 10; i++) {
+            // column rounds
+            x0 += x4;
+            x12 = Integer.rotateLeft(x12 ^ x0, 16);
+            x8 += x12;
+            x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4;
+            x12 = Integer.rotateLeft(x12 ^ x0, 8);
+            x8 += x12;
+            x4 = Integer.rotateLeft(x4 ^ x8, 7);
+
+            x1 += x5;
+            x13 = Integer.rotateLeft(x13 ^ x1, 16);
+            x9 += x13;
+            x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5;
+            x13 = Integer.rotateLeft(x13 ^ x1, 8);
+            x9 += x13;
+            x5 = Integer.rotateLeft(x5 ^ x9, 7);
+
+            x2 += x6;
+            x14 = Integer.rotateLeft(x14 ^ x2, 16);
+            x10 += x14;
+            x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6;
+            x14 = Integer.rotateLeft(x14 ^ x2, 8);
+            x10 += x14;
+            x6 = Integer.rotateLeft(x6 ^ x10, 7);
+
+            x3 += x7;
+            x15 = Integer.rotateLeft(x15 ^ x3, 16);
+            x11 += x15;
+            x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7;
+            x15 = Integer.rotateLeft(x15 ^ x3, 8);
+            x11 += x15;
+            x7 = Integer.rotateLeft(x7 ^ x11, 7);
+
+            // diagonal rounds
+            x0 += x5;
+            x15 = Integer.rotateLeft(x15 ^ x0, 16);
+            x10 += x15;
+            x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5;
+            x15 = Integer.rotateLeft(x15 ^ x0, 8);
+            x10 += x15;
+            x5 = Integer.rotateLeft(x5 ^ x10, 7);
+
+            x1 += x6;
+            x12 = Integer.rotateLeft(x12 ^ x1, 16);
+            x11 += x12;
+            x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6;
+            x12 = Integer.rotateLeft(x12 ^ x1, 8);
+            x11 += x12;
+            x6 = Integer.rotateLeft(x6 ^ x11, 7);
+
+            x2 += x7;
+            x13 = Integer.rotateLeft(x13 ^ x2, 16);
+            x8 += x13;
+            x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7;
+            x13 = Integer.rotateLeft(x13 ^ x2, 8);
+            x8 += x13;
+            x7 = Integer.rotateLeft(x7 ^ x8, 7);
+
+            x3 += x4;
+            x14 = Integer.rotateLeft(x14 ^ x3, 16);
+            x9 += x14;
+            x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4;
+            x14 = Integer.rotateLeft(x14 ^ x3, 8);
+            x9 += x14;
+            x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+
+        output[0] = x0 + state[0];
+        output[1] = x1 + state[1];
+        output[2] = x2 + state[2];
+        output[3] = x3 + state[3];
+        output[4] = x4 + state[4];
+        output[5] = x5 + state[5];
+        output[6] = x6 + state[6];
+        output[7] = x7 + state[7];
+        output[8] = x8 + state[8];
+        output[9] = x9 + state[9];
+        output[10] = x10 + state[10];
+        output[11] = x11 + state[11];
+        output[12] = x12 + state[12];
+        output[13] = x13 + state[13];
+        output[14] = x14 + state[14];
+        output[15] = x15 + state[15];
+    }
+
+    /**
+     * ChaCha20 key stream owned by a single thread.
+     */
+    private static class KeyStream {
+
+        private final int[] state = new int[16];
+        private final int[] block = new int[16];
+
+        private int position = block.length;
+        private int blocksUntilRekey = 0;
+
+        private int nextInt() {
+            if (position == block.length) {
+                refill();
+            }
+            return block[position++];
+        }
+
+        private void refill() {
+            if (blocksUntilRekey == 0) {
+                rekey();
+            }
+
+            block(state, block);
+            state[12]++;
+            blocksUntilRekey--;
+            position = 0;
+        }
+
+        private void rekey() {
+            final byte[] seed = new byte[44];
+            SEED.nextBytes(seed);
+
+            // "expand 32-byte k"
+            state[0] = 0x61707865;
+            state[1] = 0x3320646e;
+            state[2] = 0x79622d32;
+            state[3] = 0x6b206574;
+            // 256-bit key (words 4 - 11) and 96-bit nonce (words 13 - 15)
+            for (int i = 0; i < 11; i++) {
+                state[i < 8 ? 4 + i : 5 + i] = (seed[4 * i] & 0xff)
+                        | (seed[4 * i + 1] & 0xff) << 8
+                        | (seed[4 * i + 2] & 0xff) << 16
+                        | (seed[4 * i + 3] & 0xff) << 24;
+            }
+            state[12] = 0;
+
+            blocksUntilRekey = REKEY_INTERVAL;
+        }
+    }
+}
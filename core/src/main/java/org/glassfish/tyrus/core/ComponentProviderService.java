@@ -161,6 +161,25 @@ public class ComponentProviderService {
         return loaded;
     }
 
+    /**
+     * Get an instance of class which has already been provided for the {@link Session} by
+     * {@link #getInstance(Class, Session, ErrorCollector)}.
+     *
+     * @param c       {@link Class} whose instance is requested.
+     * @param session session the instance is coupled to.
+     * @return cached instance or {@code null} when no instance has been provided for the session yet.
+     */
+    Object getCachedInstance(Class<?> c, Session session) {
+        final Map<Class<?>, Object> classObjectMap = sessionToObject.get(session);
+        if (classObjectMap == null) {
+            return null;
+        }
+
+        synchronized (classObjectMap) {
+            return classObjectMap.get(c);
+        }
+    }
+
     /**
      * Provide an instance of {@link javax.websocket.Encoder} or {@link javax.websocket.Decoder} descendant which is
      * coupled to {@link Session}.
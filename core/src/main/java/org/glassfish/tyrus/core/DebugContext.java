@@ -42,6 +42,7 @@ package org.glassfish.tyrus.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -59,15 +60,21 @@ import org.glassfish.tyrus.spi.UpgradeResponse;
  * <p/>
  * Log records are provided with a session ID, so that log records from a single upgrade request can be easily linked
  * together in a log of a busy server or client.
+ * <p/>
+ * Messages are composed only when they are going to be logged or traced. Callers on hot paths are expected to check
+ * {@link java.util.logging.Logger#isLoggable(java.util.logging.Level)} or {@link #isTraceEnabled(Logger, Level)}
+ * before building message parts, so that neither the message parts nor the varargs array are created when logging
+ * and tracing are disabled. A context with tracing turned off does not allocate any buffers until a message is
+ * actually recorded.
  *
  * @author Petr Janouch (petr.janouch at oracle.com)
  */
 public class DebugContext {
 
-    // is not thread safe - it is assumed that it will be used only in the "handshake phase"
-    private List<LogRecord> logRecords = new ArrayList<LogRecord>();
-    // is not thread safe - it is assumed that it will be used only in the "handshake phase"
-    private Map<String, List<String>> tracingHeaders = new HashMap<String, List<String>>();
+    // is not thread safe - it is assumed that it will be used only in the "handshake phase"; created lazily
+    private List<LogRecord> logRecords = null;
+    // is not thread safe - it is assumed that it will be used only in the "handshake phase"; created lazily
+    private Map<String, List<String>> tracingHeaders = null;
     private final long startTimestamp;
     private final Level tracingLevel;
     private String sessionId = null;
@@ -94,6 +101,20 @@ public class DebugContext {
         this.tracingLevel = Level.OFF;
     }
 
+    /**
+     * Get information whether a message appended by {@link #appendTraceMessage(Logger, Level, Type, Object...)} with
+     * given logger and level would be either logged or added to the tracing headers.
+     * <p/>
+     * Should be used to guard trace messages whose parts are expensive to create.
+     *
+     * @param logger       logger to be used to log the message.
+     * @param loggingLevel message level.
+     * @return {@code true} if the message would be logged or traced, {@code false} otherwise.
+     */
+    public boolean isTraceEnabled(Logger logger, Level loggingLevel) {
+        return tracingLevel.intValue() <= loggingLevel.intValue() || logger.isLoggable(loggingLevel);
+    }
+
     /**
      * Append a message to the log, the logging will be postponed until the message can be provided with a session ID.
      * Randomly generated session ID is used if a session has not been created.
@@ -134,18 +155,7 @@ public class DebugContext {
     public void appendLogMessageWithThrowable(Logger logger, Level loggingLevel, Type type, Throwable t,
                                               Object... messageParts) {
         if (logger.isLoggable(loggingLevel)) {
-
-            String message = stringifyMessageParts(messageParts);
-
-            if (sessionId == null) {
-                logRecords.add(new LogRecord(logger, loggingLevel, type, message, t, false));
-            } else {
-                if (t != null) {
-                    logger.log(loggingLevel, formatLogMessage(message, type, System.nanoTime()), t);
-                } else {
-                    logger.log(loggingLevel, formatLogMessage(message, type, System.nanoTime()));
-                }
-            }
+            log(logger, loggingLevel, type, t, stringifyMessageParts(messageParts));
         }
     }
 
@@ -162,12 +172,39 @@ public class DebugContext {
      */
     public void appendTraceMessageWithThrowable(Logger logger, Level loggingLevel, Type type, Throwable t,
                                                 Object... messageParts) {
-        if (this.tracingLevel.intValue() <= loggingLevel.intValue()) {
-            String message = stringifyMessageParts(messageParts);
+        final boolean traced = this.tracingLevel.intValue() <= loggingLevel.intValue();
+        final boolean logged = logger.isLoggable(loggingLevel);
+        if (!traced && !logged) {
+            return;
+        }
+
+        // compose the message just once for both tracing header and log
+        final String message = stringifyMessageParts(messageParts);
+        if (traced) {
             appendTracingHeader(message);
         }
+        if (logged) {
+            log(logger, loggingLevel, type, t, message);
+        }
+    }
+
+    private void log(Logger logger, Level loggingLevel, Type type, Throwable t, String message) {
+        if (sessionId == null) {
+            addLogRecord(new LogRecord(logger, loggingLevel, type, message, t, false));
+        } else {
+            if (t != null) {
+                logger.log(loggingLevel, formatLogMessage(message, type, System.nanoTime()), t);
+            } else {
+                logger.log(loggingLevel, formatLogMessage(message, type, System.nanoTime()));
+            }
+        }
+    }
 
-        appendLogMessageWithThrowable(logger, loggingLevel, type, t, messageParts);
+    private void addLogRecord(LogRecord logRecord) {
+        if (logRecords == null) {
+            logRecords = new ArrayList<LogRecord>();
+        }
+        logRecords.add(logRecord);
     }
 
     /**
@@ -179,7 +216,7 @@ public class DebugContext {
      */
     public void appendStandardOutputMessage(Type type, String message) {
         if (sessionId == null) {
-            logRecords.add(new LogRecord(null, Level.OFF, type, message, null, true));
+            addLogRecord(new LogRecord(null, Level.OFF, type, message, null, true));
         } else {
             System.out.println(formatLogMessage(message, type, System.nanoTime()));
         }
@@ -205,6 +242,10 @@ public class DebugContext {
             sessionId = UUID.randomUUID().toString();
         }
 
+        if (logRecords == null) {
+            return;
+        }
+
         for (LogRecord logRecord : logRecords) {
             if (logRecord.printToSout) {
                 System.out.println(formatLogMessage(logRecord.message, logRecord.type, logRecord.timestamp));
@@ -220,7 +261,7 @@ public class DebugContext {
             }
         }
 
-        logRecords.clear();
+        logRecords = null;
     }
 
     /**
@@ -229,10 +270,20 @@ public class DebugContext {
      * @return tracing headers.
      */
     public Map<String, List<String>> getTracingHeaders() {
-        return tracingHeaders;
+        return tracingHeaders == null ? Collections.<String, List<String>>emptyMap() : tracingHeaders;
+    }
+
+    /**
+     * Release tracing headers, which are not needed once the handshake response has been sent.
+     */
+    void releaseTracingHeaders() {
+        tracingHeaders = null;
     }
 
     private void appendTracingHeader(String message) {
+        if (tracingHeaders == null) {
+            tracingHeaders = new HashMap<String, List<String>>();
+        }
         String headerName = UpgradeResponse.TRACING_HEADER_PREFIX + String.format("%02d%n", tracingHeaders.size());
         tracingHeaders.put(headerName,
                            Arrays.asList("[" + (System.nanoTime() - startTimestamp) / 1000000 + " ms] " + message));
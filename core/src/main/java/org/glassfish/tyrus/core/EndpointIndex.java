@@ -0,0 +1,329 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Endpoint model index generated at compile time.
+ * <p/>
+ * The index is written by the {@code tyrus-endpoint-index} annotation processor to {@value #RESOURCE_NAME}. Every
+ * line describes one {@link javax.websocket.server.ServerEndpoint} annotated class:
+ * <pre>
+ * org.example.EchoEndpoint validated 1f3e5a7c onOpen(javax.websocket.Session) onMessage(java.lang.String)
+ * </pre>
+ * The first token is the binary name of the endpoint class, the second one is either {@code validated} or {@code
+ * unvalidated}, the third one is the signature hash of the class (see {@link #getSignatureHash(Class)}) and the rest
+ * are lifecycle and message methods with parameter types in the format of {@link Class#getName()}. Empty lines and
+ * lines starting with {@code #} are ignored.
+ * <p/>
+ * When an annotated endpoint is deployed and its class is listed in the index, {@link AnnotatedEndpoint} inspects only
+ * the indexed methods instead of all public methods of the class. If the processor was able to check the whole class
+ * (the {@code validated} flag), the runtime validation done by {@link AnnotatedClassValidityChecker} is skipped as well.
+ * When the signature hash of the class differs from the indexed one or when an indexed method cannot be found (the
+ * index is older than the class), the entry is ignored and the class is processed as if it was not indexed.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public final class EndpointIndex {
+
+    /**
+     * Name of the resource containing the endpoint index.
+     */
+    public static final String RESOURCE_NAME = "META-INF/tyrus/endpoint.idx";
+
+    /**
+     * Value of the second token of an entry which was completely validated by the annotation processor.
+     */
+    static final String VALIDATED = "validated";
+
+    private static final Logger LOGGER = Logger.getLogger(EndpointIndex.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final EndpointIndex EMPTY = new EndpointIndex(Collections.<String, String[]>emptyMap());
+
+    private static final Map<ClassLoader, EndpointIndex> INDEXES = new WeakHashMap<ClassLoader, EndpointIndex>();
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+
+    static {
+        for (Class<?> c : new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class, long.class,
+                float.class, double.class}) {
+            PRIMITIVES.put(c.getName(), c);
+        }
+    }
+
+    private final Map<String, String[]> entries;
+
+    private EndpointIndex(Map<String, String[]> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Get endpoint index visible to given class loader.
+     * <p/>
+     * All {@value #RESOURCE_NAME} resources visible to the class loader are merged. The result is cached for the
+     * lifetime of the class loader.
+     *
+     * @param classLoader class loader used to look up the index resources. {@code null} stands for the system class
+     *                    loader.
+     * @return endpoint index, never {@code null}. Empty index is returned when there is no index resource.
+     */
+    public static EndpointIndex getInstance(ClassLoader classLoader) {
+        final ClassLoader loader = classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+
+        synchronized (INDEXES) {
+            EndpointIndex index = INDEXES.get(loader);
+            if (index == null) {
+                index = load(loader);
+                INDEXES.put(loader, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Get names of all indexed endpoint classes.
+     *
+     * @return unmodifiable set of binary class names.
+     */
+    public Set<String> getEndpointClassNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Get information whether the index contains any entry.
+     *
+     * @return {@code true} when no endpoint is indexed.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Get information whether given class is indexed and its index entry matches the class.
+     *
+     * @param endpointClass endpoint class.
+     * @return {@code true} when the index entry of the class is used when the class is deployed.
+     */
+    public boolean isIndexed(Class<?> endpointClass) {
+        return getEntry(endpointClass) != null;
+    }
+
+    /**
+     * Get signature hash of a class - sum of hash codes of descriptors of all public methods of the class (including
+     * the inherited ones) as returned by {@link Class#getMethods()}, bridge and synthetic methods excluded. Descriptor
+     * is the method name followed by comma separated parameter types in the format of {@link Class#getName()} enclosed
+     * in parentheses, for example {@code onMessage(java.lang.String,boolean)}.
+     * <p/>
+     * Any added, removed or changed public method changes the hash, so an index entry created for a different version
+     * of the class is not used.
+     *
+     * @param c class.
+     * @return signature hash.
+     */
+    static int getSignatureHash(Class<?> c) {
+        int hash = 0;
+        for (Method method : c.getMethods()) {
+            if (method.isBridge() || method.isSynthetic()) {
+                continue;
+            }
+
+            final StringBuilder sb = new StringBuilder(method.getName()).append('(');
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(parameterTypes[i].getName());
+            }
+            hash += sb.append(')').toString().hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Get index entry for given class.
+     *
+     * @param endpointClass endpoint class.
+     * @return resolved entry or {@code null} when the class is not indexed or the entry does not match the class.
+     */
+    Entry getEntry(Class<?> endpointClass) {
+        final String[] tokens = entries.get(endpointClass.getName());
+        if (tokens == null) {
+            return null;
+        }
+
+        if (tokens.length < 3 || !Integer.toHexString(getSignatureHash(endpointClass)).equals(tokens[2])) {
+            LOGGER.log(Level.CONFIG, String.format(
+                    "Endpoint index entry for %s does not match the class signature, index is ignored.",
+                    endpointClass.getName()));
+            return null;
+        }
+
+        final Method[] methods = new Method[tokens.length - 3];
+        try {
+            for (int i = 0; i < methods.length; i++) {
+                methods[i] = resolveMethod(endpointClass, tokens[i + 3]);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.CONFIG, String.format(
+                    "Endpoint index entry for %s does not match the class, index is ignored.",
+                    endpointClass.getName()), e);
+            return null;
+        }
+
+        return new Entry(methods, VALIDATED.equals(tokens[1]));
+    }
+
+    private static Method resolveMethod(Class<?> endpointClass, String descriptor) throws ClassNotFoundException,
+            NoSuchMethodException {
+        final int open = descriptor.indexOf('(');
+        if (open <= 0 || !descriptor.endsWith(")")) {
+            throw new IllegalArgumentException("Malformed method descriptor: " + descriptor);
+        }
+
+        final String name = descriptor.substring(0, open);
+        final String params = descriptor.substring(open + 1, descriptor.length() - 1);
+        if (params.isEmpty()) {
+            return endpointClass.getMethod(name);
+        }
+
+        final String[] typeNames = params.split(",");
+        final Class<?>[] types = new Class<?>[typeNames.length];
+        for (int i = 0; i < typeNames.length; i++) {
+            final Class<?> primitive = PRIMITIVES.get(typeNames[i]);
+            types[i] = primitive != null
+                    ? primitive : Class.forName(typeNames[i], false, endpointClass.getClassLoader());
+        }
+
+        return endpointClass.getMethod(name, types);
+    }
+
+    private static EndpointIndex load(ClassLoader loader) {
+        final Map<String, String[]> entries = new HashMap<String, String[]>();
+
+        try {
+            final Enumeration<URL> resources = loader.getResources(RESOURCE_NAME);
+            while (resources.hasMoreElements()) {
+                final URL url = resources.nextElement();
+                parse(url, entries);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Endpoint index cannot be read, falling back to runtime introspection.", e);
+            return EMPTY;
+        }
+
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+
+        LOGGER.config(String.format("Endpoint index found, %d endpoint(s) indexed.", entries.size()));
+        return new EndpointIndex(entries);
+    }
+
+    private static void parse(URL url, Map<String, String[]> entries) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] tokens = line.split("\\s+");
+                if (tokens.length < 2) {
+                    LOGGER.config(String.format("Malformed endpoint index line ignored (%s): %s", url, line));
+                    continue;
+                }
+
+                entries.put(tokens[0], tokens);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Resolved index entry.
+     */
+    static final class Entry {
+
+        private final Method[] methods;
+        private final boolean validated;
+
+        private Entry(Method[] methods, boolean validated) {
+            this.methods = methods;
+            this.validated = validated;
+        }
+
+        /**
+         * Get indexed methods.
+         *
+         * @return methods annotated by one of the websocket method annotations.
+         */
+        Method[] getMethods() {
+            return methods;
+        }
+
+        /**
+         * Get information whether the class was validated when the index was generated.
+         *
+         * @return {@code true} when runtime validation can be skipped.
+         */
+        boolean isValidated() {
+            return validated;
+        }
+    }
+}
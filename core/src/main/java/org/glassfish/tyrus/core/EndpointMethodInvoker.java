@@ -0,0 +1,330 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import javax.websocket.DecodeException;
+import javax.websocket.Session;
+
+/**
+ * Invokes a method of an annotated endpoint.
+ * <p/>
+ * Created once per method when the endpoint is deployed. Methods with up to four parameters are invoked using a
+ * {@link MethodHandle} adapted to an exact generic signature, so an invocation neither allocates the parameter array nor
+ * goes through {@link Method#invoke(Object, Object...)} access checks. Methods with more parameters and methods which
+ * cannot be accessed using {@link MethodHandles.Lookup} are invoked reflectively.
+ * <p/>
+ * Exceptions thrown by the invoked method are wrapped in {@link InvocationTargetException} and parameter values which
+ * cannot be converted to the parameter types (including {@code null} passed as a primitive value) are reported by
+ * {@link IllegalArgumentException}, as they would be by {@link Method#invoke(Object, Object...)}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+abstract class EndpointMethodInvoker {
+
+    private static final int MAX_DIRECT_PARAMETERS = 4;
+
+    /**
+     * {@code (Throwable) -> Object} handle wrapping the exception in {@link InvocationTargetException}.
+     */
+    private static final MethodHandle WRAP_TARGET_EXCEPTION;
+
+    static {
+        try {
+            WRAP_TARGET_EXCEPTION = MethodHandles.lookup().findStatic(
+                    EndpointMethodInvoker.class, "wrapTargetException",
+                    MethodType.methodType(Object.class, Throwable.class));
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final Method method;
+    final AnnotatedEndpoint.ParameterExtractor[] extractors;
+
+    private EndpointMethodInvoker(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors) {
+        this.method = method;
+        this.extractors = extractors;
+    }
+
+    /**
+     * Create invoker for given method.
+     *
+     * @param method     method to be invoked.
+     * @param extractors extractors of method parameters, one for each parameter.
+     * @return new invoker.
+     */
+    static EndpointMethodInvoker create(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors) {
+        if (extractors.length > MAX_DIRECT_PARAMETERS) {
+            return new ReflectiveInvoker(method, extractors);
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            return new ReflectiveInvoker(method, extractors);
+        }
+
+        // exceptions thrown by the method are wrapped here, before the arguments are adapted; anything else thrown by
+        // the adapted handle is a failed argument conversion
+        final MethodType type = handle.type();
+        final MethodHandle wrapper = MethodHandles.dropArguments(
+                WRAP_TARGET_EXCEPTION.asType(MethodType.methodType(type.returnType(), Throwable.class)),
+                1, type.parameterList());
+        handle = MethodHandles.catchException(handle, Throwable.class, wrapper);
+
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        handle = handle.asType(MethodType.genericMethodType(extractors.length + 1));
+
+        switch (extractors.length) {
+            case 0:
+                return new Invoker0(method, extractors, handle);
+            case 1:
+                return new Invoker1(method, extractors, handle);
+            case 2:
+                return new Invoker2(method, extractors, handle);
+            case 3:
+                return new Invoker3(method, extractors, handle);
+            default:
+                return new Invoker4(method, extractors, handle);
+        }
+    }
+
+    /**
+     * Invoke the method.
+     *
+     * @param endpoint endpoint instance.
+     * @param session  session passed to parameter extractors.
+     * @param first    first parameter value passed to parameter extractors, typically the message.
+     * @param second   second parameter value passed to parameter extractors, typically the "last" flag of a partial
+     *                 message.
+     * @return value returned from the method, {@code null} for void methods.
+     * @throws DecodeException           when a parameter cannot be decoded.
+     * @throws InvocationTargetException when the method throws an exception.
+     * @throws IllegalAccessException    when the method cannot be accessed.
+     */
+    abstract Object invoke(Object endpoint, Session session, Object first, Object second)
+            throws DecodeException, InvocationTargetException, IllegalAccessException;
+
+    /**
+     * Wrap an exception thrown by the invoked method. Invoked from the method handle created by
+     * {@link #create(Method, AnnotatedEndpoint.ParameterExtractor[])}.
+     *
+     * @param t exception thrown by the invoked method.
+     * @return never returns normally.
+     * @throws InvocationTargetException always.
+     */
+    private static Object wrapTargetException(Throwable t) throws InvocationTargetException {
+        throw new InvocationTargetException(t);
+    }
+
+    /**
+     * Translate an exception thrown by an invoked method handle.
+     *
+     * @param t exception thrown by the method handle.
+     * @return exception to be thrown.
+     */
+    private static InvocationTargetException invocationFailure(Throwable t) {
+        if (t instanceof InvocationTargetException) {
+            return (InvocationTargetException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        // ClassCastException or NullPointerException thrown when a parameter value is being converted
+        throw new IllegalArgumentException("argument type mismatch", t);
+    }
+
+    private static class ReflectiveInvoker extends EndpointMethodInvoker {
+
+        ReflectiveInvoker(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors) {
+            super(method, extractors);
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws DecodeException, InvocationTargetException, IllegalAccessException {
+            final Object[] paramValues = new Object[extractors.length];
+            for (int i = 0; i < paramValues.length; i++) {
+                paramValues[i] = extractors[i].value(session, first, second);
+            }
+            return method.invoke(endpoint, paramValues);
+        }
+    }
+
+    private static class Invoker0 extends EndpointMethodInvoker {
+
+        private final MethodHandle handle;
+
+        Invoker0(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors, MethodHandle handle) {
+            super(method, extractors);
+            this.handle = handle;
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws InvocationTargetException {
+            try {
+                return handle.invokeExact(endpoint);
+            } catch (Throwable t) {
+                throw invocationFailure(t);
+            }
+        }
+    }
+
+    private static class Invoker1 extends EndpointMethodInvoker {
+
+        private final MethodHandle handle;
+        private final AnnotatedEndpoint.ParameterExtractor p0;
+
+        Invoker1(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors, MethodHandle handle) {
+            super(method, extractors);
+            this.handle = handle;
+            this.p0 = extractors[0];
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws DecodeException, InvocationTargetException {
+            final Object v0 = p0.value(session, first, second);
+            try {
+                return handle.invokeExact(endpoint, v0);
+            } catch (Throwable t) {
+                throw invocationFailure(t);
+            }
+        }
+    }
+
+    private static class Invoker2 extends EndpointMethodInvoker {
+
+        private final MethodHandle handle;
+        private final AnnotatedEndpoint.ParameterExtractor p0;
+        private final AnnotatedEndpoint.ParameterExtractor p1;
+
+        Invoker2(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors, MethodHandle handle) {
+            super(method, extractors);
+            this.handle = handle;
+            this.p0 = extractors[0];
+            this.p1 = extractors[1];
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws DecodeException, InvocationTargetException {
+            final Object v0 = p0.value(session, first, second);
+            final Object v1 = p1.value(session, first, second);
+            try {
+                return handle.invokeExact(endpoint, v0, v1);
+            } catch (Throwable t) {
+                throw invocationFailure(t);
+            }
+        }
+    }
+
+    private static class Invoker3 extends EndpointMethodInvoker {
+
+        private final MethodHandle handle;
+        private final AnnotatedEndpoint.ParameterExtractor p0;
+        private final AnnotatedEndpoint.ParameterExtractor p1;
+        private final AnnotatedEndpoint.ParameterExtractor p2;
+
+        Invoker3(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors, MethodHandle handle) {
+            super(method, extractors);
+            this.handle = handle;
+            this.p0 = extractors[0];
+            this.p1 = extractors[1];
+            this.p2 = extractors[2];
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws DecodeException, InvocationTargetException {
+            final Object v0 = p0.value(session, first, second);
+            final Object v1 = p1.value(session, first, second);
+            final Object v2 = p2.value(session, first, second);
+            try {
+                return handle.invokeExact(endpoint, v0, v1, v2);
+            } catch (Throwable t) {
+                throw invocationFailure(t);
+            }
+        }
+    }
+
+    private static class Invoker4 extends EndpointMethodInvoker {
+
+        private final MethodHandle handle;
+        private final AnnotatedEndpoint.ParameterExtractor p0;
+        private final AnnotatedEndpoint.ParameterExtractor p1;
+        private final AnnotatedEndpoint.ParameterExtractor p2;
+        private final AnnotatedEndpoint.ParameterExtractor p3;
+
+        Invoker4(Method method, AnnotatedEndpoint.ParameterExtractor[] extractors, MethodHandle handle) {
+            super(method, extractors);
+            this.handle = handle;
+            this.p0 = extractors[0];
+            this.p1 = extractors[1];
+            this.p2 = extractors[2];
+            this.p3 = extractors[3];
+        }
+
+        @Override
+        Object invoke(Object endpoint, Session session, Object first, Object second)
+                throws DecodeException, InvocationTargetException {
+            final Object v0 = p0.value(session, first, second);
+            final Object v1 = p1.value(session, first, second);
+            final Object v2 = p2.value(session, first, second);
+            final Object v3 = p3.value(session, first, second);
+            try {
+                return handle.invokeExact(endpoint, v0, v1, v2, v3);
+            } catch (Throwable t) {
+                throw invocationFailure(t);
+            }
+        }
+    }
+}
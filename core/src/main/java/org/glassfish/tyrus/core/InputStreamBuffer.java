@@ -60,6 +60,12 @@ import org.glassfish.tyrus.core.l10n.LocalizationMessages;
  * <p/>
  * For the first received message {@link MessageHandler.Whole#onMessage(Object)} is called in a new {@link Thread} to
  * allow blocking reading of passed {@link java.io.InputStream}.
+ * <p/>
+ * When streaming window is set (see {@link TyrusSession#STREAMING_WINDOW}), the maximal message size is not enforced
+ * and reading from the connection is paused whenever more than window bytes are buffered (see {@link
+ * org.glassfish.tyrus.spi.Connection.ReadControl}). When the transport cannot pause reading, the thread appending
+ * message parts, which is the thread reading from the connection, is blocked until the handler reads enough data.
+ * Data not read by the time the handler returns are discarded and the next message is not accepted until then.
  *
  * @author Danny Coward (danny.coward at oracle.com)
  * @author Stepan Kopriva (stepan.kopriva at oracle.com)
@@ -72,6 +78,7 @@ class InputStreamBuffer {
 
     private final List<ByteBuffer> bufferedFragments = new ArrayList<ByteBuffer>();
     private final ExecutorService executorService;
+    private final ProtocolHandler protocolHandler;
 
     private static final Logger LOGGER = Logger.getLogger(InputStreamBuffer.class.getName());
 
@@ -81,12 +88,20 @@ class InputStreamBuffer {
     private volatile int bufferSize;
     private volatile int currentlyBuffered;
     private volatile boolean sessionClosed = false;
+    private volatile int streamingWindow = 0;
+    private volatile boolean handlerRunning = false;
+    private volatile boolean discardRemaining = false;
+    private boolean readPaused = false;
 
     /**
      * Constructor.
+     *
+     * @param executorService executor used for invoking the message handler.
+     * @param protocolHandler protocol handler used for pausing reading in streaming mode, can be {@code null}.
      */
-    public InputStreamBuffer(ExecutorService executorService) {
+    public InputStreamBuffer(ExecutorService executorService, ProtocolHandler protocolHandler) {
         this.executorService = executorService;
+        this.protocolHandler = protocolHandler;
         currentlyBuffered = 0;
     }
 
@@ -130,8 +145,17 @@ class InputStreamBuffer {
             ByteBuffer firstBuffer = bufferedFragments.get(0);
             byte result = firstBuffer.get();
 
+            if (streamingWindow > 0) {
+                currentlyBuffered--;
+            }
+
             if (!firstBuffer.hasRemaining()) {
                 bufferedFragments.remove(0);
+                if (streamingWindow > 0) {
+                    // let the appending thread continue
+                    condition.signalAll();
+                    updateReadPause();
+                }
             }
 
             return result & 0xFF;
@@ -144,6 +168,20 @@ class InputStreamBuffer {
      * Finish reading of the buffer.
      */
     public void finishReading() {
+        if (streamingWindow > 0) {
+            lock.lock();
+            try {
+                discardRemaining = !receivedLast;
+                bufferedFragments.clear();
+                currentlyBuffered = 0;
+                condition.signalAll();
+                updateReadPause();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
         this.bufferedFragments.clear();
         this.inputStream = null;
     }
@@ -155,6 +193,11 @@ class InputStreamBuffer {
      * @param last    should be {@code true} iff this is the last part of the message, {@code false} otherwise.
      */
     public void appendMessagePart(ByteBuffer message, boolean last) {
+        if (streamingWindow > 0) {
+            appendStreamedMessagePart(message, last);
+            return;
+        }
+
         lock.lock();
         try {
             currentlyBuffered += message.remaining();
@@ -185,6 +228,81 @@ class InputStreamBuffer {
         }
     }
 
+    private void appendStreamedMessagePart(ByteBuffer message, boolean last) {
+        final boolean startHandler;
+
+        lock.lock();
+        try {
+            if (discardRemaining) {
+                receivedLast = last;
+                return;
+            }
+
+            if (!isReadControlSupported()) {
+                // wait for the handler to read buffered data; at least one part is always accepted so that parts
+                // larger than the window can be passed through.
+                boolean interrupted = false;
+                while (currentlyBuffered > 0 && currentlyBuffered + message.remaining() > streamingWindow
+                        && !discardRemaining && !sessionClosed) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (!discardRemaining) {
+                currentlyBuffered += message.remaining();
+                bufferedFragments.add(message);
+            }
+            receivedLast = last;
+            condition.signalAll();
+
+            startHandler = inputStream == null;
+            if (startHandler) {
+                inputStream = new BufferedInputStream(this);
+                handlerRunning = true;
+            }
+            updateReadPause();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startHandler) {
+            final BufferedInputStream stream = inputStream;
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        messageHandler.onMessage(stream);
+                    } finally {
+                        onHandlerReturned();
+                    }
+                }
+            });
+        }
+    }
+
+    private void onHandlerReturned() {
+        lock.lock();
+        try {
+            // the rest of the message is not going to be read
+            discardRemaining = !receivedLast;
+            bufferedFragments.clear();
+            currentlyBuffered = 0;
+            inputStream = null;
+            handlerRunning = false;
+            condition.signalAll();
+            updateReadPause();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Set the {@link MessageHandler} that will consume the constructed {@link java.io.InputStream}.
      *
@@ -197,10 +315,38 @@ class InputStreamBuffer {
     /**
      * Reset the buffer size.
      *
-     * @param bufferSize the size to be set.
+     * @param bufferSize      the size to be set.
+     * @param streamingWindow maximal number of buffered bytes, {@code 0} when streaming is disabled and the whole
+     *                        message (up to {@code bufferSize}) can be buffered.
      */
-    public void resetBuffer(int bufferSize) {
+    public void resetBuffer(int bufferSize, int streamingWindow) {
+        if (this.streamingWindow > 0) {
+            // previous message has to be processed first
+            lock.lock();
+            try {
+                boolean interrupted = false;
+                while (handlerRunning && !sessionClosed) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (streamingWindow > 0) {
+            discardRemaining = false;
+            receivedLast = false;
+        }
+
         this.bufferSize = bufferSize;
+        this.streamingWindow = streamingWindow;
         currentlyBuffered = 0;
         bufferedFragments.clear();
     }
@@ -211,11 +357,39 @@ class InputStreamBuffer {
         try {
             // wake up blocked thread
             condition.signalAll();
+            if (readPaused) {
+                readPaused = false;
+                protocolHandler.resumeReading();
+            }
         } finally {
             lock.unlock();
         }
     }
 
+    private boolean isReadControlSupported() {
+        return protocolHandler != null && protocolHandler.isReadControlSupported();
+    }
+
+    /**
+     * Pause reading while the window is exceeded or when the whole message has been received and the handler has not
+     * returned yet, since the next message would not be accepted. Must be called with the lock held.
+     */
+    private void updateReadPause() {
+        if (!isReadControlSupported()) {
+            return;
+        }
+
+        final boolean pause = handlerRunning && (currentlyBuffered > streamingWindow || receivedLast);
+        if (pause != readPaused) {
+            readPaused = pause;
+            if (pause) {
+                protocolHandler.pauseReading();
+            } else {
+                protocolHandler.resumeReading();
+            }
+        }
+    }
+
     private void checkClosedSession() throws IOException {
         if (sessionClosed) {
             throw new IOException("Websocket session has been closed.");
@@ -90,6 +90,27 @@ class Masker {
         }
     }
 
+    /**
+     * Mask given part of the array in place.
+     *
+     * @param bytes  array to be masked.
+     * @param offset offset of the first masked byte.
+     * @param length number of bytes to be masked.
+     */
+    public void mask(byte[] bytes, int offset, int length) {
+        final byte[] localMask = mask;
+        if (localMask != null) {
+            // kept in range, payload of a single frame can be longer than Integer.MAX_VALUE when it is masked in
+            // chunks.
+            int localIndex = index % ProtocolHandler.MASK_SIZE;
+            for (int i = offset; i < offset + length; i++) {
+                bytes[i] ^= localMask[localIndex];
+                localIndex = (localIndex + 1) % ProtocolHandler.MASK_SIZE;
+            }
+            index = localIndex;
+        }
+    }
+
     public void setBuffer(ByteBuffer buffer) {
         this.buffer = buffer;
     }
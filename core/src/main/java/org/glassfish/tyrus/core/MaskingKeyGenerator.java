@@ -40,6 +40,8 @@
 
 package org.glassfish.tyrus.core;
 
+import java.security.SecureRandom;
+
 /**
  * Can be implemented to generate masking keys.
  * <p/>
@@ -56,16 +58,53 @@ package org.glassfish.tyrus.core;
  *          }
  *      };
  * </pre>
+ * <p/>
+ * Built-in implementations can be obtained by name using {@link #forName(String)}.
  *
  * @author Petr Janouch (petr.janouch at oracle.com)
  */
 @Beta
 public interface MaskingKeyGenerator {
 
+    /**
+     * Name of the default generator backed by {@link SecureRandom}.
+     */
+    String SECURE_RANDOM = "secureRandom";
+
+    /**
+     * Name of the generator backed by a per-thread ChaCha20 key stream, see {@link ChaCha20MaskingKeyGenerator}.
+     */
+    String CHACHA20 = "chacha20";
+
     /**
      * Return next random int similarly to {@link java.util.Random#nextInt()}.
      *
      * @return next random value.
      */
     int nextInt();
+
+    /**
+     * Get a built-in masking key generator by its name.
+     *
+     * @param name name of the generator, {@link #SECURE_RANDOM} or {@link #CHACHA20} (case insensitive).
+     * @return new masking key generator instance.
+     * @throws IllegalArgumentException when no built-in generator of the given name exists.
+     */
+    static MaskingKeyGenerator forName(String name) {
+        if (SECURE_RANDOM.equalsIgnoreCase(name)) {
+            return new MaskingKeyGenerator() {
+
+                private final SecureRandom secureRandom = new SecureRandom();
+
+                @Override
+                public int nextInt() {
+                    return secureRandom.nextInt();
+                }
+            };
+        } else if (CHACHA20.equalsIgnoreCase(name)) {
+            return new ChaCha20MaskingKeyGenerator();
+        }
+
+        throw new IllegalArgumentException("Unknown masking key generator: " + name);
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serial queue of incoming message notifications of one session, executed on a shared {@link ExecutorService}.
+ * <p/>
+ * Notifications are executed one at a time, in the order in which they were dispatched, but not necessarily on the
+ * same thread. At most one task of a dispatcher occupies the executor, so a slow message handler blocks only its own
+ * session.
+ * <p/>
+ * When the capacity is set, reading from the connection is paused whenever more than {@code capacity} notifications
+ * are pending and resumed once the queue drains. If the transport does not support read control, the dispatching
+ * thread is blocked instead.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see TyrusSession#MESSAGE_DISPATCH_EXECUTOR
+ */
+class MessageDispatcher {
+
+    /**
+     * Maximal number of notifications executed in one executor task; the rest is resubmitted to let other sessions
+     * use the thread.
+     */
+    private static final int MAX_BATCH = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(MessageDispatcher.class.getName());
+
+    private final ExecutorService executorService;
+    private final ProtocolHandler protocolHandler;
+    private final int capacity;
+    private final Object lock = new Object();
+    private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Number of pending notifications including the one being executed, guarded by {@link #lock}.
+     */
+    private int depth = 0;
+    /**
+     * {@code true} when {@link #drainTask} is submitted or running, guarded by {@link #lock}.
+     */
+    private boolean scheduled = false;
+    /**
+     * Guarded by {@link #lock}.
+     */
+    private boolean readPaused = false;
+    /**
+     * Guarded by {@link #lock}.
+     */
+    private boolean closed = false;
+
+    private volatile Thread drainingThread = null;
+
+    /**
+     * Constructor.
+     *
+     * @param executorService executor used for executing the notifications.
+     * @param protocolHandler protocol handler used for pausing reading, can be {@code null}.
+     * @param capacity        maximal number of pending notifications before reading is paused, {@code 0} means
+     *                        unbounded.
+     */
+    MessageDispatcher(ExecutorService executorService, ProtocolHandler protocolHandler, int capacity) {
+        this.executorService = executorService;
+        this.protocolHandler = protocolHandler;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Enqueue a notification.
+     *
+     * @param task notification to be executed.
+     */
+    void dispatch(Runnable task) {
+        final boolean readControl = protocolHandler != null && protocolHandler.isReadControlSupported();
+
+        synchronized (lock) {
+            enqueue(task);
+
+            if (capacity > 0 && depth > capacity && !readPaused && !closed && readControl) {
+                readPaused = true;
+                protocolHandler.pauseReading();
+            }
+        }
+
+        if (capacity > 0 && !readControl) {
+            synchronized (lock) {
+                while (depth > capacity && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Enqueue a notification only when it would not be executed right away otherwise.
+     * <p/>
+     * Used for notifications which have to be ordered after the pending ones, but should be executed synchronously
+     * when there is nothing to wait for. Not counted against the capacity.
+     *
+     * @param task notification to be executed.
+     * @return {@code true} if the task has been enqueued, {@code false} if the caller should execute it.
+     */
+    boolean dispatchIfPending(Runnable task) {
+        if (Thread.currentThread() == drainingThread) {
+            return false;
+        }
+
+        synchronized (lock) {
+            if (depth == 0) {
+                return false;
+            }
+
+            enqueue(task);
+            return true;
+        }
+    }
+
+    /**
+     * Get number of pending notifications including the one being executed.
+     *
+     * @return number of pending notifications.
+     */
+    int getQueueDepth() {
+        synchronized (lock) {
+            return depth;
+        }
+    }
+
+    /**
+     * Release paused reading and blocked threads, called when the session has been closed.
+     * <p/>
+     * Pending notifications are still executed.
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            if (readPaused) {
+                readPaused = false;
+                protocolHandler.resumeReading();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Must be called while holding {@link #lock}; schedules the draining task when it is not already scheduled.
+     */
+    private void enqueue(Runnable task) {
+        queue.add(task);
+        depth++;
+
+        if (!scheduled) {
+            scheduled = true;
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executorService.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            // executor has been shut down, container is being stopped.
+            LOGGER.log(Level.FINE, "Message dispatch rejected, executing in a new thread.", e);
+            final Thread thread = new Thread(drainTask);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void drain() {
+        drainingThread = Thread.currentThread();
+        try {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                final Runnable task;
+                synchronized (lock) {
+                    task = queue.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.log(Level.WARNING, "Dispatched message notification failed.", t);
+                }
+
+                synchronized (lock) {
+                    depth--;
+                    if (capacity > 0 && depth <= capacity) {
+                        if (readPaused) {
+                            readPaused = false;
+                            protocolHandler.resumeReading();
+                        }
+                        lock.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            drainingThread = null;
+        }
+
+        // batch exhausted, let other sessions use the thread.
+        schedule();
+    }
+}
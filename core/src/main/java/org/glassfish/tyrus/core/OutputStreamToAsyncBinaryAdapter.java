@@ -40,20 +40,33 @@
 package org.glassfish.tyrus.core;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
+
 /**
  * Simple Writer that writes its data to an async sink.
+ * <p/>
+ * Written data are collected in a reusable buffer and sent as a fragment of a binary message when the buffer is full;
+ * the last fragment is sent when the stream is closed. {@link #flush()} does not send anything, so that applications
+ * writing the message in many small pieces do not produce many small frames.
  *
  * @author Danny Coward (danny.coward at oracle.com)
+ * @see TyrusSession#SEND_STREAM_FRAGMENT_SIZE
  */
 class OutputStreamToAsyncBinaryAdapter extends OutputStream {
     private final TyrusWebSocket socket;
+    private final int fragmentSize;
+    private PayloadOutputStream buffer;
+    private boolean closed = false;
 
-    public OutputStreamToAsyncBinaryAdapter(TyrusWebSocket socket) {
+    public OutputStreamToAsyncBinaryAdapter(TyrusWebSocket socket, int fragmentSize) {
         this.socket = socket;
+        this.fragmentSize = fragmentSize;
+        this.buffer = new PayloadOutputStream(fragmentSize);
     }
 
     @Override
@@ -66,34 +79,67 @@ class OutputStreamToAsyncBinaryAdapter extends OutputStream {
             return;
         }
 
-        final Future<?> future = socket.sendBinary(b, off, len, false);
-        try {
-            future.get();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof IOException) {
-                throw (IOException) e.getCause();
-            } else {
-                throw new IOException(e.getCause());
+        checkClosed();
+        while (len > 0) {
+            final int length = Math.min(len, fragmentSize - buffer.getPayloadLength());
+            buffer.write(b, off, length);
+            off += length;
+            len -= length;
+
+            if (buffer.getPayloadLength() == fragmentSize) {
+                sendBuffer(false);
             }
         }
     }
 
     @Override
     public void write(int i) throws IOException {
-        byte[] byteArray = new byte[]{(byte) i};
-
-        write(byteArray, 0, byteArray.length);
+        checkClosed();
+        buffer.write(i);
+        if (buffer.getPayloadLength() == fragmentSize) {
+            sendBuffer(false);
+        }
     }
 
     @Override
     public void flush() throws IOException {
-        // do nothing.
+        // do nothing, data are sent when the buffer is full or when the stream is closed.
     }
 
     @Override
     public void close() throws IOException {
-        socket.sendBinary(new byte[]{}, true);
+        if (!closed) {
+            closed = true;
+            sendBuffer(true);
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed.");
+        }
+    }
+
+    private void sendBuffer(boolean last) throws IOException {
+        try {
+            final Future<?> future = socket.sendFragment(buffer, false, last);
+            future.get();
+        } catch (InterruptedException e) {
+            // the fragment may still be written from the buffer, so it cannot be reused
+            buffer = new PayloadOutputStream(fragmentSize);
+            Thread.currentThread().interrupt();
+
+            final InterruptedIOException exception = new InterruptedIOException("Sending interrupted.");
+            exception.initCause(e);
+            throw exception;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        } finally {
+            buffer.reset();
+        }
     }
 }
@@ -41,12 +41,18 @@
 package org.glassfish.tyrus.core;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
-import java.security.SecureRandom;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -60,6 +66,7 @@ import javax.websocket.SendHandler;
 import javax.websocket.SendResult;
 import javax.websocket.server.HandshakeRequest;
 
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 import org.glassfish.tyrus.core.extension.ExtendedExtension;
 import org.glassfish.tyrus.core.frame.BinaryFrame;
 import org.glassfish.tyrus.core.frame.CloseFrame;
@@ -69,6 +76,7 @@ import org.glassfish.tyrus.core.frame.TyrusFrame;
 import org.glassfish.tyrus.core.l10n.LocalizationMessages;
 import org.glassfish.tyrus.core.monitoring.MessageEventListener;
 import org.glassfish.tyrus.spi.CompletionHandler;
+import org.glassfish.tyrus.spi.Connection;
 import org.glassfish.tyrus.spi.UpgradeRequest;
 import org.glassfish.tyrus.spi.UpgradeResponse;
 import org.glassfish.tyrus.spi.Writer;
@@ -87,6 +95,28 @@ public final class ProtocolHandler {
 
     private static final Logger LOGGER = Logger.getLogger(ProtocolHandler.class.getName());
     private static final int SEND_TIMEOUT = 3000; // millis.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Size of chunks in which streamed payload is read, masked and passed to the {@link Writer}.
+     */
+    /* package */ static final int STREAM_CHUNK_SIZE = 65536;
+
+    /**
+     * Time in milliseconds in which every chunk of a streamed frame has to be written when no write timeout is set,
+     * see {@link #setWriteTimeout(long)}.
+     */
+    /* package */ static final long DEFAULT_STREAM_WRITE_TIMEOUT = 30000;
+
+    /**
+     * Maximal length of frame header (2 bytes, 8 bytes of extended payload length and 4 bytes of mask).
+     */
+    private static final int MAX_HEADER_LENGTH = 14;
+
+    /**
+     * Read buffers up to this size are always reused.
+     */
+    private static final int SMALL_READ_BUFFER_SIZE = 8192;
 
     private final boolean client;
     private final MaskingKeyGenerator maskingKeyGenerator;
@@ -104,6 +134,32 @@ public final class ProtocolHandler {
     private volatile boolean hasExtensions = false;
     private volatile MessageEventListener messageEventListener = MessageEventListener.NO_OP;
     private volatile SendingFragmentState sendingFragment = SendingFragmentState.IDLE;
+    private volatile Connection.ReadControl readControl = null;
+    private volatile int maxTextMessageSize = Integer.MAX_VALUE;
+    private volatile int maxBinaryMessageSize = Integer.MAX_VALUE;
+    private volatile long writeTimeout = 0;
+
+    /**
+     * Moving average of payload lengths of recently received frames, used for sizing read buffers. Accessed only by
+     * the reading thread.
+     */
+    private long recentFrameLength = 0;
+
+    private final Object readControlLock = new Object();
+    private int readPauses = 0;
+
+    /**
+     * Number of reads in progress, {@code -1} while the connection is being hibernated.
+     */
+    private final AtomicInteger readGate = new AtomicInteger(0);
+    private volatile ReadBuffer readBuffer = null;
+
+    private final Object writeGateLock = new Object();
+    /**
+     * Writes requested while a streamed frame is being written or while the deferred writes are being passed to the
+     * writer, {@code null} otherwise. Guarded by {@link #writeGateLock}.
+     */
+    private Queue<DeferredWrite> deferredWrites = null;
 
     /**
      * Synchronizes all public send* (including stream variants) methods.
@@ -119,6 +175,29 @@ public final class ProtocolHandler {
      */
     private final Condition idleCondition = lock.newCondition();
 
+    /**
+     * Serializes streamed frames. Held for the whole streamed frame, while {@link #lock} is held only until the frame
+     * is started, so that other threads can send messages in the meantime; their writes are deferred until the
+     * streamed frame is complete (see {@link #deferredWrites}).
+     */
+    private final Lock streamLock = new ReentrantLock();
+
+    /**
+     * Write requested while a streamed frame was being written.
+     */
+    private static class DeferredWrite {
+
+        private final Writer writer;
+        private final ByteBuffer buffer;
+        private final CompletionHandler<ByteBuffer> completionHandler;
+
+        private DeferredWrite(Writer writer, ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+            this.writer = writer;
+            this.buffer = buffer;
+            this.completionHandler = completionHandler;
+        }
+    }
+
     /**
      * Sending state.
      */
@@ -156,15 +235,7 @@ public final class ProtocolHandler {
             if (maskingKeyGenerator != null) {
                 this.maskingKeyGenerator = maskingKeyGenerator;
             } else {
-                this.maskingKeyGenerator = new MaskingKeyGenerator() {
-
-                    private final SecureRandom secureRandom = new SecureRandom();
-
-                    @Override
-                    public int nextInt() {
-                        return secureRandom.nextInt();
-                    }
-                };
+                this.maskingKeyGenerator = MaskingKeyGenerator.forName(MaskingKeyGenerator.SECURE_RANDOM);
             }
         } else {
             // masking key is not used on the server
@@ -183,6 +254,17 @@ public final class ProtocolHandler {
         this.writer = writer;
     }
 
+    /**
+     * Set the time in which every chunk of a streamed frame has to be written, see {@link
+     * #sendStream(ReadableByteChannel, long)}.
+     *
+     * @param timeoutMs timeout in milliseconds; {@value #DEFAULT_STREAM_WRITE_TIMEOUT} ms is used when the value is
+     *                  not positive.
+     */
+    public void setWriteTimeout(long timeoutMs) {
+        this.writeTimeout = timeoutMs;
+    }
+
     /**
      * Returns true when current connection has some negotiated extension.
      *
@@ -193,6 +275,122 @@ public final class ProtocolHandler {
         return hasExtensions;
     }
 
+    /**
+     * Set read control provided by the transport.
+     *
+     * @param readControl read control used for pausing reading from the underlying connection.
+     * @see Connection#setReadControl(Connection.ReadControl)
+     */
+    public void setReadControl(Connection.ReadControl readControl) {
+        this.readControl = readControl;
+    }
+
+    /**
+     * Set buffer in which the read handler of this connection keeps data of incomplete frames.
+     * <p/>
+     * The buffer is released when the session hibernates, see {@link TyrusSession#HIBERNATION_TIMEOUT}.
+     *
+     * @param readBuffer read buffer of the read handler.
+     */
+    public void setReadBuffer(ReadBuffer readBuffer) {
+        this.readBuffer = readBuffer;
+    }
+
+    /**
+     * Called by the read handler before it starts processing data read from the connection.
+     * <p/>
+     * Waits while the connection is being hibernated; every call must be followed by {@link #finishRead()}.
+     */
+    public void startRead() {
+        int readers;
+        while ((readers = readGate.get()) < 0 || !readGate.compareAndSet(readers, readers + 1)) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Called by the read handler when it has processed data read from the connection.
+     */
+    public void finishRead() {
+        readGate.decrementAndGet();
+    }
+
+    /**
+     * Release buffers of an idle connection.
+     * <p/>
+     * Nothing is released while data are being read or when a frame has been received only partially.
+     *
+     * @return {@code true} if the buffers were released, {@code false} if the connection is not idle.
+     */
+    boolean hibernate() {
+        if (!readGate.compareAndSet(0, -1)) {
+            return false;
+        }
+
+        try {
+            if (parsingState.state.get() != 0 || remainder != null) {
+                return false;
+            }
+
+            final ReadBuffer buffer = readBuffer;
+            return buffer == null || buffer.release();
+        } finally {
+            readGate.set(0);
+        }
+    }
+
+    /**
+     * Get number of bytes retained by buffers of this connection.
+     *
+     * @return size of read buffer and of the UTF-8 decoding remainder in bytes.
+     */
+    int getRetainedSize() {
+        final ReadBuffer buffer = readBuffer;
+        final ByteBuffer localRemainder = remainder;
+        return (buffer == null ? 0 : buffer.getRetainedSize())
+                + (localRemainder == null ? 0 : localRemainder.capacity());
+    }
+
+    /**
+     * Returns true when reading from the underlying connection can be paused.
+     *
+     * @return {@code true} if the transport provided {@link Connection.ReadControl}, {@code false} otherwise.
+     */
+    boolean isReadControlSupported() {
+        return readControl != null;
+    }
+
+    /**
+     * Pause reading from the underlying connection.
+     * <p/>
+     * Calls are counted; reading is resumed once {@link #resumeReading()} has been called for every call of this
+     * method. Does nothing when the transport does not support read control.
+     */
+    void pauseReading() {
+        synchronized (readControlLock) {
+            final Connection.ReadControl control = readControl;
+            if (readPauses++ == 0 && control != null) {
+                control.pause();
+            }
+        }
+    }
+
+    /**
+     * Resume reading from the underlying connection paused by {@link #pauseReading()}.
+     */
+    void resumeReading() {
+        synchronized (readControlLock) {
+            if (readPauses == 0) {
+                return;
+            }
+
+            final Connection.ReadControl control = readControl;
+            if (--readPauses == 0 && control != null) {
+                control.resume();
+            }
+        }
+    }
+
     /**
      * Server side handshake processing.
      *
@@ -307,6 +505,139 @@ public final class ProtocolHandler {
         }
     }
 
+    /**
+     * Send binary message which payload has been written to given stream.
+     * <p/>
+     * The frame header is written into the space reserved in front of the payload and the payload is masked in place
+     * (client side only), so the payload is not copied. When an extension is negotiated, the message is sent as
+     * {@link BinaryFrame}, because extensions may transform the frame.
+     *
+     * @param payload message payload.
+     * @return send future.
+     */
+    public Future<Frame> send(PayloadOutputStream payload) {
+        lock.lock();
+        try {
+            checkSendingFragment();
+
+            if (hasExtensions) {
+                return send(new BinaryFrame(payload.toByteArray(), false, true), null, true);
+            }
+
+            return write(frame(payload), TyrusFrame.FrameType.BINARY, payload.getPayloadLength(), null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send binary message which payload has been written to given stream.
+     *
+     * @param payload message payload.
+     * @param handler handler to be notified when the message is sent.
+     * @see #send(PayloadOutputStream)
+     */
+    public void send(final PayloadOutputStream payload, final SendHandler handler) {
+        lock.lock();
+
+        try {
+            checkSendingFragment();
+
+            final CompletionHandler<Frame> completionHandler = new CompletionHandler<Frame>() {
+                @Override
+                public void failed(Throwable throwable) {
+                    handler.onResult(new SendResult(throwable));
+                }
+
+                @Override
+                public void completed(Frame result) {
+                    handler.onResult(new SendResult());
+                }
+            };
+
+            if (hasExtensions) {
+                send(new BinaryFrame(payload.toByteArray(), false, true), completionHandler, true);
+            } else {
+                write(frame(payload), TyrusFrame.FrameType.BINARY, payload.getPayloadLength(), completionHandler);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send binary message which payload is read from given channel.
+     * <p/>
+     * The message is sent as a single frame; its length is not limited by the maximal array size. The payload is
+     * read, masked (client side only) and passed to the {@link Writer} in chunks of constant size, so the memory used
+     * does not depend on the message size. Blocks until the whole message is written; every chunk has to be written
+     * within the write timeout (see {@link #setWriteTimeout(long)}), otherwise the connection is closed.
+     * <p/>
+     * Other threads are not blocked while the message is being written - messages they send in the meantime are
+     * queued and written after this message, their send futures complete once they are written. Another streamed
+     * message waits until this one is complete.
+     * <p/>
+     * When an extension is negotiated, the payload is read into memory and sent as {@link BinaryFrame}, because
+     * extensions may transform the frame.
+     *
+     * @param payload channel from which exactly {@code length} bytes are read.
+     * @param length  payload length.
+     * @throws IOException when the payload cannot be read or the message cannot be written. If that happens after
+     *                     the frame header has been written, the connection is closed, since the frame cannot be
+     *                     completed.
+     */
+    public void sendStream(ReadableByteChannel payload, long length) throws IOException {
+        if (hasExtensions) {
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException(String.format(
+                        "Message of %d bytes cannot be processed by negotiated extensions.", length));
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            readFully(payload, buffer, length);
+            final Future<Frame> future;
+            lock.lock();
+            try {
+                checkSendingFragment();
+                future = send(new BinaryFrame(buffer.array(), false, true), null, true);
+            } finally {
+                lock.unlock();
+            }
+            awaitWrite(future, getStreamWriteTimeout());
+            return;
+        }
+
+        streamFrame(payload, null, length);
+    }
+
+    /**
+     * Send binary message without copying the payload into a frame.
+     * <p/>
+     * Server side writes the frame header and the payload buffer as they are; client side masks the payload in
+     * chunks, as described in {@link #sendStream(ReadableByteChannel, long)}. The buffer must not be modified until
+     * this method returns; its position is not changed. Blocks until the whole message is written, other threads
+     * are not blocked in the meantime (see {@link #sendStream(ReadableByteChannel, long)}).
+     *
+     * @param payload message payload.
+     * @throws IOException when the message cannot be written.
+     */
+    public void sendStream(ByteBuffer payload) throws IOException {
+        if (hasExtensions) {
+            final Future<Frame> future;
+            lock.lock();
+            try {
+                checkSendingFragment();
+                future = send(new BinaryFrame(Utils.getRemainingArray(payload.duplicate()), false, true), null, true);
+            } finally {
+                lock.unlock();
+            }
+            awaitWrite(future, getStreamWriteTimeout());
+            return;
+        }
+
+        streamFrame(null, payload.duplicate(), payload.remaining());
+    }
+
     public Future<Frame> send(String data) {
         lock.lock();
 
@@ -447,10 +778,93 @@ public final class ProtocolHandler {
         }
     }
 
+    /**
+     * Send a fragment of a partial message which payload has been written to given stream.
+     * <p/>
+     * Works as {@link #stream(boolean, byte[], int, int)} and {@link #stream(boolean, String)}, but the frame header is
+     * written into the space reserved in front of the payload and the payload is masked in place (client side only),
+     * so the payload is not copied. The stream must not be modified until the returned future is done.
+     *
+     * @param last    {@code true} if this is the last fragment of the message.
+     * @param text    {@code true} if the fragment is a part of a text message. Payload of a text fragment must not end
+     *                in the middle of a UTF-8 sequence.
+     * @param payload fragment payload.
+     * @return send future.
+     */
+    /* package */ Future<Frame> stream(boolean last, boolean text, PayloadOutputStream payload) {
+        lock.lock();
+
+        try {
+            final SendingFragmentState state =
+                    text ? SendingFragmentState.SENDING_TEXT : SendingFragmentState.SENDING_BINARY;
+            if (sendingFragment != state) {
+                checkSendingFragment();
+            }
+
+            final boolean continuation = sendingFragment == state;
+            sendingFragment = last ? SendingFragmentState.IDLE : state;
+            if (last) {
+                idleCondition.signalAll();
+            }
+
+            if (hasExtensions) {
+                final byte[] bytes = payload.toByteArray();
+                return send(text ? new TextFrame(new String(bytes, UTF_8), continuation, last)
+                                    : new BinaryFrame(bytes, continuation, last));
+            }
+
+            final TyrusFrame.FrameType frameType;
+            final int opcode;
+            if (text) {
+                frameType = continuation ? TyrusFrame.FrameType.TEXT_CONTINUATION : TyrusFrame.FrameType.TEXT;
+                opcode = continuation ? 0x00 : 0x01;
+            } else {
+                frameType = continuation ? TyrusFrame.FrameType.BINARY_CONTINUATION : TyrusFrame.FrameType.BINARY;
+                opcode = continuation ? 0x00 : 0x02;
+            }
+
+            return write(frame(payload, (byte) ((last ? 0x80 : 0x00) | opcode)), frameType,
+                         payload.getPayloadLength(), null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public synchronized Future<Frame> close(final int code, final String reason) {
-        final CloseFrame outgoingCloseFrame;
         final CloseReason closeReason = new CloseReason(CloseReason.CloseCodes.getCloseCode(code), reason);
 
+        final Future<Frame> send = send(new CloseFrame(getOutgoingCloseReason(client, closeReason)), null, false);
+
+        webSocket.onClose(new CloseFrame(closeReason));
+
+        return send;
+    }
+
+    /**
+     * Send a close frame serialized in advance, shared by connections which are closed at once.
+     * <p/>
+     * Unlike {@link #close(int, String)}, {@link TyrusWebSocket#onClose(CloseFrame)} is not invoked.
+     *
+     * @param closeFrame    serialized close frame, see {@link #getOutgoingCloseReason(boolean, CloseReason)}.
+     * @param payloadLength length of the close frame payload (monitoring).
+     * @return {@link Future} which could be used to control/check the sending completion state.
+     */
+    synchronized Future<Frame> sendClose(ByteBuffer closeFrame, long payloadLength) {
+        return write(closeFrame, TyrusFrame.FrameType.CLOSE, payloadLength, null);
+    }
+
+    /**
+     * Get close reason which can be sent to the remote endpoint.
+     * <p/>
+     * Close codes which must not be sent by this side of the connection are replaced with {@link
+     * CloseReason.CloseCodes#NORMAL_CLOSURE}.
+     *
+     * @param client      {@code true} for client side of the connection.
+     * @param closeReason close reason.
+     * @return close reason to be sent in the close frame.
+     */
+    static CloseReason getOutgoingCloseReason(boolean client, CloseReason closeReason) {
+        final int code = closeReason.getCloseCode().getCode();
         if (code == CloseReason.CloseCodes.NO_STATUS_CODE.getCode()
                 || code == CloseReason.CloseCodes.CLOSED_ABNORMALLY.getCode()
                 || code == CloseReason.CloseCodes.TLS_HANDSHAKE_FAILURE.getCode()
@@ -459,16 +873,10 @@ public final class ProtocolHandler {
                 || (client && (code == CloseReason.CloseCodes.SERVICE_RESTART.getCode()
                 || code == CloseReason.CloseCodes.TRY_AGAIN_LATER.getCode()))) {
 
-            outgoingCloseFrame = new CloseFrame(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, reason));
-        } else {
-            outgoingCloseFrame = new CloseFrame(closeReason);
+            return new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, closeReason.getReasonPhrase());
         }
 
-        final Future<Frame> send = send(outgoingCloseFrame, null, false);
-
-        webSocket.onClose(new CloseFrame(closeReason));
-
-        return send;
+        return closeReason;
     }
 
     private Future<Frame> write(final TyrusFrame frame, final CompletionHandler<Frame> completionHandler,
@@ -481,8 +889,13 @@ public final class ProtocolHandler {
         }
 
         final ByteBuffer byteBuffer = frame(frame);
-        localWriter.write(byteBuffer, new CompletionHandlerWrapper(completionHandler, future, frame));
-        messageEventListener.onFrameSent(frame.getFrameType(), frame.getPayloadLength());
+        final MessageEventListener localListener = messageEventListener;
+        final CompletionHandlerWrapper handlerWrapper = new CompletionHandlerWrapper(completionHandler, future, frame);
+        if (localListener != MessageEventListener.NO_OP) {
+            handlerWrapper.monitor(localListener, frame.getFrameType(), System.nanoTime());
+        }
+        writeToConnection(localWriter, byteBuffer, handlerWrapper);
+        localListener.onFrameSent(frame.getFrameType(), frame.getPayloadLength());
 
         return future;
     }
@@ -496,11 +909,243 @@ public final class ProtocolHandler {
             throw new IllegalStateException(LocalizationMessages.CONNECTION_NULL());
         }
 
-        localWriter.write(frame, new CompletionHandlerWrapper(completionHandler, future, null));
+        writeToConnection(localWriter, frame, new CompletionHandlerWrapper(completionHandler, future, null));
+
+        return future;
+    }
+
+    private Future<Frame> write(final ByteBuffer frame, final TyrusFrame.FrameType frameType, final long payloadLength,
+                                final CompletionHandler<Frame> completionHandler) {
+        final Writer localWriter = writer;
+        final TyrusFuture<Frame> future = new TyrusFuture<Frame>();
+
+        if (localWriter == null) {
+            throw new IllegalStateException(LocalizationMessages.CONNECTION_NULL());
+        }
+
+        final MessageEventListener localListener = messageEventListener;
+        final CompletionHandlerWrapper handlerWrapper = new CompletionHandlerWrapper(completionHandler, future, null);
+        if (localListener != MessageEventListener.NO_OP) {
+            handlerWrapper.monitor(localListener, frameType, System.nanoTime());
+        }
+        writeToConnection(localWriter, frame, handlerWrapper);
+        localListener.onFrameSent(frameType, payloadLength);
+
+        return future;
+    }
+
+    /**
+     * Pass the buffer to the writer, unless a streamed frame is being written; in that case, the write is deferred
+     * until the streamed frame is complete.
+     */
+    private void writeToConnection(Writer localWriter, ByteBuffer buffer,
+                                   CompletionHandler<ByteBuffer> completionHandler) {
+        synchronized (writeGateLock) {
+            if (deferredWrites != null) {
+                deferredWrites.add(new DeferredWrite(localWriter, buffer, completionHandler));
+                return;
+            }
+        }
+
+        localWriter.write(buffer, completionHandler);
+    }
+
+    /**
+     * Write a binary frame with header and then the payload chunks directly to the writer. {@link #lock} is held only
+     * while the frame is being started; writes requested by other threads are deferred until the frame is complete.
+     *
+     * @param channel source of the payload, or {@code null} when the payload is passed as buffer.
+     * @param buffer  payload buffer, or {@code null} when the payload is read from channel.
+     * @param length  payload length.
+     * @throws IOException when the payload cannot be read or the frame cannot be written.
+     */
+    private void streamFrame(ReadableByteChannel channel, ByteBuffer buffer, long length) throws IOException {
+        final Masker masker = client ? new Masker(maskingKeyGenerator.nextInt()) : null;
+        final byte[] lengthBytes = encodeLength(length);
+        final byte[] header = new byte[1 + lengthBytes.length + (client ? MASK_SIZE : 0)];
+        // FIN + binary opcode
+        header[0] = (byte) 0x82;
+        System.arraycopy(lengthBytes, 0, header, 1, lengthBytes.length);
+        if (masker != null) {
+            header[1] |= 0x80;
+            System.arraycopy(masker.getMask(), 0, header, 1 + lengthBytes.length, MASK_SIZE);
+        }
+
+        streamLock.lock();
+        try {
+            final Writer localWriter;
+            lock.lock();
+            try {
+                checkSendingFragment();
+
+                localWriter = writer;
+                if (localWriter == null) {
+                    throw new IllegalStateException(LocalizationMessages.CONNECTION_NULL());
+                }
+
+                // from now on, writes of other threads are deferred until the streamed frame is complete
+                synchronized (writeGateLock) {
+                    deferredWrites = new ArrayDeque<DeferredWrite>();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            streamFrame(localWriter, header, masker, channel, buffer, length);
+        } finally {
+            streamLock.unlock();
+        }
+
+        messageEventListener.onFrameSent(TyrusFrame.FrameType.BINARY, length);
+    }
+
+    private void streamFrame(Writer localWriter, byte[] header, Masker masker, ReadableByteChannel channel,
+                             ByteBuffer buffer, long length) throws IOException {
+        final long timeout = getStreamWriteTimeout();
+        boolean completed = false;
+        try {
+            final Future<ByteBuffer> headerWrite = writeChunk(localWriter, ByteBuffer.wrap(header));
+
+            if (masker == null && buffer != null) {
+                awaitWrite(writeChunk(localWriter, buffer), timeout);
+            } else {
+                // two chunks, so that the next one can be read while the previous one is being written.
+                final int chunkSize = (int) Math.min(length, STREAM_CHUNK_SIZE);
+                final ByteBuffer[] chunks = {ByteBuffer.allocate(chunkSize), ByteBuffer.allocate(chunkSize)};
+                final Future<?>[] chunkWrites = new Future<?>[2];
+
+                long remaining = length;
+                int i = 0;
+                while (remaining > 0) {
+                    if (chunkWrites[i] != null) {
+                        awaitWrite(chunkWrites[i], timeout);
+                    }
+
+                    final ByteBuffer chunk = chunks[i];
+                    chunk.clear();
+                    if (buffer != null) {
+                        final ByteBuffer source = buffer.duplicate();
+                        source.limit(source.position() + Math.min(source.remaining(), chunk.remaining()));
+                        chunk.put(source);
+                        buffer.position(source.position());
+                    } else {
+                        readFully(channel, chunk, remaining);
+                    }
+                    chunk.flip();
+                    remaining -= chunk.remaining();
+
+                    if (masker != null) {
+                        masker.mask(chunk.array(), chunk.arrayOffset(), chunk.remaining());
+                    }
+                    chunkWrites[i] = writeChunk(localWriter, chunk);
+                    i ^= 1;
+                }
+
+                for (Future<?> chunkWrite : chunkWrites) {
+                    if (chunkWrite != null) {
+                        awaitWrite(chunkWrite, timeout);
+                    }
+                }
+            }
+
+            awaitWrite(headerWrite, timeout);
+            completed = true;
+        } finally {
+            if (!completed) {
+                // the remote endpoint would interpret anything written from now on as the rest of the payload.
+                try {
+                    localWriter.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, e.getMessage(), e);
+                }
+            }
+
+            writeDeferred();
+        }
+    }
+
+    /**
+     * Pass writes deferred while a streamed frame was being written to the writer and stop deferring.
+     * <p/>
+     * The writes are passed outside of {@link #writeGateLock}, since a writer can complete synchronously and its
+     * completion handler can send another message from this thread. Writes requested in the meantime are deferred
+     * to a new queue, so they cannot overtake the replayed ones, and are passed in the next round.
+     */
+    private void writeDeferred() {
+        while (true) {
+            final Queue<DeferredWrite> pending;
+            synchronized (writeGateLock) {
+                if (deferredWrites.isEmpty()) {
+                    deferredWrites = null;
+                    return;
+                }
+                pending = deferredWrites;
+                deferredWrites = new ArrayDeque<DeferredWrite>();
+            }
+
+            for (DeferredWrite deferredWrite : pending) {
+                try {
+                    deferredWrite.writer.write(deferredWrite.buffer, deferredWrite.completionHandler);
+                } catch (RuntimeException e) {
+                    deferredWrite.completionHandler.failed(e);
+                }
+            }
+        }
+    }
+
+    private long getStreamWriteTimeout() {
+        final long timeout = writeTimeout;
+        return timeout > 0 ? timeout : DEFAULT_STREAM_WRITE_TIMEOUT;
+    }
+
+    /**
+     * Read from the channel until the buffer is full or {@code remaining} bytes are read.
+     */
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer, long remaining) throws IOException {
+        if (buffer.remaining() > remaining) {
+            buffer.limit(buffer.position() + (int) remaining);
+        }
 
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(String.format("Payload ended %d bytes before the declared length.",
+                                                    remaining - buffer.position()));
+            }
+        }
+    }
+
+    private static Future<ByteBuffer> writeChunk(Writer localWriter, ByteBuffer chunk) {
+        final TyrusFuture<ByteBuffer> future = new TyrusFuture<ByteBuffer>();
+        localWriter.write(chunk, new CompletionHandler<ByteBuffer>() {
+            @Override
+            public void completed(ByteBuffer result) {
+                future.setResult(result);
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                future.setFailure(throwable);
+            }
+        });
         return future;
     }
 
+    private static void awaitWrite(Future<?> future, long timeoutMs) throws IOException {
+        try {
+            future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException(String.format("Write has not completed in %d ms.", timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     /**
      * Convert a byte[] to a long. Used for rebuilding payload length.
      *
@@ -619,12 +1264,15 @@ public final class ProtocolHandler {
         final byte[] bytes = frame.getPayloadData();
         final byte[] lengthBytes = encodeLength(frame.getPayloadLength());
 
-        // TODO - length limited to int, it should be long (see RFC 9788, chapter 5.2)
-        // TODO - in that case, we will need to NOT store dataframe inmemory - introduce maskingByteStream or
-        // TODO   maskingByteBuffer
+        // the whole frame is built in one array; longer messages have to be sent by sendStream, which streams the
+        // payload with 64-bit length (RFC 6455, chapter 5.2) without keeping the frame in memory
+        final int payloadStart = 1 + lengthBytes.length + (client ? MASK_SIZE : 0);
+        if (frame.getPayloadLength() > Integer.MAX_VALUE - 8 - payloadStart) {
+            throw new IllegalArgumentException(String.format(
+                    "Frame with payload of %d bytes cannot be created in memory.", frame.getPayloadLength()));
+        }
         final int payloadLength = (int) frame.getPayloadLength();
-        int length = 1 + lengthBytes.length + payloadLength + (client ? MASK_SIZE : 0);
-        int payloadStart = 1 + lengthBytes.length + (client ? MASK_SIZE : 0);
+        final int length = payloadStart + payloadLength;
         final byte[] packet = new byte[length];
         packet[0] = opcode;
         System.arraycopy(lengthBytes, 0, packet, 1, lengthBytes.length);
@@ -646,6 +1294,54 @@ public final class ProtocolHandler {
         return ByteBuffer.wrap(packet);
     }
 
+    /**
+     * Frame whole binary message in place.
+     * <p/>
+     * Header is written into the space reserved by {@link PayloadOutputStream} right in front of the payload.
+     *
+     * @param payload message payload.
+     * @return buffer containing the whole frame, positioned at the frame start.
+     */
+    /* package */ ByteBuffer frame(PayloadOutputStream payload) {
+        // FIN + binary opcode
+        return frame(payload, (byte) 0x82);
+    }
+
+    private ByteBuffer frame(PayloadOutputStream payload, byte firstByte) {
+        final byte[] buffer = payload.getBuffer();
+        final int payloadLength = payload.getPayloadLength();
+
+        int headerLength = payloadLength <= 125 ? 2 : (payloadLength <= 0xFFFF ? 4 : 10);
+        if (client) {
+            headerLength += MASK_SIZE;
+        }
+
+        final int start = PayloadOutputStream.HEADER_RESERVE - headerLength;
+        int position = start;
+        buffer[position++] = firstByte;
+        if (payloadLength <= 125) {
+            buffer[position++] = (byte) payloadLength;
+        } else if (payloadLength <= 0xFFFF) {
+            buffer[position++] = 126;
+            buffer[position++] = (byte) (payloadLength >> 8);
+            buffer[position++] = (byte) payloadLength;
+        } else {
+            buffer[position++] = 127;
+            for (int i = 7; i >= 0; i--) {
+                buffer[position++] = (byte) ((long) payloadLength >> (i * 8));
+            }
+        }
+
+        if (client) {
+            final Masker masker = new Masker(maskingKeyGenerator.nextInt());
+            buffer[start + 1] |= 0x80;
+            System.arraycopy(masker.getMask(), 0, buffer, position, MASK_SIZE);
+            masker.mask(buffer, PayloadOutputStream.HEADER_RESERVE, payloadLength);
+        }
+
+        return ByteBuffer.wrap(buffer, start, headerLength + payloadLength);
+    }
+
     /**
      * TODO!
      *
@@ -701,6 +1397,13 @@ public final class ProtocolHandler {
                             parsingState.masker.setBuffer(buffer);
                             parsingState.length = decodeLength(parsingState.masker.unmask(lengthBytes));
                         }
+
+                        // reject the frame before its payload is read and buffered.
+                        final int maxPayloadLength = getMaxPayloadLength();
+                        if (parsingState.length > maxPayloadLength) {
+                            throw new MessageTooBigException(
+                                    LocalizationMessages.MESSAGE_TOO_LONG(maxPayloadLength, parsingState.length));
+                        }
                         parsingState.state.incrementAndGet();
                         break;
                     case 2:
@@ -735,6 +1438,7 @@ public final class ProtocolHandler {
                                                  .payloadData(data)
                                                  .build();
 
+                        recentFrameLength += (parsingState.length - recentFrameLength) / 8;
                         parsingState.recycle();
 
                         return frame;
@@ -749,6 +1453,84 @@ public final class ProtocolHandler {
         }
     }
 
+    /**
+     * Keep data which could not be parsed yet for the next read.
+     * <p/>
+     * When the header of the frame being received has been already parsed, the returned buffer is reserved for the
+     * whole frame, so it does not grow while the rest of the frame is being read. Otherwise its size follows lengths
+     * of frames recently received on this connection, starting small. The retained buffer is reused unless it is
+     * considerably larger than needed.
+     *
+     * @param retained buffer retained by the previous read, can be {@code null} or the same instance as {@code data}.
+     * @param data     data which could not be parsed yet.
+     * @param maxSize  maximal size of the read buffer.
+     * @return buffer containing the remaining data.
+     * @throws IllegalArgumentException when the frame being received does not fit into {@code maxSize} bytes.
+     */
+    public ByteBuffer retainRemaining(ByteBuffer retained, ByteBuffer data, int maxSize) {
+        final int remaining = data.remaining();
+        final long size;
+        if (parsingState.state.get() == 3) {
+            size = Math.max(parsingState.length, remaining);
+            if (size > maxSize) {
+                throw new IllegalArgumentException(LocalizationMessages.BUFFER_OVERFLOW());
+            }
+        } else {
+            size = Math.max(Math.min(recentFrameLength + MAX_HEADER_LENGTH, maxSize), remaining);
+        }
+
+        if (retained != null && retained.capacity() >= size && !isOversized(retained.capacity(), size)) {
+            if (retained == data) {
+                if (retained.capacity() - retained.position() < size) {
+                    retained.compact();
+                    retained.flip();
+                }
+                return retained;
+            }
+
+            retained.clear();
+            retained.put(data);
+            retained.flip();
+            return retained;
+        }
+
+        final ByteBuffer result = ByteBuffer.allocate((int) size);
+        result.put(data);
+        result.flip();
+        return result;
+    }
+
+    private boolean isOversized(int capacity, long size) {
+        return capacity > SMALL_READ_BUFFER_SIZE && capacity / 4 > Math.max(size, recentFrameLength);
+    }
+
+    /**
+     * Set limits of incoming messages.
+     * <p/>
+     * Frames announcing longer payload are rejected by {@link #unframe(ByteBuffer)} as soon as their header is read.
+     *
+     * @param maxTextMessageSize   maximal length of text message payload.
+     * @param maxBinaryMessageSize maximal length of binary message payload.
+     */
+    void setMaxMessageSize(int maxTextMessageSize, int maxBinaryMessageSize) {
+        this.maxTextMessageSize = maxTextMessageSize;
+        this.maxBinaryMessageSize = maxBinaryMessageSize;
+    }
+
+    /**
+     * Get maximal payload length of the frame being parsed.
+     * <p/>
+     * Compressed frames (RSV1 set) are not limited here, their decompressed payload is checked when it is buffered.
+     */
+    private int getMaxPayloadLength() {
+        if (parsingState.controlFrame || isBitSet(parsingState.opcode, 6)) {
+            return Integer.MAX_VALUE;
+        }
+
+        final int opcode = parsingState.opcode & 0xf;
+        return (opcode == 0 ? inFragmentedType : opcode) == 0x01 ? maxTextMessageSize : maxBinaryMessageSize;
+    }
+
     /**
      * TODO.
      * <p/>
@@ -829,6 +1611,10 @@ public final class ProtocolHandler {
         private final TyrusFuture<Frame> future;
         private final Frame frame;
 
+        private MessageEventListener messageEventListener;
+        private TyrusFrame.FrameType frameType;
+        private long startNanos;
+
         private CompletionHandlerWrapper(CompletionHandler<Frame> frameCompletionHandler, TyrusFuture<Frame> future,
                                          Frame frame) {
             this.frameCompletionHandler = frameCompletionHandler;
@@ -836,6 +1622,16 @@ public final class ProtocolHandler {
             this.frame = frame;
         }
 
+        /**
+         * Report send completion latency to given listener; must be called before the write is submitted.
+         */
+        private void monitor(MessageEventListener messageEventListener, TyrusFrame.FrameType frameType,
+                             long startNanos) {
+            this.messageEventListener = messageEventListener;
+            this.frameType = frameType;
+            this.startNanos = startNanos;
+        }
+
         @Override
         public void cancelled() {
             if (frameCompletionHandler != null) {
@@ -860,6 +1656,10 @@ public final class ProtocolHandler {
 
         @Override
         public void completed(ByteBuffer result) {
+            if (messageEventListener != null) {
+                messageEventListener.onFrameSendCompleted(frameType, System.nanoTime() - startNanos);
+            }
+
             if (frameCompletionHandler != null) {
                 frameCompletionHandler.completed(frame);
             }
@@ -877,6 +1677,30 @@ public final class ProtocolHandler {
         }
     }
 
+    /**
+     * Buffer in which a read handler keeps data of incomplete frames between reads.
+     *
+     * @see #setReadBuffer(ReadBuffer)
+     */
+    public interface ReadBuffer {
+
+        /**
+         * Get capacity of the buffer.
+         *
+         * @return number of bytes retained by the buffer.
+         */
+        int getRetainedSize();
+
+        /**
+         * Release the buffer unless it holds unprocessed data; a new buffer is allocated when needed.
+         * <p/>
+         * Never invoked concurrently with processing of read data.
+         *
+         * @return {@code true} if the buffer has been released or was not allocated, {@code false} otherwise.
+         */
+        boolean release();
+    }
+
     private static class ParsingState {
         final AtomicInteger state = new AtomicInteger(0);
         volatile byte opcode = (byte) -1;
@@ -58,6 +58,12 @@ import org.glassfish.tyrus.core.l10n.LocalizationMessages;
  * </p>
  * For the first received message {@link MessageHandler.Whole#onMessage(Object)} is called within a new executor to
  * allow blocking reading of passed {@link Reader}.
+ * <p/>
+ * When streaming window is set (see {@link TyrusSession#STREAMING_WINDOW}), the maximal message size is not enforced
+ * and reading from the connection is paused whenever more than window characters are buffered (see {@link
+ * org.glassfish.tyrus.spi.Connection.ReadControl}). When the transport cannot pause reading, the thread appending
+ * message parts is blocked until the handler reads enough data. Data not read by the time the handler returns are
+ * discarded and the next message is not accepted until then.
  *
  * @author Danny Coward (danny.coward at oracle.com)
  * @author Stepan Kopriva (stepan.kopriva at oracle.com)
@@ -67,6 +73,7 @@ class ReaderBuffer {
 
     private final AtomicBoolean buffering = new AtomicBoolean(true);
     private final ExecutorService executorService;
+    private final ProtocolHandler protocolHandler;
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
 
@@ -79,13 +86,21 @@ class ReaderBuffer {
     private volatile BufferedStringReader reader = null;
     private volatile MessageHandler.Whole<Reader> messageHandler;
     private volatile boolean sessionClosed = false;
+    private volatile int streamingWindow = 0;
+    private volatile boolean handlerRunning = false;
+    private volatile boolean discardRemaining = false;
+    private boolean readPaused = false;
 
     /**
      * Constructor.
+     *
+     * @param executorService executor used for invoking the message handler.
+     * @param protocolHandler protocol handler used for pausing reading in streaming mode, can be {@code null}.
      */
-    public ReaderBuffer(ExecutorService executorService) {
+    public ReaderBuffer(ExecutorService executorService, ProtocolHandler protocolHandler) {
         this.buffer = new StringBuffer();
         this.executorService = executorService;
+        this.protocolHandler = protocolHandler;
         currentlyBuffered = 0;
     }
 
@@ -127,6 +142,13 @@ class ReaderBuffer {
             buffer.getChars(0, size, result, 0);
             buffer.delete(0, size);
 
+            if (streamingWindow > 0) {
+                currentlyBuffered -= size;
+                // let the appending thread continue
+                condition.signalAll();
+                updateReadPause();
+            }
+
             return result;
         } finally {
             lock.unlock();
@@ -137,6 +159,20 @@ class ReaderBuffer {
      * Finish reading of the buffer.
      */
     public void finishReading() {
+        if (streamingWindow > 0) {
+            lock.lock();
+            try {
+                discardRemaining = !receivedLast;
+                buffer = new StringBuffer();
+                currentlyBuffered = 0;
+                condition.signalAll();
+                updateReadPause();
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
         buffer = new StringBuffer();
         reader = null;
     }
@@ -148,6 +184,11 @@ class ReaderBuffer {
      * @param last    should be {@code true} iff this is the last part of the message, {@code false} otherwise.
      */
     public void appendMessagePart(String message, boolean last) {
+        if (streamingWindow > 0) {
+            appendStreamedMessagePart(message, last);
+            return;
+        }
+
         lock.lock();
         try {
             currentlyBuffered += message.length();
@@ -182,6 +223,81 @@ class ReaderBuffer {
         }
     }
 
+    private void appendStreamedMessagePart(String message, boolean last) {
+        final boolean startHandler;
+
+        lock.lock();
+        try {
+            if (discardRemaining) {
+                receivedLast = last;
+                return;
+            }
+
+            if (!isReadControlSupported()) {
+                // wait for the handler to read buffered data; at least one part is always accepted so that parts
+                // larger than the window can be passed through.
+                boolean interrupted = false;
+                while (currentlyBuffered > 0 && currentlyBuffered + message.length() > streamingWindow
+                        && !discardRemaining && !sessionClosed) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (!discardRemaining) {
+                currentlyBuffered += message.length();
+                buffer.append(message);
+            }
+            receivedLast = last;
+            condition.signalAll();
+
+            startHandler = reader == null;
+            if (startHandler) {
+                reader = new BufferedStringReader(this);
+                handlerRunning = true;
+            }
+            updateReadPause();
+        } finally {
+            lock.unlock();
+        }
+
+        if (startHandler) {
+            final BufferedStringReader stringReader = reader;
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        messageHandler.onMessage(stringReader);
+                    } finally {
+                        onHandlerReturned();
+                    }
+                }
+            });
+        }
+    }
+
+    private void onHandlerReturned() {
+        lock.lock();
+        try {
+            // the rest of the message is not going to be read
+            discardRemaining = !receivedLast;
+            buffer = new StringBuffer();
+            currentlyBuffered = 0;
+            reader = null;
+            handlerRunning = false;
+            condition.signalAll();
+            updateReadPause();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Set the {@link MessageHandler} that will consume the constructed {@link java.io.InputStream}.
      *
@@ -194,10 +310,38 @@ class ReaderBuffer {
     /**
      * Reset the buffer size.
      *
-     * @param bufferSize the size to be set.
+     * @param bufferSize      the size to be set.
+     * @param streamingWindow maximal number of buffered characters, {@code 0} when streaming is disabled and the
+     *                        whole message (up to {@code bufferSize}) can be buffered.
      */
-    public void resetBuffer(int bufferSize) {
+    public void resetBuffer(int bufferSize, int streamingWindow) {
+        if (this.streamingWindow > 0) {
+            // previous message has to be processed first
+            lock.lock();
+            try {
+                boolean interrupted = false;
+                while (handlerRunning && !sessionClosed) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (streamingWindow > 0) {
+            discardRemaining = false;
+            receivedLast = false;
+        }
+
         this.bufferSize = bufferSize;
+        this.streamingWindow = streamingWindow;
         buffering.set(true);
         currentlyBuffered = 0;
         buffer.delete(0, buffer.length());
@@ -209,11 +353,39 @@ class ReaderBuffer {
         try {
             // wake up blocked thread
             condition.signalAll();
+            if (readPaused) {
+                readPaused = false;
+                protocolHandler.resumeReading();
+            }
         } finally {
             lock.unlock();
         }
     }
 
+    private boolean isReadControlSupported() {
+        return protocolHandler != null && protocolHandler.isReadControlSupported();
+    }
+
+    /**
+     * Pause reading while the window is exceeded or when the whole message has been received and the handler has not
+     * returned yet, since the next message would not be accepted. Must be called with the lock held.
+     */
+    private void updateReadPause() {
+        if (!isReadControlSupported()) {
+            return;
+        }
+
+        final boolean pause = handlerRunning && (currentlyBuffered > streamingWindow || receivedLast);
+        if (pause != readPaused) {
+            readPaused = pause;
+            if (pause) {
+                protocolHandler.pauseReading();
+            } else {
+                protocolHandler.resumeReading();
+            }
+        }
+    }
+
     private void checkClosedSession() throws IOException {
         if (sessionClosed) {
             throw new IOException("Websocket session has been closed.");
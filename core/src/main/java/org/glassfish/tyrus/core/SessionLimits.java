@@ -0,0 +1,252 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.CloseReason;
+
+/**
+ * {@link TyrusEndpointWrapper.SessionListener} enforcing {@link TyrusWebSocketEngine#MAX_SESSIONS_PER_APP} and
+ * {@link TyrusWebSocketEngine#MAX_SESSIONS_PER_REMOTE_ADDR}.
+ * <p/>
+ * Counters are updated by compare-and-set loops, so opening and closing sessions does not serialize on a global lock.
+ * A per-address counter is removed from the map when it drops to zero; a counter which reached zero is never
+ * incremented again, so a concurrent {@link #onOpen(String)} replaces it with a new one instead of resurrecting a
+ * counter which is being removed.
+ * <p/>
+ * IPv6 clients can be grouped by a network prefix, see
+ * {@link TyrusWebSocketEngine#MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class SessionLimits extends TyrusEndpointWrapper.SessionListener {
+
+    private static final int IPV6_BITS = 128;
+
+    private final Integer maxSessionsPerApp;
+    private final Integer maxSessionsPerRemoteAddr;
+    private final int ipv6PrefixLength;
+
+    // limit per application counter
+    private final AtomicInteger counter = new AtomicInteger(0);
+
+    // limit per remote address (or IPv6 network) counters
+    private final ConcurrentMap<String, AtomicInteger> remoteAddressCounters =
+            new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSessionsPerApp        maximal number of open sessions per application. If {@code null}, no limit is
+     *                                 applied.
+     * @param maxSessionsPerRemoteAddr maximal number of open sessions per remote address. If {@code null}, no limit is
+     *                                 applied.
+     * @param ipv6PrefixLength         length of IPv6 network prefix remote addresses are grouped by. {@code null}
+     *                                 means that every address is counted separately.
+     */
+    SessionLimits(Integer maxSessionsPerApp, Integer maxSessionsPerRemoteAddr, Integer ipv6PrefixLength) {
+        this.maxSessionsPerApp = maxSessionsPerApp;
+        this.maxSessionsPerRemoteAddr = maxSessionsPerRemoteAddr;
+        this.ipv6PrefixLength = ipv6PrefixLength == null ? IPV6_BITS : ipv6PrefixLength;
+    }
+
+    @Override
+    public OnOpenResult onOpen(final TyrusSession session) {
+        return onOpen(session.getRemoteAddr());
+    }
+
+    @Override
+    public void onClose(final TyrusSession session, final CloseReason closeReason) {
+        onClose(session.getRemoteAddr());
+    }
+
+    /**
+     * Acquire a session slot for given remote address.
+     *
+     * @param remoteAddr remote address of the opened session.
+     * @return {@link OnOpenResult#SESSION_ALLOWED} if the session can be opened, reason why not otherwise. Nothing is
+     * acquired when the session is refused.
+     */
+    OnOpenResult onOpen(String remoteAddr) {
+        if (maxSessionsPerApp != null && !tryIncrement(counter, maxSessionsPerApp)) {
+            return OnOpenResult.MAX_SESSIONS_PER_APP_EXCEEDED;
+        }
+
+        if (maxSessionsPerRemoteAddr != null && !tryIncrementRemoteAddress(remoteAddressKey(remoteAddr))) {
+            if (maxSessionsPerApp != null) {
+                counter.decrementAndGet();
+            }
+            return OnOpenResult.MAX_SESSIONS_PER_REMOTE_ADDR_EXCEEDED;
+        }
+
+        return OnOpenResult.SESSION_ALLOWED;
+    }
+
+    /**
+     * Release a session slot acquired by {@link #onOpen(String)}.
+     *
+     * @param remoteAddr remote address of the closed session.
+     */
+    void onClose(String remoteAddr) {
+        if (maxSessionsPerApp != null) {
+            counter.decrementAndGet();
+        }
+
+        if (maxSessionsPerRemoteAddr != null) {
+            final String key = remoteAddressKey(remoteAddr);
+            final AtomicInteger remoteAddressCounter = remoteAddressCounters.get(key);
+            if (remoteAddressCounter != null && remoteAddressCounter.decrementAndGet() == 0) {
+                remoteAddressCounters.remove(key, remoteAddressCounter);
+            }
+        }
+    }
+
+    /**
+     * Get number of sessions counted against the per application limit.
+     *
+     * @return number of open sessions.
+     */
+    int getSessionCount() {
+        return counter.get();
+    }
+
+    /**
+     * Get number of sessions counted against the per remote address limit.
+     *
+     * @param remoteAddr remote address.
+     * @return number of open sessions from given address (or IPv6 network the address belongs to).
+     */
+    int getSessionCount(String remoteAddr) {
+        final AtomicInteger remoteAddressCounter = remoteAddressCounters.get(remoteAddressKey(remoteAddr));
+        return remoteAddressCounter == null ? 0 : remoteAddressCounter.get();
+    }
+
+    private boolean tryIncrementRemoteAddress(String key) {
+        while (true) {
+            AtomicInteger remoteAddressCounter = remoteAddressCounters.get(key);
+            if (remoteAddressCounter == null) {
+                if (remoteAddressCounters.putIfAbsent(key, new AtomicInteger(1)) == null) {
+                    return true;
+                }
+                continue;
+            }
+
+            final int current = remoteAddressCounter.get();
+            if (current == 0) {
+                // counter is being removed by onClose
+                remoteAddressCounters.remove(key, remoteAddressCounter);
+            } else if (current >= maxSessionsPerRemoteAddr) {
+                return false;
+            } else if (remoteAddressCounter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static boolean tryIncrement(AtomicInteger counter, int limit) {
+        while (true) {
+            final int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Get the key remote address is counted under.
+     * <p/>
+     * IPv6 addresses are masked to the configured prefix length, anything else (including addresses which are not
+     * IPv6 literals) is used as it is.
+     *
+     * @param remoteAddr remote address.
+     * @return counter key.
+     */
+    String remoteAddressKey(String remoteAddr) {
+        if (ipv6PrefixLength == IPV6_BITS || remoteAddr == null || remoteAddr.indexOf(':') == -1) {
+            return remoteAddr;
+        }
+
+        String literal = remoteAddr;
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        final int zoneIndex = literal.indexOf('%');
+        if (zoneIndex != -1) {
+            literal = literal.substring(0, zoneIndex);
+        }
+
+        final byte[] address;
+        try {
+            // literal containing ':' is parsed without name service lookup
+            final InetAddress inetAddress = InetAddress.getByName(literal);
+            if (!(inetAddress instanceof Inet6Address)) {
+                // IPv4-mapped address
+                return inetAddress.getHostAddress();
+            }
+            address = inetAddress.getAddress();
+        } catch (Exception e) {
+            return remoteAddr;
+        }
+
+        final StringBuilder sb = new StringBuilder(40);
+        for (int i = 0; i < address.length; i += 2) {
+            int word = (address[i] & 0xff) << 8 | (address[i + 1] & 0xff);
+            final int bits = ipv6PrefixLength - i * 8;
+            if (bits <= 0) {
+                word = 0;
+            } else if (bits < 16) {
+                word &= 0xffff << (16 - bits);
+            }
+            if (i > 0) {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(word));
+        }
+        return sb.append('/').append(ipv6PrefixLength).toString();
+    }
+}
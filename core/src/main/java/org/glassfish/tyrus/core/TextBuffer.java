@@ -69,7 +69,15 @@ class TextBuffer {
     }
 
     String getBufferedContent() {
-        return buffer.toString();
+        final String content = buffer.toString();
+        // do not keep the largest message received for the rest of the session
+        buffer = null;
+        return content;
+    }
+
+    int getRetainedSize() {
+        final StringBuffer localBuffer = buffer;
+        return localBuffer == null ? 0 : localBuffer.capacity() * 2;
     }
 
     void resetBuffer(int bufferSize) {
@@ -0,0 +1,493 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+
+/**
+ * Limits the rate at which whole messages of one session are passed to the container.
+ * <p/>
+ * Every message consumes tokens (bytes) from a session {@link TokenBucket} and optionally from a {@link TokenBucket}
+ * shared by all sessions of an endpoint. A message is sent when both buckets hold a positive number of tokens; it may
+ * overdraw them, so messages larger than the burst size are not blocked forever. Messages which cannot be sent yet
+ * are queued in order and sent by a task scheduled for the time when enough tokens are refilled.
+ * <p/>
+ * A queued message sent with a conflation key is replaced in place by a newer message with the same key; the replaced
+ * message is reported as successfully sent.
+ * <p/>
+ * A message can be sent with a timeout; when it is still queued after the timeout expires, it is failed with
+ * {@link SocketTimeoutException} instead of being passed to the container.
+ * <p/>
+ * A serial traffic shaper passes the next message to the container only after the write of the previous one
+ * completes, so messages queue up while the peer is slow. Together with conflation keys this is used for
+ * {@link TyrusSession#sendConflated(Object, Object, SendHandler)}, where a slow peer receives fewer, fresher messages.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see TyrusSession#SEND_RATE_LIMIT
+ * @see TyrusSession#sendConflated(Object, Object, SendHandler)
+ */
+class TrafficShaper {
+
+    private final TokenBucket sessionBucket;
+    private final TokenBucket endpointBucket;
+    private final ScheduledExecutorService scheduler;
+    private final TyrusSession.ConflationKeyResolver conflationKeyResolver;
+    private final boolean serial;
+
+    private final Object lock = new Object();
+    private final Queue<Entry> queue = new ArrayDeque<Entry>();
+    private final Map<Object, Entry> conflated = new HashMap<Object, Entry>();
+
+    private boolean draining = false;
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param sessionBucket         bucket of the session, can be {@code null}.
+     * @param endpointBucket        bucket shared by all sessions of the endpoint, can be {@code null}.
+     * @param scheduler             scheduler used for sending messages which had to wait for tokens.
+     * @param conflationKeyResolver resolver of conflation keys, can be {@code null}.
+     */
+    TrafficShaper(TokenBucket sessionBucket, TokenBucket endpointBucket, ScheduledExecutorService scheduler,
+                  TyrusSession.ConflationKeyResolver conflationKeyResolver) {
+        this(sessionBucket, endpointBucket, scheduler, conflationKeyResolver, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sessionBucket         bucket of the session, can be {@code null}.
+     * @param endpointBucket        bucket shared by all sessions of the endpoint, can be {@code null}.
+     * @param scheduler             scheduler used for sending messages which had to wait for tokens, can be {@code
+     *                              null} when there are no buckets.
+     * @param conflationKeyResolver resolver of conflation keys, can be {@code null}.
+     * @param serial                {@code true} if the next message is passed to the container only after the write
+     *                              of the previous one completes.
+     */
+    TrafficShaper(TokenBucket sessionBucket, TokenBucket endpointBucket, ScheduledExecutorService scheduler,
+                  TyrusSession.ConflationKeyResolver conflationKeyResolver, boolean serial) {
+        this.sessionBucket = sessionBucket;
+        this.endpointBucket = endpointBucket;
+        this.scheduler = scheduler;
+        this.conflationKeyResolver = conflationKeyResolver;
+        this.serial = serial;
+    }
+
+    /**
+     * Get conflation key of a message.
+     *
+     * @param message message passed to {@link javax.websocket.RemoteEndpoint}.
+     * @return conflation key or {@code null} if the message must not be replaced.
+     */
+    Object getConflationKey(Object message) {
+        return conflationKeyResolver == null ? null : conflationKeyResolver.getConflationKey(message);
+    }
+
+    /**
+     * Send a message or queue it until enough tokens are available.
+     *
+     * @param key     conflation key, {@code null} if the message must not be replaced by a newer one.
+     * @param size    size of the message in bytes.
+     * @param message message to be sent.
+     * @param handler handler notified when the message is sent, replaced or failed.
+     */
+    void send(Object key, long size, Message message, SendHandler handler) {
+        send(key, size, message, handler, 0);
+    }
+
+    /**
+     * Send a message or queue it until enough tokens are available.
+     *
+     * @param key     conflation key, {@code null} if the message must not be replaced by a newer one.
+     * @param size    size of the message in bytes.
+     * @param message message to be sent.
+     * @param handler handler notified when the message is sent, replaced, failed or timed out.
+     * @param timeout time in milliseconds the message may stay queued, {@code 0} or negative for no limit.
+     */
+    void send(Object key, long size, Message message, SendHandler handler, long timeout) {
+        final long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        final boolean refused;
+        SendHandler replaced = null;
+
+        synchronized (lock) {
+            refused = closed;
+
+            final Entry existing = key == null || refused ? null : conflated.get(key);
+            if (existing != null) {
+                replaced = existing.handler;
+                existing.size = size;
+                existing.message = message;
+                existing.handler = handler;
+                existing.deadline = deadline;
+            } else if (!refused) {
+                final Entry entry = new Entry(key, size, message, handler, deadline);
+                queue.add(entry);
+                if (key != null) {
+                    conflated.put(key, entry);
+                }
+
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+        }
+
+        if (refused) {
+            handler.onResult(new SendResult(new IOException("Session closed.")));
+        } else if (replaced != null) {
+            replaced.onResult(new SendResult());
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Get number of queued messages.
+     *
+     * @return number of messages waiting for tokens.
+     */
+    int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Wait until all queued messages are passed to the container (and written, if the traffic shaper is serial).
+     * <p/>
+     * Used before sending data which are not shaped, so it cannot overtake queued messages.
+     *
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    void awaitEmpty() throws InterruptedException {
+        synchronized (lock) {
+            while (draining && !closed) {
+                lock.wait();
+            }
+        }
+    }
+
+    /**
+     * Fail all queued messages and refuse new ones.
+     */
+    void close() {
+        fail(new IOException("Session closed."));
+    }
+
+    private void fail(Exception reason) {
+        final List<Entry> pending;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            draining = false;
+            pending = new ArrayList<Entry>(queue);
+            queue.clear();
+            conflated.clear();
+            lock.notifyAll();
+        }
+
+        for (Entry entry : pending) {
+            entry.handler.onResult(new SendResult(reason));
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            final Entry entry;
+            final boolean expired;
+            long delay = 0;
+
+            synchronized (lock) {
+                entry = queue.peek();
+                if (entry == null || closed) {
+                    draining = false;
+                    lock.notifyAll();
+                    return;
+                }
+
+                final long now = System.nanoTime();
+                expired = entry.deadline != 0 && now - entry.deadline >= 0;
+                if (!expired) {
+                    // the session bucket is used only under the lock, the endpoint bucket is shared by all sessions
+                    // and has to be checked and taken in one step
+                    delay = sessionBucket == null ? 0 : sessionBucket.delay(now);
+                    if (delay == 0 && endpointBucket != null) {
+                        delay = endpointBucket.tryConsume(entry.size, now);
+                    }
+                    if (delay == 0 && sessionBucket != null) {
+                        sessionBucket.consume(entry.size, now);
+                    }
+                }
+
+                if (delay == 0) {
+                    queue.poll();
+                    if (entry.key != null) {
+                        conflated.remove(entry.key);
+                    }
+                }
+            }
+
+            if (delay > 0) {
+                // still draining; the scheduled task continues
+                schedule(delay);
+                return;
+            }
+
+            if (expired) {
+                entry.handler.onResult(new SendResult(new SocketTimeoutException("Send timeout expired.")));
+                continue;
+            }
+
+            if (!serial) {
+                try {
+                    entry.message.send(entry.handler);
+                } catch (RuntimeException e) {
+                    entry.handler.onResult(new SendResult(e));
+                }
+                continue;
+            }
+
+            final Completion completion = new Completion(entry.handler);
+            try {
+                entry.message.send(completion);
+            } catch (RuntimeException e) {
+                completion.onResult(new SendResult(e));
+            }
+
+            if (completion.returned.compareAndSet(false, true)) {
+                // still draining; the completion continues when the write is done
+                return;
+            }
+            // write completed in this thread, continue without growing the stack
+        }
+    }
+
+    private void schedule(long delay) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // container is being shut down
+            fail(e);
+        }
+    }
+
+    /**
+     * Get number of bytes of UTF-8 representation of given text.
+     *
+     * @param text text.
+     * @return number of bytes needed to encode the text.
+     */
+    static long utf8Length(String text) {
+        long length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c >= 0x800) {
+                // surrogate pairs are counted as 2 x 2 bytes, which is exactly 4 bytes of their encoding
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Message passed to the container when tokens are available.
+     */
+    interface Message {
+
+        /**
+         * Pass the message to the container.
+         *
+         * @param handler handler to be notified when the message is sent.
+         */
+        void send(SendHandler handler);
+    }
+
+    /**
+     * Token bucket refilled at a constant rate up to its capacity.
+     * <p/>
+     * Tokens can drop below zero; the bucket then has to be refilled above zero before it allows sending again.
+     */
+    static class TokenBucket {
+
+        private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+        private final long rate;
+        private final long capacity;
+
+        private long tokens;
+        private long lastRefill;
+
+        /**
+         * Constructor.
+         *
+         * @param rate     number of tokens (bytes) added per second.
+         * @param capacity maximal number of tokens (bytes), which is the largest burst allowed.
+         */
+        TokenBucket(long rate, long capacity) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Get time after which the bucket will allow sending.
+         *
+         * @param now current value of {@link System#nanoTime()}.
+         * @return time in nanoseconds, {@code 0} if sending is allowed now.
+         */
+        synchronized long delay(long now) {
+            refill(now);
+            return tokens > 0 ? 0 : (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / rate);
+        }
+
+        /**
+         * Take tokens from the bucket.
+         *
+         * @param size number of tokens (bytes) to be taken.
+         * @param now  current value of {@link System#nanoTime()}.
+         */
+        synchronized void consume(long size, long now) {
+            refill(now);
+            tokens -= size;
+        }
+
+        /**
+         * Take tokens from the bucket if it allows sending.
+         *
+         * @param size number of tokens (bytes) to be taken.
+         * @param now  current value of {@link System#nanoTime()}.
+         * @return {@code 0} if the tokens were taken, otherwise time in nanoseconds after which the bucket will allow
+         * sending.
+         */
+        synchronized long tryConsume(long size, long now) {
+            final long delay = delay(now);
+            if (delay == 0) {
+                tokens -= size;
+            }
+            return delay;
+        }
+
+        private void refill(long now) {
+            final long elapsed = now - lastRefill;
+            if (elapsed <= 0) {
+                return;
+            }
+
+            // computed in double, a long idle time multiplied by the rate would overflow
+            final double added = elapsed * (double) rate / NANOS_PER_SECOND;
+            if (added >= capacity - tokens) {
+                // idle time of a full bucket does not count towards the next refill
+                tokens = capacity;
+                lastRefill = now;
+            } else if (added >= 1) {
+                tokens += (long) added;
+                lastRefill = now;
+            }
+        }
+    }
+
+    /**
+     * Notifies the handler of a message sent by a serial traffic shaper and continues draining.
+     */
+    private class Completion implements SendHandler {
+
+        private final SendHandler handler;
+        private final AtomicBoolean returned = new AtomicBoolean(false);
+
+        Completion(SendHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onResult(SendResult result) {
+            try {
+                handler.onResult(result);
+            } finally {
+                if (!returned.compareAndSet(false, true)) {
+                    drain();
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final Object key;
+
+        private long size;
+        private Message message;
+        private SendHandler handler;
+        private long deadline;
+
+        Entry(Object key, long size, Message message, SendHandler handler, long deadline) {
+            this.key = key;
+            this.size = size;
+            this.message = message;
+            this.handler = handler;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -41,7 +41,6 @@
 package org.glassfish.tyrus.core;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -53,12 +52,15 @@ import java.lang.reflect.Method;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.security.Principal;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -88,11 +90,13 @@ import javax.websocket.server.ServerEndpointConfig;
 import org.glassfish.tyrus.core.cluster.BroadcastListener;
 import org.glassfish.tyrus.core.cluster.ClusterContext;
 import org.glassfish.tyrus.core.cluster.RemoteSession;
+import org.glassfish.tyrus.core.coder.ByteBufferEncoder;
 import org.glassfish.tyrus.core.coder.CoderWrapper;
 import org.glassfish.tyrus.core.coder.InputStreamDecoder;
 import org.glassfish.tyrus.core.coder.NoOpByteArrayCoder;
 import org.glassfish.tyrus.core.coder.NoOpByteBufferCoder;
 import org.glassfish.tyrus.core.coder.NoOpTextCoder;
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 import org.glassfish.tyrus.core.coder.PrimitiveDecoders;
 import org.glassfish.tyrus.core.coder.ReaderDecoder;
 import org.glassfish.tyrus.core.coder.ToStringEncoder;
@@ -102,6 +106,7 @@ import org.glassfish.tyrus.core.frame.TextFrame;
 import org.glassfish.tyrus.core.frame.TyrusFrame;
 import org.glassfish.tyrus.core.l10n.LocalizationMessages;
 import org.glassfish.tyrus.core.monitoring.EndpointEventListener;
+import org.glassfish.tyrus.core.monitoring.MessageEventListener;
 import org.glassfish.tyrus.spi.UpgradeRequest;
 import org.glassfish.tyrus.spi.UpgradeResponse;
 
@@ -140,6 +145,7 @@ public class TyrusEndpointWrapper {
             new ConcurrentHashMap<TyrusWebSocket, TyrusSession>();
     private final Map<String, RemoteSession> clusteredSessions =
             new ConcurrentHashMap<String, RemoteSession>();
+    private final Set<Session> openSessionsView = new OpenSessionsView();
     private final ComponentProviderService componentProvider;
     private final ServerEndpointConfig.Configurator configurator;
     private final Method onOpen;
@@ -152,6 +158,9 @@ public class TyrusEndpointWrapper {
 
     private final ClusterContext clusterContext;
 
+    private volatile boolean sendTokenBucketResolved = false;
+    private volatile TrafficShaper.TokenBucket sendTokenBucket;
+
     /**
      * Create {@link TyrusEndpointWrapper} for class that extends {@link Endpoint}.
      *
@@ -354,6 +363,14 @@ public class TyrusEndpointWrapper {
                         public void onSessionClosed(String sessionId) {
                             clusteredSessions.remove(sessionId);
                         }
+
+                        @Override
+                        public void onSessionPropertiesChanged(String sessionId) {
+                            final RemoteSession remoteSession = clusteredSessions.get(sessionId);
+                            if (remoteSession != null) {
+                                remoteSession.invalidatePropertyCache();
+                            }
+                        }
                     });
 
             clusterContext.registerBroadcastListener(getEndpointPath(), new BroadcastListener() {
@@ -366,13 +383,26 @@ public class TyrusEndpointWrapper {
                 public void onBroadcast(byte[] data) {
                     broadcast(ByteBuffer.wrap(data), true);
                 }
+
+                @Override
+                public void onBroadcast(String text, byte[] frame) {
+                    broadcastLocal(text, frame);
+                }
+
+                @Override
+                public void onBroadcast(byte[] data, byte[] frame) {
+                    broadcastLocal(data, frame);
+                }
             });
 
-            for (String sessionId : clusterContext.getRemoteSessionIds(getEndpointPath())) {
-                final Map<RemoteSession.DistributedMapKey, Object> distributedSessionProperties =
-                        clusterContext.getDistributedSessionProperties(sessionId);
-                clusteredSessions.put(sessionId,
-                                      new RemoteSession(sessionId, clusterContext, distributedSessionProperties, this,
+            // load properties of all remote sessions at once
+            final Map<String, Map<RemoteSession.DistributedMapKey, Object>> remoteSessionProperties =
+                    clusterContext.getDistributedSessionProperties(
+                            clusterContext.getRemoteSessionIds(getEndpointPath()));
+            for (Map.Entry<String, Map<RemoteSession.DistributedMapKey, Object>> entry
+                    : remoteSessionProperties.entrySet()) {
+                clusteredSessions.put(entry.getKey(),
+                                      new RemoteSession(entry.getKey(), clusterContext, entry.getValue(), this,
                                                         dummySession));
             }
         }
@@ -423,9 +453,11 @@ public class TyrusEndpointWrapper {
             if (type != null && type.isAssignableFrom(selectedDecoder.getType())) {
                 final Decoder.Text decoder = (Decoder.Text) getCoderInstance(session, selectedDecoder);
 
-                session.getDebugContext()
-                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
-                                         selectedDecoder);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    session.getDebugContext()
+                           .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
+                                             selectedDecoder);
+                }
 
                 // TYRUS-210: willDecode was already called
                 return decoder.decode((String) message);
@@ -434,32 +466,39 @@ public class TyrusEndpointWrapper {
             if (type != null && type.isAssignableFrom(selectedDecoder.getType())) {
                 final Decoder.Binary decoder = (Decoder.Binary) getCoderInstance(session, selectedDecoder);
 
-                session.getDebugContext()
-                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
-                                         selectedDecoder);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    session.getDebugContext()
+                           .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
+                                             selectedDecoder);
+                }
                 // TYRUS-210: willDecode was already called
                 return decoder.decode((ByteBuffer) message);
             }
         } else if (Decoder.TextStream.class.isAssignableFrom(decoderClass)) {
             if (type != null && type.isAssignableFrom(selectedDecoder.getType())) {
 
-                session.getDebugContext()
-                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
-                                         selectedDecoder);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    session.getDebugContext()
+                           .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
+                                             selectedDecoder);
+                }
 
                 return ((Decoder.TextStream) getCoderInstance(session, selectedDecoder))
                         .decode(new StringReader((String) message));
             }
         } else if (Decoder.BinaryStream.class.isAssignableFrom(decoderClass)) {
             if (type != null && type.isAssignableFrom(selectedDecoder.getType())) {
-                byte[] array = ((ByteBuffer) message).array();
+                final ByteBuffer buffer = (ByteBuffer) message;
 
-                session.getDebugContext()
-                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
-                                         selectedDecoder);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    session.getDebugContext()
+                           .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Decoding with ",
+                                             selectedDecoder);
+                }
 
                 return ((Decoder.BinaryStream) getCoderInstance(session, selectedDecoder))
-                        .decode(new ByteArrayInputStream(array));
+                        .decode(new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                                         buffer.remaining()));
             }
         }
 
@@ -490,24 +529,61 @@ public class TyrusEndpointWrapper {
             }
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Applicable decoders: ", result);
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Applicable decoders: ",
+                                     result);
+        }
 
         return result;
     }
 
-    @SuppressWarnings("unchecked")
     public Object doEncode(Session session, Object message) throws EncodeException, IOException {
+        final MessageEventListener messageEventListener = session instanceof TyrusSession
+                ? ((TyrusSession) session).getMessageEventListener() : MessageEventListener.NO_OP;
+        if (messageEventListener == MessageEventListener.NO_OP) {
+            return encode(session, message);
+        }
+
+        final long start = System.nanoTime();
+        try {
+            return encode(session, message);
+        } finally {
+            messageEventListener.onMessageEncoded(System.nanoTime() - start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object encode(Session session, Object message) throws EncodeException, IOException {
         for (CoderWrapper<Encoder> enc : encoders) {
             final Class<? extends Encoder> encoderClass = enc.getCoderClass();
 
-            if (Encoder.Binary.class.isAssignableFrom(encoderClass)) {
+            if (ByteBufferEncoder.class.isAssignableFrom(encoderClass)) {
+                if (enc.getType().isAssignableFrom(message.getClass())) {
+                    final ByteBufferEncoder encoder = (ByteBufferEncoder) getCoderInstance(session, enc);
+
+                    logUsedEncoder(enc, session);
+
+                    final int length = encoder.getEncodedLength(message);
+                    final PayloadOutputStream stream = new PayloadOutputStream(length);
+                    final ByteBuffer buffer = stream.reserve(length);
+                    encoder.encode(message, buffer);
+                    stream.commit(buffer);
+                    return stream;
+                }
+            } else if (Encoder.Binary.class.isAssignableFrom(encoderClass)) {
                 if (enc.getType().isAssignableFrom(message.getClass())) {
                     final Encoder.Binary encoder = (Encoder.Binary) getCoderInstance(session, enc);
 
                     logUsedEncoder(enc, session);
 
-                    return encoder.encode(message);
+                    // copy the encoded message right behind the frame header
+                    final ByteBuffer buffer = encoder.encode(message);
+                    final PayloadOutputStream stream = new PayloadOutputStream(buffer == null ? 0 : buffer.remaining());
+                    if (buffer != null) {
+                        stream.write(buffer);
+                    }
+                    return stream;
                 }
             } else if (Encoder.Text.class.isAssignableFrom(encoderClass)) {
                 if (enc.getType().isAssignableFrom(message.getClass())) {
@@ -519,7 +595,7 @@ public class TyrusEndpointWrapper {
                 }
             } else if (Encoder.BinaryStream.class.isAssignableFrom(encoderClass)) {
                 if (enc.getType().isAssignableFrom(message.getClass())) {
-                    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    final PayloadOutputStream stream = new PayloadOutputStream();
                     final Encoder.BinaryStream encoder = (Encoder.BinaryStream) getCoderInstance(session, enc);
 
                     logUsedEncoder(enc, session);
@@ -608,20 +684,36 @@ public class TyrusEndpointWrapper {
     }
 
     /**
-     * Get the set of open {@link TyrusSession}.
+     * Get read-only live view of open {@link TyrusSession sessions}.
+     * <p/>
+     * The view is backed by the session registry of this endpoint; iteration is weakly consistent and {@link
+     * Set#size()} counts the open sessions by iterating the registry.
+     *
+     * @return live view of open sessions.
+     */
+    Set<Session> getOpenSessionsView() {
+        return openSessionsView;
+    }
+
+    /**
+     * Invoke the visitor for every open session without copying the session registry.
      *
-     * @return open sessions.
+     * @param visitor visitor to be invoked.
+     * @return number of visited sessions.
+     * @see TyrusSession#forEachOpenSession(TyrusSession.SessionVisitor)
      */
-    Set<TyrusSession> getOpenSessions() {
-        Set<TyrusSession> result = new HashSet<TyrusSession>();
+    int forEachOpenSession(TyrusSession.SessionVisitor visitor) {
+        int index = 0;
 
         for (TyrusSession session : webSocketToSession.values()) {
             if (session.isOpen()) {
-                result.add(session);
+                if (!visitor.visit(index++, session)) {
+                    break;
+                }
             }
         }
 
-        return Collections.unmodifiableSet(result);
+        return index;
     }
 
     Set<RemoteSession> getRemoteSessions() {
@@ -694,7 +786,9 @@ public class TyrusEndpointWrapper {
                     && ((TyrusServerEndpointConfig) configuration).getMaxSessions() > 0
                     && webSocketToSession.size() > ((TyrusServerEndpointConfig) configuration).getMaxSessions();
 
-            SessionListener.OnOpenResult onOpenResult = sessionListener.onOpen(session);
+            // session refused by the endpoint limit must not be counted by the session listener
+            SessionListener.OnOpenResult onOpenResult =
+                    maxSessionPerEndpointExceeded ? null : sessionListener.onOpen(session);
 
             // test max open sessions per endpoint and per application
             if (maxSessionPerEndpointExceeded || !onOpenResult.equals(SessionListener.OnOpenResult.SESSION_ALLOWED)) {
@@ -718,8 +812,10 @@ public class TyrusEndpointWrapper {
                         }
                     }
 
-                    debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
-                                                  "Session opening refused: ", refuseDetail);
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
+                                                      "Session opening refused: ", refuseDetail);
+                    }
                     session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, refuseDetail));
                 } catch (IOException e) {
                     debugContext.appendLogMessageWithThrowable(LOGGER, Level.WARNING, DebugContext.Type.MESSAGE_IN, e,
@@ -785,6 +881,8 @@ public class TyrusEndpointWrapper {
             endpointEventListener.onError(session.getId(), t);
         }
 
+        socket.setMessageDispatcher(session.createMessageDispatcher());
+
         return session;
     }
 
@@ -803,8 +901,10 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received binary message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received binary message");
+        }
 
         try {
             session.restartIdleTimeoutExecutor();
@@ -858,8 +958,10 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received text message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received text message");
+        }
 
         try {
             session.restartIdleTimeoutExecutor();
@@ -917,8 +1019,11 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received partial text message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN,
+                                     "Received partial text message");
+        }
 
         try {
             session.restartIdleTimeoutExecutor();
@@ -934,10 +1039,11 @@ public class TyrusEndpointWrapper {
                     case RUNNING:
                         if (buffer == null) {
                             // TODO:
-                            buffer = new ReaderBuffer(((BaseContainer) container).getExecutorService());
+                            buffer = new ReaderBuffer(((BaseContainer) container).getExecutorService(),
+                                                      session.getProtocolHandler());
                             session.setReaderBuffer(buffer);
                         }
-                        buffer.resetBuffer(session.getMaxTextMessageBufferSize());
+                        buffer.resetBuffer(session.getMaxTextMessageBufferSize(), session.getStreamingWindow());
                         buffer.setMessageHandler((session.getMessageHandler(Reader.class)));
                         buffer.appendMessagePart(partialString, last);
                         session.setState(TyrusSession.State.RECEIVING_TEXT);
@@ -1020,8 +1126,11 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received partial binary message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN,
+                                     "Received partial binary message");
+        }
 
         try {
             session.restartIdleTimeoutExecutor();
@@ -1037,10 +1146,11 @@ public class TyrusEndpointWrapper {
                     case RUNNING:
                         if (buffer == null) {
                             // TODO
-                            buffer = new InputStreamBuffer(((BaseContainer) container).getExecutorService());
+                            buffer = new InputStreamBuffer(((BaseContainer) container).getExecutorService(),
+                                                           session.getProtocolHandler());
                             session.setInputStreamBuffer(buffer);
                         }
-                        buffer.resetBuffer(session.getMaxBinaryMessageBufferSize());
+                        buffer.resetBuffer(session.getMaxBinaryMessageBufferSize(), session.getStreamingWindow());
                         buffer.setMessageHandler((session.getMessageHandler(InputStream.class)));
                         buffer.appendMessagePart(partialBytes, last);
                         session.setState(TyrusSession.State.RECEIVING_BINARY);
@@ -1146,8 +1256,10 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received pong message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received pong message");
+        }
 
         session.restartIdleTimeoutExecutor();
 
@@ -1187,8 +1299,10 @@ public class TyrusEndpointWrapper {
                 }
             }
         } else {
-            session.getDebugContext()
-                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Unhandled pong message");
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext()
+                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Unhandled pong message");
+            }
         }
     }
 
@@ -1210,8 +1324,10 @@ public class TyrusEndpointWrapper {
             return;
         }
 
-        session.getDebugContext()
-               .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received ping message");
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            session.getDebugContext()
+                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_IN, "Received ping message");
+        }
 
         session.restartIdleTimeoutExecutor();
         try {
@@ -1314,41 +1430,43 @@ public class TyrusEndpointWrapper {
     private Map<Session, Future<?>> broadcast(final String message, boolean local) {
 
         if (!local && clusterContext != null) {
-            clusterContext.broadcastText(getEndpointPath(), message);
+            clusterContext.broadcastText(getEndpointPath(), message,
+                                         createClusterFrame(new TextFrame(message, false, true)));
             return new HashMap<Session, Future<?>>();
         } else {
+            return broadcastLocal(message, null);
+        }
+    }
 
-            if (webSocketToSession.isEmpty()) {
-                return new HashMap<Session, Future<?>>();
-            }
+    private Map<Session, Future<?>> broadcastLocal(final String message, byte[] clusterFrame) {
 
-            TyrusWebSocket webSocket = webSocketToSession.keySet().iterator().next();
-            final Frame dataFrame = new TextFrame(message, false, true);
-            final ByteBuffer byteBuffer = webSocket.getProtocolHandler().frame(dataFrame);
-            final byte[] frame = new byte[byteBuffer.remaining()];
-            byteBuffer.get(frame);
-            final long payloadLength = dataFrame.getPayloadLength();
+        if (webSocketToSession.isEmpty()) {
+            return new HashMap<Session, Future<?>>();
+        }
 
-            SessionCallable broadcastCallable = new SessionCallable() {
+        final Frame dataFrame = new TextFrame(message, false, true);
+        final byte[] frame = clusterFrame != null ? clusterFrame : createFrame(dataFrame);
+        final long payloadLength = dataFrame.getPayloadLength();
 
-                @Override
-                public Future<?> call(TyrusWebSocket webSocket, TyrusSession session) {
-                    final ProtocolHandler protocolHandler = webSocket.getProtocolHandler();
+        SessionCallable broadcastCallable = new SessionCallable() {
 
-                    // we need to let protocol handler execute extensions if there are any
-                    if (protocolHandler.hasExtensions()) {
-                        final Frame dataFrame = new TextFrame(message, false, true);
-                        return sendBroadcast(webSocket, dataFrame, TyrusFrame.FrameType.TEXT);
-                    } else {
-                        final Future<Frame> frameFuture = webSocket.sendRawFrame(ByteBuffer.wrap(frame));
-                        webSocket.getMessageEventListener().onFrameSent(TyrusFrame.FrameType.TEXT, payloadLength);
-                        return frameFuture;
-                    }
+            @Override
+            public Future<?> call(TyrusWebSocket webSocket, TyrusSession session) {
+                final ProtocolHandler protocolHandler = webSocket.getProtocolHandler();
+
+                // we need to let protocol handler execute extensions if there are any
+                if (protocolHandler.hasExtensions()) {
+                    final Frame dataFrame = new TextFrame(message, false, true);
+                    return sendBroadcast(webSocket, dataFrame, TyrusFrame.FrameType.TEXT);
+                } else {
+                    final Future<Frame> frameFuture = webSocket.sendRawFrame(ByteBuffer.wrap(frame));
+                    webSocket.getMessageEventListener().onFrameSent(TyrusFrame.FrameType.TEXT, payloadLength);
+                    return frameFuture;
                 }
-            };
+            }
+        };
 
-            return broadcast(broadcastCallable);
-        }
+        return broadcast(broadcastCallable);
     }
 
     /**
@@ -1367,42 +1485,80 @@ public class TyrusEndpointWrapper {
         final byte[] byteArrayMessage = Utils.getRemainingArray(message);
 
         if (!local && clusterContext != null) {
-            clusterContext.broadcastBinary(getEndpointPath(), byteArrayMessage);
+            clusterContext.broadcastBinary(getEndpointPath(), byteArrayMessage,
+                                           createClusterFrame(new BinaryFrame(byteArrayMessage, false, true)));
             // TODO: fix for cluster case
             return new HashMap<Session, Future<?>>();
         } else {
+            return broadcastLocal(byteArrayMessage, null);
+        }
+    }
 
-            if (webSocketToSession.isEmpty()) {
-                return new HashMap<Session, Future<?>>();
-            }
+    private Map<Session, Future<?>> broadcastLocal(final byte[] byteArrayMessage, byte[] clusterFrame) {
+
+        if (webSocketToSession.isEmpty()) {
+            return new HashMap<Session, Future<?>>();
+        }
 
-            TyrusWebSocket webSocket = webSocketToSession.keySet().iterator().next();
-            final Frame dataFrame = new BinaryFrame(byteArrayMessage, false, true);
-            final ByteBuffer byteBuffer = webSocket.getProtocolHandler().frame(dataFrame);
-            final byte[] frame = new byte[byteBuffer.remaining()];
-            byteBuffer.get(frame);
-            final long payloadLength = dataFrame.getPayloadLength();
+        final Frame dataFrame = new BinaryFrame(byteArrayMessage, false, true);
+        final byte[] frame = clusterFrame != null ? clusterFrame : createFrame(dataFrame);
+        final long payloadLength = dataFrame.getPayloadLength();
 
-            SessionCallable broadcastCallable = new SessionCallable() {
+        SessionCallable broadcastCallable = new SessionCallable() {
 
-                @Override
-                public Future<?> call(TyrusWebSocket webSocket, TyrusSession session) {
-                    final ProtocolHandler protocolHandler = webSocket.getProtocolHandler();
+            @Override
+            public Future<?> call(TyrusWebSocket webSocket, TyrusSession session) {
+                final ProtocolHandler protocolHandler = webSocket.getProtocolHandler();
 
-                    // we need to let protocol handler execute extensions if there are any
-                    if (protocolHandler.hasExtensions()) {
-                        final Frame dataFrame = new BinaryFrame(byteArrayMessage, false, true);
-                        return sendBroadcast(webSocket, dataFrame, TyrusFrame.FrameType.BINARY);
-                    } else {
-                        final Future<Frame> frameFuture = webSocket.sendRawFrame(ByteBuffer.wrap(frame));
-                        webSocket.getMessageEventListener().onFrameSent(TyrusFrame.FrameType.BINARY, payloadLength);
-                        return frameFuture;
-                    }
+                // we need to let protocol handler execute extensions if there are any
+                if (protocolHandler.hasExtensions()) {
+                    final Frame dataFrame = new BinaryFrame(byteArrayMessage, false, true);
+                    return sendBroadcast(webSocket, dataFrame, TyrusFrame.FrameType.BINARY);
+                } else {
+                    final Future<Frame> frameFuture = webSocket.sendRawFrame(ByteBuffer.wrap(frame));
+                    webSocket.getMessageEventListener().onFrameSent(TyrusFrame.FrameType.BINARY, payloadLength);
+                    return frameFuture;
                 }
-            };
+            }
+        };
+
+        return broadcast(broadcastCallable);
+    }
+
+    /**
+     * Serialize a broadcasted frame using protocol handler of any connected session.
+     *
+     * @param dataFrame frame to be serialized.
+     * @return serialized frame.
+     */
+    private byte[] createFrame(Frame dataFrame) {
+        final TyrusWebSocket webSocket = webSocketToSession.keySet().iterator().next();
+        final ByteBuffer byteBuffer = webSocket.getProtocolHandler().frame(dataFrame);
+        final byte[] frame = new byte[byteBuffer.remaining()];
+        byteBuffer.get(frame);
+        return frame;
+    }
 
-            return broadcast(broadcastCallable);
+    /**
+     * Serialize a broadcasted frame, so other cluster nodes can write it directly to their sessions.
+     * <p/>
+     * The frame is serialized only when there is a local session without extensions, otherwise {@code null} is
+     * returned and the message is framed on the receiving nodes.
+     *
+     * @param dataFrame frame to be serialized.
+     * @return serialized frame or {@code null}.
+     */
+    private byte[] createClusterFrame(Frame dataFrame) {
+        for (TyrusWebSocket webSocket : webSocketToSession.keySet()) {
+            final ProtocolHandler protocolHandler = webSocket.getProtocolHandler();
+            if (!protocolHandler.hasExtensions()) {
+                final ByteBuffer byteBuffer = protocolHandler.frame(dataFrame);
+                final byte[] frame = new byte[byteBuffer.remaining()];
+                byteBuffer.get(frame);
+                return frame;
+            }
         }
+        return null;
     }
 
     /**
@@ -1461,14 +1617,7 @@ public class TyrusEndpointWrapper {
      * @return futures of the operations executed on each session.
      */
     private Map<Session, Future<?>> executeInParallel(final SessionCallable broadcastCallable) {
-        final List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions =
-                new ArrayList<Map.Entry<TyrusWebSocket, TyrusSession>>();
-
-        for (Map.Entry<TyrusWebSocket, TyrusSession> e : webSocketToSession.entrySet()) {
-            if (e.getValue().isOpen()) {
-                sessions.add(e);
-            }
-        }
+        final List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions = getOpenSessionEntries();
 
         if (sessions.isEmpty()) {
             return new HashMap<Session, Future<?>>();
@@ -1520,6 +1669,24 @@ public class TyrusEndpointWrapper {
         return futures;
     }
 
+    /**
+     * Get open sessions together with web sockets they are bound to.
+     *
+     * @return list of open sessions.
+     */
+    List<Map.Entry<TyrusWebSocket, TyrusSession>> getOpenSessionEntries() {
+        final List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions =
+                new ArrayList<Map.Entry<TyrusWebSocket, TyrusSession>>();
+
+        for (Map.Entry<TyrusWebSocket, TyrusSession> e : webSocketToSession.entrySet()) {
+            if (e.getValue().isOpen()) {
+                sessions.add(e);
+            }
+        }
+
+        return sessions;
+    }
+
     private void handleSubmitException(Map<Session, Future<?>> futures,
                                        List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions,
                                        int[] bounds, Exception e) {
@@ -1626,6 +1793,15 @@ public class TyrusEndpointWrapper {
         return true;
     }
 
+    /**
+     * Invoked when server side handshake has been processed and the upgrade response is ready.
+     *
+     * @param durationNanos time spent processing the handshake in nanoseconds.
+     */
+    void onHandshakeCompleted(long durationNanos) {
+        endpointEventListener.onHandshakeCompleted(durationNanos);
+    }
+
     /**
      * Invoked when server side handshake is ready to send response.
      * <p/>
@@ -1698,6 +1874,30 @@ public class TyrusEndpointWrapper {
         return sb.toString();
     }
 
+    /**
+     * Get token bucket shared by all sessions of this endpoint, see {@link TyrusSession#ENDPOINT_SEND_RATE_LIMIT}.
+     *
+     * @return token bucket or {@code null} if the endpoint send rate is not limited.
+     */
+    TrafficShaper.TokenBucket getSendTokenBucket() {
+        if (!sendTokenBucketResolved) {
+            synchronized (this) {
+                if (!sendTokenBucketResolved) {
+                    final Map<String, Object> properties = configuration.getUserProperties();
+                    final Long rate = Utils.getProperty(properties, TyrusSession.ENDPOINT_SEND_RATE_LIMIT, Long.class);
+                    if (rate != null && rate > 0) {
+                        final Long burst = Utils.getProperty(properties, TyrusSession.SEND_BURST_SIZE, Long.class);
+                        sendTokenBucket =
+                                new TrafficShaper.TokenBucket(rate, burst == null || burst <= 0 ? rate : burst);
+                    }
+                    sendTokenBucketResolved = true;
+                }
+            }
+        }
+
+        return sendTokenBucket;
+    }
+
     /**
      * Session listener.
      * <p/>
@@ -1893,6 +2093,83 @@ public class TyrusEndpointWrapper {
         }
     };
 
+    /**
+     * Read-only view of {@link #webSocketToSession} values, filtered by {@link TyrusSession#isOpen()}.
+     * <p/>
+     * {@link #size()} iterates the sessions, so that it agrees with the iterator and {@link #contains(Object)}.
+     */
+    private class OpenSessionsView extends AbstractSet<Session> {
+
+        @Override
+        public Iterator<Session> iterator() {
+            final Iterator<TyrusSession> sessions = webSocketToSession.values().iterator();
+
+            return new Iterator<Session>() {
+
+                private TyrusSession next = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Session next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final TyrusSession result = next;
+                    next = advance();
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private TyrusSession advance() {
+                    while (sessions.hasNext()) {
+                        final TyrusSession session = sessions.next();
+                        if (session.isOpen()) {
+                            return session;
+                        }
+                    }
+
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (TyrusSession session : webSocketToSession.values()) {
+                if (session.isOpen()) {
+                    size++;
+                }
+            }
+
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof TyrusSession)) {
+                return false;
+            }
+
+            final TyrusSession session = (TyrusSession) o;
+            return session.isOpen() && webSocketToSession.get(session.getSocket()) == session;
+        }
+    }
+
     private static interface SessionCallable {
 
         Future<?> call(TyrusWebSocket tyrusWebSocket, TyrusSession session);
@@ -39,7 +39,6 @@
  */
 package org.glassfish.tyrus.core;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
@@ -57,6 +56,7 @@ import javax.websocket.EncodeException;
 import javax.websocket.SendHandler;
 import javax.websocket.SendResult;
 
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 import org.glassfish.tyrus.core.l10n.LocalizationMessages;
 
 import static org.glassfish.tyrus.core.Utils.checkNotNull;
@@ -94,11 +94,14 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         public void sendText(String text) throws IOException {
             checkNotNull(text, "text");
 
-            session.getDebugContext()
-                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending text message: ",
-                                     text);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext()
+                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending text message: ",
+                                         text);
+            }
 
-            final Future<?> future = webSocket.sendText(text);
+            final Future<?> future =
+                    session.getTrafficShaper() == null ? webSocket.sendText(text) : sendShaped(text);
             try {
                 processFuture(future);
             } finally {
@@ -110,8 +113,29 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         public void sendBinary(ByteBuffer data) throws IOException {
             checkNotNull(data, "data");
 
-            session.getDebugContext()
-                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending binary message");
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext()
+                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending binary message");
+            }
+
+            if (session.getTrafficShaper() != null) {
+                try {
+                    processFuture(sendShaped(data));
+                } finally {
+                    session.restartIdleTimeoutExecutor();
+                }
+                return;
+            }
+
+            if (data.remaining() > ProtocolHandler.STREAM_CHUNK_SIZE) {
+                // large payload is not copied into a frame
+                try {
+                    webSocket.sendBinaryStream(data);
+                } finally {
+                    session.restartIdleTimeoutExecutor();
+                }
+                return;
+            }
 
             final Future<?> future = webSocket.sendBinary(Utils.getRemainingArray(data));
             try {
@@ -125,9 +149,12 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         public void sendText(String partialMessage, boolean isLast) throws IOException {
             checkNotNull(partialMessage, "partialMessage");
 
-            session.getDebugContext().appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT,
-                                                       "Sending partial text message: ", partialMessage);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext().appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT,
+                                                           "Sending partial text message: ", partialMessage);
+            }
 
+            awaitShaped();
             final Future<?> future = webSocket.sendText(partialMessage, isLast);
             try {
                 processFuture(future);
@@ -140,9 +167,12 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         public void sendBinary(ByteBuffer partialByte, boolean isLast) throws IOException {
             checkNotNull(partialByte, "partialByte");
 
-            session.getDebugContext().appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT,
-                                                       "Sending partial binary message");
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext().appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT,
+                                                           "Sending partial binary message");
+            }
 
+            awaitShaped();
             final Future<?> future = webSocket.sendBinary(Utils.getRemainingArray(partialByte), isLast);
             try {
                 processFuture(future);
@@ -151,6 +181,24 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
             }
         }
 
+        /**
+         * Wait until messages queued by the session {@link TrafficShaper} are sent, so that a partial message does not
+         * overtake them.
+         *
+         * @throws IOException when interrupted while waiting.
+         */
+        private void awaitShaped() throws IOException {
+            final TrafficShaper shaper = session.getTrafficShaper();
+            if (shaper != null) {
+                try {
+                    shaper.awaitEmpty();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+        }
+
         /**
          * Wait for the future to be completed.
          * <p/>
@@ -178,7 +226,7 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         @Override
         public void sendObject(Object data) throws IOException, EncodeException {
             checkNotNull(data, "data");
-            final Future<?> future = sendSyncObject(data);
+            final Future<?> future = session.getTrafficShaper() == null ? sendSyncObject(data) : sendShaped(data);
             try {
                 future.get();
             } catch (InterruptedException e) {
@@ -197,12 +245,12 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
 
         @Override
         public OutputStream getSendStream() throws IOException {
-            return new OutputStreamToAsyncBinaryAdapter(webSocket);
+            return new OutputStreamToAsyncBinaryAdapter(webSocket, session.getSendStreamFragmentSize());
         }
 
         @Override
         public Writer getSendWriter() throws IOException {
-            return new WriterToAsyncTextAdapter(webSocket);
+            return new WriterToAsyncTextAdapter(webSocket, session.getSendStreamFragmentSize());
         }
     }
 
@@ -285,18 +333,26 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
          * @return message sending callback {@link Future}
          */
         private Future<Void> sendAsync(final Object message, final AsyncMessageType type) {
+            if (session.getTrafficShaper() != null) {
+                return sendShaped(message, sendTimeout);
+            }
+
             Future<?> result = null;
 
             switch (type) {
                 case TEXT:
-                    session.getDebugContext().appendLogMessage(
-                            LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending text message: ", message);
+                    if (LOGGER.isLoggable(Level.FINEST)) {
+                        session.getDebugContext().appendLogMessage(
+                                LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending text message: ", message);
+                    }
                     result = webSocket.sendText((String) message);
                     break;
 
                 case BINARY:
-                    session.getDebugContext().appendLogMessage(
-                            LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending binary message");
+                    if (LOGGER.isLoggable(Level.FINEST)) {
+                        session.getDebugContext().appendLogMessage(
+                                LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending binary message");
+                    }
                     result = webSocket.sendBinary(Utils.getRemainingArray((ByteBuffer) message));
                     break;
 
@@ -349,6 +405,12 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
          * @param type    message type
          */
         private void sendAsync(final Object message, final SendHandler handler, final AsyncMessageType type) {
+            final TrafficShaper shaper = session.getTrafficShaper();
+            if (shaper != null) {
+                sendShaped(shaper, message, handler, sendTimeout);
+                return;
+            }
+
             switch (type) {
                 case TEXT:
                     webSocket.sendText((String) message, handler);
@@ -371,12 +433,135 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
         }
     }
 
+    /**
+     * Send whole message asynchronously, through the session {@link TrafficShaper} when configured.
+     *
+     * @param message {@link String}, {@link ByteBuffer} or an object to be encoded.
+     * @param handler handler notified when the message is passed to the container or failed.
+     */
+    void sendMessage(Object message, SendHandler handler) {
+        final TrafficShaper shaper = session.getTrafficShaper();
+        if (shaper != null) {
+            sendShaped(shaper, message, handler);
+        } else if (message instanceof String) {
+            webSocket.sendText((String) message, handler);
+        } else if (message instanceof ByteBuffer) {
+            webSocket.sendBinary(Utils.getRemainingArray((ByteBuffer) message), handler);
+        } else {
+            sendSyncObject(message, handler);
+        }
+    }
+
+    /**
+     * Send whole message through the session {@link TrafficShaper}.
+     *
+     * @param message {@link String}, {@link ByteBuffer} or an object to be encoded.
+     * @return future completed when the message is passed to the container, replaced by a newer one or failed.
+     */
+    Future<Void> sendShaped(Object message) {
+        return sendShaped(message, 0);
+    }
+
+    /**
+     * Send whole message through the session {@link TrafficShaper}.
+     *
+     * @param message {@link String}, {@link ByteBuffer} or an object to be encoded.
+     * @param timeout time in milliseconds the message may wait for tokens, {@code 0} or negative for no limit.
+     * @return future completed when the message is passed to the container, replaced by a newer one, failed or timed
+     * out.
+     */
+    Future<Void> sendShaped(Object message, long timeout) {
+        final TyrusFuture<Void> future = new TyrusFuture<Void>();
+        sendShaped(session.getTrafficShaper(), message, new SendHandler() {
+            @Override
+            public void onResult(SendResult result) {
+                if (result.isOK()) {
+                    future.setResult(null);
+                } else {
+                    future.setFailure(result.getException());
+                }
+            }
+        }, timeout);
+        return future;
+    }
+
+    /**
+     * Send whole message through given {@link TrafficShaper}.
+     * <p/>
+     * Objects are encoded before they are queued, so the traffic shaper knows the size of the message.
+     *
+     * @param shaper  traffic shaper of the session.
+     * @param message {@link String}, {@link ByteBuffer} or an object to be encoded.
+     * @param handler handler notified when the message is passed to the container, replaced by a newer one or failed.
+     */
+    void sendShaped(TrafficShaper shaper, Object message, SendHandler handler) {
+        sendShaped(shaper, message, handler, 0);
+    }
+
+    /**
+     * Send whole message through given {@link TrafficShaper}.
+     * <p/>
+     * The timeout limits only the time spent in the queue of the traffic shaper, the write itself is limited by the
+     * write timeout of the connection.
+     *
+     * @param shaper  traffic shaper of the session.
+     * @param message {@link String}, {@link ByteBuffer} or an object to be encoded.
+     * @param handler handler notified when the message is passed to the container, replaced by a newer one, failed or
+     *                timed out.
+     * @param timeout time in milliseconds the message may wait for tokens, {@code 0} or negative for no limit.
+     */
+    void sendShaped(TrafficShaper shaper, Object message, SendHandler handler, long timeout) {
+        final Object key = shaper.getConflationKey(message);
+
+        Object toSend = message;
+        if (!(message instanceof String) && !(message instanceof ByteBuffer)) {
+            try {
+                toSend = endpointWrapper.doEncode(session, message);
+            } catch (final Exception e) {
+                handler.onResult(new SendResult(e));
+                return;
+            }
+        }
+
+        if (toSend instanceof StringWriter) {
+            toSend = toSend.toString();
+        }
+
+        if (toSend instanceof String) {
+            final String text = (String) toSend;
+            shaper.send(key, TrafficShaper.utf8Length(text), new TrafficShaper.Message() {
+                @Override
+                public void send(SendHandler handler) {
+                    webSocket.sendText(text, handler);
+                }
+            }, handler, timeout);
+        } else if (toSend instanceof ByteBuffer) {
+            final byte[] data = Utils.getRemainingArray((ByteBuffer) toSend);
+            shaper.send(key, data.length, new TrafficShaper.Message() {
+                @Override
+                public void send(SendHandler handler) {
+                    webSocket.sendBinary(data, handler);
+                }
+            }, handler, timeout);
+        } else if (toSend instanceof PayloadOutputStream) {
+            final PayloadOutputStream payload = (PayloadOutputStream) toSend;
+            shaper.send(key, payload.getPayloadLength(), new TrafficShaper.Message() {
+                @Override
+                public void send(SendHandler handler) {
+                    webSocket.sendBinary(payload, handler);
+                }
+            }, handler, timeout);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     Future<?> sendSyncObject(Object o) {
         Object toSend;
         try {
-            session.getDebugContext()
-                   .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending object: ", o);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                session.getDebugContext()
+                       .appendLogMessage(LOGGER, Level.FINEST, DebugContext.Type.MESSAGE_OUT, "Sending object: ", o);
+            }
             toSend = endpointWrapper.doEncode(session, o);
         } catch (final Exception e) {
             return new Future<Object>() {
@@ -416,9 +601,8 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
             StringWriter writer = (StringWriter) toSend;
             StringBuffer sb = writer.getBuffer();
             return webSocket.sendText(sb.toString());
-        } else if (toSend instanceof ByteArrayOutputStream) {
-            ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-            return webSocket.sendBinary(baos.toByteArray());
+        } else if (toSend instanceof PayloadOutputStream) {
+            return webSocket.sendBinary((PayloadOutputStream) toSend);
         }
 
         return null;
@@ -445,9 +629,8 @@ public abstract class TyrusRemoteEndpoint implements javax.websocket.RemoteEndpo
                 StringWriter writer = (StringWriter) toSend;
                 StringBuffer sb = writer.getBuffer();
                 webSocket.sendText(sb.toString(), handler);
-            } else if (toSend instanceof ByteArrayOutputStream) {
-                ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-                webSocket.sendBinary(baos.toByteArray(), handler);
+            } else if (toSend instanceof PayloadOutputStream) {
+                webSocket.sendBinary((PayloadOutputStream) toSend, handler);
             }
         }
     }
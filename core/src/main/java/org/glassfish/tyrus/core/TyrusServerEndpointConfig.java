@@ -41,7 +41,9 @@ package org.glassfish.tyrus.core;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.websocket.Decoder;
 import javax.websocket.Encoder;
@@ -98,6 +100,7 @@ public interface TyrusServerEndpointConfig extends ServerEndpointConfig {
         private List<Class<? extends Decoder>> decoders = Collections.emptyList();
         private Configurator serverEndpointConfigurator;
         private int maxSessions = 0;
+        private final Map<String, Object> userProperties = new HashMap<String, Object>();
 
         /**
          * Creates the builder with the mandatory information of the endpoint class
@@ -132,6 +135,8 @@ public interface TyrusServerEndpointConfig extends ServerEndpointConfig {
                                                 .extensions(extensions).encoders(encoders).decoders(decoders)
                                                 .configurator(serverEndpointConfigurator).build();
 
+            serverEndpointConfig.getUserProperties().putAll(userProperties);
+
             return new DefaultTyrusServerEndpointConfig(
                     serverEndpointConfig,
                     this.maxSessions
@@ -216,5 +221,85 @@ public interface TyrusServerEndpointConfig extends ServerEndpointConfig {
             this.maxSessions = maxSessions;
             return this;
         }
+
+        /**
+         * Sets maximal rate at which messages are sent to a single session.
+         *
+         * @param bytesPerSecond maximal number of bytes sent to a session per second.
+         * @return this builder instance.
+         * @see TyrusSession#SEND_RATE_LIMIT
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder sendRateLimit(final long bytesPerSecond) {
+            userProperties.put(TyrusSession.SEND_RATE_LIMIT, bytesPerSecond);
+            return this;
+        }
+
+        /**
+         * Sets maximal rate at which messages are sent to all sessions of the endpoint.
+         *
+         * @param bytesPerSecond maximal number of bytes sent to all sessions per second.
+         * @return this builder instance.
+         * @see TyrusSession#ENDPOINT_SEND_RATE_LIMIT
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder endpointSendRateLimit(final long bytesPerSecond) {
+            userProperties.put(TyrusSession.ENDPOINT_SEND_RATE_LIMIT, bytesPerSecond);
+            return this;
+        }
+
+        /**
+         * Sets maximal number of bytes which can be sent at once when the send rate is limited.
+         *
+         * @param bytes burst size.
+         * @return this builder instance.
+         * @see TyrusSession#SEND_BURST_SIZE
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder sendBurstSize(final long bytes) {
+            userProperties.put(TyrusSession.SEND_BURST_SIZE, bytes);
+            return this;
+        }
+
+        /**
+         * Sets resolver of conflation keys used for replacing messages queued because of the send rate limit.
+         *
+         * @param resolver conflation key resolver.
+         * @return this builder instance.
+         * @see TyrusSession#SEND_CONFLATION_KEY_RESOLVER
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder sendConflationKeyResolver(
+                final TyrusSession.ConflationKeyResolver resolver) {
+            userProperties.put(TyrusSession.SEND_CONFLATION_KEY_RESOLVER, resolver);
+            return this;
+        }
+
+        /**
+         * Sets time without any message after which sessions release their receive buffers.
+         *
+         * @param millis hibernation timeout in milliseconds.
+         * @return this builder instance.
+         * @see TyrusSession#HIBERNATION_TIMEOUT
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder hibernationTimeout(final long millis) {
+            userProperties.put(TyrusSession.HIBERNATION_TIMEOUT, millis);
+            return this;
+        }
+
+        /**
+         * Sets size of fragments sent by streams obtained from {@link javax.websocket.RemoteEndpoint.Basic}.
+         *
+         * @param size fragment size in bytes (in characters for {@link
+         *             javax.websocket.RemoteEndpoint.Basic#getSendWriter()}).
+         * @return this builder instance.
+         * @see TyrusSession#SEND_STREAM_FRAGMENT_SIZE
+         */
+        @Beta
+        public TyrusServerEndpointConfig.Builder sendStreamFragmentSize(final int size) {
+            userProperties.put(TyrusSession.SEND_STREAM_FRAGMENT_SIZE, size);
+            return this;
+        }
     }
 }
@@ -41,8 +41,12 @@ package org.glassfish.tyrus.core;
 
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.security.Principal;
 import java.util.Collections;
@@ -52,6 +56,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -66,6 +71,8 @@ import javax.websocket.Decoder;
 import javax.websocket.Extension;
 import javax.websocket.MessageHandler;
 import javax.websocket.PongMessage;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
@@ -75,6 +82,9 @@ import org.glassfish.tyrus.core.cluster.RemoteSession;
 import org.glassfish.tyrus.core.cluster.SessionEventListener;
 import org.glassfish.tyrus.core.coder.CoderWrapper;
 import org.glassfish.tyrus.core.l10n.LocalizationMessages;
+import org.glassfish.tyrus.core.monitoring.MessageEventListener;
+
+import static org.glassfish.tyrus.core.Utils.checkNotNull;
 
 /**
  * Implementation of the {@link Session}.
@@ -86,6 +96,141 @@ import org.glassfish.tyrus.core.l10n.LocalizationMessages;
  */
 public class TyrusSession implements Session, DistributedSession {
 
+    /**
+     * Maximal number of bytes (characters for {@link java.io.Reader}) of a message buffered for {@link
+     * MessageHandler.Whole} of {@link java.io.InputStream} or {@link java.io.Reader}.
+     * <p/>
+     * When set, messages consumed as streams are not limited by {@link #getMaxBinaryMessageBufferSize()} or {@link
+     * #getMaxTextMessageBufferSize()}. Instead, reading from the connection is blocked whenever the handler has not
+     * yet read the buffered data, so the memory needed per session is bounded by the window. The stream is valid only
+     * until the handler returns; unread data is discarded.
+     * <p/>
+     * The value is an {@link Integer} or its {@link String} representation, looked up in {@link #getUserProperties()}
+     * at the beginning of each message and then in {@link javax.websocket.EndpointConfig#getUserProperties()}. Not set
+     * by default.
+     */
+    @Beta
+    public static final String STREAMING_WINDOW = "org.glassfish.tyrus.streamingWindow";
+
+    /**
+     * Executor used for notifying the endpoint about incoming messages.
+     * <p/>
+     * When set, message handlers (including {@link javax.websocket.OnMessage} annotated methods) are not invoked on
+     * the thread which read the message from the connection, but on the configured executor. Messages of one session
+     * are still delivered one at a time and in the order in which they were received.
+     * <p/>
+     * The value is an {@link java.util.concurrent.ExecutorService} or {@link Boolean#TRUE} (or its {@link String}
+     * representation), which means that the executor service of the container is used. Looked up in {@link
+     * #getUserProperties()} after {@link javax.websocket.Endpoint#onOpen(Session, javax.websocket.EndpointConfig)}
+     * and then in {@link javax.websocket.EndpointConfig#getUserProperties()}. Not set by default.
+     *
+     * @see #MESSAGE_DISPATCH_QUEUE_CAPACITY
+     * @see #getDispatchQueueDepth()
+     */
+    @Beta
+    public static final String MESSAGE_DISPATCH_EXECUTOR = "org.glassfish.tyrus.messageDispatchExecutor";
+
+    /**
+     * Maximal number of received messages waiting for {@link #MESSAGE_DISPATCH_EXECUTOR}.
+     * <p/>
+     * When exceeded, reading from the connection is paused until the pending messages are processed. The value is an
+     * {@link Integer} or its {@link String} representation, looked up the same way as {@link
+     * #MESSAGE_DISPATCH_EXECUTOR}. Unbounded by default.
+     */
+    @Beta
+    public static final String MESSAGE_DISPATCH_QUEUE_CAPACITY = "org.glassfish.tyrus.messageDispatchQueueCapacity";
+
+    /**
+     * Maximal rate in bytes per second at which whole messages sent by {@link #getBasicRemote()} and {@link
+     * #getAsyncRemote()} are passed to the container.
+     * <p/>
+     * Messages exceeding the rate are queued and sent later, in order. Partial messages and streams are not shaped;
+     * {@link javax.websocket.RemoteEndpoint.Basic} waits until queued messages are sent before sending a partial
+     * message. Pings, pongs and close frames are never delayed.
+     * <p/>
+     * The value is a {@link Long} or its {@link String} representation, looked up in {@link #getUserProperties()} when
+     * the first message is sent and then in {@link javax.websocket.EndpointConfig#getUserProperties()}. Not limited
+     * by default.
+     *
+     * @see #ENDPOINT_SEND_RATE_LIMIT
+     * @see #SEND_BURST_SIZE
+     * @see #SEND_CONFLATION_KEY_RESOLVER
+     * @see #getSendQueueDepth()
+     */
+    @Beta
+    public static final String SEND_RATE_LIMIT = "org.glassfish.tyrus.sendRateLimit";
+
+    /**
+     * Maximal rate in bytes per second at which whole messages sent by all sessions of an endpoint are passed to the
+     * container.
+     * <p/>
+     * Works as {@link #SEND_RATE_LIMIT}, but the limit is shared by all sessions. The value is a {@link Long} or its
+     * {@link String} representation, looked up in {@link javax.websocket.EndpointConfig#getUserProperties()}. Not
+     * limited by default.
+     */
+    @Beta
+    public static final String ENDPOINT_SEND_RATE_LIMIT = "org.glassfish.tyrus.endpointSendRateLimit";
+
+    /**
+     * Maximal number of bytes which can be sent at once after a period of inactivity when {@link #SEND_RATE_LIMIT} or
+     * {@link #ENDPOINT_SEND_RATE_LIMIT} is set.
+     * <p/>
+     * The value is a {@link Long} or its {@link String} representation, looked up the same way as the rate limit.
+     * Default value is the number of bytes allowed per one second.
+     */
+    @Beta
+    public static final String SEND_BURST_SIZE = "org.glassfish.tyrus.sendBurstSize";
+
+    /**
+     * {@link ConflationKeyResolver} used for replacing messages queued by {@link #SEND_RATE_LIMIT} or {@link
+     * #ENDPOINT_SEND_RATE_LIMIT}.
+     * <p/>
+     * When a message with the same conflation key as an already queued message is sent, the queued message is replaced
+     * by the new one, keeping its position in the queue. Looked up the same way as {@link #SEND_RATE_LIMIT}. Not set
+     * by default.
+     */
+    @Beta
+    public static final String SEND_CONFLATION_KEY_RESOLVER = "org.glassfish.tyrus.sendConflationKeyResolver";
+
+    /**
+     * Time in milliseconds without any message after which the session hibernates.
+     * <p/>
+     * Sent and received messages are checked once per the timeout, so the session hibernates after one to two
+     * timeouts without a message.
+     * <p/>
+     * A hibernated session releases buffers kept for receiving messages, such as the buffer of incomplete frames,
+     * which can be as large as the largest message received. The buffers are allocated again when the next message
+     * arrives. Sessions receiving a message split to several frames do not hibernate until the last frame is received.
+     * Suitable for servers with many mostly silent connections.
+     * <p/>
+     * The value is a {@link Long} or its {@link String} representation, looked up in {@link
+     * javax.websocket.EndpointConfig#getUserProperties()} when the session is created. Not set by default.
+     *
+     * @see #isHibernated()
+     * @see #getRetainedBufferSize()
+     */
+    @Beta
+    public static final String HIBERNATION_TIMEOUT = "org.glassfish.tyrus.hibernationTimeout";
+
+    /**
+     * Size of fragments sent by streams obtained from {@link javax.websocket.RemoteEndpoint.Basic#getSendStream()}
+     * (in bytes) and {@link javax.websocket.RemoteEndpoint.Basic#getSendWriter()} (in characters).
+     * <p/>
+     * Data written to the stream are buffered and sent as one frame when the buffer is full or when the stream is
+     * closed; flushing the stream does not send a frame. The value is an {@link Integer} or its {@link String}
+     * representation, looked up in {@link #getUserProperties()} when the stream is created and then in {@link
+     * javax.websocket.EndpointConfig#getUserProperties()}. Default value is {@value
+     * #DEFAULT_SEND_STREAM_FRAGMENT_SIZE}.
+     */
+    @Beta
+    public static final String SEND_STREAM_FRAGMENT_SIZE = "org.glassfish.tyrus.sendStreamFragmentSize";
+
+    /**
+     * Default value of {@link #SEND_STREAM_FRAGMENT_SIZE}.
+     */
+    @Beta
+    public static final int DEFAULT_SEND_STREAM_FRAGMENT_SIZE = 8192;
+
     private static final Logger LOGGER = Logger.getLogger(TyrusSession.class.getName());
 
     private final WebSocketContainer container;
@@ -110,6 +255,7 @@ public class TyrusSession implements Session, DistributedSession {
     private final String negotiatedSubprotocol;
     private final String remoteAddr;
     private final DebugContext debugContext;
+    private final TyrusWebSocket socket;
 
     private final Map<RemoteSession.DistributedMapKey, Object> distributedPropertyMap;
     private final Map<String, Object> distributedUserProperties;
@@ -123,6 +269,15 @@ public class TyrusSession implements Session, DistributedSession {
     private InputStreamBuffer inputStreamBuffer;
     private volatile long heartbeatInterval;
     private volatile ScheduledFuture<?> heartbeatTask;
+    private volatile boolean trafficShaperResolved = false;
+    private volatile TrafficShaper trafficShaper;
+    private volatile TrafficShaper conflatingSender;
+    private final Object hibernationLock = new Object();
+    private final long hibernationTimeout;
+    private volatile long activity = 0;
+    private long hibernationActivity = 0;
+    private volatile boolean hibernated = false;
+    private volatile boolean containerShutdown = false;
 
     TyrusSession(WebSocketContainer container, TyrusWebSocket socket, TyrusEndpointWrapper endpointWrapper,
                  String subprotocol, List<Extension> extensions, boolean isSecure,
@@ -130,6 +285,7 @@ public class TyrusSession implements Session, DistributedSession {
                  Map<String, List<String>> requestParameterMap, final ClusterContext clusterContext,
                  String connectionId, final String remoteAddr, DebugContext debugContext) {
         this.container = container;
+        this.socket = socket;
         this.endpointWrapper = endpointWrapper;
         this.negotiatedExtensions =
                 extensions == null ? Collections.<Extension>emptyList() : Collections.unmodifiableList(extensions);
@@ -155,6 +311,7 @@ public class TyrusSession implements Session, DistributedSession {
             service = ((ExecutorServiceProvider) container).getScheduledExecutorService();
             setMaxIdleTimeout(container.getDefaultMaxSessionIdleTimeout());
         }
+        updateMaxMessageSize();
 
         // cluster context is always null on client side
         if (clusterContext != null) {
@@ -189,6 +346,14 @@ public class TyrusSession implements Session, DistributedSession {
 
         debugContext.setSessionId(id);
         userProperties = new HashMap<String, Object>();
+
+        final Long timeout = service == null || endpointWrapper.getEndpointConfig() == null ? null
+                : Utils.getProperty(endpointWrapper.getEndpointConfig().getUserProperties(), HIBERNATION_TIMEOUT,
+                                    Long.class);
+        hibernationTimeout = timeout == null || timeout < 0 ? 0 : timeout;
+        if (hibernationTimeout > 0) {
+            service.schedule(new HibernationCommand(), hibernationTimeout, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -246,6 +411,7 @@ public class TyrusSession implements Session, DistributedSession {
             distributedPropertyMap
                     .put(RemoteSession.DistributedMapKey.MAX_BINARY_MESSAGE_BUFFER_SIZE, maxBinaryMessageBufferSize);
         }
+        updateMaxMessageSize();
     }
 
     @Override
@@ -261,14 +427,37 @@ public class TyrusSession implements Session, DistributedSession {
             distributedPropertyMap
                     .put(RemoteSession.DistributedMapKey.MAX_TEXT_MESSAGE_BUFFER_SIZE, maxTextMessageBufferSize);
         }
+        updateMaxMessageSize();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned set is a read-only live view of the sessions opened to the endpoint, it is not copied on every
+     * invocation. Iteration is weakly consistent; it never throws {@link java.util.ConcurrentModificationException}
+     * and may or may not reflect sessions opened or closed after the iteration has started. {@link Set#size()} counts
+     * the open sessions, so it is linear in the number of sessions; use {@link #forEachOpenSession(SessionVisitor)}
+     * instead of a loop over indexes.
+     *
+     * @see #forEachOpenSession(SessionVisitor)
+     */
     @Override
     public Set<Session> getOpenSessions() {
-        Set<Session> openSessions = new HashSet<Session>();
-        openSessions.addAll(endpointWrapper.getOpenSessions());
+        return endpointWrapper.getOpenSessionsView();
+    }
 
-        return Collections.unmodifiableSet(openSessions);
+    /**
+     * Invoke the visitor for every session opened to the same endpoint as this session.
+     * <p/>
+     * Intended for fanning out messages; no collection is created for the iteration. Same consistency rules as for
+     * {@link #getOpenSessions()} apply.
+     *
+     * @param visitor visitor to be invoked for every open session, including this one.
+     * @return number of visited sessions.
+     */
+    @Beta
+    public int forEachOpenSession(SessionVisitor visitor) {
+        return endpointWrapper.forEachOpenSession(visitor);
     }
 
     /**
@@ -293,7 +482,9 @@ public class TyrusSession implements Session, DistributedSession {
     public Set<DistributedSession> getAllSessions() {
         Set<DistributedSession> result = new HashSet<DistributedSession>();
 
-        result.addAll(endpointWrapper.getOpenSessions());
+        for (Session session : endpointWrapper.getOpenSessionsView()) {
+            result.add((DistributedSession) session);
+        }
         result.addAll(endpointWrapper.getRemoteSessions());
 
         return Collections.unmodifiableSet(result);
@@ -474,6 +665,85 @@ public class TyrusSession implements Session, DistributedSession {
         return endpointWrapper.broadcast(message);
     }
 
+    /**
+     * Send binary message which payload is read from given channel.
+     * <p/>
+     * The message is sent as a single frame and the payload is streamed to the connection in chunks of constant size,
+     * so the message length is not limited by the available heap or by the maximal array size. Blocks until the whole
+     * message is written; each chunk has to be written within the send timeout of {@link #getAsyncRemote()} (30
+     * seconds when no timeout is set). Other messages sent in the meantime do not block and are written after this
+     * one.
+     *
+     * @param payload channel from which exactly {@code length} bytes are read.
+     * @param length  payload length.
+     * @throws IOException when the payload cannot be read or the message cannot be written. When that happens in the
+     *                     middle of the message, the connection is closed.
+     */
+    @Beta
+    public void sendBinary(ReadableByteChannel payload, long length) throws IOException {
+        checkNotNull(payload, "payload");
+        checkConnectionState(State.CLOSED);
+
+        try {
+            socket.sendBinary(payload, length);
+        } finally {
+            restartIdleTimeoutExecutor();
+        }
+    }
+
+    /**
+     * Send binary message which payload is read from given stream.
+     *
+     * @param payload stream from which exactly {@code length} bytes are read.
+     * @param length  payload length.
+     * @throws IOException when the payload cannot be read or the message cannot be written.
+     * @see #sendBinary(ReadableByteChannel, long)
+     */
+    @Beta
+    public void sendBinary(InputStream payload, long length) throws IOException {
+        checkNotNull(payload, "payload");
+        sendBinary(Channels.newChannel(payload), length);
+    }
+
+    /**
+     * Send region of a file as binary message.
+     * <p/>
+     * The position of the file channel is not changed.
+     *
+     * @param file     file channel to be read.
+     * @param position position of the first byte of the region.
+     * @param count    length of the region, which is the length of the message.
+     * @throws IOException when the file cannot be read or the message cannot be written.
+     * @see #sendBinary(ReadableByteChannel, long)
+     */
+    @Beta
+    public void sendBinary(final FileChannel file, final long position, final long count) throws IOException {
+        checkNotNull(file, "file");
+        sendBinary(new ReadableByteChannel() {
+
+            private long filePosition = position;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                final int read = file.read(dst, filePosition);
+                if (read > 0) {
+                    filePosition += read;
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return file.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                // the file channel is owned by the caller.
+            }
+        }, count);
+    }
+
     /**
      * Return an interval in milliseconds between scheduled periodic Pong messages.
      * A negative value or 0 means that sending of periodic Pong messages is not turned on.
@@ -504,6 +774,13 @@ public class TyrusSession implements Session, DistributedSession {
     }
 
     void restartIdleTimeoutExecutor() {
+        if (hibernationTimeout > 0) {
+            activity++;
+            if (hibernated) {
+                wakeUp();
+            }
+        }
+
         if (this.maxIdleTimeout < 1) {
             synchronized (idleTimeoutLock) {
                 if (idleTimeoutFuture != null) {
@@ -557,6 +834,9 @@ public class TyrusSession implements Session, DistributedSession {
             orderedMessageHandlers = handlerManager.getOrderedWholeMessageHandlers();
         }
 
+        final MessageEventListener messageEventListener = getMessageEventListener();
+        final boolean monitored = messageEventListener != MessageEventListener.NO_OP;
+
         for (CoderWrapper<Decoder> decoder : availableDecoders) {
             for (Map.Entry<Class<?>, MessageHandler> entry : orderedMessageHandlers) {
                 MessageHandler mh = entry.getValue();
@@ -568,12 +848,22 @@ public class TyrusSession implements Session, DistributedSession {
                         checkMessageSize(message, ((BasicMessageHandler) mh).getMaxMessageSize());
                     }
 
+                    long start = monitored ? System.nanoTime() : 0;
+
                     Object object = endpointWrapper.decodeCompleteMessage(this, message, type, decoder);
+                    if (monitored) {
+                        final long decodedAt = System.nanoTime();
+                        messageEventListener.onMessageDecoded(decodedAt - start);
+                        start = decodedAt;
+                    }
                     if (object != null) {
                         final State currentState = state.get();
                         if (currentState != State.CLOSED) {
                             //noinspection unchecked
                             ((MessageHandler.Whole) mh).onMessage(object);
+                            if (monitored) {
+                                messageEventListener.onMessageHandled(System.nanoTime() - start);
+                            }
                         }
                         decoded = true;
                         break;
@@ -614,8 +904,16 @@ public class TyrusSession implements Session, DistributedSession {
 
                 final State currentState = state.get();
                 if (currentState != State.CLOSED) {
-                    //noinspection unchecked
-                    ((MessageHandler.Partial) handler).onMessage(message, last);
+                    final MessageEventListener messageEventListener = getMessageEventListener();
+                    if (messageEventListener == MessageEventListener.NO_OP) {
+                        //noinspection unchecked
+                        ((MessageHandler.Partial) handler).onMessage(message, last);
+                    } else {
+                        final long start = System.nanoTime();
+                        //noinspection unchecked
+                        ((MessageHandler.Partial) handler).onMessage(message, last);
+                        messageEventListener.onMessageHandled(System.nanoTime() - start);
+                    }
                 }
                 handled = true;
                 break;
@@ -640,6 +938,15 @@ public class TyrusSession implements Session, DistributedSession {
         }
     }
 
+    /**
+     * Get message event listener of the underlying connection.
+     *
+     * @return message event listener, {@link MessageEventListener#NO_OP} when monitoring is not enabled.
+     */
+    MessageEventListener getMessageEventListener() {
+        return socket == null ? MessageEventListener.NO_OP : socket.getMessageEventListener();
+    }
+
     boolean isWholeTextHandlerPresent() {
         return handlerManager.isWholeTextHandlerPresent();
     }
@@ -696,6 +1003,14 @@ public class TyrusSession implements Session, DistributedSession {
         }
     }
 
+    /**
+     * Mark this session as closed because of container shutdown. Scheduled tasks of this session are then not
+     * cancelled when it is closed.
+     */
+    void setContainerShutdown() {
+        this.containerShutdown = true;
+    }
+
     TextBuffer getTextBuffer() {
         return textBuffer;
     }
@@ -712,6 +1027,287 @@ public class TyrusSession implements Session, DistributedSession {
         this.readerBuffer = readerBuffer;
     }
 
+    TyrusWebSocket getSocket() {
+        return socket;
+    }
+
+    private void updateMaxMessageSize() {
+        final ProtocolHandler protocolHandler = getProtocolHandler();
+        if (protocolHandler != null) {
+            protocolHandler.setMaxMessageSize(maxTextMessageBufferSize, maxBinaryMessageBufferSize);
+        }
+    }
+
+    ProtocolHandler getProtocolHandler() {
+        return socket == null ? null : socket.getProtocolHandler();
+    }
+
+    /**
+     * Get number of received messages waiting for {@link #MESSAGE_DISPATCH_EXECUTOR}, including the one being
+     * processed.
+     *
+     * @return number of pending messages or {@code 0} when the messages are not dispatched to an executor.
+     */
+    @Beta
+    public int getDispatchQueueDepth() {
+        final MessageDispatcher dispatcher = socket == null ? null : socket.getMessageDispatcher();
+        return dispatcher == null ? 0 : dispatcher.getQueueDepth();
+    }
+
+    /**
+     * Create message dispatcher configured by {@link #MESSAGE_DISPATCH_EXECUTOR}.
+     *
+     * @return new message dispatcher or {@code null} when messages should not be dispatched to an executor.
+     */
+    MessageDispatcher createMessageDispatcher() {
+        final Map<String, Object> configProperties =
+                endpointWrapper.getEndpointConfig() == null ? null
+                        : endpointWrapper.getEndpointConfig().getUserProperties();
+
+        Object executor = userProperties.get(MESSAGE_DISPATCH_EXECUTOR);
+        if (executor == null && configProperties != null) {
+            executor = configProperties.get(MESSAGE_DISPATCH_EXECUTOR);
+        }
+
+        final ExecutorService executorService;
+        if (executor instanceof ExecutorService) {
+            executorService = (ExecutorService) executor;
+        } else if (executor != null && Boolean.parseBoolean(executor.toString().trim())
+                && container instanceof BaseContainer) {
+            executorService = ((BaseContainer) container).getExecutorService();
+        } else {
+            return null;
+        }
+
+        Integer capacity = Utils.getProperty(userProperties, MESSAGE_DISPATCH_QUEUE_CAPACITY, Integer.class);
+        if (capacity == null) {
+            capacity = Utils.getProperty(configProperties, MESSAGE_DISPATCH_QUEUE_CAPACITY, Integer.class);
+        }
+
+        return new MessageDispatcher(executorService, getProtocolHandler(),
+                                     capacity == null || capacity < 0 ? 0 : capacity);
+    }
+
+    /**
+     * Send a message which replaces a pending message with the same conflation key.
+     * <p/>
+     * Conflated messages of a session are passed to the container one at a time; the next message is taken when the
+     * previous one is written. A message sent while an older message with the same key is still waiting replaces it,
+     * keeping its position, and the older message is reported as successfully sent. Slow peers therefore receive fewer
+     * but up-to-date messages, for instance only the latest price of each instrument, and the number of messages
+     * waiting is bounded by the number of keys.
+     * <p/>
+     * Conflated messages are subject to {@link #SEND_RATE_LIMIT}, but they are not ordered with messages sent by
+     * {@link #getBasicRemote()} or {@link #getAsyncRemote()}.
+     *
+     * @param key     conflation key, for instance an instrument symbol.
+     * @param message {@link String}, {@link java.nio.ByteBuffer} or an object to be encoded by a configured encoder.
+     * @param handler handler notified when the message is written, replaced by a newer one or failed.
+     */
+    @Beta
+    public void sendConflated(Object key, final Object message, SendHandler handler) {
+        checkNotNull(key, "key");
+        checkNotNull(message, "message");
+        checkNotNull(handler, "handler");
+        checkConnectionState(State.CLOSED);
+
+        getConflatingSender().send(key, 0, new TrafficShaper.Message() {
+            @Override
+            public void send(SendHandler handler) {
+                asyncRemote.sendMessage(message, handler);
+            }
+        }, handler);
+        restartIdleTimeoutExecutor();
+    }
+
+    /**
+     * Send a message which replaces a pending message with the same conflation key.
+     *
+     * @param key     conflation key, for instance an instrument symbol.
+     * @param message {@link String}, {@link java.nio.ByteBuffer} or an object to be encoded by a configured encoder.
+     * @return future completed when the message is written, replaced by a newer one or failed.
+     * @see #sendConflated(Object, Object, SendHandler)
+     */
+    @Beta
+    public Future<Void> sendConflated(Object key, Object message) {
+        final TyrusFuture<Void> future = new TyrusFuture<Void>();
+        sendConflated(key, message, new SendHandler() {
+            @Override
+            public void onResult(SendResult result) {
+                if (result.isOK()) {
+                    future.setResult(null);
+                } else {
+                    future.setFailure(result.getException());
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Get number of conflation keys with a message waiting to be sent.
+     *
+     * @return number of pending conflated messages.
+     * @see #sendConflated(Object, Object, SendHandler)
+     */
+    @Beta
+    public int getConflatedPendingCount() {
+        final TrafficShaper sender = conflatingSender;
+        return sender == null ? 0 : sender.getQueueDepth();
+    }
+
+    private TrafficShaper getConflatingSender() {
+        TrafficShaper sender = conflatingSender;
+        if (sender == null) {
+            synchronized (this) {
+                sender = conflatingSender;
+                if (sender == null) {
+                    // no buckets, messages wait only for the previous write; the rate is limited by asyncRemote
+                    sender = new TrafficShaper(null, null, null, null, true);
+                    conflatingSender = sender;
+                }
+            }
+        }
+        return sender;
+    }
+
+    /**
+     * Get information whether the session has released its buffers after a period without messages.
+     *
+     * @return {@code true} if the session is hibernated, {@code false} otherwise.
+     * @see #HIBERNATION_TIMEOUT
+     */
+    @Beta
+    public boolean isHibernated() {
+        return hibernated;
+    }
+
+    /**
+     * Get number of bytes retained by buffers used for receiving messages of this session.
+     * <p/>
+     * Includes the buffer of incomplete frames and buffers of partially received messages; the size of the session
+     * object itself and of user properties is not included.
+     *
+     * @return number of bytes retained by receive buffers.
+     * @see #HIBERNATION_TIMEOUT
+     */
+    @Beta
+    public long getRetainedBufferSize() {
+        final ProtocolHandler protocolHandler = getProtocolHandler();
+        return (protocolHandler == null ? 0 : protocolHandler.getRetainedSize())
+                + textBuffer.getRetainedSize() + binaryBuffer.getRetainedSize();
+    }
+
+    /**
+     * Release buffers of an idle session.
+     *
+     * @return {@code true} if the session has been hibernated, {@code false} if it is receiving a message.
+     */
+    boolean hibernate() {
+        if (state.get() != State.RUNNING) {
+            return false;
+        }
+
+        final ProtocolHandler protocolHandler = getProtocolHandler();
+        if (protocolHandler != null && !protocolHandler.hibernate()) {
+            return false;
+        }
+
+        debugContext.releaseTracingHeaders();
+        return true;
+    }
+
+    private void wakeUp() {
+        synchronized (hibernationLock) {
+            if (hibernated && isOpen()) {
+                hibernated = false;
+                service.schedule(new HibernationCommand(), hibernationTimeout, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Get number of whole messages waiting for {@link #SEND_RATE_LIMIT} or {@link #ENDPOINT_SEND_RATE_LIMIT}.
+     *
+     * @return number of queued messages or {@code 0} when sending is not shaped.
+     */
+    @Beta
+    public int getSendQueueDepth() {
+        final TrafficShaper shaper = trafficShaper;
+        return shaper == null ? 0 : shaper.getQueueDepth();
+    }
+
+    /**
+     * Get traffic shaper configured by {@link #SEND_RATE_LIMIT} and {@link #ENDPOINT_SEND_RATE_LIMIT}.
+     *
+     * @return traffic shaper or {@code null} when sending is not shaped.
+     */
+    TrafficShaper getTrafficShaper() {
+        if (!trafficShaperResolved) {
+            synchronized (this) {
+                if (!trafficShaperResolved) {
+                    trafficShaper = createTrafficShaper();
+                    trafficShaperResolved = true;
+                }
+            }
+        }
+
+        return trafficShaper;
+    }
+
+    private TrafficShaper createTrafficShaper() {
+        final Map<String, Object> configProperties =
+                endpointWrapper.getEndpointConfig() == null ? null
+                        : endpointWrapper.getEndpointConfig().getUserProperties();
+
+        final TrafficShaper.TokenBucket endpointBucket = endpointWrapper.getSendTokenBucket();
+
+        Long rate = Utils.getProperty(userProperties, SEND_RATE_LIMIT, Long.class);
+        if (rate == null) {
+            rate = Utils.getProperty(configProperties, SEND_RATE_LIMIT, Long.class);
+        }
+
+        if (service == null || ((rate == null || rate <= 0) && endpointBucket == null)) {
+            return null;
+        }
+
+        Long burst = Utils.getProperty(userProperties, SEND_BURST_SIZE, Long.class);
+        if (burst == null) {
+            burst = Utils.getProperty(configProperties, SEND_BURST_SIZE, Long.class);
+        }
+
+        ConflationKeyResolver resolver =
+                Utils.getProperty(userProperties, SEND_CONFLATION_KEY_RESOLVER, ConflationKeyResolver.class);
+        if (resolver == null) {
+            resolver = Utils.getProperty(configProperties, SEND_CONFLATION_KEY_RESOLVER, ConflationKeyResolver.class);
+        }
+
+        final TrafficShaper.TokenBucket sessionBucket = rate == null || rate <= 0 ? null
+                : new TrafficShaper.TokenBucket(rate, burst == null || burst <= 0 ? rate : burst);
+
+        return new TrafficShaper(sessionBucket, endpointBucket, service, resolver);
+    }
+
+    int getStreamingWindow() {
+        Integer window = Utils.getProperty(userProperties, STREAMING_WINDOW, Integer.class);
+        if (window == null && endpointWrapper.getEndpointConfig() != null) {
+            window = Utils.getProperty(endpointWrapper.getEndpointConfig().getUserProperties(), STREAMING_WINDOW,
+                                       Integer.class);
+        }
+
+        return window == null || window < 0 ? 0 : window;
+    }
+
+    int getSendStreamFragmentSize() {
+        Integer size = Utils.getProperty(userProperties, SEND_STREAM_FRAGMENT_SIZE, Integer.class);
+        if (size == null && endpointWrapper.getEndpointConfig() != null) {
+            size = Utils.getProperty(endpointWrapper.getEndpointConfig().getUserProperties(), SEND_STREAM_FRAGMENT_SIZE,
+                                     Integer.class);
+        }
+
+        return size == null || size < 1 ? DEFAULT_SEND_STREAM_FRAGMENT_SIZE : size;
+    }
+
     InputStreamBuffer getInputStreamBuffer() {
         return inputStreamBuffer;
     }
@@ -752,7 +1348,20 @@ public class TyrusSession implements Session, DistributedSession {
             inputStreamBuffer.onSessionClosed();
         }
 
-        cancelHeartBeatTask();
+        // scheduled tasks are discarded together with the executor when the container is going down.
+        if (!containerShutdown) {
+            cancelHeartBeatTask();
+        }
+
+        final TrafficShaper shaper = trafficShaper;
+        if (shaper != null) {
+            shaper.close();
+        }
+
+        final TrafficShaper sender = conflatingSender;
+        if (sender != null) {
+            sender.close();
+        }
     }
 
     /**
@@ -765,6 +1374,40 @@ public class TyrusSession implements Session, DistributedSession {
         return remoteAddr;
     }
 
+    /**
+     * Resolves conflation keys of outgoing messages, see {@link #SEND_CONFLATION_KEY_RESOLVER}.
+     */
+    @Beta
+    public interface ConflationKeyResolver {
+
+        /**
+         * Get conflation key of a message.
+         *
+         * @param message message passed to {@link javax.websocket.RemoteEndpoint.Basic} or {@link
+         *                javax.websocket.RemoteEndpoint.Async} ({@link String}, {@link java.nio.ByteBuffer} or an
+         *                object to be encoded).
+         * @return key identifying messages which replace each other or {@code null} if the message must not be
+         * replaced.
+         */
+        Object getConflationKey(Object message);
+    }
+
+    /**
+     * Callback used by {@link #forEachOpenSession(SessionVisitor)}.
+     */
+    @Beta
+    public interface SessionVisitor {
+
+        /**
+         * Invoked for an open session.
+         *
+         * @param index   index of the session in the current iteration, starting with {@code 0}.
+         * @param session open session.
+         * @return {@code true} to continue with the next session, {@code false} to stop the iteration.
+         */
+        boolean visit(int index, Session session);
+    }
+
     /**
      * Session state.
      */
@@ -809,6 +1452,28 @@ public class TyrusSession implements Session, DistributedSession {
         }
     }
 
+    private class HibernationCommand implements Runnable {
+
+        @Override
+        public void run() {
+            synchronized (hibernationLock) {
+                if (!isOpen()) {
+                    return;
+                }
+
+                // rescheduling on every message would be too expensive; check whether there was a message instead
+                final long current = activity;
+                if (current != hibernationActivity || !hibernate()) {
+                    hibernationActivity = current;
+                    service.schedule(this, hibernationTimeout, TimeUnit.MILLISECONDS);
+                    return;
+                }
+
+                hibernated = true;
+            }
+        }
+    }
+
     private class HeartbeatCommand implements Runnable {
 
         @Override
@@ -40,7 +40,9 @@
 
 package org.glassfish.tyrus.core;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -53,6 +55,7 @@ import javax.websocket.CloseReason;
 import javax.websocket.Extension;
 import javax.websocket.SendHandler;
 
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 import org.glassfish.tyrus.core.frame.BinaryFrame;
 import org.glassfish.tyrus.core.frame.CloseFrame;
 import org.glassfish.tyrus.core.frame.Frame;
@@ -80,6 +83,8 @@ public class TyrusWebSocket {
     private final Lock lock = new ReentrantLock();
 
     private volatile MessageEventListener messageEventListener = MessageEventListener.NO_OP;
+    private volatile MessageDispatcher messageDispatcher = null;
+    private volatile CloseFrame localCloseFrame = null;
 
     /**
      * Create new instance, set {@link ProtocolHandler} and register {@link TyrusEndpointWrapper}.
@@ -96,11 +101,13 @@ public class TyrusWebSocket {
 
     /**
      * Sets the timeout for the writing operation.
+     * <p/>
+     * Applies to streamed binary messages, see {@link ProtocolHandler#setWriteTimeout(long)}.
      *
      * @param timeoutMs timeout in milliseconds.
      */
     public void setWriteTimeout(long timeoutMs) {
-        // do nothing.
+        protocolHandler.setWriteTimeout(timeoutMs);
     }
 
     /**
@@ -120,15 +127,34 @@ public class TyrusWebSocket {
      *
      * @param frame the close frame from the remote endpoint.
      */
-    public void onClose(CloseFrame frame) {
+    public void onClose(final CloseFrame frame) {
+        final MessageDispatcher dispatcher = messageDispatcher;
+        if (dispatcher != null && dispatcher.dispatchIfPending(new Runnable() {
+            @Override
+            public void run() {
+                handleClose(frame);
+            }
+        })) {
+            return;
+        }
+
+        handleClose(frame);
+    }
+
+    private void handleClose(CloseFrame frame) {
         boolean locked = lock.tryLock();
         if (locked) {
             try {
-                final CloseReason closeReason = frame.getCloseReason();
+                // close initiated by sendClose is reported with the local reason, even when the peer replies first.
+                final CloseFrame localClose = localCloseFrame;
+                final CloseReason closeReason = (localClose == null ? frame : localClose).getCloseReason();
 
                 if (endpointWrapper != null) {
                     endpointWrapper.onClose(this, closeReason);
                 }
+                if (messageDispatcher != null) {
+                    messageDispatcher.close();
+                }
                 if (state.compareAndSet(State.CONNECTED, State.CLOSING)) {
                     protocolHandler.close(closeReason.getCloseCode().getCode(), closeReason.getReasonPhrase());
                 } else {
@@ -165,14 +191,28 @@ public class TyrusWebSocket {
      * @param frame the binary data received from the remote endpoint.
      * @param last  flag indicating whether or not the payload received is the final fragment of a message.
      */
-    public void onFragment(BinaryFrame frame, boolean last) {
+    public void onFragment(final BinaryFrame frame, final boolean last) {
         awaitOnConnect();
         if (endpointWrapper != null) {
-            endpointWrapper.onPartialMessage(this, ByteBuffer.wrap(frame.getPayloadData()), last);
-            messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+            final MessageDispatcher dispatcher = messageDispatcher;
+            if (dispatcher == null) {
+                handleFragment(frame, last);
+            } else {
+                dispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleFragment(frame, last);
+                    }
+                });
+            }
         }
     }
 
+    private void handleFragment(BinaryFrame frame, boolean last) {
+        endpointWrapper.onPartialMessage(this, ByteBuffer.wrap(frame.getPayloadData()), last);
+        messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+    }
+
     /**
      * This callback will be invoked when a fragmented textual message has
      * been received.
@@ -180,40 +220,82 @@ public class TyrusWebSocket {
      * @param frame the text received from the remote endpoint.
      * @param last  flag indicating whether or not the payload received is the final fragment of a message.
      */
-    public void onFragment(TextFrame frame, boolean last) {
+    public void onFragment(final TextFrame frame, final boolean last) {
         awaitOnConnect();
         if (endpointWrapper != null) {
-            endpointWrapper.onPartialMessage(this, frame.getTextPayload(), last);
-            messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+            final MessageDispatcher dispatcher = messageDispatcher;
+            if (dispatcher == null) {
+                handleFragment(frame, last);
+            } else {
+                dispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleFragment(frame, last);
+                    }
+                });
+            }
         }
     }
 
+    private void handleFragment(TextFrame frame, boolean last) {
+        endpointWrapper.onPartialMessage(this, frame.getTextPayload(), last);
+        messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+    }
+
     /**
      * This callback will be invoked when a binary message has been received.
      *
      * @param frame the binary data received from the remote endpoint.
      */
-    public void onMessage(BinaryFrame frame) {
+    public void onMessage(final BinaryFrame frame) {
         awaitOnConnect();
         if (endpointWrapper != null) {
-            endpointWrapper.onMessage(this, ByteBuffer.wrap(frame.getPayloadData()));
-            messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+            final MessageDispatcher dispatcher = messageDispatcher;
+            if (dispatcher == null) {
+                handleMessage(frame);
+            } else {
+                dispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleMessage(frame);
+                    }
+                });
+            }
         }
     }
 
+    private void handleMessage(BinaryFrame frame) {
+        endpointWrapper.onMessage(this, ByteBuffer.wrap(frame.getPayloadData()));
+        messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+    }
+
     /**
      * This callback will be invoked when a text message has been received.
      *
      * @param frame the text received from the remote endpoint.
      */
-    public void onMessage(TextFrame frame) {
+    public void onMessage(final TextFrame frame) {
         awaitOnConnect();
         if (endpointWrapper != null) {
-            endpointWrapper.onMessage(this, frame.getTextPayload());
-            messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+            final MessageDispatcher dispatcher = messageDispatcher;
+            if (dispatcher == null) {
+                handleMessage(frame);
+            } else {
+                dispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleMessage(frame);
+                    }
+                });
+            }
         }
     }
 
+    private void handleMessage(TextFrame frame) {
+        endpointWrapper.onMessage(this, frame.getTextPayload());
+        messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+    }
+
     /**
      * This callback will be invoked when the remote endpoint has sent a ping frame.
      *
@@ -233,14 +315,28 @@ public class TyrusWebSocket {
      *
      * @param frame the pong frame from the remote endpoint.
      */
-    public void onPong(PongFrame frame) {
+    public void onPong(final PongFrame frame) {
         awaitOnConnect();
         if (endpointWrapper != null) {
-            endpointWrapper.onPong(this, ByteBuffer.wrap(frame.getPayloadData()));
-            messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+            final MessageDispatcher dispatcher = messageDispatcher;
+            if (dispatcher == null) {
+                handlePong(frame);
+            } else {
+                dispatcher.dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handlePong(frame);
+                    }
+                });
+            }
         }
     }
 
+    private void handlePong(PongFrame frame) {
+        endpointWrapper.onPong(this, ByteBuffer.wrap(frame.getPayloadData()));
+        messageEventListener.onFrameReceived(frame.getFrameType(), frame.getPayloadLength());
+    }
+
     /**
      * Closes this {@link TyrusWebSocket}.
      */
@@ -270,6 +366,27 @@ public class TyrusWebSocket {
         close(closeReason.getCloseCode().getCode(), closeReason.getReasonPhrase());
     }
 
+    /**
+     * Send a close frame serialized in advance and mark this {@link TyrusWebSocket} as closing.
+     * <p/>
+     * Used when many connections are closed at once; {@link #onClose(CloseFrame)} has to be invoked afterwards to
+     * notify the endpoint and close the connection.
+     *
+     * @param closeFrame      serialized close frame.
+     * @param payloadLength   length of the close frame payload.
+     * @param localCloseFrame close frame with the reason reported to the endpoint.
+     * @return {@code true} when the frame has been sent, {@code false} when this socket is not connected.
+     */
+    boolean sendClose(ByteBuffer closeFrame, long payloadLength, CloseFrame localCloseFrame) {
+        if (state.compareAndSet(State.CONNECTED, State.CLOSING)) {
+            this.localCloseFrame = localCloseFrame;
+            protocolHandler.sendClose(closeFrame, payloadLength);
+            return true;
+        }
+
+        return false;
+    }
+
     /**
      * Send a binary frame to the remote endpoint.
      *
@@ -292,6 +409,56 @@ public class TyrusWebSocket {
         protocolHandler.send(data, handler);
     }
 
+    /**
+     * Send a binary frame to the remote endpoint, streaming the payload from given channel.
+     *
+     * @param payload channel from which exactly {@code length} bytes are read.
+     * @param length  payload length.
+     * @throws IOException when the payload cannot be read or the message cannot be written.
+     * @see ProtocolHandler#sendStream(ReadableByteChannel, long)
+     */
+    public void sendBinary(ReadableByteChannel payload, long length) throws IOException {
+        checkConnectedState();
+        protocolHandler.sendStream(payload, length);
+    }
+
+    /**
+     * Send a binary frame to the remote endpoint, passing the payload buffer to the transport without copying it
+     * into a frame.
+     *
+     * @param payload payload to be sent.
+     * @throws IOException when the message cannot be written.
+     * @see ProtocolHandler#sendStream(ByteBuffer)
+     */
+    public void sendBinaryStream(ByteBuffer payload) throws IOException {
+        checkConnectedState();
+        protocolHandler.sendStream(payload);
+    }
+
+    /**
+     * Send a binary frame to the remote endpoint without copying the payload.
+     *
+     * @param payload payload to be sent.
+     * @return {@link Future} which could be used to control/check the sending completion state.
+     * @see ProtocolHandler#send(PayloadOutputStream)
+     */
+    public Future<Frame> sendBinary(PayloadOutputStream payload) {
+        checkConnectedState();
+        return protocolHandler.send(payload);
+    }
+
+    /**
+     * Send a binary frame to the remote endpoint without copying the payload.
+     *
+     * @param payload payload to be sent.
+     * @param handler {@link SendHandler#onResult(javax.websocket.SendResult)} will be called when sending is complete.
+     * @see ProtocolHandler#send(PayloadOutputStream, SendHandler)
+     */
+    public void sendBinary(PayloadOutputStream payload, SendHandler handler) {
+        checkConnectedState();
+        protocolHandler.send(payload, handler);
+    }
+
     /**
      * Send a text frame to the remote endpoint.
      *
@@ -402,6 +569,19 @@ public class TyrusWebSocket {
         return protocolHandler.stream(last, bytes, off, len);
     }
 
+    /**
+     * Sends a fragment of a partial message without copying the payload.
+     *
+     * @param payload fragment payload, must not be modified until the returned future is done.
+     * @param text    {@code true} if the fragment is a part of a text message.
+     * @param last    boolean indicating if this message fragment is the last.
+     * @return {@link Future} which could be used to control/check the sending completion state.
+     */
+    Future<Frame> sendFragment(PayloadOutputStream payload, boolean text, boolean last) {
+        checkConnectedState();
+        return protocolHandler.stream(last, text, payload);
+    }
+
     ProtocolHandler getProtocolHandler() {
         return protocolHandler;
     }
@@ -425,6 +605,25 @@ public class TyrusWebSocket {
         return messageEventListener;
     }
 
+    /**
+     * Set dispatcher used for notifying the endpoint about incoming messages.
+     *
+     * @param messageDispatcher message dispatcher, {@code null} means that notifications are executed in the thread
+     *                          which read the message.
+     */
+    void setMessageDispatcher(MessageDispatcher messageDispatcher) {
+        this.messageDispatcher = messageDispatcher;
+    }
+
+    /**
+     * Get dispatcher used for notifying the endpoint about incoming messages.
+     *
+     * @return message dispatcher or {@code null} if not set.
+     */
+    MessageDispatcher getMessageDispatcher() {
+        return messageDispatcher;
+    }
+
     private void checkConnectedState() {
         if (!isConnected()) {
             throw new RuntimeException(LocalizationMessages.SOCKET_NOT_CONNECTED());
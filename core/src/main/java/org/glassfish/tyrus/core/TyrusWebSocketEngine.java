@@ -41,6 +41,7 @@
 package org.glassfish.tyrus.core;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -48,7 +49,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -117,6 +119,22 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
      */
     public static final String MAX_SESSIONS_PER_REMOTE_ADDR = "org.glassfish.tyrus.maxSessionsPerRemoteAddr";
 
+    /**
+     * Length of IPv6 network prefix used for grouping remote addresses when applying
+     * {@link #MAX_SESSIONS_PER_REMOTE_ADDR}.
+     * <p/>
+     * IPv6 clients usually get whole networks assigned, so limiting sessions per single address is easy to circumvent.
+     * When this property is set, all IPv6 addresses with the same prefix of given length (for instance {@code 64} for
+     * a typical end-site network) share one {@link #MAX_SESSIONS_PER_REMOTE_ADDR} limit. IPv4 addresses are always
+     * counted separately.
+     * <p/>
+     * The value must be {@link java.lang.Integer} between 1 and 128. Default value is 128, which means that each
+     * address is counted separately.
+     */
+    @Beta
+    public static final String MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX =
+            "org.glassfish.tyrus.maxSessionsPerRemoteAddrIpv6Prefix";
+
     /**
      * Property used for configuring the type of tracing supported by the server.
      * <p/>
@@ -214,6 +232,9 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
      *                                 applied.
      * @param maxSessionsPerRemoteAddr maximal number of open sessions per remote address. If {@code null}, no limit is
      *                                 applied.
+     * @param remoteAddrIpv6PrefixLength length of IPv6 network prefix remote addresses are grouped by when applying
+     *                                 {@code maxSessionsPerRemoteAddr}. If {@code null}, each address is counted
+     *                                 separately.
      * @param tracingType              type of tracing.
      * @param tracingThreshold         tracing threshold.
      * @param parallelBroadcastEnabled {@code true} if parallel broadcast should be enabled, {@code true} is default.
@@ -221,8 +242,8 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
     private TyrusWebSocketEngine(WebSocketContainer webSocketContainer, Integer incomingBufferSize,
                                  ClusterContext clusterContext, ApplicationEventListener applicationEventListener,
                                  final Integer maxSessionsPerApp, final Integer maxSessionsPerRemoteAddr,
-                                 DebugContext.TracingType tracingType, DebugContext.TracingThreshold tracingThreshold,
-                                 Boolean parallelBroadcastEnabled) {
+                                 Integer remoteAddrIpv6PrefixLength, DebugContext.TracingType tracingType,
+                                 DebugContext.TracingThreshold tracingThreshold, Boolean parallelBroadcastEnabled) {
         if (incomingBufferSize != null) {
             this.incomingBufferSize = incomingBufferSize;
         }
@@ -241,6 +262,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         LOGGER.config("Incoming buffer size: " + this.incomingBufferSize);
         LOGGER.config("Max sessions per app: " + maxSessionsPerApp);
         LOGGER.config("Max sessions per remote address: " + maxSessionsPerRemoteAddr);
+        LOGGER.config("Remote address IPv6 prefix length: " + remoteAddrIpv6PrefixLength);
         // parallel broadcast is enabled by default, so null means true
         LOGGER.config("Parallel broadcast enabled: " + (parallelBroadcastEnabled != null && parallelBroadcastEnabled));
 
@@ -248,63 +270,8 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         this.tracingThreshold = tracingThreshold;
 
         this.sessionListener = maxSessionsPerApp == null && maxSessionsPerRemoteAddr == null
-                ? NO_OP_SESSION_LISTENER : new TyrusEndpointWrapper.SessionListener() {
-            // Implementation of {@link org.glassfish.tyrus.core.TyrusEndpointWrapper.SessionListener} counting
-            // sessions.
-
-            // limit per application counter
-            private final AtomicInteger counter = new AtomicInteger(0);
-            private final Object counterLock = new Object();
-
-            // limit per remote address counter
-            private final Map<String, AtomicInteger> remoteAddressCounters = new HashMap<String, AtomicInteger>();
-
-            @Override
-            public OnOpenResult onOpen(final TyrusSession session) {
-                if (maxSessionsPerApp != null) {
-                    synchronized (counterLock) {
-                        if (counter.get() >= maxSessionsPerApp) {
-                            return OnOpenResult.MAX_SESSIONS_PER_APP_EXCEEDED;
-                        } else {
-                            counter.incrementAndGet();
-                        }
-                    }
-                }
-
-                if (maxSessionsPerRemoteAddr != null) {
-                    synchronized (remoteAddressCounters) {
-                        AtomicInteger remoteAddressCounter = remoteAddressCounters.get(session.getRemoteAddr());
-                        if (remoteAddressCounter == null) {
-                            remoteAddressCounter = new AtomicInteger(1);
-                            remoteAddressCounters.put(session.getRemoteAddr(), remoteAddressCounter);
-                        } else if (remoteAddressCounter.get() >= maxSessionsPerRemoteAddr) {
-                            return OnOpenResult.MAX_SESSIONS_PER_REMOTE_ADDR_EXCEEDED;
-                        } else {
-                            remoteAddressCounter.incrementAndGet();
-                        }
-                    }
-                }
-
-                return OnOpenResult.SESSION_ALLOWED;
-            }
-
-            @Override
-            public void onClose(final TyrusSession session, final CloseReason closeReason) {
-                if (maxSessionsPerApp != null) {
-                    synchronized (counterLock) {
-                        counter.decrementAndGet();
-                    }
-                }
-                if (maxSessionsPerRemoteAddr != null) {
-                    synchronized (remoteAddressCounters) {
-                        int remoteAddressCounter = remoteAddressCounters.get(session.getRemoteAddr()).decrementAndGet();
-                        if (remoteAddressCounter == 0) {
-                            remoteAddressCounters.remove(session.getRemoteAddr());
-                        }
-                    }
-                }
-            }
-        };
+                ? NO_OP_SESSION_LISTENER
+                : new SessionLimits(maxSessionsPerApp, maxSessionsPerRemoteAddr, remoteAddrIpv6PrefixLength);
     }
 
     private static ProtocolHandler loadHandler(UpgradeRequest request) {
@@ -338,11 +305,15 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             }
 
             if (endpointWrapper.upgrade(request)) {
-                debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
-                                                "Endpoint selected as a match to the handshake URI: ",
-                                                endpointWrapper.getEndpointPath());
-                debugContext.appendLogMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, "Target endpoint: ",
-                                              endpointWrapper);
+                if (debugContext.isTraceEnabled(LOGGER, Level.FINE)) {
+                    debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
+                                                    "Endpoint selected as a match to the handshake URI: ",
+                                                    endpointWrapper.getEndpointPath());
+                }
+                if (LOGGER.isLoggable(Level.FINER)) {
+                    debugContext.appendLogMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN,
+                                                  "Target endpoint: ", endpointWrapper);
+                }
                 return endpointWrapper;
             }
         }
@@ -353,6 +324,8 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
     @Override
     public UpgradeInfo upgrade(final UpgradeRequest request, final UpgradeResponse response) {
 
+        final boolean monitored = applicationEventListener != ApplicationEventListener.NO_OP;
+        final long handshakeStart = monitored ? System.nanoTime() : 0;
         DebugContext debugContext = createDebugContext(request);
 
         if (LOGGER.isLoggable(Level.FINE)) {
@@ -371,8 +344,11 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             final ProtocolHandler protocolHandler = loadHandler(request);
             if (protocolHandler == null) {
                 handleUnsupportedVersion(request, response);
-                debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
-                                                "Upgrade request contains unsupported version of Websocket protocol");
+                if (debugContext.isTraceEnabled(LOGGER, Level.FINE)) {
+                    debugContext.appendTraceMessage(
+                            LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
+                            "Upgrade request contains unsupported version of Websocket protocol");
+                }
 
                 if (LOGGER.isLoggable(Level.FINE)) {
                     debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_OUT,
@@ -413,8 +389,10 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
                 response.getHeaders()
                         .put(UpgradeRequest.CLUSTER_CONNECTION_ID_HEADER, Collections.singletonList(connectionId));
 
-                debugContext
-                        .appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Connection ID: ", connectionId);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.OTHER, "Connection ID: ",
+                                                  connectionId);
+                }
             }
 
             if (LOGGER.isLoggable(Level.FINE)) {
@@ -424,6 +402,9 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             }
 
             response.getHeaders().putAll(debugContext.getTracingHeaders());
+            if (monitored) {
+                endpointWrapper.onHandshakeCompleted(System.nanoTime() - handshakeStart);
+            }
             return new SuccessfulUpgradeInfo(endpointWrapper, protocolHandler, incomingBufferSize, request, response,
                                              extensionContext, debugContext);
         }
@@ -492,7 +473,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         return HANDSHAKE_FAILED_UPGRADE_INFO;
     }
 
-    private static class TyrusReadHandler implements ReadHandler {
+    private static class TyrusReadHandler implements ReadHandler, ProtocolHandler.ReadBuffer {
 
         private final ProtocolHandler protocolHandler;
         private final TyrusWebSocket socket;
@@ -512,34 +493,30 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             this.endpointWrapper = endpointWrapper;
             this.incomingBufferSize = incomingBufferSize;
             this.debugContext = debugContext;
+
+            protocolHandler.setReadBuffer(this);
         }
 
         @Override
         public void handle(ByteBuffer data) {
+            protocolHandler.startRead();
             try {
                 if (data != null && data.hasRemaining()) {
 
-                    if (buffer != null) {
+                    final boolean leftover = buffer != null && buffer.hasRemaining();
+                    if (leftover) {
                         data = Utils.appendBuffers(buffer, data, incomingBufferSize, BUFFER_STEP_SIZE);
-                    } else {
-                        int newSize = data.remaining();
-                        if (newSize > incomingBufferSize) {
-                            throw new IllegalArgumentException(LocalizationMessages.BUFFER_OVERFLOW());
-                        } else {
-                            final int roundedSize = (newSize % BUFFER_STEP_SIZE) > 0
-                                    ? ((newSize / BUFFER_STEP_SIZE) + 1) * BUFFER_STEP_SIZE : newSize;
-                            final ByteBuffer result =
-                                    ByteBuffer.allocate(roundedSize > incomingBufferSize ? newSize : roundedSize);
-                            result.flip();
-                            data = Utils.appendBuffers(result, data, incomingBufferSize, BUFFER_STEP_SIZE);
-                        }
+                    } else if (data.remaining() > incomingBufferSize) {
+                        throw new IllegalArgumentException(LocalizationMessages.BUFFER_OVERFLOW());
                     }
+                    // when there is no leftover from previous reads, frames are parsed directly from the container
+                    // buffer and only incomplete frame is copied.
 
                     do {
                         final Frame incomingFrame = protocolHandler.unframe(data);
 
                         if (incomingFrame == null) {
-                            buffer = data;
+                            buffer = protocolHandler.retainRemaining(leftover ? data : buffer, data, incomingBufferSize);
                             break;
                         } else {
                             Frame frame = incomingFrame;
@@ -579,8 +556,26 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
                     socket.onClose(
                             new CloseFrame(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, message)));
                 }
+            } finally {
+                protocolHandler.finishRead();
             }
         }
+
+        @Override
+        public int getRetainedSize() {
+            final ByteBuffer localBuffer = buffer;
+            return localBuffer == null ? 0 : localBuffer.capacity();
+        }
+
+        @Override
+        public boolean release() {
+            if (buffer != null && buffer.hasRemaining()) {
+                return false;
+            }
+
+            buffer = null;
+            return true;
+        }
     }
 
     /**
@@ -706,6 +701,53 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         applicationEventListener.onEndpointUnregistered(endpointWrapper.getEndpointPath());
     }
 
+    /**
+     * Close all sessions of endpoints registered to this engine at once.
+     * <p/>
+     * Intended for draining a server, e.g. before it is restarted. The close frame is serialized only once and written
+     * to the connections in parallel batches, then {@link javax.websocket.OnClose} annotated methods (or {@link
+     * Endpoint#onClose(javax.websocket.Session, CloseReason)}) are invoked by a bounded number of threads of the
+     * container executor.
+     *
+     * @param closeReason close reason sent to the peers and passed to the endpoints.
+     * @param shutdown    {@code true} when the container is going to be shut down afterwards; scheduled tasks of the
+     *                    sessions (like heartbeat) are then not cancelled one by one, since they are discarded together
+     *                    with the container executor.
+     * @param listener    listener notified about the progress, can be {@code null}.
+     * @return future completed when all sessions are closed, its value is the number of closed sessions.
+     */
+    @Beta
+    public Future<Integer> closeAll(CloseReason closeReason, boolean shutdown, CloseProgressListener listener) {
+        final List<Map.Entry<TyrusWebSocket, TyrusSession>> sessions =
+                new ArrayList<Map.Entry<TyrusWebSocket, TyrusSession>>();
+        for (TyrusEndpointWrapper endpointWrapper : endpointWrappers) {
+            sessions.addAll(endpointWrapper.getOpenSessionEntries());
+        }
+
+        final ExecutorService executorService = webSocketContainer instanceof ExecutorServiceProvider
+                ? ((ExecutorServiceProvider) webSocketContainer).getExecutorService() : null;
+
+        return new BulkCloser(sessions, closeReason, shutdown, listener)
+                .close(executorService, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Listener notified about the progress of {@link #closeAll(CloseReason, boolean, CloseProgressListener)}.
+     * <p/>
+     * The listener may be invoked concurrently from multiple threads.
+     */
+    @Beta
+    public interface CloseProgressListener {
+
+        /**
+         * Called when a batch of sessions has been closed.
+         *
+         * @param closed number of sessions closed so far.
+         * @param total  number of sessions being closed.
+         */
+        void onProgress(int closed, int total);
+    }
+
     private static class NoConnectionUpgradeInfo implements UpgradeInfo {
         private final UpgradeStatus status;
 
@@ -795,6 +837,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         private final ReadHandler readHandler;
         private final Writer writer;
         private final CloseListener closeListener;
+        private final ProtocolHandler protocolHandler;
         private final TyrusWebSocket socket;
         private final ExtendedExtension.ExtensionContext extensionContext;
         private final List<Extension> extensions;
@@ -804,6 +847,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
                         UpgradeRequest upgradeRequest, UpgradeResponse upgradeResponse,
                         ExtendedExtension.ExtensionContext extensionContext, DebugContext debugContext) {
             protocolHandler.setWriter(writer);
+            this.protocolHandler = protocolHandler;
             extensions = protocolHandler.getExtensions();
             this.socket = endpointWrapper.createSocket(protocolHandler);
 
@@ -844,6 +888,11 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             return closeListener;
         }
 
+        @Override
+        public void setReadControl(ReadControl readControl) {
+            protocolHandler.setReadControl(readControl);
+        }
+
         @Override
         public void close(CloseReason reason) {
             if (!socket.isConnected()) {
@@ -876,6 +925,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         private ApplicationEventListener applicationEventListener = null;
         private Integer maxSessionsPerApp = null;
         private Integer maxSessionsPerRemoteAddr = null;
+        private Integer remoteAddrIpv6PrefixLength = null;
         private DebugContext.TracingType tracingType = null;
         private DebugContext.TracingThreshold tracingThreshold = null;
         private Boolean parallelBroadcastEnabled = null;
@@ -899,6 +949,13 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
                 maxSessionsPerRemoteAddr = null;
             }
 
+            if (remoteAddrIpv6PrefixLength != null
+                    && (remoteAddrIpv6PrefixLength <= 0 || remoteAddrIpv6PrefixLength > 128)) {
+                LOGGER.log(Level.CONFIG, "Invalid configuration value " + MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX
+                        + " (" + remoteAddrIpv6PrefixLength + "), expected value between 1 and 128.");
+                remoteAddrIpv6PrefixLength = null;
+            }
+
             if (maxSessionsPerApp != null && maxSessionsPerRemoteAddr != null
                     && maxSessionsPerApp < maxSessionsPerRemoteAddr) {
                 LOGGER.log(Level.FINE,
@@ -909,7 +966,7 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
 
             return new TyrusWebSocketEngine(webSocketContainer, incomingBufferSize, clusterContext,
                                             applicationEventListener, maxSessionsPerApp, maxSessionsPerRemoteAddr,
-                                            tracingType, tracingThreshold, parallelBroadcastEnabled);
+                                            remoteAddrIpv6PrefixLength, tracingType, tracingThreshold, parallelBroadcastEnabled);
         }
 
         TyrusWebSocketEngineBuilder(WebSocketContainer webSocketContainer) {
@@ -983,6 +1040,21 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
             return this;
         }
 
+        /**
+         * Set length of IPv6 network prefix remote addresses are grouped by when applying
+         * {@link #maxSessionsPerRemoteAddr(Integer)}.
+         *
+         * @param remoteAddrIpv6PrefixLength prefix length between 1 and 128. If {@code null}, each address is counted
+         *                                   separately.
+         * @return updated builder.
+         * @see #MAX_SESSIONS_PER_REMOTE_ADDR_IPV6_PREFIX
+         */
+        @Beta
+        public TyrusWebSocketEngineBuilder remoteAddrIpv6PrefixLength(Integer remoteAddrIpv6PrefixLength) {
+            this.remoteAddrIpv6PrefixLength = remoteAddrIpv6PrefixLength;
+            return this;
+        }
+
         /**
          * Set type of tracing.
          *
@@ -1036,5 +1108,10 @@ public class TyrusWebSocketEngine implements WebSocketEngine {
         public void onError(String sessionId, Throwable t) {
             endpointEventListener.onError(sessionId, t);
         }
+
+        @Override
+        public void onHandshakeCompleted(long durationNanos) {
+            endpointEventListener.onHandshakeCompleted(durationNanos);
+        }
     }
 }
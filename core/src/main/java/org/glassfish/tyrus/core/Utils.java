@@ -319,7 +319,7 @@ public class Utils {
         final int len = buffer1.remaining();
 
         // buffer1 will be appended to buffer
-        if (len < (capacity - limit)) {
+        if (len <= (capacity - limit)) {
 
             buffer.mark();
             buffer.position(limit);
@@ -329,7 +329,7 @@ public class Utils {
             buffer.reset();
             return buffer;
             // Remaining data is moved to left. Then new data is appended
-        } else if (remaining + len < capacity) {
+        } else if (remaining + len <= capacity) {
             buffer.compact();
             buffer.put(buffer1);
             buffer.flip();
@@ -40,44 +40,152 @@
 package org.glassfish.tyrus.core;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 
 /**
  * Simple Writer that writes its data to an async sink.
+ * <p/>
+ * Written characters are collected in a reusable buffer and sent, encoded to a reusable payload buffer, as a fragment
+ * of a text message when the buffer is full; the last fragment is sent when the writer is closed. {@link #flush()}
+ * does not send anything, so that applications writing the message in many small pieces (for instance JSON token by
+ * token) do not produce many small frames. Surrogate pairs are never split between fragments.
  *
  * @author Danny Coward (danny.coward at oracle.com)
+ * @see TyrusSession#SEND_STREAM_FRAGMENT_SIZE
  */
 class WriterToAsyncTextAdapter extends Writer {
     private final TyrusWebSocket socket;
-    private String buffer = null;
+    private final char[] chars;
+    private PayloadOutputStream payload;
+    private final CharsetEncoder encoder = new StrictUtf8().newEncoder()
+                                                           .onMalformedInput(CodingErrorAction.REPLACE)
+                                                           .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private int count = 0;
+    private boolean closed = false;
 
-    public WriterToAsyncTextAdapter(TyrusWebSocket socket) {
+    public WriterToAsyncTextAdapter(TyrusWebSocket socket, int fragmentSize) {
         this.socket = socket;
+        // at least two characters, so that a surrogate pair fits into one fragment
+        this.chars = new char[Math.max(fragmentSize, 2)];
+        this.payload = new PayloadOutputStream((int) (chars.length * encoder.maxBytesPerChar()));
     }
 
-    private void sendBuffer(boolean last) {
-        socket.sendText(buffer, last);
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if ((off < 0) || (off > cbuf.length) || (len < 0) || ((off + len) > cbuf.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        checkClosed();
+        while (len > 0) {
+            final int length = Math.min(len, chars.length - count);
+            System.arraycopy(cbuf, off, chars, count, length);
+            count += length;
+            off += length;
+            len -= length;
+
+            if (count == chars.length) {
+                sendBuffer(false);
+            }
+        }
     }
 
     @Override
-    public void write(char[] chars, int index, int len) throws IOException {
-        if (buffer != null) {
-            this.sendBuffer(false);
+    public void write(String str, int off, int len) throws IOException {
+        if ((off < 0) || (len < 0) || ((off + len) > str.length()) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
         }
-        buffer = (new String(chars)).substring(index, index + len);
 
+        checkClosed();
+        while (len > 0) {
+            final int length = Math.min(len, chars.length - count);
+            str.getChars(off, off + length, chars, count);
+            count += length;
+            off += length;
+            len -= length;
+
+            if (count == chars.length) {
+                sendBuffer(false);
+            }
+        }
     }
 
     @Override
-    public void flush() throws IOException {
-        if (buffer != null) {
-            this.sendBuffer(false);
+    public void write(int c) throws IOException {
+        checkClosed();
+        chars[count++] = (char) c;
+        if (count == chars.length) {
+            sendBuffer(false);
         }
-        buffer = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // do nothing, data are sent when the buffer is full or when the writer is closed.
     }
 
     @Override
     public void close() throws IOException {
-        this.sendBuffer(true);
+        if (!closed) {
+            closed = true;
+            sendBuffer(true);
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed.");
+        }
+    }
+
+    private void sendBuffer(boolean last) throws IOException {
+        int length = count;
+        if (!last && Character.isHighSurrogate(chars[length - 1])) {
+            // keep the high surrogate for the next fragment
+            length--;
+        }
+
+        final ByteBuffer view = payload.reserve((int) (length * encoder.maxBytesPerChar()));
+        encoder.reset();
+        final CoderResult result = encoder.encode(CharBuffer.wrap(chars, 0, length), view, true);
+        if (result.isUnderflow()) {
+            encoder.flush(view);
+        }
+        payload.commit(view);
+
+        try {
+            final Future<?> future = socket.sendFragment(payload, true, last);
+            future.get();
+        } catch (InterruptedException e) {
+            // the fragment may still be written from the buffer, so it cannot be reused
+            payload = new PayloadOutputStream((int) (chars.length * encoder.maxBytesPerChar()));
+            Thread.currentThread().interrupt();
+
+            final InterruptedIOException exception = new InterruptedIOException("Sending interrupted.");
+            exception.initCause(e);
+            throw exception;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        } finally {
+            payload.reset();
+            count -= length;
+            if (count > 0) {
+                chars[0] = chars[length];
+            }
+        }
     }
 }
@@ -60,4 +60,28 @@ public interface BroadcastListener {
      * @param data data to broadcast.
      */
     void onBroadcast(byte[] data);
+
+    /**
+     * Invoked when received request to broadcast text message serialized to a WebSocket frame.
+     * <p/>
+     * Default implementation ignores the frame and calls {@link #onBroadcast(String)}.
+     *
+     * @param text  message to broadcast.
+     * @param frame unmasked frame containing the message, not processed by any extension.
+     */
+    default void onBroadcast(String text, byte[] frame) {
+        onBroadcast(text);
+    }
+
+    /**
+     * Invoked when received request to broadcast binary data serialized to a WebSocket frame.
+     * <p/>
+     * Default implementation ignores the frame and calls {@link #onBroadcast(byte[])}.
+     *
+     * @param data  data to broadcast.
+     * @param frame unmasked frame containing the data, not processed by any extension.
+     */
+    default void onBroadcast(byte[] data, byte[] frame) {
+        onBroadcast(data);
+    }
 }
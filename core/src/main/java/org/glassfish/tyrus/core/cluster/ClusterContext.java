@@ -40,6 +40,7 @@
 
 package org.glassfish.tyrus.core.cluster;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -170,6 +171,35 @@ public abstract class ClusterContext {
      */
     public abstract void broadcastBinary(String endpointPath, byte[] data);
 
+    /**
+     * Broadcast text message together with its serialized WebSocket frame.
+     * <p/>
+     * Implementations can pass the frame to {@link BroadcastListener#onBroadcast(String, byte[])} on receiving nodes,
+     * which then write it directly to sessions without extensions instead of framing the message again. Default
+     * implementation ignores the frame and calls {@link #broadcastText(String, String)}.
+     *
+     * @param endpointPath endpoint path identifying sessions alignment to the endpoint.
+     * @param text         message to be broadcasted.
+     * @param frame        unmasked frame containing the message, not processed by any extension. Can be {@code null}.
+     */
+    public void broadcastText(String endpointPath, String text, byte[] frame) {
+        broadcastText(endpointPath, text);
+    }
+
+    /**
+     * Broadcast binary message together with its serialized WebSocket frame.
+     * <p/>
+     * Default implementation ignores the frame and calls {@link #broadcastBinary(String, byte[])}.
+     *
+     * @param endpointPath endpoint path identifying sessions alignment to the endpoint.
+     * @param data         data to be broadcasted.
+     * @param frame        unmasked frame containing the data, not processed by any extension. Can be {@code null}.
+     * @see #broadcastText(String, String, byte[])
+     */
+    public void broadcastBinary(String endpointPath, byte[] data, byte[] frame) {
+        broadcastBinary(endpointPath, data);
+    }
+
     /**
      * Get information about session state.
      *
@@ -275,6 +305,40 @@ public abstract class ClusterContext {
      */
     public abstract Map<RemoteSession.DistributedMapKey, Object> getDistributedSessionProperties(String sessionId);
 
+    /**
+     * Get distributed session properties of multiple sessions.
+     * <p/>
+     * Used when an endpoint is registered to create {@link RemoteSession} instances for sessions opened on other nodes.
+     * Implementations backed by a remote storage should override this method and load all maps in one request. Default
+     * implementation calls {@link #getDistributedSessionProperties(String)} for each session.
+     *
+     * @param sessionIds session ids.
+     * @return map of session ids and their distributed session properties.
+     */
+    public Map<String, Map<RemoteSession.DistributedMapKey, Object>> getDistributedSessionProperties(
+            Set<String> sessionIds) {
+        final Map<String, Map<RemoteSession.DistributedMapKey, Object>> result =
+                new HashMap<String, Map<RemoteSession.DistributedMapKey, Object>>();
+        for (String sessionId : sessionIds) {
+            result.put(sessionId, getDistributedSessionProperties(sessionId));
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether {@link SessionListener#onSessionPropertiesChanged(String)} is invoked whenever distributed
+     * session properties are changed.
+     * <p/>
+     * When supported, {@link RemoteSession} caches all distributed session properties locally and reads them from the
+     * cluster again only after it has been notified about a change. Otherwise only properties which cannot change are
+     * cached. Default implementation returns {@code false}.
+     *
+     * @return {@code true} if changes of distributed session properties are reported, {@code false} otherwise.
+     */
+    public boolean isSessionPropertiesChangeNotificationSupported() {
+        return false;
+    }
+
     /**
      * Get the map containing session user properties to be shared among nodes.
      * <p/>
@@ -40,7 +40,6 @@
 
 package org.glassfish.tyrus.core.cluster;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
@@ -49,6 +48,7 @@ import java.io.Writer;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.security.Principal;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +56,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.websocket.CloseReason;
 import javax.websocket.EncodeException;
@@ -69,6 +70,7 @@ import javax.websocket.WebSocketContainer;
 
 import org.glassfish.tyrus.core.TyrusEndpointWrapper;
 import org.glassfish.tyrus.core.Utils;
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 
 import static org.glassfish.tyrus.core.Utils.checkNotNull;
 
@@ -88,6 +90,14 @@ public class RemoteSession implements Session, DistributedSession {
     private final ClusterContext clusterContext;
     private final Map<DistributedMapKey, Object> distributedPropertyMap;
     private final TyrusEndpointWrapper endpointWrapper;
+    private final boolean cacheMutableProperties;
+
+    /**
+     * Local copy of {@link #distributedPropertyMap}. Every invalidation installs a new empty {@link PropertyCache}
+     * instance, so a copy loaded before the invalidation cannot be published after it.
+     */
+    private final AtomicReference<PropertyCache> propertyCache = new AtomicReference<PropertyCache>();
+    private volatile Map<String, Object> distributedUserProperties = null;
 
     public static enum DistributedMapKey implements Serializable {
         /**
@@ -121,7 +131,7 @@ public class RemoteSession implements Session, DistributedSession {
          *
          * @see javax.websocket.Session#getMaxIdleTimeout()
          */
-        MAX_IDLE_TIMEOUT("maxIdleTimeout"),
+        MAX_IDLE_TIMEOUT("maxIdleTimeout", true),
         /**
          * Max binary buffer size.
          * <p/>
@@ -129,7 +139,7 @@ public class RemoteSession implements Session, DistributedSession {
          *
          * @see javax.websocket.Session#getMaxBinaryMessageBufferSize()
          */
-        MAX_BINARY_MESSAGE_BUFFER_SIZE("maxBinaryBufferSize"),
+        MAX_BINARY_MESSAGE_BUFFER_SIZE("maxBinaryBufferSize", true),
         /**
          * Max text buffer size.
          * <p/>
@@ -137,7 +147,7 @@ public class RemoteSession implements Session, DistributedSession {
          *
          * @see javax.websocket.Session#getMaxTextMessageBufferSize()
          */
-        MAX_TEXT_MESSAGE_BUFFER_SIZE("maxTextBufferSize"),
+        MAX_TEXT_MESSAGE_BUFFER_SIZE("maxTextBufferSize", true),
         /**
          * Request URI.
          * <p/>
@@ -186,9 +196,15 @@ public class RemoteSession implements Session, DistributedSession {
         CONNECTION_ID("connectionId");
 
         private final String key;
+        private final boolean mutable;
 
         DistributedMapKey(String key) {
+            this(key, false);
+        }
+
+        DistributedMapKey(String key, boolean mutable) {
             this.key = key;
+            this.mutable = mutable;
         }
 
         @Override
@@ -217,7 +233,12 @@ public class RemoteSession implements Session, DistributedSession {
         this.distributedPropertyMap = distributedPropertyMap;
         this.endpointWrapper = endpointWrapper;
 
-        this.connectionId = distributedPropertyMap.get(DistributedMapKey.CONNECTION_ID).toString();
+        this.cacheMutableProperties = clusterContext.isSessionPropertiesChangeNotificationSupported();
+
+        // prefetch all properties at once
+        final Map<DistributedMapKey, Object> properties = loadProperties();
+        this.propertyCache.set(new PropertyCache(properties));
+        this.connectionId = properties.get(DistributedMapKey.CONNECTION_ID).toString();
 
         this.basicRemote = new RemoteEndpoint.Basic() {
             @Override
@@ -317,9 +338,8 @@ public class RemoteSession implements Session, DistributedSession {
                     StringWriter writer = (StringWriter) toSend;
                     StringBuffer sb = writer.getBuffer();
                     future = clusterContext.sendText(sessionId, sb.toString());
-                } else if (toSend instanceof ByteArrayOutputStream) {
-                    ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-                    future = clusterContext.sendBinary(sessionId, baos.toByteArray());
+                } else if (toSend instanceof PayloadOutputStream) {
+                    future = clusterContext.sendBinary(sessionId, ((PayloadOutputStream) toSend).toByteArray());
                 } else {
                     // will never happen.
                     return;
@@ -520,9 +540,8 @@ public class RemoteSession implements Session, DistributedSession {
                     StringWriter writer = (StringWriter) toSend;
                     StringBuffer sb = writer.getBuffer();
                     future = clusterContext.sendText(sessionId, sb.toString());
-                } else if (toSend instanceof ByteArrayOutputStream) {
-                    ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-                    future = clusterContext.sendBinary(sessionId, baos.toByteArray());
+                } else if (toSend instanceof PayloadOutputStream) {
+                    future = clusterContext.sendBinary(sessionId, ((PayloadOutputStream) toSend).toByteArray());
                 } else {
                     // will never happen.
                     future = null;
@@ -562,9 +581,8 @@ public class RemoteSession implements Session, DistributedSession {
                         StringWriter writer = (StringWriter) toSend;
                         StringBuffer sb = writer.getBuffer();
                         clusterContext.sendText(sessionId, sb.toString(), handler);
-                    } else if (toSend instanceof ByteArrayOutputStream) {
-                        ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-                        clusterContext.sendBinary(sessionId, baos.toByteArray(), handler);
+                    } else if (toSend instanceof PayloadOutputStream) {
+                        clusterContext.sendBinary(sessionId, ((PayloadOutputStream) toSend).toByteArray(), handler);
                     }
                 }
 
@@ -623,7 +641,7 @@ public class RemoteSession implements Session, DistributedSession {
      */
     @Override
     public String getNegotiatedSubprotocol() {
-        return (String) distributedPropertyMap.get(DistributedMapKey.NEGOTIATED_SUBPROTOCOL);
+        return (String) getDistributedProperty(DistributedMapKey.NEGOTIATED_SUBPROTOCOL);
     }
 
     /**
@@ -634,7 +652,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public List<Extension> getNegotiatedExtensions() {
         //noinspection unchecked
-        return (List<Extension>) distributedPropertyMap.get(DistributedMapKey.NEGOTIATED_EXTENSIONS);
+        return (List<Extension>) getDistributedProperty(DistributedMapKey.NEGOTIATED_EXTENSIONS);
     }
 
     /**
@@ -645,7 +663,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public boolean isSecure() {
         //noinspection unchecked
-        return (Boolean) distributedPropertyMap.get(DistributedMapKey.SECURE);
+        return (Boolean) getDistributedProperty(DistributedMapKey.SECURE);
     }
 
     /**
@@ -667,7 +685,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public long getMaxIdleTimeout() {
         //noinspection unchecked
-        return (Long) distributedPropertyMap.get(DistributedMapKey.MAX_IDLE_TIMEOUT);
+        return (Long) getDistributedProperty(DistributedMapKey.MAX_IDLE_TIMEOUT);
     }
 
     /**
@@ -680,7 +698,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public int getMaxBinaryMessageBufferSize() {
         //noinspection unchecked
-        return (Integer) distributedPropertyMap.get(DistributedMapKey.MAX_BINARY_MESSAGE_BUFFER_SIZE);
+        return (Integer) getDistributedProperty(DistributedMapKey.MAX_BINARY_MESSAGE_BUFFER_SIZE);
     }
 
     /**
@@ -693,7 +711,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public int getMaxTextMessageBufferSize() {
         //noinspection unchecked
-        return (Integer) distributedPropertyMap.get(DistributedMapKey.MAX_TEXT_MESSAGE_BUFFER_SIZE);
+        return (Integer) getDistributedProperty(DistributedMapKey.MAX_TEXT_MESSAGE_BUFFER_SIZE);
     }
 
     /**
@@ -766,7 +784,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public URI getRequestURI() {
         //noinspection unchecked
-        return (URI) distributedPropertyMap.get(DistributedMapKey.REQUEST_URI);
+        return (URI) getDistributedProperty(DistributedMapKey.REQUEST_URI);
     }
 
     /**
@@ -778,7 +796,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public Map<String, List<String>> getRequestParameterMap() {
         //noinspection unchecked
-        return (Map<String, List<String>>) distributedPropertyMap.get(DistributedMapKey.REQUEST_PARAMETER_MAP);
+        return (Map<String, List<String>>) getDistributedProperty(DistributedMapKey.REQUEST_PARAMETER_MAP);
     }
 
     /**
@@ -789,7 +807,7 @@ public class RemoteSession implements Session, DistributedSession {
      */
     @Override
     public String getQueryString() {
-        return (String) distributedPropertyMap.get(DistributedMapKey.QUERY_STRING);
+        return (String) getDistributedProperty(DistributedMapKey.QUERY_STRING);
     }
 
     /**
@@ -802,7 +820,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public Map<String, String> getPathParameters() {
         //noinspection unchecked
-        return (Map<String, String>) distributedPropertyMap.get(DistributedMapKey.PATH_PARAMETERS);
+        return (Map<String, String>) getDistributedProperty(DistributedMapKey.PATH_PARAMETERS);
     }
 
     /**
@@ -819,7 +837,12 @@ public class RemoteSession implements Session, DistributedSession {
 
     @Override
     public Map<String, Object> getDistributedProperties() {
-        return clusterContext.getDistributedUserProperties(connectionId);
+        Map<String, Object> properties = distributedUserProperties;
+        if (properties == null) {
+            properties = clusterContext.getDistributedUserProperties(connectionId);
+            distributedUserProperties = properties;
+        }
+        return properties;
     }
 
     /**
@@ -830,7 +853,7 @@ public class RemoteSession implements Session, DistributedSession {
     @Override
     public Principal getUserPrincipal() {
         //noinspection unchecked
-        return (Principal) distributedPropertyMap.get(DistributedMapKey.USER_PRINCIPAL);
+        return (Principal) getDistributedProperty(DistributedMapKey.USER_PRINCIPAL);
     }
 
     @Override
@@ -949,4 +972,51 @@ public class RemoteSession implements Session, DistributedSession {
     public Set<Session> getOpenSessions() {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Drop locally cached distributed properties of this session.
+     * <p/>
+     * Properties which can change during the session lifetime ({@link DistributedMapKey#MAX_IDLE_TIMEOUT} and message
+     * buffer sizes) are cached only when {@link ClusterContext#isSessionPropertiesChangeNotificationSupported()}
+     * returns {@code true}; the cache is then invalidated when {@link SessionListener#onSessionPropertiesChanged(String)}
+     * is invoked. Other properties are set before the session is registered and never change.
+     */
+    public void invalidatePropertyCache() {
+        propertyCache.set(new PropertyCache(null));
+        distributedUserProperties = null;
+    }
+
+    private Object getDistributedProperty(DistributedMapKey key) {
+        if (key.mutable && !cacheMutableProperties) {
+            return distributedPropertyMap.get(key);
+        }
+
+        final PropertyCache cache = propertyCache.get();
+        Map<DistributedMapKey, Object> properties = cache.properties;
+        if (properties == null) {
+            properties = loadProperties();
+            // fails when the cache has been invalidated while loading; next call loads the properties again
+            propertyCache.compareAndSet(cache, new PropertyCache(properties));
+        }
+        return properties.get(key);
+    }
+
+    private Map<DistributedMapKey, Object> loadProperties() {
+        // EnumMap(Map) constructor cannot copy an empty map
+        final Map<DistributedMapKey, Object> properties = new EnumMap<DistributedMapKey, Object>(DistributedMapKey.class);
+        properties.putAll(distributedPropertyMap);
+        return properties;
+    }
+
+    /**
+     * Snapshot of distributed properties, {@code properties} is {@code null} when not loaded or invalidated.
+     */
+    private static class PropertyCache {
+
+        private final Map<DistributedMapKey, Object> properties;
+
+        PropertyCache(Map<DistributedMapKey, Object> properties) {
+            this.properties = properties;
+        }
+    }
 }
@@ -62,4 +62,17 @@ public interface SessionListener {
      * @param sessionId session id of closed session.
      */
     void onSessionClosed(String sessionId);
+
+    /**
+     * Invoked when distributed properties of a session have been changed.
+     * <p/>
+     * Invoked only by {@link ClusterContext} implementations which return {@code true} from
+     * {@link ClusterContext#isSessionPropertiesChangeNotificationSupported()}.
+     *
+     * @param sessionId session id of changed session.
+     * @see RemoteSession#invalidatePropertyCache()
+     */
+    default void onSessionPropertiesChanged(String sessionId) {
+        // do nothing
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core.coder;
+
+import java.nio.ByteBuffer;
+
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * Binary encoder writing the encoded message directly into the outgoing frame buffer.
+ * <p/>
+ * Tyrus asks the encoder for the maximal encoded length of the message, reserves that many bytes behind the frame
+ * header and lets the encoder write the message into them. The message is therefore copied only once, by the encoder
+ * itself. This is a good fit for serialization libraries which know the serialized size upfront, like Protocol
+ * Buffers or CBOR.
+ * <p/>
+ * Encoders implementing this interface remain standard {@link Encoder.Binary} encoders and can be registered as
+ * such; {@link #encode(Object)} is implemented using the two methods declared here. Other binary encoders are adapted
+ * automatically: {@link Encoder.BinaryStream} encoders write to {@link PayloadOutputStream} directly and the result of
+ * {@link Encoder.Binary} is copied once into the frame buffer.
+ *
+ * @param <T> type of encoded objects.
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public interface ByteBufferEncoder<T> extends Encoder.Binary<T> {
+
+    /**
+     * Get length of the encoded object.
+     *
+     * @param object object to be encoded.
+     * @return exact length or upper bound of the length of the encoded form.
+     * @throws EncodeException when the object cannot be encoded.
+     */
+    int getEncodedLength(T object) throws EncodeException;
+
+    /**
+     * Encode given object into the buffer.
+     * <p/>
+     * The buffer has at least {@link #getEncodedLength(Object)} bytes remaining. Encoded bytes are written starting
+     * at the current position, the position after this method returns marks the end of the message.
+     *
+     * @param object object to be encoded.
+     * @param buffer target buffer.
+     * @throws EncodeException when the object cannot be encoded.
+     */
+    void encode(T object, ByteBuffer buffer) throws EncodeException;
+
+    @Override
+    default ByteBuffer encode(T object) throws EncodeException {
+        final ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength(object));
+        encode(object, buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
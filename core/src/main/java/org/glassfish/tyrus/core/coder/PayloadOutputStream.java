@@ -0,0 +1,188 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core.coder;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * Output stream collecting a binary message payload behind space reserved for the websocket frame header.
+ * <p/>
+ * Encoded binary messages are written straight into this buffer. When the message is sent, the frame header is
+ * written into the reserved space in front of the payload and the client side masking is applied in place, so the
+ * payload is not copied again.
+ * <p/>
+ * The stream is not thread safe.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see ByteBufferEncoder
+ */
+@Beta
+public class PayloadOutputStream extends OutputStream {
+
+    /**
+     * Number of bytes reserved for the frame header - two bytes of opcode and length, eight bytes of extended payload
+     * length and four bytes of masking key.
+     */
+    public static final int HEADER_RESERVE = 14;
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private byte[] buffer;
+    private int count = HEADER_RESERVE;
+
+    /**
+     * Create new stream with default initial capacity.
+     */
+    public PayloadOutputStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create new stream.
+     *
+     * @param expectedPayloadLength expected length of the payload, used as initial capacity.
+     */
+    public PayloadOutputStream(int expectedPayloadLength) {
+        if (expectedPayloadLength < 0) {
+            throw new IllegalArgumentException("Negative payload length: " + expectedPayloadLength);
+        }
+        this.buffer = new byte[HEADER_RESERVE + expectedPayloadLength];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Append remaining bytes of given buffer.
+     *
+     * @param src buffer to be written. Its position is not changed.
+     */
+    public void write(ByteBuffer src) {
+        final int len = src.remaining();
+        ensureCapacity(len);
+        src.duplicate().get(buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Get a view of the next {@code length} bytes of the payload, so that an encoder can write into the payload
+     * directly.
+     * <p/>
+     * The returned buffer is positioned at zero. Bytes written to it become part of the payload only after {@link
+     * #commit(ByteBuffer)} is called.
+     *
+     * @param length maximal number of bytes which will be written.
+     * @return writable view of the payload.
+     */
+    public ByteBuffer reserve(int length) {
+        ensureCapacity(length);
+        return ByteBuffer.wrap(buffer, count, length).slice();
+    }
+
+    /**
+     * Append bytes written to a view obtained from {@link #reserve(int)} to the payload.
+     *
+     * @param view view obtained from the last {@link #reserve(int)} call. All bytes before its position are committed.
+     */
+    public void commit(ByteBuffer view) {
+        count += view.position();
+    }
+
+    /**
+     * Get the backing array. The payload starts at {@link #HEADER_RESERVE}.
+     *
+     * @return backing array.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get payload length.
+     *
+     * @return number of bytes written.
+     */
+    public int getPayloadLength() {
+        return count - HEADER_RESERVE;
+    }
+
+    /**
+     * Discard the payload, keeping the allocated buffer, so that the stream can be reused for the next frame.
+     */
+    public void reset() {
+        count = HEADER_RESERVE;
+    }
+
+    /**
+     * Get copy of the payload.
+     *
+     * @return newly allocated array with the payload.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(buffer, HEADER_RESERVE, count);
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > buffer.length - count) {
+            final int required = count + length;
+            if (required < 0) {
+                throw new OutOfMemoryError("Payload too large.");
+            }
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
@@ -78,6 +78,18 @@ public interface EndpointEventListener {
      */
     void onError(String sessionId, Throwable t);
 
+    /**
+     * Called when an opening handshake has been successfully processed.
+     * <p/>
+     * Not invoked when no {@link ApplicationEventListener} is registered.
+     *
+     * @param durationNanos time in nanoseconds between receiving the upgrade request and creating the upgrade
+     *                      response.
+     */
+    default void onHandshakeCompleted(long durationNanos) {
+        // do nothing
+    }
+
     /**
      * An instance of @EndpointEventListener that does not do anything.
      */
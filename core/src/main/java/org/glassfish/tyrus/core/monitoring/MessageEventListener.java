@@ -66,6 +66,46 @@ public interface MessageEventListener {
      */
     void onFrameReceived(TyrusFrame.FrameType frameType, long payloadLength);
 
+    /**
+     * Called when a frame write has been completed by the underlying container.
+     * <p/>
+     * Timing callbacks are not invoked on {@link #NO_OP}; Tyrus does not read the clock unless a real listener is
+     * registered.
+     *
+     * @param frameType    type of the frame.
+     * @param latencyNanos time in nanoseconds between passing the frame to the container and write completion.
+     */
+    default void onFrameSendCompleted(TyrusFrame.FrameType frameType, long latencyNanos) {
+        // do nothing
+    }
+
+    /**
+     * Called when a complete message has been decoded before being passed to a message handler.
+     *
+     * @param durationNanos time in nanoseconds spent in {@link javax.websocket.Decoder}.
+     */
+    default void onMessageDecoded(long durationNanos) {
+        // do nothing
+    }
+
+    /**
+     * Called when an outgoing object has been encoded.
+     *
+     * @param durationNanos time in nanoseconds spent in {@link javax.websocket.Encoder}.
+     */
+    default void onMessageEncoded(long durationNanos) {
+        // do nothing
+    }
+
+    /**
+     * Called when a message handler (including {@link javax.websocket.OnMessage} annotated methods) returns.
+     *
+     * @param durationNanos time in nanoseconds spent in the message handler.
+     */
+    default void onMessageHandled(long durationNanos) {
+        // do nothing
+    }
+
     /**
      * An instance of @MessageEventListener that does not do anything.
      */
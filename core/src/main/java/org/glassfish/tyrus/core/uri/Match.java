@@ -168,21 +168,27 @@ public class Match {
         }
 
         Collections.sort(matches, new MatchComparator(debugContext));
-        debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
-                                        "Endpoints matched to the request URI: ", matches);
+        if (debugContext.isTraceEnabled(LOGGER, Level.FINE)) {
+            debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN,
+                                            "Endpoints matched to the request URI: ", matches);
+        }
         return matches;
     }
 
     private static Match matchPath(String requestPath, TyrusEndpointWrapper endpoint, DebugContext debugContext) {
-        debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "Matching request URI ",
-                                        requestPath, " against ", endpoint.getEndpointPath());
+        final boolean traceEnabled = debugContext.isTraceEnabled(LOGGER, Level.FINE);
+        if (traceEnabled) {
+            debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "Matching request URI ",
+                                            requestPath, " against ", endpoint.getEndpointPath());
+        }
         List<PathSegment> requestPathSegments = UriComponent.decodePath(requestPath, true);
         List<PathSegment> endpointPathSegments = UriComponent.decodePath(endpoint.getEndpointPath(), true);
 
         if (requestPathSegments.size() != endpointPathSegments.size()) {
-            debugContext
-                    .appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "URIs ", requestPath, " and ",
-                                        endpoint.getEndpointPath(), " have different length");
+            if (traceEnabled) {
+                debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "URIs ", requestPath,
+                                                " and ", endpoint.getEndpointPath(), " have different length");
+            }
             return null;
         } else {
             Match m = new Match(endpoint);
@@ -199,8 +205,10 @@ public class Match {
                     somethingMatched = true;
                     m.addParameter(getVariableName(endpointSegment), requestSegment, i);
                 } else {
-                    debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "Segment \"",
-                                                    endpointSegment, "\" does not match");
+                    if (traceEnabled) {
+                        debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "Segment \"",
+                                                        endpointSegment, "\" does not match");
+                    }
                     return null; // no match
                 }
             }
@@ -66,28 +66,35 @@ class MatchComparator implements Comparator<Match>, Serializable {
     // neither wins = return 0
     @Override
     public int compare(Match m1, Match m2) {
-        debugContext
-                .appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, "Choosing better match from ",
-                                    m1, " and ", m2);
+        final boolean traceEnabled = debugContext.isTraceEnabled(LOGGER, Level.FINER);
+        if (traceEnabled) {
+            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN,
+                                            "Choosing better match from ", m1, " and ", m2);
+        }
         boolean m1exact = m1.isExact();
         boolean m2exact = m2.isExact();
 
         if (m1exact) {
             if (m2exact) { // both exact matches, no-one wins
-                debugContext
-                        .appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, "Both ", m1, " and ", m2,
-                                            " are exact matches");
+                if (traceEnabled) {
+                    debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, "Both ", m1,
+                                                    " and ", m2, " are exact matches");
+                }
                 return 0;
             } else { // m2not exact, m1 is, m1 wins
-                debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
-                                                " is an exact match");
+                if (traceEnabled) {
+                    debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
+                                                    " is an exact match");
+                }
                 // m1 is exact match
                 return -1; // m1 wins
             }
         } else { // m1 is not exact, m2 is, m2 wins
             if (m2exact) {
-                debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
-                                                " is an exact match");
+                if (traceEnabled) {
+                    debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
+                                                    " is an exact match");
+                }
                 //m 2 is exact match
                 return 1; //m2 is exact, m1 isn't, so m2 wins
             } else { // neither are exact !
@@ -103,13 +110,17 @@ class MatchComparator implements Comparator<Match>, Serializable {
                 for (int i = 0; i < Math.max(m1Indices.size(), m2Indices.size()); i++) {
 
                     if (i > m2Indices.size() - 1) {
-                        debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
-                                                        " is a  better match, because ", m1, " has more variables");
+                        if (traceEnabled) {
+                            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
+                                                            " is a  better match, because ", m1, " has more variables");
+                        }
                         //m2 wins because m1 has more variables to go.
                         return 1;
                     } else if (i > m1Indices.size() - 1) {
-                        debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
-                                                        " is a  better match, because ", m2, " has more variables");
+                        if (traceEnabled) {
+                            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
+                                                            " is a  better match, because ", m2, " has more variables");
+                        }
                         // m1 wins because m2 has more variables to go
                         return -1; // m1 wins because m2 has more variables to go
                     } else {
@@ -117,13 +128,19 @@ class MatchComparator implements Comparator<Match>, Serializable {
                         int m2Index = m2Indices.get(i);
                         if (m1Index > m2Index) {
                             // m1 wins as it has a larger exact path
-                            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
-                                                            " is a  better match, because it has longer exact path");
+                            if (traceEnabled) {
+                                debugContext.appendTraceMessage(
+                                        LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m1,
+                                        " is a  better match, because it has longer exact path");
+                            }
                             return -1;
                         } else if (m2Index > m1Index) {
                             // m2 wins as it has a larger exact path
-                            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
-                                                            " is a  better match, because it has longer exact path");
+                            if (traceEnabled) {
+                                debugContext.appendTraceMessage(
+                                        LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, m2,
+                                        " is a  better match, because it has longer exact path");
+                            }
                             return 1;
                         }
                     }
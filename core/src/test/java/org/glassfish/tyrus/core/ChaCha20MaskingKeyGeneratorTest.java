@@ -0,0 +1,202 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ChaCha20MaskingKeyGenerator}.
+ * <p/>
+ * {@link #testThroughput()} compares the throughput with the {@link MaskingKeyGenerator#SECURE_RANDOM} generator; it is
+ * run only when the number of keys generated by each thread is set by "tyrus.test.maskingKeys" system property.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class ChaCha20MaskingKeyGeneratorTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ChaCha20MaskingKeyGeneratorTest.class.getName());
+
+    private static final int THREADS = 4;
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Test vector from RFC 7539, section 2.3.2.
+     */
+    @Test
+    public void testBlockFunction() {
+        final int[] state = new int[]{
+                0x61707865, 0x3320646e, 0x79622d32, 0x6b206574,
+                0x03020100, 0x07060504, 0x0b0a0908, 0x0f0e0d0c,
+                0x13121110, 0x17161514, 0x1b1a1918, 0x1f1e1d1c,
+                0x00000001, 0x09000000, 0x4a000000, 0x00000000
+        };
+        final int[] block = new int[16];
+
+        ChaCha20MaskingKeyGenerator.block(state, block);
+
+        assertArrayEquals(new int[]{
+                0xe4e7f110, 0x15593bd1, 0x1fdd0f50, 0xc47120a3,
+                0xc7f4d1c7, 0x0368c033, 0x9aaa2204, 0x4e6cd4c3,
+                0x466482d2, 0x09aa9f07, 0x05d7c214, 0xa2028bd9,
+                0xd19c12b5, 0xb94e16de, 0xe883d0cb, 0x4e3c50a2
+        }, block);
+    }
+
+    @Test
+    public void testForName() {
+        assertTrue(MaskingKeyGenerator.forName("chacha20") instanceof ChaCha20MaskingKeyGenerator);
+        assertTrue(MaskingKeyGenerator.forName("ChaCha20") instanceof ChaCha20MaskingKeyGenerator);
+        assertTrue(MaskingKeyGenerator.forName(MaskingKeyGenerator.SECURE_RANDOM) != null);
+
+        try {
+            MaskingKeyGenerator.forName("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Keys generated across several rekey intervals and threads should collide only as often as random 32-bit values.
+     */
+    @Test
+    public void testUniqueness() throws Exception {
+        final int keysPerThread = ChaCha20MaskingKeyGenerator.REKEY_INTERVAL * 16 * 4;
+        final MaskingKeyGenerator generator = new ChaCha20MaskingKeyGenerator();
+
+        final int[] keys = new int[keysPerThread * THREADS];
+        final Future<?>[] futures = new Future<?>[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int offset = i * keysPerThread;
+            futures[i] = executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < keysPerThread; j++) {
+                        keys[offset + j] = generator.nextInt();
+                    }
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        final int[] bitCounts = new int[32];
+        for (int key : keys) {
+            for (int bit = 0; bit < 32; bit++) {
+                bitCounts[bit] += (key >>> bit) & 1;
+            }
+        }
+        // standard deviation is sqrt(keys.length) / 2 = 1024
+        for (int bitCount : bitCounts) {
+            assertTrue("Unbalanced bit: " + bitCount, Math.abs(bitCount - keys.length / 2) < 10 * 1024);
+        }
+
+        Arrays.sort(keys);
+        int duplicates = 0;
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i] == keys[i - 1]) {
+                duplicates++;
+            }
+        }
+
+        // expected number of colliding pairs is n^2 / 2^33 = 512
+        assertTrue("Too many duplicate keys: " + duplicates, duplicates < 4 * 512);
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        final int keysPerThread = Integer.getInteger("tyrus.test.maskingKeys", 0);
+        Assume.assumeTrue(keysPerThread > 0);
+
+        // warm up
+        measure(new ChaCha20MaskingKeyGenerator(), keysPerThread);
+        measure(MaskingKeyGenerator.forName(MaskingKeyGenerator.SECURE_RANDOM), keysPerThread / 16);
+
+        final long chaCha20 = measure(new ChaCha20MaskingKeyGenerator(), keysPerThread);
+        final long secureRandom = measure(MaskingKeyGenerator.forName(MaskingKeyGenerator.SECURE_RANDOM),
+                                          keysPerThread);
+
+        LOGGER.info(String.format("%d threads, %d keys each: chacha20 %d ms, secureRandom %d ms", THREADS,
+                                  keysPerThread, chaCha20 / 1000000, secureRandom / 1000000));
+    }
+
+    private long measure(final MaskingKeyGenerator generator, final int keysPerThread) throws Exception {
+        final Future<?>[] futures = new Future<?>[THREADS];
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            futures[i] = executorService.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int result = 0;
+                    for (int j = 0; j < keysPerThread; j++) {
+                        result ^= generator.nextInt();
+                    }
+                    return result;
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link DebugContext}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class DebugContextTest {
+
+    private static final Logger LOGGER = Logger.getLogger(DebugContextTest.class.getName());
+
+    @Test
+    public void testDisabled() {
+        final Level level = LOGGER.getLevel();
+        LOGGER.setLevel(Level.INFO);
+        try {
+            final DebugContext debugContext = new DebugContext();
+            final CountingPart part = new CountingPart();
+
+            assertFalse(debugContext.isTraceEnabled(LOGGER, Level.FINE));
+            debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "part: ", part);
+            debugContext.appendLogMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "part: ", part);
+
+            assertEquals(0, part.count.get());
+            assertTrue(debugContext.getTracingHeaders().isEmpty());
+            debugContext.flush();
+        } finally {
+            LOGGER.setLevel(level);
+        }
+    }
+
+    @Test
+    public void testTracing() {
+        final Level level = LOGGER.getLevel();
+        LOGGER.setLevel(Level.INFO);
+        try {
+            final DebugContext debugContext = new DebugContext(DebugContext.TracingThreshold.SUMMARY);
+            final CountingPart part = new CountingPart();
+
+            assertTrue(debugContext.isTraceEnabled(LOGGER, Level.FINE));
+            assertFalse(debugContext.isTraceEnabled(LOGGER, Level.FINER));
+
+            debugContext.appendTraceMessage(LOGGER, Level.FINER, DebugContext.Type.MESSAGE_IN, "part: ", part);
+            assertEquals(0, part.count.get());
+
+            debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "part: ", part);
+            assertEquals(1, part.count.get());
+
+            final Map<String, List<String>> headers = debugContext.getTracingHeaders();
+            assertEquals(1, headers.size());
+            assertTrue(headers.values().iterator().next().get(0).endsWith("part: counted"));
+        } finally {
+            LOGGER.setLevel(level);
+        }
+    }
+
+    @Test
+    public void testTracingAndLoggingComposeMessageOnce() {
+        final Level level = LOGGER.getLevel();
+        final CollectingHandler handler = new CollectingHandler();
+        LOGGER.setLevel(Level.FINE);
+        LOGGER.addHandler(handler);
+        try {
+            final DebugContext debugContext = new DebugContext(DebugContext.TracingThreshold.TRACE);
+            final CountingPart part = new CountingPart();
+
+            debugContext.appendTraceMessage(LOGGER, Level.FINE, DebugContext.Type.MESSAGE_IN, "part: ", part);
+            assertEquals(1, part.count.get());
+            assertEquals(1, debugContext.getTracingHeaders().size());
+
+            // log records are postponed until the session ID is known
+            assertEquals(0, handler.count.get());
+            debugContext.setSessionId("session");
+            assertEquals(1, handler.count.get());
+        } finally {
+            LOGGER.removeHandler(handler);
+            LOGGER.setLevel(level);
+        }
+    }
+
+    private static class CountingPart {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            count.incrementAndGet();
+            return "counted";
+        }
+    }
+
+    private static class CollectingHandler extends Handler {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void publish(LogRecord record) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
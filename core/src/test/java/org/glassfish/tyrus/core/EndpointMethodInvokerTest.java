@@ -0,0 +1,244 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link EndpointMethodInvoker}.
+ * <p/>
+ * {@link #testInvocationOverhead()} compares per-message overhead of the invoker with reflective invocation used before;
+ * it is run only when the number of iterations is set by "tyrus.test.invoker.iterations" system property.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class EndpointMethodInvokerTest {
+
+    private static final Logger LOGGER = Logger.getLogger(EndpointMethodInvokerTest.class.getName());
+
+    private static final AnnotatedEndpoint.ParameterExtractor MESSAGE = new AnnotatedEndpoint.ParamValue(0);
+    private static final AnnotatedEndpoint.ParameterExtractor LAST = new AnnotatedEndpoint.ParamValue(1);
+
+    @Test
+    public void testParameters() throws Exception {
+        final Endpoint endpoint = new Endpoint();
+
+        assertEquals("open", invoker("onOpen").invoke(endpoint, null, null, null));
+        assertEquals("hello", invoker("onMessage", MESSAGE).invoke(endpoint, null, "hello", null));
+        assertEquals("hello:true", invoker("onPartial", MESSAGE, LAST).invoke(endpoint, null, "hello", true));
+        assertNull(invoker("onVoid", MESSAGE).invoke(endpoint, null, "hello", null));
+        assertEquals("hello", endpoint.received);
+        assertEquals(6, invoker("onPrimitive", MESSAGE).invoke(endpoint, null, 5, null));
+        assertEquals("static", invoker("onStatic").invoke(endpoint, null, null, null));
+        assertEquals("ababa", invoker("onFive", MESSAGE, LAST, MESSAGE, LAST, MESSAGE)
+                .invoke(endpoint, null, "a", "b"));
+    }
+
+    @Test
+    public void testException() throws Exception {
+        try {
+            invoker("onThrow", MESSAGE).invoke(new Endpoint(), null, "error", null);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("error", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testNonPublicClass() throws Exception {
+        final Method method = NonPublicEndpoint.class.getMethod("onMessage", String.class);
+        final EndpointMethodInvoker invoker =
+                EndpointMethodInvoker.create(method, new AnnotatedEndpoint.ParameterExtractor[]{MESSAGE});
+
+        assertEquals("hello", invoker.invoke(new NonPublicEndpoint(), null, "hello", null));
+    }
+
+    @Test
+    public void testArgumentMismatch() throws Exception {
+        final Endpoint endpoint = new Endpoint();
+        final Object[][] invalid = {
+                // null passed as primitive value
+                {invoker("onPrimitive", MESSAGE), null},
+                // wrong parameter type
+                {invoker("onMessage", MESSAGE), 1},
+                // reflective invoker
+                {invoker("onFive", MESSAGE, MESSAGE, MESSAGE, MESSAGE, MESSAGE), 1}};
+
+        for (Object[] test : invalid) {
+            try {
+                ((EndpointMethodInvoker) test[0]).invoke(endpoint, null, test[1], null);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected, the method has not been invoked
+            }
+        }
+    }
+
+    @Test
+    public void testErrorFromMethod() throws Exception {
+        try {
+            invoker("onStackOverflow").invoke(new Endpoint(), null, null, null);
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    @Test
+    public void testInvocationOverhead() throws Exception {
+        final int iterations = Integer.getInteger("tyrus.test.invoker.iterations", 0);
+        Assume.assumeTrue(iterations > 0);
+
+        final Endpoint endpoint = new Endpoint();
+        final Method method = Endpoint.class.getMethod("onPartial", String.class, boolean.class);
+        final AnnotatedEndpoint.ParameterExtractor[] extractors = {MESSAGE, LAST};
+        final EndpointMethodInvoker invoker = EndpointMethodInvoker.create(method, extractors);
+
+        // warm up both
+        reflective(endpoint, method, extractors, iterations);
+        direct(endpoint, invoker, iterations);
+
+        long start = System.nanoTime();
+        reflective(endpoint, method, extractors, iterations);
+        final long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        direct(endpoint, invoker, iterations);
+        final long direct = System.nanoTime() - start;
+
+        LOGGER.info(String.format("%d invocations: Method.invoke %d ms (%.1f ns/call), invoker %d ms (%.1f ns/call).",
+                                  iterations, TimeUnit.NANOSECONDS.toMillis(reflective), (double) reflective / iterations,
+                                  TimeUnit.NANOSECONDS.toMillis(direct), (double) direct / iterations));
+    }
+
+    /**
+     * Invocation as it was done before {@link EndpointMethodInvoker} was introduced.
+     */
+    private static int reflective(Endpoint endpoint, Method method, AnnotatedEndpoint.ParameterExtractor[] extractors,
+                                  int iterations) throws Exception {
+        int length = 0;
+        for (int i = 0; i < iterations; i++) {
+            final Object[] params = new Object[]{"message", true};
+            final Object[] paramValues = new Object[extractors.length];
+            for (int j = 0; j < paramValues.length; j++) {
+                paramValues[j] = extractors[j].value(null, params[0], params[1]);
+            }
+            length += ((String) method.invoke(endpoint, paramValues)).length();
+        }
+        return length;
+    }
+
+    private static int direct(Endpoint endpoint, EndpointMethodInvoker invoker, int iterations) throws Exception {
+        int length = 0;
+        for (int i = 0; i < iterations; i++) {
+            length += ((String) invoker.invoke(endpoint, null, "message", true)).length();
+        }
+        return length;
+    }
+
+    private static EndpointMethodInvoker invoker(String methodName, AnnotatedEndpoint.ParameterExtractor... extractors)
+            throws NoSuchMethodException {
+        for (Method method : Endpoint.class.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                return EndpointMethodInvoker.create(method, extractors);
+            }
+        }
+        throw new NoSuchMethodException(methodName);
+    }
+
+    public static class Endpoint {
+
+        private volatile String received;
+
+        public String onOpen() {
+            return "open";
+        }
+
+        public String onMessage(String message) {
+            return message;
+        }
+
+        public String onPartial(String message, boolean last) {
+            return message + ":" + last;
+        }
+
+        public void onVoid(String message) {
+            received = message;
+        }
+
+        public int onPrimitive(int i) {
+            return i + 1;
+        }
+
+        public static String onStatic() {
+            return "static";
+        }
+
+        public String onFive(String a, String b, String c, String d, String e) {
+            return a + b + c + d + e;
+        }
+
+        public void onThrow(String message) {
+            throw new IllegalStateException(message);
+        }
+
+        public void onStackOverflow() {
+            throw new StackOverflowError();
+        }
+    }
+
+    static class NonPublicEndpoint {
+
+        public String onMessage(String message) {
+            return message;
+        }
+    }
+}
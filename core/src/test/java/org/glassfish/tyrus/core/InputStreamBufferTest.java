@@ -0,0 +1,220 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.MessageHandler;
+
+import org.glassfish.tyrus.spi.Connection;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests streaming mode of {@link InputStreamBuffer}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class InputStreamBufferTest {
+
+    private static final int PART_SIZE = 8;
+    private static final int PARTS = 4;
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testWindowBlocksAppending() throws Exception {
+        final CountDownLatch readAllowed = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        final InputStreamBuffer buffer = new InputStreamBuffer(executorService, null);
+        // maximal message size is smaller than the message
+        buffer.resetBuffer(PART_SIZE, PART_SIZE);
+        buffer.setMessageHandler(new MessageHandler.Whole<InputStream>() {
+            @Override
+            public void onMessage(InputStream message) {
+                try {
+                    readAllowed.await();
+                    int b;
+                    while ((b = message.read()) != -1) {
+                        received.write(b);
+                    }
+                } catch (Exception e) {
+                    // received data are checked
+                }
+                done.countDown();
+            }
+        });
+
+        final AtomicInteger appended = new AtomicInteger();
+        final Thread appender = append(buffer, appended);
+
+        Thread.sleep(200);
+        assertEquals(1, appended.get());
+
+        readAllowed.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        appender.join(5000);
+        assertEquals(PARTS, appended.get());
+        assertArrayEquals(message(), received.toByteArray());
+    }
+
+    @Test
+    public void testUnreadDataDiscarded() throws Exception {
+        final InputStreamBuffer buffer = new InputStreamBuffer(executorService, null);
+        buffer.resetBuffer(Integer.MAX_VALUE, PART_SIZE);
+        buffer.setMessageHandler(new MessageHandler.Whole<InputStream>() {
+            @Override
+            public void onMessage(InputStream message) {
+                // do not read
+            }
+        });
+
+        final AtomicInteger appended = new AtomicInteger();
+        final Thread appender = append(buffer, appended);
+
+        appender.join(5000);
+        assertFalse(appender.isAlive());
+        assertEquals(PARTS, appended.get());
+    }
+
+    @Test
+    public void testWindowPausesReading() throws Exception {
+        final AtomicInteger paused = new AtomicInteger();
+        final ProtocolHandler protocolHandler = new ProtocolHandler(false, null);
+        protocolHandler.setReadControl(new Connection.ReadControl() {
+            @Override
+            public void pause() {
+                paused.incrementAndGet();
+            }
+
+            @Override
+            public void resume() {
+                paused.decrementAndGet();
+            }
+        });
+
+        final CountDownLatch readAllowed = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        final InputStreamBuffer buffer = new InputStreamBuffer(executorService, protocolHandler);
+        buffer.resetBuffer(PART_SIZE, PART_SIZE);
+        buffer.setMessageHandler(new MessageHandler.Whole<InputStream>() {
+            @Override
+            public void onMessage(InputStream message) {
+                try {
+                    readAllowed.await();
+                    int b;
+                    while ((b = message.read()) != -1) {
+                        received.write(b);
+                    }
+                } catch (Exception e) {
+                    // received data are checked
+                }
+                done.countDown();
+            }
+        });
+
+        final byte[] message = message();
+        buffer.appendMessagePart(ByteBuffer.wrap(message, 0, PART_SIZE).slice(), false);
+        assertEquals(0, paused.get());
+
+        // appending does not block, reading is paused instead
+        for (int i = 1; i < PARTS; i++) {
+            buffer.appendMessagePart(ByteBuffer.wrap(message, i * PART_SIZE, PART_SIZE).slice(), i == PARTS - 1);
+            assertEquals(1, paused.get());
+        }
+
+        readAllowed.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(message, received.toByteArray());
+
+        // reading is resumed once the handler returns
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (paused.get() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, paused.get());
+    }
+
+    private static Thread append(final InputStreamBuffer buffer, final AtomicInteger appended) {
+        final byte[] message = message();
+        final Thread appender = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < PARTS; i++) {
+                    buffer.appendMessagePart(ByteBuffer.wrap(message, i * PART_SIZE, PART_SIZE).slice(),
+                                             i == PARTS - 1);
+                    appended.incrementAndGet();
+                }
+            }
+        };
+        appender.start();
+        return appender;
+    }
+
+    private static byte[] message() {
+        final byte[] message = new byte[PART_SIZE * PARTS];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) i;
+        }
+        return message;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.tyrus.spi.Connection;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MessageDispatcher}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class MessageDispatcherTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testOrdering() throws Exception {
+        final int messages = 1000;
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(messages);
+
+        final MessageDispatcher dispatcher = new MessageDispatcher(executorService, null, 0);
+        for (int i = 0; i < messages; i++) {
+            final int message = i;
+            dispatcher.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    received.add(message);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < messages; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+    }
+
+    @Test
+    public void testSlowSessionDoesNotBlockOthers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        final MessageDispatcher slow = new MessageDispatcher(executorService, null, 0);
+        final MessageDispatcher fast = new MessageDispatcher(executorService, null, 0);
+
+        slow.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // do nothing
+                }
+            }
+        });
+        fast.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, slow.getQueueDepth());
+        release.countDown();
+    }
+
+    @Test
+    public void testCapacityPausesReading() throws Exception {
+        final AtomicInteger paused = new AtomicInteger();
+        final ProtocolHandler protocolHandler = new ProtocolHandler(false, null);
+        protocolHandler.setReadControl(new Connection.ReadControl() {
+            @Override
+            public void pause() {
+                paused.incrementAndGet();
+            }
+
+            @Override
+            public void resume() {
+                paused.decrementAndGet();
+            }
+        });
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // do nothing
+                }
+            }
+        };
+
+        final MessageDispatcher dispatcher = new MessageDispatcher(executorService, protocolHandler, 2);
+        dispatcher.dispatch(blocked);
+        dispatcher.dispatch(blocked);
+        assertEquals(0, paused.get());
+
+        dispatcher.dispatch(blocked);
+        assertEquals(1, paused.get());
+        assertEquals(3, dispatcher.getQueueDepth());
+
+        release.countDown();
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getQueueDepth() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(0, paused.get());
+    }
+
+    @Test
+    public void testDispatchIfPending() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final MessageDispatcher dispatcher = new MessageDispatcher(executorService, null, 0);
+
+        assertFalse(dispatcher.dispatchIfPending(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }));
+
+        dispatcher.dispatch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // do nothing
+                }
+            }
+        });
+
+        assertTrue(dispatcher.dispatchIfPending(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        }));
+        assertEquals(1, done.getCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
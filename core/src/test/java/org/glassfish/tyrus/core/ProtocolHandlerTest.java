@@ -0,0 +1,517 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
+import org.glassfish.tyrus.core.frame.BinaryFrame;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.glassfish.tyrus.core.frame.PingFrame;
+import org.glassfish.tyrus.core.frame.TextFrame;
+import org.glassfish.tyrus.spi.CompletionHandler;
+import org.glassfish.tyrus.spi.Writer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests framing of binary messages written to {@link PayloadOutputStream} and of streamed binary messages.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class ProtocolHandlerTest {
+
+    private static final int[] LENGTHS = {0, 1, 125, 126, 0xFFFF, 0x10000, 100000};
+    private static final int[] STREAMED_LENGTHS = {0, 1, 126, ProtocolHandler.STREAM_CHUNK_SIZE,
+            ProtocolHandler.STREAM_CHUNK_SIZE * 2 + 3};
+
+    private static final MaskingKeyGenerator MASKING_KEY_GENERATOR = new MaskingKeyGenerator() {
+        @Override
+        public int nextInt() {
+            return 0x12345678;
+        }
+    };
+
+    @Test
+    public void testServerFrame() {
+        for (int length : LENGTHS) {
+            assertSameFrame(new ProtocolHandler(false, null), new ProtocolHandler(false, null), length);
+        }
+    }
+
+    @Test
+    public void testClientFrame() {
+        for (int length : LENGTHS) {
+            assertSameFrame(new ProtocolHandler(true, MASKING_KEY_GENERATOR),
+                            new ProtocolHandler(true, MASKING_KEY_GENERATOR), length);
+        }
+    }
+
+    @Test
+    public void testStreamedServerFrame() throws IOException {
+        for (int length : STREAMED_LENGTHS) {
+            assertSameStreamedFrame(new ProtocolHandler(false, null), new ProtocolHandler(false, null), length);
+        }
+    }
+
+    @Test
+    public void testStreamedClientFrame() throws IOException {
+        for (int length : STREAMED_LENGTHS) {
+            assertSameStreamedFrame(new ProtocolHandler(true, MASKING_KEY_GENERATOR),
+                                    new ProtocolHandler(true, MASKING_KEY_GENERATOR), length);
+        }
+    }
+
+    @Test
+    public void testStreamFragmentInPlace() throws IOException {
+        final byte[] payload = payload(300);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ProtocolHandler expectedHandler = new ProtocolHandler(false, null);
+        expectedHandler.setWriter(new CollectingWriter(expected));
+        expectedHandler.stream(false, payload, 0, 200);
+        expectedHandler.stream(true, payload, 200, 100);
+        expectedHandler.stream(false, "abc");
+        expectedHandler.stream(true, "d");
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        handler.setWriter(new CollectingWriter(written));
+        final PayloadOutputStream stream = new PayloadOutputStream(200);
+        stream.write(payload, 0, 200);
+        handler.stream(false, false, stream);
+        stream.reset();
+        stream.write(payload, 200, 100);
+        handler.stream(true, false, stream);
+        stream.reset();
+        stream.write("abc".getBytes("UTF-8"));
+        handler.stream(false, true, stream);
+        stream.reset();
+        stream.write('d');
+        handler.stream(true, true, stream);
+
+        assertArrayEquals(expected.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    public void testWriteDeferredWhileStreaming() throws IOException {
+        final ProtocolHandler expectedHandler = new ProtocolHandler(false, null);
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final byte[] payload = payload(1000);
+        final byte[] ping = {1, 2, 3};
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        handler.setWriter(new CollectingWriter(written) {
+
+            private boolean pingSent = false;
+
+            @Override
+            public void write(ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+                super.write(buffer, completionHandler);
+                if (!pingSent) {
+                    // control frame sent in the middle of the streamed frame
+                    pingSent = true;
+                    handler.send(new PingFrame(ping));
+                }
+            }
+        });
+
+        handler.sendStream(Channels.newChannel(new ByteArrayInputStream(payload)), payload.length);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(payload, false, true))));
+        expected.write(Utils.getRemainingArray(expectedHandler.frame(new PingFrame(ping))));
+        assertArrayEquals(expected.toByteArray(), written.toByteArray());
+    }
+
+    @Test
+    public void testDeferredWriteCompletionSendsAgain() throws IOException {
+        final ProtocolHandler expectedHandler = new ProtocolHandler(false, null);
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final byte[] payload = payload(1000);
+        final byte[] first = {1, 2, 3};
+        final byte[] second = {4, 5, 6};
+
+        final SendHandler sendAgain = new SendHandler() {
+
+            private boolean sent = false;
+
+            @Override
+            public void onResult(SendResult result) {
+                assertTrue(result.isOK());
+                if (!sent) {
+                    // sent from the completion of the deferred write, in the thread replaying deferred writes
+                    sent = true;
+                    handler.send(second, this);
+                }
+            }
+        };
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        handler.setWriter(new CollectingWriter(written) {
+
+            private boolean firstSent = false;
+
+            @Override
+            public void write(ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+                super.write(buffer, completionHandler);
+                if (!firstSent) {
+                    firstSent = true;
+                    handler.send(first, sendAgain);
+                }
+            }
+        });
+
+        handler.sendStream(Channels.newChannel(new ByteArrayInputStream(payload)), payload.length);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(payload, false, true))));
+        expected.write(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(first, false, true))));
+        expected.write(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(second, false, true))));
+        assertArrayEquals(expected.toByteArray(), written.toByteArray());
+
+        // writes are no longer deferred
+        written.reset();
+        handler.send(first, sendAgain);
+        assertArrayEquals(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(first, false, true))),
+                          written.toByteArray());
+    }
+
+    @Test
+    public void testStreamDoesNotBlockOtherSenders() throws Exception {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final byte[] payload = payload(ProtocolHandler.STREAM_CHUNK_SIZE * 2);
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch payloadWritten = new CountDownLatch(1);
+        final CountDownLatch completePayload = new CountDownLatch(1);
+        handler.setWriter(new CollectingWriter(written) {
+            @Override
+            public void write(final ByteBuffer buffer, final CompletionHandler<ByteBuffer> completionHandler) {
+                if (buffer.remaining() < payload.length) {
+                    super.write(buffer, completionHandler);
+                    return;
+                }
+
+                // payload write completes when the test allows it
+                synchronized (written) {
+                    written.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                }
+                payloadWritten.countDown();
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            completePayload.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        completionHandler.completed(buffer);
+                    }
+                }.start();
+            }
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> stream = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    handler.sendStream(ByteBuffer.wrap(payload));
+                    return null;
+                }
+            });
+            assertTrue(payloadWritten.await(3, TimeUnit.SECONDS));
+
+            // other thread is not blocked by the streamed message, its frame is written after the streamed one
+            final Future<Future<Frame>> text = executor.submit(new Callable<Future<Frame>>() {
+                @Override
+                public Future<Frame> call() {
+                    return handler.send("text");
+                }
+            });
+            final Future<Frame> textWrite = text.get(3, TimeUnit.SECONDS);
+            assertFalse(textWrite.isDone());
+            assertFalse(stream.isDone());
+
+            completePayload.countDown();
+            stream.get(3, TimeUnit.SECONDS);
+            textWrite.get(3, TimeUnit.SECONDS);
+
+            final ProtocolHandler expectedHandler = new ProtocolHandler(false, null);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write(Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(payload, false, true))));
+            expected.write(Utils.getRemainingArray(expectedHandler.frame(new TextFrame("text", false, true))));
+            synchronized (written) {
+                assertArrayEquals(expected.toByteArray(), written.toByteArray());
+            }
+        } finally {
+            completePayload.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamWriteTimeout() throws IOException {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final boolean[] closed = new boolean[1];
+        handler.setWriter(new CollectingWriter(new ByteArrayOutputStream()) {
+            @Override
+            public void write(ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+                // write never completes
+            }
+
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        });
+        handler.setWriteTimeout(100);
+
+        try {
+            handler.sendStream(ByteBuffer.wrap(payload(10)));
+            fail();
+        } catch (SocketTimeoutException e) {
+            // expected
+        }
+
+        // frame cannot be completed, so the connection is closed
+        assertTrue(closed[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamedPayloadTooShort() throws IOException {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        handler.setWriter(new CollectingWriter(new ByteArrayOutputStream()));
+
+        handler.sendStream(Channels.newChannel(new ByteArrayInputStream(payload(10))), 11);
+    }
+
+    @Test
+    public void testPayloadOutputStream() {
+        final PayloadOutputStream stream = new PayloadOutputStream(1);
+
+        stream.write('a');
+        stream.write(new byte[]{'b', 'c'}, 0, 2);
+        final ByteBuffer source = ByteBuffer.wrap(new byte[]{'x', 'd', 'e'}, 1, 2);
+        stream.write(source);
+        final ByteBuffer view = stream.reserve(3);
+        view.put((byte) 'f');
+        stream.commit(view);
+
+        assertEquals(1, source.position());
+        assertEquals(6, stream.getPayloadLength());
+        assertArrayEquals(new byte[]{'a', 'b', 'c', 'd', 'e', 'f'}, stream.toByteArray());
+    }
+
+    @Test
+    public void testHibernate() {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final int[] released = new int[1];
+        handler.setReadBuffer(new ProtocolHandler.ReadBuffer() {
+            @Override
+            public int getRetainedSize() {
+                return released[0] == 0 ? 1024 : 0;
+            }
+
+            @Override
+            public boolean release() {
+                released[0]++;
+                return true;
+            }
+        });
+        assertEquals(1024, handler.getRetainedSize());
+
+        handler.startRead();
+        assertFalse(handler.hibernate());
+        handler.finishRead();
+
+        // frame header without payload
+        final ByteBuffer frame = new ProtocolHandler(true, MASKING_KEY_GENERATOR)
+                .frame(new BinaryFrame(payload(100), false, true));
+        handler.unframe(ByteBuffer.wrap(Utils.getRemainingArray(frame), 0, 6));
+        assertFalse(handler.hibernate());
+        assertEquals(0, released[0]);
+
+        handler.unframe(ByteBuffer.wrap(Utils.getRemainingArray(frame), 6, frame.remaining() - 6));
+        assertTrue(handler.hibernate());
+        assertEquals(1, released[0]);
+        assertEquals(0, handler.getRetainedSize());
+
+        // reading is possible after hibernation
+        handler.startRead();
+        handler.finishRead();
+    }
+
+    @Test
+    public void testFrameTooBigRejectedBeforePayload() {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        handler.setMaxMessageSize(Integer.MAX_VALUE, 1000);
+
+        final byte[] frame = Utils.getRemainingArray(
+                new ProtocolHandler(true, MASKING_KEY_GENERATOR).frame(new BinaryFrame(payload(2000), false, true)));
+
+        // frame header only
+        try {
+            handler.unframe(ByteBuffer.wrap(frame, 0, 8));
+            fail();
+        } catch (MessageTooBigException e) {
+            assertEquals(CloseReason.CloseCodes.TOO_BIG, e.getCloseReason().getCloseCode());
+        }
+
+        // text limit does not apply to binary frames
+        final ProtocolHandler textLimited = new ProtocolHandler(false, null);
+        textLimited.setMaxMessageSize(1000, Integer.MAX_VALUE);
+        assertEquals(2000, textLimited.unframe(ByteBuffer.wrap(frame)).getPayloadLength());
+    }
+
+    @Test
+    public void testRetainRemainingReservesFrame() {
+        final ProtocolHandler handler = new ProtocolHandler(false, null);
+        final byte[] frame = Utils.getRemainingArray(
+                new ProtocolHandler(true, MASKING_KEY_GENERATOR).frame(new BinaryFrame(payload(10000), false, true)));
+
+        final ByteBuffer data = ByteBuffer.wrap(frame, 0, 1000);
+        assertNull(handler.unframe(data));
+        final ByteBuffer retained = handler.retainRemaining(null, data, 65536);
+        assertEquals(10000, retained.capacity());
+        assertEquals(992, retained.remaining());
+
+        // the rest of the frame fits into the reserved buffer
+        final ByteBuffer appended = Utils.appendBuffers(retained, ByteBuffer.wrap(frame, 1000, frame.length - 1000),
+                                                        65536, 256);
+        assertSame(retained, appended);
+        final Frame received = handler.unframe(appended);
+        assertEquals(10000, received.getPayloadLength());
+        assertArrayEquals(payload(10000), received.getPayloadData());
+
+        // frame which would not fit into the read buffer is rejected before its payload is read
+        final ByteBuffer header = ByteBuffer.wrap(frame, 0, 8);
+        assertNull(handler.unframe(header));
+        try {
+            handler.retainRemaining(null, header, 5000);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void assertSameStreamedFrame(ProtocolHandler expectedHandler, ProtocolHandler handler, int length)
+            throws IOException {
+        final byte[] payload = payload(length);
+        final byte[] expected = Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(payload, false, true)));
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        handler.setWriter(new CollectingWriter(written));
+        handler.sendStream(Channels.newChannel(new ByteArrayInputStream(payload)), length);
+        assertArrayEquals("Streamed frame with payload length " + length, expected, written.toByteArray());
+
+        written.reset();
+        handler.sendStream(ByteBuffer.wrap(payload));
+        assertArrayEquals("Frame with payload buffer length " + length, expected, written.toByteArray());
+    }
+
+    private static byte[] payload(int length) {
+        final byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    private static void assertSameFrame(ProtocolHandler expectedHandler, ProtocolHandler handler, int length) {
+        final byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        final PayloadOutputStream stream = new PayloadOutputStream();
+        stream.write(payload, 0, length);
+
+        final byte[] expected = Utils.getRemainingArray(expectedHandler.frame(new BinaryFrame(payload, false, true)));
+        final ByteBuffer frame = handler.frame(stream);
+
+        assertArrayEquals("Frame with payload length " + length, expected, Utils.getRemainingArray(frame));
+        // payload was not copied
+        assertSame(stream.getBuffer(), frame.array());
+    }
+
+    private static class CollectingWriter extends Writer {
+
+        private final ByteArrayOutputStream written;
+
+        private CollectingWriter(ByteArrayOutputStream written) {
+            this.written = written;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, CompletionHandler<ByteBuffer> completionHandler) {
+            synchronized (written) {
+                written.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            completionHandler.completed(buffer);
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.glassfish.tyrus.core.TyrusEndpointWrapper.SessionListener.OnOpenResult;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link SessionLimits}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class SessionLimitsTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionLimitsTest.class.getName());
+
+    private static final int THREADS = 64;
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testMaxSessionsPerApp() {
+        final SessionLimits sessionLimits = new SessionLimits(2, null, null);
+
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.1"));
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.2"));
+        assertEquals(OnOpenResult.MAX_SESSIONS_PER_APP_EXCEEDED, sessionLimits.onOpen("10.0.0.3"));
+
+        sessionLimits.onClose("10.0.0.1");
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.3"));
+        assertEquals(2, sessionLimits.getSessionCount());
+    }
+
+    @Test
+    public void testMaxSessionsPerRemoteAddr() {
+        final SessionLimits sessionLimits = new SessionLimits(3, 2, null);
+
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.1"));
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.1"));
+        assertEquals(OnOpenResult.MAX_SESSIONS_PER_REMOTE_ADDR_EXCEEDED, sessionLimits.onOpen("10.0.0.1"));
+
+        // refused session is not counted against the application limit
+        assertEquals(2, sessionLimits.getSessionCount());
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("10.0.0.2"));
+
+        sessionLimits.onClose("10.0.0.1");
+        sessionLimits.onClose("10.0.0.1");
+        assertEquals(0, sessionLimits.getSessionCount("10.0.0.1"));
+        assertEquals(1, sessionLimits.getSessionCount("10.0.0.2"));
+    }
+
+    @Test
+    public void testIpv6Prefix() {
+        final SessionLimits sessionLimits = new SessionLimits(null, 2, 64);
+
+        assertEquals("2001:db8:0:0:0:0:0:0/64", sessionLimits.remoteAddressKey("2001:db8::1"));
+        assertEquals("2001:db8:0:0:0:0:0:0/64", sessionLimits.remoteAddressKey("[2001:db8:0:0:ffff::2]"));
+        assertEquals("2001:db8:0:1:0:0:0:0/64", sessionLimits.remoteAddressKey("2001:db8:0:1::1%eth0"));
+        assertEquals("10.0.0.1", sessionLimits.remoteAddressKey("10.0.0.1"));
+        assertEquals("10.0.0.1", sessionLimits.remoteAddressKey("::ffff:10.0.0.1"));
+        assertEquals("not:an:address", sessionLimits.remoteAddressKey("not:an:address"));
+
+        assertEquals("2001:db8:ab00:0:0:0:0:0/40", new SessionLimits(null, 1, 40).remoteAddressKey("2001:db8:abcd::"));
+        assertEquals("2001:db8::1", new SessionLimits(null, 1, null).remoteAddressKey("2001:db8::1"));
+
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("2001:db8::1"));
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("2001:db8::2"));
+        assertEquals(OnOpenResult.MAX_SESSIONS_PER_REMOTE_ADDR_EXCEEDED, sessionLimits.onOpen("2001:db8::3"));
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("2001:db8:0:1::1"));
+
+        sessionLimits.onClose("2001:db8::2");
+        assertEquals(OnOpenResult.SESSION_ALLOWED, sessionLimits.onOpen("2001:db8::3"));
+    }
+
+    /**
+     * {@value #THREADS} threads opening and closing sessions from a handful of addresses. Limits must hold at any time
+     * and all counters must be released afterwards.
+     */
+    @Test
+    public void testContention() throws Exception {
+        final int iterations = 20000;
+        final int addresses = 8;
+        final int maxSessionsPerApp = 6;
+        final int maxSessionsPerRemoteAddr = 1;
+
+        final SessionLimits sessionLimits = new SessionLimits(maxSessionsPerApp, maxSessionsPerRemoteAddr, null);
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger[] openPerAddress = new AtomicInteger[addresses];
+        for (int i = 0; i < addresses; i++) {
+            openPerAddress[i] = new AtomicInteger();
+        }
+        final AtomicInteger violations = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        final Future<?>[] futures = new Future<?>[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            futures[i] = executorService.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    startLatch.await();
+
+                    int allowed = 0;
+                    for (int j = 0; j < iterations; j++) {
+                        final int address = (thread + j) % addresses;
+                        final String remoteAddr = "10.0.0." + address;
+
+                        if (sessionLimits.onOpen(remoteAddr) == OnOpenResult.SESSION_ALLOWED) {
+                            allowed++;
+                            if (open.incrementAndGet() > maxSessionsPerApp
+                                    || openPerAddress[address].incrementAndGet() > maxSessionsPerRemoteAddr) {
+                                violations.incrementAndGet();
+                            }
+                            Thread.yield();
+                            openPerAddress[address].decrementAndGet();
+                            open.decrementAndGet();
+                            sessionLimits.onClose(remoteAddr);
+                        }
+                    }
+                    return allowed;
+                }
+            });
+        }
+
+        final long start = System.nanoTime();
+        startLatch.countDown();
+        int allowed = 0;
+        for (Future<?> future : futures) {
+            allowed += (Integer) future.get();
+        }
+        final long duration = System.nanoTime() - start;
+
+        LOGGER.info(String.format("%d threads, %d open attempts: %d allowed, %d ms", THREADS, THREADS * iterations,
+                                  allowed, duration / 1000000));
+
+        assertEquals(0, violations.get());
+        assertTrue(allowed > 0);
+        assertTrue(allowed < THREADS * iterations);
+        assertEquals(0, sessionLimits.getSessionCount());
+        for (int i = 0; i < addresses; i++) {
+            assertEquals(0, sessionLimits.getSessionCount("10.0.0." + i));
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.core;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link TrafficShaper}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class TrafficShaperTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testTokenBucket() {
+        final TrafficShaper.TokenBucket bucket = new TrafficShaper.TokenBucket(1000, 100);
+        final long start = System.nanoTime();
+
+        assertEquals(0, bucket.delay(start));
+
+        // overdrawn to -100, 101 tokens (101 ms) needed
+        bucket.consume(200, start);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(101), bucket.delay(start));
+
+        assertEquals(0, bucket.delay(start + TimeUnit.MILLISECONDS.toNanos(101)));
+    }
+
+    @Test
+    public void testTokenBucketLongIdle() {
+        final TrafficShaper.TokenBucket bucket = new TrafficShaper.TokenBucket(1000000000L, 100);
+        final long start = System.nanoTime();
+
+        bucket.consume(200, start);
+        assertTrue(bucket.delay(start) > 0);
+
+        // elapsed time multiplied by the rate does not fit into a long
+        final long later = start + TimeUnit.SECONDS.toNanos(100);
+        assertEquals(0, bucket.delay(later));
+
+        // the bucket is full, idle time is not counted again
+        bucket.consume(200, later);
+        assertTrue(bucket.delay(later) > 0);
+    }
+
+    @Test
+    public void testTryConsume() {
+        final TrafficShaper.TokenBucket bucket = new TrafficShaper.TokenBucket(1000, 100);
+        final long start = System.nanoTime();
+
+        assertEquals(0, bucket.tryConsume(200, start));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(101), bucket.tryConsume(200, start));
+
+        // tokens were not taken by the refused attempt
+        assertEquals(0, bucket.tryConsume(200, start + TimeUnit.MILLISECONDS.toNanos(101)));
+    }
+
+    @Test
+    public void testRate() throws Exception {
+        final int messages = 10;
+        final CountDownLatch sentLatch = new CountDownLatch(messages);
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+
+        // 1 message may be sent immediately, the rest at 20 messages per second
+        final TrafficShaper shaper =
+                new TrafficShaper(new TrafficShaper.TokenBucket(2000, 100), null, scheduler, null);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            shaper.send(null, 100, new RecordingMessage(i, sent), new CountingHandler(sentLatch, null));
+        }
+
+        assertTrue(shaper.getQueueDepth() > 0);
+        assertTrue(sentLatch.await(5, TimeUnit.SECONDS));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        for (int i = 0; i < messages; i++) {
+            assertEquals(i, (int) sent.get(i));
+        }
+        assertEquals(0, shaper.getQueueDepth());
+    }
+
+    @Test
+    public void testEndpointBucket() throws Exception {
+        final CountDownLatch sentLatch = new CountDownLatch(4);
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+
+        final TrafficShaper.TokenBucket endpointBucket = new TrafficShaper.TokenBucket(1000, 100);
+        final TrafficShaper first = new TrafficShaper(null, endpointBucket, scheduler, null);
+        final TrafficShaper second = new TrafficShaper(null, endpointBucket, scheduler, null);
+
+        // overdraws the shared bucket
+        first.send(null, 200, new RecordingMessage(0, sent), new CountingHandler(sentLatch, null));
+        second.send(null, 100, new RecordingMessage(1, sent), new CountingHandler(sentLatch, null));
+        first.send(null, 100, new RecordingMessage(2, sent), new CountingHandler(sentLatch, null));
+        second.send(null, 100, new RecordingMessage(3, sent), new CountingHandler(sentLatch, null));
+
+        // the other session has to wait for the shared bucket
+        assertEquals(1, sent.size());
+        assertTrue(sentLatch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConflation() throws Exception {
+        final CountDownLatch sentLatch = new CountDownLatch(3);
+        final AtomicInteger replaced = new AtomicInteger();
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+
+        final TrafficShaper shaper = new TrafficShaper(new TrafficShaper.TokenBucket(1000, 100), null, scheduler,
+                                                       new TyrusSession.ConflationKeyResolver() {
+                                                           @Override
+                                                           public Object getConflationKey(Object message) {
+                                                               return message;
+                                                           }
+                                                       });
+
+        // sent immediately, overdraws the bucket
+        shaper.send("a", 200, new RecordingMessage(0, sent), new CountingHandler(sentLatch, null));
+        // queued and replaced
+        shaper.send("a", 100, new RecordingMessage(1, sent), new CountingHandler(null, replaced));
+        shaper.send("b", 100, new RecordingMessage(2, sent), new CountingHandler(sentLatch, null));
+        shaper.send("a", 100, new RecordingMessage(3, sent), new CountingHandler(sentLatch, null));
+
+        assertEquals(2, shaper.getQueueDepth());
+        assertEquals(1, replaced.get());
+        assertTrue(sentLatch.await(5, TimeUnit.SECONDS));
+
+        // replacing message keeps position of the replaced one
+        assertEquals(Integer.valueOf(0), sent.get(0));
+        assertEquals(Integer.valueOf(3), sent.get(1));
+        assertEquals(Integer.valueOf(2), sent.get(2));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final SendHandler failureHandler = new SendHandler() {
+            @Override
+            public void onResult(SendResult result) {
+                failure.set(result.getException());
+            }
+        };
+
+        final TrafficShaper shaper =
+                new TrafficShaper(new TrafficShaper.TokenBucket(1, 1), null, scheduler, null);
+
+        shaper.send(null, 100, new RecordingMessage(0, sent), failureHandler);
+        shaper.send(null, 100, new RecordingMessage(1, sent), failureHandler);
+        assertEquals(1, shaper.getQueueDepth());
+
+        shaper.close();
+        // does not block
+        shaper.awaitEmpty();
+
+        assertEquals(0, shaper.getQueueDepth());
+        assertTrue(failure.get() != null);
+
+        failure.set(null);
+        shaper.send(null, 100, new RecordingMessage(2, sent), failureHandler);
+        assertTrue(failure.get() != null);
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void testAwaitEmpty() throws Exception {
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+        final TrafficShaper shaper =
+                new TrafficShaper(new TrafficShaper.TokenBucket(1000, 100), null, scheduler, null);
+
+        shaper.send(null, 200, new RecordingMessage(0, sent), new CountingHandler(null, null));
+        shaper.send(null, 100, new RecordingMessage(1, sent), new CountingHandler(null, null));
+        assertFalse(sent.size() == 2);
+
+        shaper.awaitEmpty();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch failedLatch = new CountDownLatch(1);
+
+        final TrafficShaper shaper =
+                new TrafficShaper(new TrafficShaper.TokenBucket(1000, 100), null, scheduler, null);
+
+        // second message waits 200 ms for tokens, but may be queued only for 50 ms
+        shaper.send(null, 300, new RecordingMessage(0, sent), new CountingHandler(null, null), 50);
+        shaper.send(null, 100, new RecordingMessage(1, sent), new SendHandler() {
+            @Override
+            public void onResult(SendResult result) {
+                failure.set(result.getException());
+                failedLatch.countDown();
+            }
+        }, 50);
+
+        assertTrue(failedLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof SocketTimeoutException);
+        assertEquals(1, sent.size());
+        assertEquals(0, shaper.getQueueDepth());
+    }
+
+    @Test
+    public void testSerialReplacePending() {
+        final HeldWriter writer = new HeldWriter();
+        final TrafficShaper shaper = new TrafficShaper(null, null, null, null, true);
+        final ResultHandler handler = new ResultHandler();
+
+        shaper.send("a", 0, writer.message("a1"), handler);
+        shaper.send("b", 0, writer.message("b1"), handler);
+        shaper.send("a", 0, writer.message("a2"), handler);
+        shaper.send("c", 0, writer.message("c1"), handler);
+        shaper.send("b", 0, writer.message("b2"), handler);
+        shaper.send("b", 0, writer.message("b3"), handler);
+
+        // a1 is in flight, b1 and b2 were replaced
+        assertEquals(Collections.singletonList("a1"), writer.sent);
+        assertEquals(3, shaper.getQueueDepth());
+        assertEquals(2, handler.ok.get());
+
+        while (writer.complete()) {
+            // write next
+        }
+
+        assertEquals(Arrays.asList("a1", "b3", "a2", "c1"), writer.sent);
+        assertEquals(0, shaper.getQueueDepth());
+        assertEquals(6, handler.ok.get());
+        assertEquals(0, handler.failed.get());
+    }
+
+    @Test
+    public void testSerialClose() {
+        final HeldWriter writer = new HeldWriter();
+        final TrafficShaper shaper = new TrafficShaper(null, null, null, null, true);
+        final ResultHandler handler = new ResultHandler();
+
+        shaper.send("a", 0, writer.message("a1"), handler);
+        shaper.send("b", 0, writer.message("b1"), handler);
+        shaper.close();
+
+        assertEquals(1, handler.failed.get());
+        assertEquals(0, shaper.getQueueDepth());
+
+        shaper.send("c", 0, writer.message("c1"), handler);
+        assertEquals(2, handler.failed.get());
+
+        writer.complete();
+        assertEquals(1, handler.ok.get());
+        assertEquals(Collections.singletonList("a1"), writer.sent);
+    }
+
+    @Test
+    public void testSerialSynchronousWrite() {
+        final List<Integer> sent = new ArrayList<Integer>();
+        final TrafficShaper shaper = new TrafficShaper(null, null, null, null, true);
+
+        final ResultHandler handler = new ResultHandler();
+        for (int i = 0; i < 100000; i++) {
+            shaper.send(i, 0, new RecordingMessage(i, sent), handler);
+        }
+
+        assertEquals(100000, sent.size());
+        assertEquals(100000, handler.ok.get());
+        assertEquals(0, shaper.getQueueDepth());
+    }
+
+    @Test
+    public void testSerialWriteFailure() {
+        final TrafficShaper shaper = new TrafficShaper(null, null, null, null, true);
+        final TrafficShaper.Message failing = new TrafficShaper.Message() {
+            @Override
+            public void send(SendHandler handler) {
+                throw new IllegalStateException("test");
+            }
+        };
+
+        final ResultHandler handler = new ResultHandler();
+        shaper.send("a", 0, failing, handler);
+        shaper.send("a", 0, failing, handler);
+
+        assertEquals(2, handler.failed.get());
+        assertEquals(0, shaper.getQueueDepth());
+    }
+
+    @Test
+    public void testSerialConcurrentSendsDeliverLatest() throws InterruptedException {
+        final int threads = 8;
+        final int keys = 16;
+        final int updates = 20000;
+
+        final Map<Object, Object> last = Collections.synchronizedMap(new HashMap<Object, Object>());
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        final TrafficShaper shaper = new TrafficShaper(null, null, null, null, true);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final ResultHandler handler = new ResultHandler();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < updates; i++) {
+                                // keys are per thread, so the last update of each key is well defined
+                                final String key = thread + "/" + (i % keys);
+                                final int value = i;
+                                shaper.send(key, 0, new TrafficShaper.Message() {
+                                    @Override
+                                    public void send(final SendHandler handler) {
+                                        writer.submit(new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                last.put(key, value);
+                                                handler.onResult(new SendResult());
+                                            }
+                                        });
+                                    }
+                                }, handler);
+                            }
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (handler.ok.get() < threads * updates && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            executor.shutdownNow();
+            writer.shutdown();
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(threads * updates, handler.ok.get());
+        assertEquals(0, handler.failed.get());
+        assertEquals(0, shaper.getQueueDepth());
+        for (int t = 0; t < threads; t++) {
+            for (int k = 0; k < keys; k++) {
+                final Object value = last.get(t + "/" + k);
+                assertNotNull(value);
+                assertEquals(updates - keys + k, value);
+            }
+        }
+        assertFalse(last.size() > threads * keys);
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals(0, TrafficShaper.utf8Length(""));
+        assertEquals(5, TrafficShaper.utf8Length("hello"));
+        assertEquals(2, TrafficShaper.utf8Length("é"));
+        assertEquals(3, TrafficShaper.utf8Length("€"));
+        assertEquals(4, TrafficShaper.utf8Length("😀"));
+    }
+
+    private static class RecordingMessage implements TrafficShaper.Message {
+
+        private final int id;
+        private final List<Integer> sent;
+
+        RecordingMessage(int id, List<Integer> sent) {
+            this.id = id;
+            this.sent = sent;
+        }
+
+        @Override
+        public void send(SendHandler handler) {
+            sent.add(id);
+            handler.onResult(new SendResult());
+        }
+    }
+
+    private static class HeldWriter {
+
+        private final List<Object> sent = new ArrayList<Object>();
+        private SendHandler inFlight;
+
+        TrafficShaper.Message message(final Object value) {
+            return new TrafficShaper.Message() {
+                @Override
+                public void send(SendHandler handler) {
+                    assertTrue("Only one message can be in flight.", inFlight == null);
+                    sent.add(value);
+                    inFlight = handler;
+                }
+            };
+        }
+
+        boolean complete() {
+            final SendHandler handler = inFlight;
+            if (handler == null) {
+                return false;
+            }
+            inFlight = null;
+            handler.onResult(new SendResult());
+            return true;
+        }
+    }
+
+    private static class ResultHandler implements SendHandler {
+
+        private final AtomicInteger ok = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void onResult(SendResult result) {
+            if (result.isOK()) {
+                ok.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private static class CountingHandler implements SendHandler {
+
+        private final CountDownLatch latch;
+        private final AtomicInteger counter;
+
+        CountingHandler(CountDownLatch latch, AtomicInteger counter) {
+            this.latch = latch;
+            this.counter = counter;
+        }
+
+        @Override
+        public void onResult(SendResult result) {
+            if (result.isOK()) {
+                if (latch != null) {
+                    latch.countDown();
+                }
+                if (counter != null) {
+                    counter.incrementAndGet();
+                }
+            }
+        }
+    }
+}
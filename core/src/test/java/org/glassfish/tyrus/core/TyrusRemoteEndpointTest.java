@@ -46,6 +46,7 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -70,6 +71,7 @@ import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
+import org.glassfish.tyrus.core.coder.PayloadOutputStream;
 import org.glassfish.tyrus.core.frame.Frame;
 
 import org.junit.Assert;
@@ -128,12 +130,19 @@ public class TyrusRemoteEndpointTest {
         OutputStream stream = rew.getSendStream();
 
         stream.write(sentBytesComplete);
-        Assert.assertEquals(6, tre.getLastSentMessageSize());
+        stream.flush();
+        // buffered until the stream is closed
+        Assert.assertEquals(0, tre.getBytesAndClearBuffer().length);
+        stream.write(sentBytesComplete);
         stream.close();
-        Assert.assertEquals(0, tre.getLastSentMessageSize());
-
-        Assert.assertArrayEquals("Writing byte[] to stream and flushing.", sentBytesComplete,
-                                 tre.getBytesAndClearBuffer());
+        Assert.assertEquals(12, tre.getLastSentMessageSize());
+        Assert.assertTrue(tre.isLastSent());
+        Assert.assertEquals(1, tre.getSentFrames());
+
+        final byte[] expected = new byte[12];
+        System.arraycopy(sentBytesComplete, 0, expected, 0, 6);
+        System.arraycopy(sentBytesComplete, 0, expected, 6, 6);
+        Assert.assertArrayEquals("Writing byte[] to stream and closing.", expected, tre.getBytesAndClearBuffer());
     }
 
     @Test
@@ -141,6 +150,7 @@ public class TyrusRemoteEndpointTest {
 
         TestRemoteEndpoint tre = new TestRemoteEndpoint();
         TyrusSession testSession = createTestSession(tre, endpointWrapper);
+        testSession.getUserProperties().put(TyrusSession.SEND_STREAM_FRAGMENT_SIZE, 3);
         TyrusRemoteEndpoint.Basic rew = new TyrusRemoteEndpoint.Basic(testSession, tre, endpointWrapper);
         OutputStream stream = rew.getSendStream();
 
@@ -168,15 +178,36 @@ public class TyrusRemoteEndpointTest {
 
         writer.write(toSend, 0, 3);
         writer.flush();
-        Assert.assertEquals("Writing the whole message.", sentString, tre.getStringAndCleanBuilder());
+        Assert.assertEquals("Flushing does not send a fragment.", "", tre.getStringAndCleanBuilder());
 
         writer.write(toSend, 0, 1);
-        writer.flush();
-        Assert.assertEquals("Writing first character.", String.valueOf(toSend[0]), tre.getStringAndCleanBuilder());
-
         writer.write(toSend, 2, 1);
-        writer.flush();
-        Assert.assertEquals("Writing first character.", String.valueOf(toSend[2]), tre.getStringAndCleanBuilder());
+        writer.close();
+        Assert.assertEquals("Writing the whole message.", "abcac", tre.getStringAndCleanBuilder());
+        Assert.assertEquals(1, tre.getSentFrames());
+        Assert.assertTrue(tre.isLastSent());
+    }
+
+    @Test
+    public void testGetSendWriterFragments() throws IOException {
+        // U+1F600 is encoded as a surrogate pair, which must not be split between fragments
+        final String sentString = "ab\uD83D\uDE00cd\u010D";
+
+        TestRemoteEndpoint tre = new TestRemoteEndpoint();
+        TyrusSession testSession = createTestSession(tre, endpointWrapper);
+        testSession.getUserProperties().put(TyrusSession.SEND_STREAM_FRAGMENT_SIZE, "3");
+        TyrusRemoteEndpoint.Basic rew = new TyrusRemoteEndpoint.Basic(testSession, tre, endpointWrapper);
+        Writer writer = rew.getSendWriter();
+
+        for (char c : sentString.toCharArray()) {
+            writer.write(c);
+        }
+        writer.close();
+
+        Assert.assertEquals(sentString, tre.getStringAndCleanBuilder());
+        // "ab", "\uD83D\uDE00c" and "d\u010D"
+        Assert.assertEquals(3, tre.getSentFrames());
+        Assert.assertTrue(tre.isLastSent());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -368,6 +399,36 @@ public class TyrusRemoteEndpointTest {
             };
         }
 
+        private int sentFrames;
+        private boolean lastSent;
+
+        @Override
+        Future<Frame> sendFragment(PayloadOutputStream payload, boolean text, boolean last) {
+            final byte[] data = payload.toByteArray();
+            sentFrames++;
+            lastSent = last;
+            lastSentMessageSize = data.length;
+            if (text) {
+                builder.append(new String(data, Charset.forName("UTF-8")));
+            } else {
+                for (byte b : data) {
+                    bytesToSend.add(b);
+                }
+            }
+
+            final TyrusFuture<Frame> future = new TyrusFuture<Frame>();
+            future.setResult(null);
+            return future;
+        }
+
+        int getSentFrames() {
+            return sentFrames;
+        }
+
+        boolean isLastSent() {
+            return lastSent;
+        }
+
         @Override
         public Future<Frame> sendBinary(byte[] data, int off, int len, boolean isLast) {
             lastSentMessageSize = len;
@@ -43,12 +43,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
 import javax.websocket.DeploymentException;
 import javax.websocket.Endpoint;
 import javax.websocket.EndpointConfig;
+import javax.websocket.Extension;
 import javax.websocket.MessageHandler;
 import javax.websocket.OnMessage;
 import javax.websocket.PongMessage;
@@ -56,6 +58,7 @@ import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -471,6 +474,33 @@ public class TyrusSessionTest {
         assertNotNull(session2.getUserProperties().get(test2));
     }
 
+    @Test
+    public void openSessionsTest() throws DeploymentException {
+        final TyrusEndpointWrapper wrapper =
+                new TyrusEndpointWrapper(EchoEndpoint.class, null, ComponentProviderService.create(), null, "/echo",
+                                         null, null, null, null, null);
+
+        final TyrusSession session1 = (TyrusSession) wrapper.createSessionForRemoteEndpoint(
+                new TestRemoteEndpoint(), null, Collections.<Extension>emptyList(), new DebugContext());
+        final TyrusSession session2 = (TyrusSession) wrapper.createSessionForRemoteEndpoint(
+                new TestRemoteEndpoint(), null, Collections.<Extension>emptyList(), new DebugContext());
+
+        assertEquals(2, session1.getOpenSessions().size());
+
+        // closed, but not yet removed from the endpoint
+        session2.setState(TyrusSession.State.CLOSED);
+
+        assertEquals(1, session1.getOpenSessions().size());
+        assertFalse(session1.getOpenSessions().isEmpty());
+        assertFalse(session1.getOpenSessions().contains(session2));
+        assertEquals(Collections.<Session>singleton(session1), session1.getOpenSessions());
+
+        session1.setState(TyrusSession.State.CLOSED);
+
+        assertEquals(0, wrapper.getOpenSessionsView().size());
+        assertTrue(wrapper.getOpenSessionsView().isEmpty());
+    }
+
     private TyrusSession createSession(TyrusEndpointWrapper endpointWrapper) {
         return new TyrusSession(null, new TestRemoteEndpoint(), endpointWrapper, null, null, false, null, null, null,
                                 null, new HashMap<String, List<String>>(), null, null, null, new DebugContext());
@@ -0,0 +1,342 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Wire format of messages exchanged by {@link TransportClusterContext} instances.
+ * <p/>
+ * Every message starts with a type byte followed by type specific fields. Strings and byte arrays are written with a
+ * 4 byte length prefix, numbers in big endian order. Keys and values of distributed maps are serialized using Java
+ * serialization; only classes from {@link #DEFAULT_ALLOWED_CLASSES} and classes explicitly allowed by the user can be
+ * deserialized.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+final class ClusterProtocol {
+
+    static final byte BATCH = 1;
+    static final byte RESULT = 2;
+    static final byte BROADCAST_TEXT = 3;
+    static final byte BROADCAST_BINARY = 4;
+    static final byte SESSION_OPENED = 5;
+    static final byte SESSION_CLOSED = 6;
+    static final byte MAP_PUT = 7;
+    static final byte MAP_REMOVE = 8;
+    static final byte MAP_CLEAR = 9;
+    static final byte MAP_DESTROY = 10;
+    static final byte SYNC_REQUEST = 11;
+    static final byte BROADCAST_TEXT_FRAME = 12;
+    static final byte BROADCAST_BINARY_FRAME = 13;
+
+    static final byte SESSION_PROPERTIES = 0;
+    static final byte USER_PROPERTIES = 1;
+
+    /**
+     * Classes which can be deserialized by default - types used by Tyrus for distributed session properties.
+     */
+    static final Set<String> DEFAULT_ALLOWED_CLASSES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "java.lang.String",
+            "java.lang.Number",
+            "java.lang.Boolean",
+            "java.lang.Byte",
+            "java.lang.Character",
+            "java.lang.Short",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Float",
+            "java.lang.Double",
+            "java.lang.Enum",
+            "java.net.URI",
+            "java.util.ArrayList",
+            "java.util.Arrays$ArrayList",
+            "java.util.LinkedList",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap",
+            "java.util.TreeMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashSet",
+            "java.util.TreeSet",
+            "java.util.Collections$EmptyList",
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$EmptySet",
+            "java.util.Collections$SingletonList",
+            "java.util.Collections$SingletonMap",
+            "java.util.Collections$SingletonSet",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$UnmodifiableSet",
+            "java.util.Collections$UnmodifiableSortedMap",
+            "java.util.Collections$UnmodifiableSortedSet",
+            "org.glassfish.tyrus.core.TyrusExtension",
+            "org.glassfish.tyrus.core.TyrusExtension$TyrusParameter",
+            "org.glassfish.tyrus.core.cluster.RemoteSession$DistributedMapKey"
+    )));
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ClusterProtocol() {
+    }
+
+    /**
+     * Serialize an object using Java serialization.
+     *
+     * @param o object to be serialized.
+     * @return serialized object.
+     * @throws IOException when the object cannot be serialized.
+     */
+    static byte[] serialize(Object o) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(o);
+        oos.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Deserialize an object. Classes are resolved using thread context class loader first.
+     *
+     * @param data           serialized object.
+     * @param allowedClasses names of classes which can be deserialized. Name ending with {@code .} allows all classes
+     *                       from the package and its subpackages. Arrays are allowed when their component type is.
+     * @return deserialized object.
+     * @throws InvalidClassException  when the data contain class which is not allowed.
+     * @throws IOException            when the object cannot be deserialized.
+     * @throws ClassNotFoundException when the class of the object cannot be found.
+     */
+    static Object deserialize(byte[] data, Collection<String> allowedClasses)
+            throws IOException, ClassNotFoundException {
+        final ObjectInputStream ois =
+                new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(data), allowedClasses);
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * Get payload of an unmasked WebSocket frame.
+     *
+     * @param frame serialized frame.
+     * @return frame payload.
+     */
+    static byte[] getFramePayload(byte[] frame) {
+        final int length = frame[1] & 0x7F;
+        final int headerLength = length == 127 ? 10 : (length == 126 ? 4 : 2);
+        return Arrays.copyOfRange(frame, headerLength, frame.length);
+    }
+
+    /**
+     * Message builder.
+     */
+    static class Writer {
+
+        private byte[] buffer = new byte[64];
+        private int position = 0;
+
+        Writer(byte type) {
+            writeByte(type);
+        }
+
+        Writer writeByte(int b) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) b;
+            return this;
+        }
+
+        Writer writeBoolean(boolean b) {
+            return writeByte(b ? 1 : 0);
+        }
+
+        Writer writeInt(int i) {
+            ensureCapacity(4);
+            buffer[position++] = (byte) (i >>> 24);
+            buffer[position++] = (byte) (i >>> 16);
+            buffer[position++] = (byte) (i >>> 8);
+            buffer[position++] = (byte) i;
+            return this;
+        }
+
+        Writer writeLong(long l) {
+            writeInt((int) (l >>> 32));
+            return writeInt((int) l);
+        }
+
+        Writer writeBytes(byte[] bytes) {
+            writeInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        Writer writeString(String s) {
+            return writeBytes(s.getBytes(UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    /**
+     * Message reader.
+     */
+    static class Reader {
+
+        private final ByteBuffer buffer;
+
+        Reader(byte[] message) {
+            this.buffer = ByteBuffer.wrap(message);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        byte[] readBytes() {
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        String readString() {
+            return new String(readBytes(), UTF_8);
+        }
+    }
+
+    /**
+     * Check whether the class can be deserialized.
+     *
+     * @param className      name of the class as returned by {@link Class#getName()}.
+     * @param allowedClasses names of allowed classes and packages (names ending with {@code .}).
+     * @return {@code true} when the class is allowed.
+     */
+    static boolean isAllowed(String className, Collection<String> allowedClasses) {
+        String name = className;
+        if (name.startsWith("[")) {
+            // array - check the component type
+            name = name.substring(name.lastIndexOf('[') + 1);
+            if (!name.startsWith("L")) {
+                // array of primitives
+                return name.length() == 1;
+            }
+            name = name.substring(1, name.length() - 1);
+        }
+
+        if (DEFAULT_ALLOWED_CLASSES.contains(name) || allowedClasses.contains(name)) {
+            return true;
+        }
+        for (String allowed : allowedClasses) {
+            if (allowed.endsWith(".") && name.startsWith(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final Collection<String> allowedClasses;
+
+        ContextClassLoaderObjectInputStream(InputStream in, Collection<String> allowedClasses) throws IOException {
+            super(in);
+            this.allowedClasses = allowedClasses;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName(), allowedClasses)) {
+                throw new InvalidClassException(desc.getName(), "Class is not allowed to be deserialized.");
+            }
+
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxy classes are not allowed to be deserialized.");
+        }
+    }
+}
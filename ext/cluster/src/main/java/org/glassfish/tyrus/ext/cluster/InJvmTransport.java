@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * {@link NodeTransport} connecting nodes running in the same JVM.
+ * <p/>
+ * Nodes sharing one {@link Group} form a cluster. Every node delivers incoming messages using its own single thread,
+ * so the ordering guarantees required by {@link NodeTransport} are met. Intended mainly for testing.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public class InJvmTransport implements NodeTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(InJvmTransport.class.getName());
+
+    private final String nodeId;
+    private final Group group;
+
+    private volatile ExecutorService deliveryExecutor;
+    private volatile Receiver receiver;
+
+    /**
+     * Create new transport.
+     *
+     * @param nodeId node id, has to be unique within the group.
+     * @param group  group of nodes forming the cluster.
+     */
+    public InJvmTransport(String nodeId, Group group) {
+        this.nodeId = nodeId;
+        this.group = group;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void start(Receiver receiver) throws IOException {
+        this.receiver = receiver;
+        this.deliveryExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "tyrus-cluster-" + nodeId);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        group.join(this);
+    }
+
+    @Override
+    public void send(String nodeId, byte[] message) throws IOException {
+        final InJvmTransport target = group.members.get(nodeId);
+        if (target == null) {
+            throw new IOException("Node " + nodeId + " is not a member of the cluster.");
+        }
+        target.deliver(this.nodeId, message);
+    }
+
+    @Override
+    public void broadcast(byte[] message) {
+        for (InJvmTransport member : group.members.values()) {
+            if (member != this) {
+                member.deliver(nodeId, message);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        group.leave(this);
+        final ExecutorService executor = deliveryExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void deliver(final String sourceNodeId, final byte[] message) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                receiver.onMessage(sourceNodeId, message);
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        try {
+            deliveryExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Node " + nodeId + " has been shut down, dropping message.", e);
+        }
+    }
+
+    /**
+     * Group of in-JVM nodes forming one cluster.
+     */
+    public static class Group {
+
+        private final Map<String, InJvmTransport> members = new ConcurrentHashMap<String, InJvmTransport>();
+
+        private synchronized void join(final InJvmTransport transport) {
+            if (members.putIfAbsent(transport.nodeId, transport) != null) {
+                throw new IllegalStateException("Node " + transport.nodeId + " is already a member of the group.");
+            }
+
+            for (final InJvmTransport member : members.values()) {
+                if (member != transport) {
+                    member.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            member.receiver.onNodeJoined(transport.nodeId);
+                        }
+                    });
+                    transport.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            transport.receiver.onNodeJoined(member.nodeId);
+                        }
+                    });
+                }
+            }
+        }
+
+        private synchronized void leave(final InJvmTransport transport) {
+            if (!members.remove(transport.nodeId, transport)) {
+                return;
+            }
+
+            for (final InJvmTransport member : members.values()) {
+                member.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        member.receiver.onNodeLeft(transport.nodeId);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces outbound cluster messages into {@link ClusterProtocol#BATCH} envelopes.
+ * <p/>
+ * Messages are queued and the thread which calls {@link #flush()} first sends everything that is queued, including
+ * messages queued by other threads in the meantime. Producers usually call {@link #requestFlush()}, which runs the
+ * flush on the batcher thread unless a flush is already pending there, so messages queued by many threads while the
+ * batcher thread is busy end up in the same flush.
+ * <p/>
+ * Messages queued for the same node are written into one envelope, even when messages for other nodes were queued in
+ * between, so the transport is invoked once per destination and flush instead of once per message; a lone message is
+ * sent without an envelope. Broadcasts are ordered with respect to messages for every node, so a broadcast is sent
+ * only after all messages queued before it and messages queued after it are sent only after the broadcast. Nothing is
+ * delayed to wait for more messages. Messages for one destination keep the order in which they were queued.
+ * <p/>
+ * Session commands in an envelope reference sessions by an index into the envelope's session id table, so a session id
+ * is written only once per envelope.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class MessageBatcher {
+
+    /**
+     * Envelope entry containing a complete cluster message.
+     */
+    static final byte MESSAGE_ENTRY = 0;
+
+    /**
+     * Envelope entry containing a session command.
+     */
+    static final byte COMMAND_ENTRY = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(MessageBatcher.class.getName());
+    private static final int MAX_BATCH_SIZE = 1024 * 1024;
+
+    private final NodeTransport transport;
+    private final FailureListener failureListener;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final Executor executor;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushRequested.set(false);
+            flush();
+        }
+    };
+
+    /**
+     * Create new batcher.
+     *
+     * @param transport       transport used for sending envelopes.
+     * @param failureListener notified about commands which could not be sent.
+     */
+    MessageBatcher(NodeTransport transport, FailureListener failureListener) {
+        this.transport = transport;
+        this.failureListener = failureListener;
+
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "tyrus-cluster-batcher-" + transport.getNodeId());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * Queue a message for one node.
+     *
+     * @param nodeId  destination node id.
+     * @param message message to be sent.
+     */
+    void send(String nodeId, byte[] message) {
+        queue.add(new Entry(nodeId, message, 0, null, null));
+    }
+
+    /**
+     * Queue a message for all other nodes.
+     *
+     * @param message message to be sent.
+     */
+    void broadcast(byte[] message) {
+        queue.add(new Entry(null, message, 0, null, null));
+    }
+
+    /**
+     * Queue a session command.
+     *
+     * @param nodeId    node owning the session.
+     * @param requestId id of the request the result will be reported to.
+     * @param sessionId target session id.
+     * @param command   command to be executed.
+     */
+    void sendCommand(String nodeId, long requestId, String sessionId, SessionCommand command) {
+        queue.add(new Entry(nodeId, null, requestId, sessionId, command));
+    }
+
+    /**
+     * Send all queued messages on the batcher thread. Does nothing when a flush has already been requested and has not
+     * started yet - the pending flush sends also the messages queued before this call.
+     */
+    void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            executor.execute(flushTask);
+        }
+    }
+
+    /**
+     * Send all queued messages, unless another thread is already sending them.
+     */
+    void flush() {
+        while (!queue.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                Entry entry;
+                // unicast batches keyed by destination node, in the order of their first message
+                final Map<String, Batch> batches = new LinkedHashMap<String, Batch>();
+                final Batch broadcastBatch = new Batch();
+                while ((entry = queue.poll()) != null) {
+                    if (entry.nodeId == null) {
+                        // messages queued before the broadcast have to be sent before it
+                        sendAll(batches);
+                        broadcastBatch.add(entry);
+                    } else {
+                        broadcastBatch.send();
+                        Batch batch = batches.get(entry.nodeId);
+                        if (batch == null) {
+                            batch = new Batch();
+                            batches.put(entry.nodeId, batch);
+                        }
+                        batch.add(entry);
+                    }
+                }
+                sendAll(batches);
+                broadcastBatch.send();
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    private void sendAll(Map<String, Batch> batches) {
+        for (Batch batch : batches.values()) {
+            batch.send();
+        }
+        batches.clear();
+    }
+
+    private void send(List<Entry> batch) {
+        final Entry first = batch.get(0);
+        final byte[] message;
+        if (batch.size() == 1 && first.message != null) {
+            message = first.message;
+        } else {
+            message = createEnvelope(batch);
+        }
+
+        try {
+            if (first.nodeId == null) {
+                transport.broadcast(message);
+            } else {
+                transport.send(first.nodeId, message);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Message could not be sent to node " + first.nodeId + ".", e);
+            for (Entry entry : batch) {
+                if (entry.command != null) {
+                    failureListener.onFailure(entry.requestId, e);
+                }
+            }
+        }
+    }
+
+    private static byte[] createEnvelope(List<Entry> batch) {
+        final Map<String, Integer> sessionIndexes = new HashMap<String, Integer>();
+        for (Entry entry : batch) {
+            if (entry.sessionId != null && !sessionIndexes.containsKey(entry.sessionId)) {
+                sessionIndexes.put(entry.sessionId, sessionIndexes.size());
+            }
+        }
+
+        final String[] sessionIds = new String[sessionIndexes.size()];
+        for (Map.Entry<String, Integer> sessionIndex : sessionIndexes.entrySet()) {
+            sessionIds[sessionIndex.getValue()] = sessionIndex.getKey();
+        }
+
+        final ClusterProtocol.Writer writer = new ClusterProtocol.Writer(ClusterProtocol.BATCH);
+        writer.writeInt(sessionIds.length);
+        for (String sessionId : sessionIds) {
+            writer.writeString(sessionId);
+        }
+
+        writer.writeInt(batch.size());
+        for (Entry entry : batch) {
+            if (entry.command == null) {
+                writer.writeByte(MESSAGE_ENTRY).writeBytes(entry.message);
+            } else {
+                writer.writeByte(COMMAND_ENTRY).writeLong(entry.requestId).writeInt(sessionIndexes.get(entry.sessionId));
+                entry.command.write(writer);
+            }
+        }
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Notified when a command could not be sent.
+     */
+    interface FailureListener {
+
+        /**
+         * Invoked when a command could not be passed to the transport.
+         *
+         * @param requestId id of the request.
+         * @param t         failure.
+         */
+        void onFailure(long requestId, Throwable t);
+    }
+
+    /**
+     * Messages for one destination collected during a flush. Full batch is sent immediately.
+     */
+    private class Batch {
+
+        private final List<Entry> entries = new ArrayList<Entry>();
+        private int size = 0;
+
+        void add(Entry entry) {
+            entries.add(entry);
+            size += entry.size();
+            if (size > MAX_BATCH_SIZE) {
+                send();
+            }
+        }
+
+        void send() {
+            if (!entries.isEmpty()) {
+                MessageBatcher.this.send(entries);
+                entries.clear();
+                size = 0;
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String nodeId;
+        private final byte[] message;
+        private final long requestId;
+        private final String sessionId;
+        private final SessionCommand command;
+
+        Entry(String nodeId, byte[] message, long requestId, String sessionId, SessionCommand command) {
+            this.nodeId = nodeId;
+            this.message = message;
+            this.requestId = requestId;
+            this.sessionId = sessionId;
+            this.command = command;
+        }
+
+        int size() {
+            return message != null ? message.length : command.size();
+        }
+    }
+}
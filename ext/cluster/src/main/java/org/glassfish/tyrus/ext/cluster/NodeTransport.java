@@ -0,0 +1,122 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * Transport used by {@link TransportClusterContext} to exchange messages between cluster nodes.
+ * <p/>
+ * Implementations have to deliver messages sent from one node to another in the same order they were sent and
+ * must not invoke {@link Receiver} callbacks concurrently for messages coming from the same source node.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ * @see InJvmTransport
+ * @see TcpTransport
+ */
+@Beta
+public interface NodeTransport {
+
+    /**
+     * Get id of the local node. It has to be unique within the cluster.
+     *
+     * @return local node id.
+     */
+    String getNodeId();
+
+    /**
+     * Start the transport.
+     *
+     * @param receiver receiver of messages and membership events.
+     * @throws IOException when the transport cannot be started.
+     */
+    void start(Receiver receiver) throws IOException;
+
+    /**
+     * Send a message to the given node.
+     *
+     * @param nodeId  target node id.
+     * @param message message to be sent. The array must not be modified after it is passed to this method.
+     * @throws IOException when the message cannot be sent.
+     */
+    void send(String nodeId, byte[] message) throws IOException;
+
+    /**
+     * Send a message to all other nodes.
+     *
+     * @param message message to be sent. The array must not be modified after it is passed to this method.
+     */
+    void broadcast(byte[] message);
+
+    /**
+     * Stop the transport. Other nodes are notified by {@link Receiver#onNodeLeft(String)}.
+     */
+    void shutdown();
+
+    /**
+     * Receiver of messages and cluster membership events.
+     */
+    interface Receiver {
+
+        /**
+         * Invoked when a message has been received.
+         *
+         * @param sourceNodeId id of the node that sent the message.
+         * @param message      received message.
+         */
+        void onMessage(String sourceNodeId, byte[] message);
+
+        /**
+         * Invoked when a node has joined the cluster (or became reachable).
+         *
+         * @param nodeId id of the node.
+         */
+        void onNodeJoined(String nodeId);
+
+        /**
+         * Invoked when a node has left the cluster (or became unreachable).
+         *
+         * @param nodeId id of the node.
+         */
+        void onNodeLeft(String nodeId);
+    }
+}
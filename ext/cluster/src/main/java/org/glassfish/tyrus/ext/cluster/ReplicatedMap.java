@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map which propagates local modifications to other cluster nodes using {@link Replicator}.
+ * <p/>
+ * Modifications received from other nodes are applied using {@code apply*} methods, which do not trigger the
+ * replication. Putting {@code null} value removes the mapping.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class ReplicatedMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, V> delegate = new ConcurrentHashMap<K, V>();
+    private final Replicator replicator;
+
+    ReplicatedMap(Replicator replicator) {
+        this.replicator = replicator;
+    }
+
+    @Override
+    public V get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+
+        final V previous = delegate.put(key, value);
+        replicator.onPut(key, value);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        final V previous = delegate.remove(key);
+        if (previous != null) {
+            replicator.onRemove(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        replicator.onClear();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(delegate).entrySet();
+    }
+
+    void applyPut(K key, V value) {
+        delegate.put(key, value);
+    }
+
+    void applyRemove(Object key) {
+        delegate.remove(key);
+    }
+
+    void applyClear() {
+        delegate.clear();
+    }
+
+    /**
+     * Propagates local modifications of the map.
+     */
+    interface Replicator {
+
+        void onPut(Object key, Object value);
+
+        void onRemove(Object key);
+
+        void onClear();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+
+import javax.websocket.CloseReason;
+
+import org.glassfish.tyrus.core.cluster.SessionEventListener;
+
+/**
+ * Operation invoked on a session owned by another node.
+ * <p/>
+ * The command is serialized into a {@link ClusterProtocol#BATCH} envelope, sent to the node which owns the session and
+ * executed there using the {@link SessionEventListener} registered for the session.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class SessionCommand {
+
+    private static final byte TEXT = 0;
+    private static final byte PARTIAL_TEXT = 1;
+    private static final byte BINARY = 2;
+    private static final byte PARTIAL_BINARY = 3;
+    private static final byte PING = 4;
+    private static final byte PONG = 5;
+    private static final byte CLOSE = 6;
+    private static final byte CLOSE_WITH_REASON = 7;
+
+    private final byte type;
+    private final String text;
+    private final byte[] data;
+    private final boolean isLast;
+    private final int closeCode;
+
+    private SessionCommand(byte type, String text, byte[] data, boolean isLast, int closeCode) {
+        this.type = type;
+        this.text = text;
+        this.data = data;
+        this.isLast = isLast;
+        this.closeCode = closeCode;
+    }
+
+    static SessionCommand text(String text) {
+        return new SessionCommand(TEXT, text, null, true, 0);
+    }
+
+    static SessionCommand partialText(String text, boolean isLast) {
+        return new SessionCommand(PARTIAL_TEXT, text, null, isLast, 0);
+    }
+
+    static SessionCommand binary(byte[] data) {
+        return new SessionCommand(BINARY, null, data, true, 0);
+    }
+
+    static SessionCommand partialBinary(byte[] data, boolean isLast) {
+        return new SessionCommand(PARTIAL_BINARY, null, data, isLast, 0);
+    }
+
+    static SessionCommand ping(byte[] data) {
+        return new SessionCommand(PING, null, data, true, 0);
+    }
+
+    static SessionCommand pong(byte[] data) {
+        return new SessionCommand(PONG, null, data, true, 0);
+    }
+
+    static SessionCommand close(CloseReason closeReason) {
+        if (closeReason == null) {
+            return new SessionCommand(CLOSE, null, null, true, 0);
+        }
+        return new SessionCommand(CLOSE_WITH_REASON, closeReason.getReasonPhrase(), null, true,
+                                  closeReason.getCloseCode().getCode());
+    }
+
+    /**
+     * Execute the command on a local session.
+     *
+     * @param listener listener of the target session.
+     * @throws IOException when the operation fails.
+     */
+    void execute(SessionEventListener listener) throws IOException {
+        switch (type) {
+            case TEXT:
+                listener.onSendText(text);
+                break;
+            case PARTIAL_TEXT:
+                listener.onSendText(text, isLast);
+                break;
+            case BINARY:
+                listener.onSendBinary(data);
+                break;
+            case PARTIAL_BINARY:
+                listener.onSendBinary(data, isLast);
+                break;
+            case PING:
+                listener.onSendPing(data);
+                break;
+            case PONG:
+                listener.onSendPong(data);
+                break;
+            case CLOSE:
+                listener.onClose();
+                break;
+            case CLOSE_WITH_REASON:
+                listener.onClose(new CloseReason(CloseReason.CloseCodes.getCloseCode(closeCode),
+                                                 text == null ? "" : text));
+                break;
+            default:
+                throw new IllegalStateException("Unknown session command: " + type);
+        }
+    }
+
+    /**
+     * Get approximate size of the serialized command.
+     *
+     * @return size in bytes.
+     */
+    int size() {
+        return 16 + (text == null ? 0 : text.length()) + (data == null ? 0 : data.length);
+    }
+
+    /**
+     * Write the command to a message.
+     *
+     * @param writer message writer.
+     */
+    void write(ClusterProtocol.Writer writer) {
+        writer.writeByte(type);
+        switch (type) {
+            case TEXT:
+            case CLOSE_WITH_REASON:
+                writer.writeString(text == null ? "" : text);
+                break;
+            case PARTIAL_TEXT:
+                writer.writeString(text).writeBoolean(isLast);
+                break;
+            case PARTIAL_BINARY:
+                writer.writeBytes(data).writeBoolean(isLast);
+                break;
+            case BINARY:
+            case PING:
+            case PONG:
+                writer.writeBytes(data == null ? new byte[0] : data);
+                break;
+            default:
+                break;
+        }
+        if (type == CLOSE_WITH_REASON) {
+            writer.writeInt(closeCode);
+        }
+    }
+
+    /**
+     * Read a command written by {@link #write(ClusterProtocol.Writer)}.
+     *
+     * @param reader message reader.
+     * @return read command.
+     */
+    static SessionCommand read(ClusterProtocol.Reader reader) {
+        final byte type = reader.readByte();
+        switch (type) {
+            case TEXT:
+                return text(reader.readString());
+            case PARTIAL_TEXT:
+                return partialText(reader.readString(), reader.readBoolean());
+            case BINARY:
+                return binary(reader.readBytes());
+            case PARTIAL_BINARY:
+                return partialBinary(reader.readBytes(), reader.readBoolean());
+            case PING:
+                return ping(reader.readBytes());
+            case PONG:
+                return pong(reader.readBytes());
+            case CLOSE:
+                return new SessionCommand(CLOSE, null, null, true, 0);
+            case CLOSE_WITH_REASON:
+                final String reasonPhrase = reader.readString();
+                return new SessionCommand(CLOSE_WITH_REASON, reasonPhrase, null, true, reader.readInt());
+            default:
+                throw new IllegalStateException("Unknown session command: " + type);
+        }
+    }
+}
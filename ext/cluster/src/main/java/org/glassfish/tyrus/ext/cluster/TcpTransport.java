@@ -0,0 +1,395 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.tyrus.core.Beta;
+
+/**
+ * {@link NodeTransport} exchanging messages over TCP connections.
+ * <p/>
+ * Every node listens on its bind address and opens one outgoing connection to each of the configured peers, so each
+ * pair of nodes is connected by two sockets - one per direction. Messages are written as length-prefixed frames.
+ * Incoming messages from one peer are delivered by a dedicated thread, which keeps the per-source ordering required
+ * by {@link NodeTransport}.
+ * <p/>
+ * Incoming connection is accepted only when the node id announced by the remote side is one of the configured peers
+ * and the connection originates from the address configured for that peer. Outgoing connections are bound to the
+ * local bind address (unless it is a wildcard address), so the check also works on multi-homed hosts. This is not
+ * a replacement for real authentication - the transport does not provide any encryption and is still meant to be
+ * used on trusted networks (typically loopback or a private cluster network).
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public class TcpTransport implements NodeTransport {
+
+    /**
+     * Maximal size of one message in bytes.
+     */
+    public static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+    private static final Logger LOGGER = Logger.getLogger(TcpTransport.class.getName());
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    private final String nodeId;
+    private final String incarnation = UUID.randomUUID().toString();
+    private final InetSocketAddress bindAddress;
+    private final Map<String, InetSocketAddress> peers;
+    private final ConcurrentMap<String, Connection> connections = new ConcurrentHashMap<String, Connection>();
+    private final ConcurrentMap<String, Object> connectLocks = new ConcurrentHashMap<String, Object>();
+    private final Set<Socket> incomingSockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private final Map<String, String> peerIncarnations = new ConcurrentHashMap<String, String>();
+
+    private volatile ServerSocket serverSocket;
+    private volatile Receiver receiver;
+    private volatile boolean closed = false;
+
+    /**
+     * Create new transport.
+     *
+     * @param nodeId      local node id.
+     * @param bindAddress address the local node listens on.
+     * @param peers       map of node ids and addresses of other cluster nodes. Entry with local node id is ignored,
+     *                    so the same map can be used to configure all the nodes.
+     */
+    public TcpTransport(String nodeId, InetSocketAddress bindAddress, Map<String, InetSocketAddress> peers) {
+        this.nodeId = nodeId;
+        this.bindAddress = bindAddress;
+        final Map<String, InetSocketAddress> peerMap = new HashMap<String, InetSocketAddress>(peers);
+        peerMap.remove(nodeId);
+        this.peers = Collections.unmodifiableMap(peerMap);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void start(Receiver receiver) throws IOException {
+        this.receiver = receiver;
+
+        final ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(bindAddress);
+        serverSocket = socket;
+
+        startThread("tyrus-cluster-acceptor-" + nodeId, new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+
+        // let the running peers know about this node
+        for (String peer : peers.keySet()) {
+            try {
+                getConnection(peer);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Peer " + peer + " is not reachable.", e);
+            }
+        }
+    }
+
+    @Override
+    public void send(String nodeId, byte[] message) throws IOException {
+        final Connection connection = getConnection(nodeId);
+        try {
+            connection.write(message);
+        } catch (IOException e) {
+            closeConnection(nodeId, connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public void broadcast(byte[] message) {
+        for (String peer : peers.keySet()) {
+            try {
+                send(peer, message);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Message could not be sent to peer " + peer + ".", e);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        closed = true;
+
+        closeQuietly(serverSocket);
+        for (Socket socket : incomingSockets) {
+            closeQuietly(socket);
+        }
+        for (Map.Entry<String, Connection> entry : connections.entrySet()) {
+            closeConnection(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Connection getConnection(String peer) throws IOException {
+        Connection connection = connections.get(peer);
+        if (connection != null) {
+            return connection;
+        }
+
+        final InetSocketAddress address = peers.get(peer);
+        if (address == null) {
+            throw new IOException("Unknown peer: " + peer);
+        }
+
+        // only connecting to the same peer is serialized; slow or unreachable peer does not block the others
+        synchronized (getConnectLock(peer)) {
+            connection = connections.get(peer);
+            if (connection != null) {
+                return connection;
+            }
+            if (closed) {
+                throw new IOException("Transport has been shut down.");
+            }
+
+            final Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                if (!bindAddress.isUnresolved() && !bindAddress.getAddress().isAnyLocalAddress()) {
+                    socket.bind(new InetSocketAddress(bindAddress.getAddress(), 0));
+                }
+                socket.connect(address, CONNECT_TIMEOUT);
+                connection = new Connection(socket);
+                connection.handshake(nodeId, incarnation);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                throw e;
+            }
+
+            final Connection existing = connections.putIfAbsent(peer, connection);
+            if (existing != null) {
+                closeQuietly(socket);
+                return existing;
+            }
+        }
+
+        if (closed) {
+            closeConnection(peer, connection);
+            throw new IOException("Transport has been shut down.");
+        }
+
+        return connection;
+    }
+
+    private Object getConnectLock(String peer) {
+        final Object lock = new Object();
+        final Object existing = connectLocks.putIfAbsent(peer, lock);
+        return existing == null ? lock : existing;
+    }
+
+    private void closeConnection(String peer, Connection connection) {
+        connections.remove(peer, connection);
+        closeQuietly(connection.socket);
+    }
+
+    private void accept() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.log(Level.WARNING, "Accepting cluster connection failed.", e);
+                }
+                return;
+            }
+
+            incomingSockets.add(socket);
+            startThread("tyrus-cluster-reader-" + nodeId, new Runnable() {
+                @Override
+                public void run() {
+                    read(socket);
+                }
+            });
+        }
+    }
+
+    private void read(Socket socket) {
+        String peer = null;
+        String peerIncarnation = null;
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final String announcedPeer = input.readUTF();
+            peerIncarnation = input.readUTF();
+
+            if (!isKnownPeer(announcedPeer, socket.getInetAddress())) {
+                LOGGER.log(Level.WARNING, "Rejecting cluster connection from " + socket.getRemoteSocketAddress()
+                        + ", announced node id \"" + announcedPeer + "\" is not a configured peer at that address.");
+                return;
+            }
+            peer = announcedPeer;
+
+            final String previous = peerIncarnations.put(peer, peerIncarnation);
+            if (!peerIncarnation.equals(previous)) {
+                if (previous != null) {
+                    // peer has been restarted; outgoing connection to its previous incarnation is not usable
+                    final Connection stale = connections.get(peer);
+                    if (stale != null) {
+                        closeConnection(peer, stale);
+                    }
+                }
+                receiver.onNodeJoined(peer);
+            }
+
+            while (!closed) {
+                final int length = input.readInt();
+                if (length < 0 || length > MAX_MESSAGE_SIZE) {
+                    throw new IOException("Invalid message length: " + length);
+                }
+                final byte[] message = new byte[length];
+                input.readFully(message);
+                receiver.onMessage(peer, message);
+            }
+        } catch (EOFException e) {
+            // connection closed by peer
+        } catch (SocketException e) {
+            // connection closed
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Reading from cluster connection failed.", e);
+        } finally {
+            incomingSockets.remove(socket);
+            closeQuietly(socket);
+            if (peer != null && !closed && peerIncarnations.remove(peer, peerIncarnation)) {
+                receiver.onNodeLeft(peer);
+            }
+        }
+    }
+
+    /**
+     * Check whether the announced node id is one of the configured peers and whether the connection originates from
+     * the address configured for that peer.
+     *
+     * @param peer          node id announced by the remote side.
+     * @param remoteAddress address the connection originates from.
+     * @return {@code true} when the connection can be accepted.
+     */
+    boolean isKnownPeer(String peer, InetAddress remoteAddress) {
+        final InetSocketAddress address = peers.get(peer);
+        if (address == null || remoteAddress == null) {
+            return false;
+        }
+
+        if (!address.isUnresolved()) {
+            if (address.getAddress().equals(remoteAddress)) {
+                return true;
+            }
+            // peer configured with loopback address can connect from any loopback address (127.0.0.1 vs ::1)
+            return address.getAddress().isLoopbackAddress() && remoteAddress.isLoopbackAddress();
+        }
+
+        try {
+            return Arrays.asList(InetAddress.getAllByName(address.getHostString())).contains(remoteAddress);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Address of peer " + peer + " cannot be resolved.", e);
+            return false;
+        }
+    }
+
+    private static void startThread(String name, Runnable runnable) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Outgoing connection to one peer.
+     */
+    private static class Connection {
+
+        private final Socket socket;
+        private final DataOutputStream output;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        synchronized void handshake(String nodeId, String incarnation) throws IOException {
+            output.writeUTF(nodeId);
+            output.writeUTF(incarnation);
+            output.flush();
+        }
+
+        synchronized void write(byte[] message) throws IOException {
+            output.writeInt(message.length);
+            output.write(message);
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,783 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+
+import org.glassfish.tyrus.core.Beta;
+import org.glassfish.tyrus.core.TyrusFuture;
+import org.glassfish.tyrus.core.cluster.BroadcastListener;
+import org.glassfish.tyrus.core.cluster.ClusterContext;
+import org.glassfish.tyrus.core.cluster.RemoteSession;
+import org.glassfish.tyrus.core.cluster.SessionEventListener;
+import org.glassfish.tyrus.core.cluster.SessionListener;
+
+/**
+ * {@link ClusterContext} implementation exchanging messages with other nodes using a {@link NodeTransport}.
+ * <p/>
+ * Every node keeps a replica of the cluster-wide session registry and of all distributed property maps. Messages for
+ * a remote session are sent to the node which owns the session and the returned future completes when that node
+ * reports the result. When a node joins the cluster, the nodes exchange the state of the sessions they own; when a node
+ * leaves, its sessions are removed from the registry.
+ * <p/>
+ * Outbound messages are coalesced per destination node by {@link MessageBatcher}. Broadcasts carry the WebSocket frame
+ * serialized by the sending node whenever it is available, so receiving nodes write it to their sessions without
+ * framing the message again.
+ * <p/>
+ * Distributed property values are exchanged using Java serialization. Only the types Tyrus itself stores in the
+ * distributed maps (strings, primitive wrappers, {@link java.net.URI}, standard collections and Tyrus extensions) are
+ * deserialized by default; classes of user property values and of user principals have to be allowed explicitly
+ * using {@link #TransportClusterContext(NodeTransport, Collection)}.
+ * <p/>
+ * Usage:
+ * <pre>
+ * InJvmTransport.Group group = new InJvmTransport.Group();
+ * ClusterContext clusterContext = new TransportClusterContext(new InJvmTransport("node1", group));
+ *
+ * serverProperties.put(ClusterContext.CLUSTER_CONTEXT, clusterContext);
+ * </pre>
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+@Beta
+public class TransportClusterContext extends ClusterContext {
+
+    private static final Logger LOGGER = Logger.getLogger(TransportClusterContext.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final NodeTransport transport;
+    private final Set<String> allowedClasses;
+    private final MessageBatcher batcher;
+    private final String nodeId;
+    private final AtomicLong requestCounter = new AtomicLong(0);
+    private final Map<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<Long, PendingRequest>();
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<String, SessionEntry>();
+    private final Map<String, SessionEventListener> localSessions =
+            new ConcurrentHashMap<String, SessionEventListener>();
+    private final Map<String, SessionListener> sessionListeners = new ConcurrentHashMap<String, SessionListener>();
+    private final Map<String, BroadcastListener> broadcastListeners =
+            new ConcurrentHashMap<String, BroadcastListener>();
+    private final ConcurrentMap<String, ReplicatedMap<RemoteSession.DistributedMapKey, Object>> sessionProperties =
+            new ConcurrentHashMap<String, ReplicatedMap<RemoteSession.DistributedMapKey, Object>>();
+    private final ConcurrentMap<String, ReplicatedMap<String, Object>> userProperties =
+            new ConcurrentHashMap<String, ReplicatedMap<String, Object>>();
+
+    /**
+     * Create new cluster context and start the given transport.
+     *
+     * @param transport transport used for communication with other nodes.
+     * @throws IOException when the transport cannot be started.
+     */
+    public TransportClusterContext(NodeTransport transport) throws IOException {
+        this(transport, Collections.<String>emptySet());
+    }
+
+    /**
+     * Create new cluster context and start the given transport.
+     *
+     * @param transport      transport used for communication with other nodes.
+     * @param allowedClasses names of classes which can be deserialized in addition to the types used by Tyrus,
+     *                       typically classes of user property values and of user principals. Name ending with
+     *                       {@code .} allows all classes from the package and its subpackages.
+     * @throws IOException when the transport cannot be started.
+     */
+    public TransportClusterContext(NodeTransport transport, Collection<String> allowedClasses) throws IOException {
+        this.transport = transport;
+        this.allowedClasses = Collections.unmodifiableSet(new HashSet<String>(allowedClasses));
+        this.nodeId = transport.getNodeId();
+        this.batcher = new MessageBatcher(transport, new MessageBatcher.FailureListener() {
+            @Override
+            public void onFailure(long requestId, Throwable t) {
+                final PendingRequest request = pendingRequests.remove(requestId);
+                if (request != null) {
+                    request.complete(t);
+                }
+            }
+        });
+
+        transport.start(new NodeTransport.Receiver() {
+            @Override
+            public void onMessage(String sourceNodeId, byte[] message) {
+                handleMessage(sourceNodeId, message);
+                // replies to all messages in a batch are sent together
+                batcher.requestFlush();
+            }
+
+            @Override
+            public void onNodeJoined(String nodeId) {
+                sendState(nodeId);
+                send(nodeId, new ClusterProtocol.Writer(ClusterProtocol.SYNC_REQUEST));
+                batcher.requestFlush();
+            }
+
+            @Override
+            public void onNodeLeft(String nodeId) {
+                removeNode(nodeId);
+            }
+        });
+    }
+
+    /**
+     * Get id of the local node.
+     *
+     * @return local node id.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Future<Void> sendText(String sessionId, String text) {
+        return sendCommand(sessionId, SessionCommand.text(text), null);
+    }
+
+    @Override
+    public Future<Void> sendText(String sessionId, String text, boolean isLast) {
+        return sendCommand(sessionId, SessionCommand.partialText(text, isLast), null);
+    }
+
+    @Override
+    public Future<Void> sendBinary(String sessionId, byte[] data) {
+        return sendCommand(sessionId, SessionCommand.binary(data), null);
+    }
+
+    @Override
+    public Future<Void> sendBinary(String sessionId, byte[] data, boolean isLast) {
+        return sendCommand(sessionId, SessionCommand.partialBinary(data, isLast), null);
+    }
+
+    @Override
+    public Future<Void> sendPing(String sessionId, byte[] data) {
+        return sendCommand(sessionId, SessionCommand.ping(data), null);
+    }
+
+    @Override
+    public Future<Void> sendPong(String sessionId, byte[] data) {
+        return sendCommand(sessionId, SessionCommand.pong(data), null);
+    }
+
+    @Override
+    public void sendText(String sessionId, String text, SendHandler sendHandler) {
+        sendCommand(sessionId, SessionCommand.text(text), sendHandler);
+    }
+
+    @Override
+    public void sendBinary(String sessionId, byte[] data, SendHandler sendHandler) {
+        sendCommand(sessionId, SessionCommand.binary(data), sendHandler);
+    }
+
+    @Override
+    public void broadcastText(String endpointPath, String text) {
+        broadcastText(endpointPath, text, null);
+    }
+
+    @Override
+    public void broadcastBinary(String endpointPath, byte[] data) {
+        broadcastBinary(endpointPath, data, null);
+    }
+
+    @Override
+    public void broadcastText(String endpointPath, String text, byte[] frame) {
+        // other nodes write the frame to their sessions as it is, the text is extracted only when needed
+        if (frame == null) {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.BROADCAST_TEXT).writeString(endpointPath)
+                                                                                .writeString(text));
+        } else {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.BROADCAST_TEXT_FRAME).writeString(endpointPath)
+                                                                                      .writeBytes(frame));
+        }
+
+        // the endpoint expects the cluster context to deliver the broadcast to local sessions as well
+        final BroadcastListener listener = broadcastListeners.get(endpointPath);
+        if (listener != null) {
+            if (frame == null) {
+                listener.onBroadcast(text);
+            } else {
+                listener.onBroadcast(text, frame);
+            }
+        }
+    }
+
+    @Override
+    public void broadcastBinary(String endpointPath, byte[] data, byte[] frame) {
+        if (frame == null) {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.BROADCAST_BINARY).writeString(endpointPath)
+                                                                                  .writeBytes(data));
+        } else {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.BROADCAST_BINARY_FRAME).writeString(endpointPath)
+                                                                                        .writeBytes(frame));
+        }
+
+        final BroadcastListener listener = broadcastListeners.get(endpointPath);
+        if (listener != null) {
+            if (frame == null) {
+                listener.onBroadcast(data);
+            } else {
+                listener.onBroadcast(data, frame);
+            }
+        }
+    }
+
+    @Override
+    public boolean isSessionOpen(String sessionId, String endpointPath) {
+        final SessionEntry entry = sessions.get(sessionId);
+        return entry != null && entry.endpointPath.equals(endpointPath);
+    }
+
+    @Override
+    public Future<Void> close(String sessionId) {
+        return sendCommand(sessionId, SessionCommand.close(null), null);
+    }
+
+    @Override
+    public Future<Void> close(String sessionId, CloseReason closeReason) {
+        return sendCommand(sessionId, SessionCommand.close(closeReason), null);
+    }
+
+    @Override
+    public Set<String> getRemoteSessionIds(String endpointPath) {
+        final Set<String> result = new HashSet<String>();
+        for (Map.Entry<String, SessionEntry> entry : sessions.entrySet()) {
+            if (entry.getValue().endpointPath.equals(endpointPath) && !entry.getValue().nodeId.equals(nodeId)) {
+                result.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    @Override
+    public String createSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public String createConnectionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public void registerSession(String sessionId, String endpointPath, SessionEventListener listener) {
+        localSessions.put(sessionId, listener);
+        sessions.put(sessionId, new SessionEntry(nodeId, endpointPath));
+        broadcast(new ClusterProtocol.Writer(ClusterProtocol.SESSION_OPENED).writeString(sessionId)
+                                                                            .writeString(endpointPath));
+    }
+
+    @Override
+    public void registerSessionListener(String endpointPath, SessionListener listener) {
+        sessionListeners.put(endpointPath, listener);
+    }
+
+    @Override
+    public void registerBroadcastListener(String endpointPath, BroadcastListener listener) {
+        broadcastListeners.put(endpointPath, listener);
+    }
+
+    @Override
+    public Map<RemoteSession.DistributedMapKey, Object> getDistributedSessionProperties(String sessionId) {
+        return getSessionPropertiesMap(sessionId);
+    }
+
+    @Override
+    public Map<String, Object> getDistributedUserProperties(String connectionId) {
+        return getUserPropertiesMap(connectionId);
+    }
+
+    @Override
+    public boolean isSessionPropertiesChangeNotificationSupported() {
+        return true;
+    }
+
+    @Override
+    public void destroyDistributedUserProperties(String connectionId) {
+        if (userProperties.remove(connectionId) != null) {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.MAP_DESTROY).writeByte(ClusterProtocol.USER_PROPERTIES)
+                                                                             .writeString(connectionId));
+        }
+    }
+
+    @Override
+    public void removeSession(String sessionId, String endpointPath) {
+        localSessions.remove(sessionId);
+        sessions.remove(sessionId);
+        sessionProperties.remove(sessionId);
+        broadcast(new ClusterProtocol.Writer(ClusterProtocol.SESSION_CLOSED).writeString(sessionId)
+                                                                            .writeString(endpointPath));
+    }
+
+    @Override
+    public void shutdown() {
+        batcher.flush();
+        transport.shutdown();
+
+        final IOException exception = new IOException("Cluster context has been shut down.");
+        for (Long requestId : pendingRequests.keySet()) {
+            final PendingRequest request = pendingRequests.remove(requestId);
+            if (request != null) {
+                request.complete(exception);
+            }
+        }
+    }
+
+    private Future<Void> sendCommand(String sessionId, SessionCommand command, SendHandler sendHandler) {
+        final PendingRequest request = new PendingRequest(null, sendHandler);
+
+        final SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            request.complete(new IllegalStateException("Session " + sessionId + " is not registered in the cluster."));
+            return request.future;
+        }
+
+        // session owned by this node
+        if (entry.nodeId.equals(nodeId)) {
+            request.complete(executeCommand(sessionId, command));
+            return request.future;
+        }
+
+        final long requestId = requestCounter.incrementAndGet();
+        final PendingRequest remoteRequest = new PendingRequest(entry.nodeId, request);
+        pendingRequests.put(requestId, remoteRequest);
+
+        batcher.sendCommand(entry.nodeId, requestId, sessionId, command);
+        batcher.requestFlush();
+
+        return request.future;
+    }
+
+    private Throwable executeCommand(String sessionId, SessionCommand command) {
+        final SessionEventListener listener = localSessions.get(sessionId);
+        if (listener == null) {
+            return new IllegalStateException("Session " + sessionId + " is not open on node " + nodeId + ".");
+        }
+
+        try {
+            command.execute(listener);
+            return null;
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    private void handleMessage(String sourceNodeId, byte[] message) {
+        try {
+            processMessage(sourceNodeId, message);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Processing of a message from node " + sourceNodeId + " failed.", e);
+        }
+    }
+
+    private void processMessage(String sourceNodeId, byte[] message) throws IOException, ClassNotFoundException {
+        final ClusterProtocol.Reader reader = new ClusterProtocol.Reader(message);
+        final byte type = reader.readByte();
+
+        switch (type) {
+            case ClusterProtocol.BATCH: {
+                final String[] sessionIds = new String[reader.readInt()];
+                for (int i = 0; i < sessionIds.length; i++) {
+                    sessionIds[i] = reader.readString();
+                }
+
+                final int count = reader.readInt();
+                for (int i = 0; i < count; i++) {
+                    if (reader.readByte() == MessageBatcher.MESSAGE_ENTRY) {
+                        handleMessage(sourceNodeId, reader.readBytes());
+                        continue;
+                    }
+
+                    final long requestId = reader.readLong();
+                    final String sessionId = sessionIds[reader.readInt()];
+                    final Throwable failure = executeCommand(sessionId, SessionCommand.read(reader));
+
+                    final ClusterProtocol.Writer result = new ClusterProtocol.Writer(ClusterProtocol.RESULT);
+                    result.writeLong(requestId).writeBoolean(failure == null);
+                    if (failure != null) {
+                        result.writeString(String.valueOf(failure.getMessage()));
+                    }
+                    send(sourceNodeId, result);
+                }
+                break;
+            }
+            case ClusterProtocol.RESULT: {
+                final PendingRequest request = pendingRequests.remove(reader.readLong());
+                if (request != null) {
+                    request.complete(reader.readBoolean() ? null : new IOException(reader.readString()));
+                }
+                break;
+            }
+            case ClusterProtocol.BROADCAST_TEXT: {
+                final BroadcastListener listener = broadcastListeners.get(reader.readString());
+                if (listener != null) {
+                    listener.onBroadcast(reader.readString());
+                }
+                break;
+            }
+            case ClusterProtocol.BROADCAST_BINARY: {
+                final BroadcastListener listener = broadcastListeners.get(reader.readString());
+                if (listener != null) {
+                    listener.onBroadcast(reader.readBytes());
+                }
+                break;
+            }
+            case ClusterProtocol.BROADCAST_TEXT_FRAME: {
+                final BroadcastListener listener = broadcastListeners.get(reader.readString());
+                if (listener != null) {
+                    final byte[] frame = reader.readBytes();
+                    listener.onBroadcast(new String(ClusterProtocol.getFramePayload(frame), UTF_8), frame);
+                }
+                break;
+            }
+            case ClusterProtocol.BROADCAST_BINARY_FRAME: {
+                final BroadcastListener listener = broadcastListeners.get(reader.readString());
+                if (listener != null) {
+                    final byte[] frame = reader.readBytes();
+                    listener.onBroadcast(ClusterProtocol.getFramePayload(frame), frame);
+                }
+                break;
+            }
+            case ClusterProtocol.SESSION_OPENED: {
+                final String sessionId = reader.readString();
+                final String endpointPath = reader.readString();
+                if (sessions.put(sessionId, new SessionEntry(sourceNodeId, endpointPath)) == null) {
+                    final SessionListener listener = sessionListeners.get(endpointPath);
+                    if (listener != null) {
+                        listener.onSessionOpened(sessionId);
+                    }
+                }
+                break;
+            }
+            case ClusterProtocol.SESSION_CLOSED: {
+                final String sessionId = reader.readString();
+                final String endpointPath = reader.readString();
+                removeRemoteSession(sessionId, endpointPath);
+                break;
+            }
+            case ClusterProtocol.MAP_PUT: {
+                final byte mapType = reader.readByte();
+                final String mapId = reader.readString();
+                final Object key = ClusterProtocol.deserialize(reader.readBytes(), allowedClasses);
+                getMap(mapType, mapId).applyPut(key, ClusterProtocol.deserialize(reader.readBytes(), allowedClasses));
+                onMapChanged(mapType, mapId);
+                break;
+            }
+            case ClusterProtocol.MAP_REMOVE: {
+                final byte mapType = reader.readByte();
+                final String mapId = reader.readString();
+                getMap(mapType, mapId).applyRemove(ClusterProtocol.deserialize(reader.readBytes(), allowedClasses));
+                onMapChanged(mapType, mapId);
+                break;
+            }
+            case ClusterProtocol.MAP_CLEAR: {
+                final byte mapType = reader.readByte();
+                final String mapId = reader.readString();
+                getMap(mapType, mapId).applyClear();
+                onMapChanged(mapType, mapId);
+                break;
+            }
+            case ClusterProtocol.MAP_DESTROY: {
+                final byte mapType = reader.readByte();
+                final String mapId = reader.readString();
+                if (mapType == ClusterProtocol.SESSION_PROPERTIES) {
+                    sessionProperties.remove(mapId);
+                } else {
+                    userProperties.remove(mapId);
+                }
+                break;
+            }
+            case ClusterProtocol.SYNC_REQUEST: {
+                sendState(sourceNodeId);
+                break;
+            }
+            default:
+                LOGGER.log(Level.WARNING, "Unknown cluster message type: " + type);
+        }
+    }
+
+    /**
+     * Send distributed properties and registrations of sessions owned by this node to the given node.
+     */
+    private void sendState(String targetNodeId) {
+        for (String sessionId : localSessions.keySet()) {
+            final SessionEntry entry = sessions.get(sessionId);
+            if (entry == null) {
+                continue;
+            }
+
+            final ReplicatedMap<RemoteSession.DistributedMapKey, Object> properties = sessionProperties.get(sessionId);
+            if (properties != null) {
+                sendMapContent(targetNodeId, ClusterProtocol.SESSION_PROPERTIES, sessionId, properties);
+
+                final Object connectionId = properties.get(RemoteSession.DistributedMapKey.CONNECTION_ID);
+                final ReplicatedMap<String, Object> connectionProperties =
+                        connectionId == null ? null : userProperties.get(connectionId.toString());
+                if (connectionProperties != null) {
+                    sendMapContent(targetNodeId, ClusterProtocol.USER_PROPERTIES, connectionId.toString(),
+                                   connectionProperties);
+                }
+            }
+
+            send(targetNodeId, new ClusterProtocol.Writer(ClusterProtocol.SESSION_OPENED).writeString(sessionId)
+                                                                                         .writeString(
+                                                                                                 entry.endpointPath));
+        }
+    }
+
+    private void sendMapContent(String targetNodeId, byte mapType, String mapId, Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            final byte[] message = createPutMessage(mapType, mapId, entry.getKey(), entry.getValue());
+            if (message != null) {
+                batcher.send(targetNodeId, message);
+            }
+        }
+    }
+
+    /**
+     * Queue a message for one node. The message is sent on the next {@link MessageBatcher#requestFlush()}.
+     */
+    private void send(String targetNodeId, ClusterProtocol.Writer message) {
+        batcher.send(targetNodeId, message.toByteArray());
+    }
+
+    private void broadcast(ClusterProtocol.Writer message) {
+        broadcast(message.toByteArray());
+    }
+
+    private void broadcast(byte[] message) {
+        batcher.broadcast(message);
+        batcher.requestFlush();
+    }
+
+    /**
+     * Notify the endpoint that cached properties of a remote session are no longer valid.
+     */
+    private void onMapChanged(byte mapType, String mapId) {
+        if (mapType != ClusterProtocol.SESSION_PROPERTIES) {
+            return;
+        }
+
+        // properties are replicated before the session is opened, there is nothing to invalidate yet
+        final SessionEntry entry = sessions.get(mapId);
+        if (entry != null) {
+            final SessionListener listener = sessionListeners.get(entry.endpointPath);
+            if (listener != null) {
+                listener.onSessionPropertiesChanged(mapId);
+            }
+        }
+    }
+
+    private void removeRemoteSession(String sessionId, String endpointPath) {
+        sessionProperties.remove(sessionId);
+        if (sessions.remove(sessionId) != null) {
+            final SessionListener listener = sessionListeners.get(endpointPath);
+            if (listener != null) {
+                listener.onSessionClosed(sessionId);
+            }
+        }
+    }
+
+    private void removeNode(String leftNodeId) {
+        for (Map.Entry<String, SessionEntry> entry : sessions.entrySet()) {
+            if (entry.getValue().nodeId.equals(leftNodeId)) {
+                removeRemoteSession(entry.getKey(), entry.getValue().endpointPath);
+            }
+        }
+
+        final Iterator<Map.Entry<Long, PendingRequest>> iterator = pendingRequests.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final PendingRequest request = iterator.next().getValue();
+            if (leftNodeId.equals(request.nodeId)) {
+                iterator.remove();
+                request.complete(new IOException("Node " + leftNodeId + " has left the cluster."));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReplicatedMap<Object, Object> getMap(byte mapType, String mapId) {
+        if (mapType == ClusterProtocol.SESSION_PROPERTIES) {
+            return (ReplicatedMap<Object, Object>) (ReplicatedMap<?, ?>) getSessionPropertiesMap(mapId);
+        }
+        return (ReplicatedMap<Object, Object>) (ReplicatedMap<?, ?>) getUserPropertiesMap(mapId);
+    }
+
+    private ReplicatedMap<RemoteSession.DistributedMapKey, Object> getSessionPropertiesMap(String sessionId) {
+        ReplicatedMap<RemoteSession.DistributedMapKey, Object> map = sessionProperties.get(sessionId);
+        if (map == null) {
+            final ReplicatedMap<RemoteSession.DistributedMapKey, Object> newMap =
+                    new ReplicatedMap<RemoteSession.DistributedMapKey, Object>(
+                            new MapReplicator(ClusterProtocol.SESSION_PROPERTIES, sessionId));
+            map = sessionProperties.putIfAbsent(sessionId, newMap);
+            if (map == null) {
+                map = newMap;
+            }
+        }
+        return map;
+    }
+
+    private ReplicatedMap<String, Object> getUserPropertiesMap(String connectionId) {
+        ReplicatedMap<String, Object> map = userProperties.get(connectionId);
+        if (map == null) {
+            final ReplicatedMap<String, Object> newMap =
+                    new ReplicatedMap<String, Object>(new MapReplicator(ClusterProtocol.USER_PROPERTIES, connectionId));
+            map = userProperties.putIfAbsent(connectionId, newMap);
+            if (map == null) {
+                map = newMap;
+            }
+        }
+        return map;
+    }
+
+    private static byte[] createPutMessage(byte mapType, String mapId, Object key, Object value) {
+        try {
+            return new ClusterProtocol.Writer(ClusterProtocol.MAP_PUT).writeByte(mapType)
+                                                                      .writeString(mapId)
+                                                                      .writeBytes(ClusterProtocol.serialize(key))
+                                                                      .writeBytes(ClusterProtocol.serialize(value))
+                                                                      .toByteArray();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Distributed property " + key + " cannot be serialized and will not be "
+                    + "replicated to other nodes.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Broadcasts modifications of one distributed map.
+     */
+    private class MapReplicator implements ReplicatedMap.Replicator {
+
+        private final byte mapType;
+        private final String mapId;
+
+        MapReplicator(byte mapType, String mapId) {
+            this.mapType = mapType;
+            this.mapId = mapId;
+        }
+
+        @Override
+        public void onPut(Object key, Object value) {
+            final byte[] message = createPutMessage(mapType, mapId, key, value);
+            if (message != null) {
+                broadcast(message);
+            }
+        }
+
+        @Override
+        public void onRemove(Object key) {
+            try {
+                broadcast(new ClusterProtocol.Writer(ClusterProtocol.MAP_REMOVE).writeByte(mapType)
+                                                                                .writeString(mapId)
+                                                                                .writeBytes(ClusterProtocol.serialize(key)));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Distributed property " + key + " cannot be serialized.", e);
+            }
+        }
+
+        @Override
+        public void onClear() {
+            broadcast(new ClusterProtocol.Writer(ClusterProtocol.MAP_CLEAR).writeByte(mapType).writeString(mapId));
+        }
+    }
+
+    /**
+     * Registry entry of a session.
+     */
+    private static class SessionEntry {
+
+        private final String nodeId;
+        private final String endpointPath;
+
+        SessionEntry(String nodeId, String endpointPath) {
+            this.nodeId = nodeId;
+            this.endpointPath = endpointPath;
+        }
+    }
+
+    /**
+     * Request waiting for a result.
+     */
+    private static class PendingRequest {
+
+        private final String nodeId;
+        private final TyrusFuture<Void> future;
+        private final SendHandler sendHandler;
+
+        PendingRequest(String nodeId, SendHandler sendHandler) {
+            this.nodeId = nodeId;
+            this.future = new TyrusFuture<Void>();
+            this.sendHandler = sendHandler;
+        }
+
+        PendingRequest(String nodeId, PendingRequest request) {
+            this.nodeId = nodeId;
+            this.future = request.future;
+            this.sendHandler = request.sendHandler;
+        }
+
+        void complete(Throwable failure) {
+            if (failure == null) {
+                future.setResult(null);
+            } else {
+                future.setFailure(failure);
+            }
+
+            if (sendHandler != null) {
+                sendHandler.onResult(failure == null ? new SendResult() : new SendResult(failure));
+            }
+        }
+    }
+}
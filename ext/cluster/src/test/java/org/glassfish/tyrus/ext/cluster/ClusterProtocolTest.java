@@ -0,0 +1,108 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.InvalidClassException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.tyrus.core.cluster.RemoteSession;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ClusterProtocol} tests.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class ClusterProtocolTest {
+
+    @Test
+    public void testAllowedClassesDeserialized() throws Exception {
+        final Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+        parameters.put("param", new ArrayList<String>(Collections.singletonList("value")));
+
+        final List<String> none = Collections.emptyList();
+        final Object[] values = {"string", 1L, true, URI.create("ws://localhost/path"),
+                RemoteSession.DistributedMapKey.REQUEST_URI, Collections.unmodifiableMap(parameters),
+                new String[]{"a"}, new int[]{1}, none};
+
+        for (Object value : values) {
+            final Object result = ClusterProtocol.deserialize(ClusterProtocol.serialize(value),
+                                                              Collections.<String>emptySet());
+            assertEquals(value.getClass(), result.getClass());
+        }
+    }
+
+    @Test
+    public void testNotAllowedClassRejected() throws Exception {
+        final byte[] data = ClusterProtocol.serialize(new AtomicInteger(1));
+        try {
+            ClusterProtocol.deserialize(data, Collections.<String>emptySet());
+            fail("AtomicInteger is not allowed by default.");
+        } catch (InvalidClassException e) {
+            // expected
+        }
+
+        assertEquals(1, ((AtomicInteger) ClusterProtocol.deserialize(
+                data, Collections.singleton(AtomicInteger.class.getName()))).get());
+        assertEquals(1, ((AtomicInteger) ClusterProtocol.deserialize(
+                data, Collections.singleton("java.util.concurrent."))).get());
+    }
+
+    @Test
+    public void testIsAllowed() {
+        assertTrue(ClusterProtocol.isAllowed("[[Ljava.lang.String;", Collections.<String>emptySet()));
+        assertTrue(ClusterProtocol.isAllowed("[B", Collections.<String>emptySet()));
+        assertFalse(ClusterProtocol.isAllowed("[Ljava.lang.Object;", Collections.<String>emptySet()));
+        assertFalse(ClusterProtocol.isAllowed("java.util.PriorityQueue", Collections.<String>emptySet()));
+        assertFalse(ClusterProtocol.isAllowed("java.util.PriorityQueue", Collections.singleton("java.util.concurrent.")));
+    }
+}
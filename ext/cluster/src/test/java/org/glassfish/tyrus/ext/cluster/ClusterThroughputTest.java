@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.glassfish.tyrus.core.cluster.SessionEventListener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Multi-node throughput harness.
+ * <p/>
+ * Every node owns one session; the first node sends messages to sessions owned by all other nodes and the test measures
+ * how long it takes until all of them are delivered. The number of messages sent to each node can be set by
+ * "tyrus.test.cluster.messages" system property and the number of nodes by "tyrus.test.cluster.nodes".
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class ClusterThroughputTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterThroughputTest.class.getName());
+
+    private static final int MESSAGES = Integer.getInteger("tyrus.test.cluster.messages", 1000);
+    private static final int NODES = Integer.getInteger("tyrus.test.cluster.nodes", 3);
+    private static final String ENDPOINT_PATH = "/throughput";
+
+    @Test
+    public void testInJvmTransport() throws Exception {
+        final InJvmTransport.Group group = new InJvmTransport.Group();
+        final List<NodeTransport> transports = new ArrayList<NodeTransport>();
+        for (int i = 0; i < NODES; i++) {
+            transports.add(new InJvmTransport("node" + i, group));
+        }
+        run("in-JVM", transports);
+    }
+
+    @Test
+    public void testTcpTransport() throws Exception {
+        final Map<String, InetSocketAddress> peers = new HashMap<String, InetSocketAddress>();
+        for (int i = 0; i < NODES; i++) {
+            peers.put("node" + i, new InetSocketAddress("localhost", 8045 + i));
+        }
+
+        final List<NodeTransport> transports = new ArrayList<NodeTransport>();
+        for (int i = 0; i < NODES; i++) {
+            transports.add(new TcpTransport("node" + i, peers.get("node" + i), peers));
+        }
+        run("TCP", transports);
+    }
+
+    private void run(String transportName, List<NodeTransport> transports) throws Exception {
+        final List<TransportClusterContext> contexts = new ArrayList<TransportClusterContext>();
+        try {
+            for (NodeTransport transport : transports) {
+                contexts.add(new TransportClusterContext(transport));
+            }
+
+            final CountDownLatch latch = new CountDownLatch(MESSAGES * (NODES - 1));
+            for (int i = 1; i < NODES; i++) {
+                contexts.get(i).registerSession("session" + i, ENDPOINT_PATH, new CountingListener(latch));
+            }
+
+            final TransportClusterContext sender = contexts.get(0);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (sender.getRemoteSessionIds(ENDPOINT_PATH).size() < NODES - 1) {
+                assertTrue("Sessions were not replicated.", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                for (int node = 1; node < NODES; node++) {
+                    sender.sendText("session" + node, "message " + i);
+                }
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            final long durationNanos = System.nanoTime() - start;
+
+            LOGGER.info(String.format("%s transport, %d nodes: %d messages delivered in %d ms (%.0f messages/s).",
+                                      transportName, NODES, MESSAGES * (NODES - 1),
+                                      TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                                      MESSAGES * (NODES - 1) / (durationNanos / 1e9)));
+        } finally {
+            for (TransportClusterContext context : contexts) {
+                context.shutdown();
+            }
+        }
+    }
+
+    private static class CountingListener extends SessionEventListener {
+
+        private final CountDownLatch latch;
+
+        CountingListener(CountDownLatch latch) {
+            super(null);
+            this.latch = latch;
+        }
+
+        @Override
+        public void onSendText(String message) throws IOException {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link MessageBatcher} tests.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class MessageBatcherTest {
+
+    @Test
+    public void testSingleMessageNotWrapped() {
+        final RecordingTransport transport = new RecordingTransport();
+        final MessageBatcher batcher = new MessageBatcher(transport, null);
+
+        final byte[] message = new ClusterProtocol.Writer(ClusterProtocol.SYNC_REQUEST).toByteArray();
+        batcher.send("node2", message);
+        batcher.flush();
+
+        assertEquals(1, transport.sent.size());
+        assertArrayEquals(message, transport.sent.get(0));
+    }
+
+    @Test
+    public void testBatchPerDestination() {
+        final RecordingTransport transport = new RecordingTransport();
+        final MessageBatcher batcher = new MessageBatcher(transport, null);
+
+        batcher.sendCommand("node2", 1, "session1", SessionCommand.text("a"));
+        batcher.sendCommand("node2", 2, "session1", SessionCommand.text("b"));
+        batcher.sendCommand("node2", 3, "session2", SessionCommand.binary(new byte[]{1, 2}));
+        batcher.broadcast(new ClusterProtocol.Writer(ClusterProtocol.SYNC_REQUEST).toByteArray());
+        batcher.flush();
+
+        assertEquals(2, transport.sent.size());
+        assertEquals("node2", transport.destinations.get(0));
+        assertEquals(null, transport.destinations.get(1));
+
+        final ClusterProtocol.Reader reader = new ClusterProtocol.Reader(transport.sent.get(0));
+        assertEquals(ClusterProtocol.BATCH, reader.readByte());
+
+        // session table contains every session once
+        assertEquals(2, reader.readInt());
+        assertEquals("session1", reader.readString());
+        assertEquals("session2", reader.readString());
+
+        assertEquals(3, reader.readInt());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(MessageBatcher.COMMAND_ENTRY, reader.readByte());
+            assertEquals(i + 1, reader.readLong());
+            assertEquals(i < 2 ? 0 : 1, reader.readInt());
+            SessionCommand.read(reader);
+        }
+    }
+
+    @Test
+    public void testInterleavedDestinationsGrouped() {
+        final RecordingTransport transport = new RecordingTransport();
+        final MessageBatcher batcher = new MessageBatcher(transport, null);
+
+        batcher.sendCommand("node2", 1, "session1", SessionCommand.text("a"));
+        batcher.sendCommand("node3", 2, "session2", SessionCommand.text("b"));
+        batcher.sendCommand("node2", 3, "session1", SessionCommand.text("c"));
+        batcher.sendCommand("node3", 4, "session2", SessionCommand.text("d"));
+        // broadcast is sent after everything queued before it and before everything queued after it
+        batcher.broadcast(new ClusterProtocol.Writer(ClusterProtocol.SYNC_REQUEST).toByteArray());
+        batcher.sendCommand("node2", 5, "session1", SessionCommand.text("e"));
+        batcher.flush();
+
+        assertEquals(Arrays.asList("node2", "node3", null, "node2"), transport.destinations);
+        assertEquals(Arrays.asList(1L, 3L), readRequestIds(transport.sent.get(0)));
+        assertEquals(Arrays.asList(2L, 4L), readRequestIds(transport.sent.get(1)));
+        assertEquals(Collections.singletonList(5L), readRequestIds(transport.sent.get(3)));
+    }
+
+    @Test
+    public void testRequestFlush() throws InterruptedException {
+        final RecordingTransport transport = new RecordingTransport();
+        final MessageBatcher batcher = new MessageBatcher(transport, null);
+
+        batcher.send("node2", new ClusterProtocol.Writer(ClusterProtocol.SYNC_REQUEST).toByteArray());
+        batcher.requestFlush();
+
+        for (int i = 0; i < 300 && transport.getSentCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, transport.getSentCount());
+    }
+
+    private static List<Long> readRequestIds(byte[] envelope) {
+        final ClusterProtocol.Reader reader = new ClusterProtocol.Reader(envelope);
+        assertEquals(ClusterProtocol.BATCH, reader.readByte());
+        for (int i = reader.readInt(); i > 0; i--) {
+            reader.readString();
+        }
+
+        final List<Long> requestIds = new ArrayList<Long>();
+        for (int i = reader.readInt(); i > 0; i--) {
+            assertEquals(MessageBatcher.COMMAND_ENTRY, reader.readByte());
+            requestIds.add(reader.readLong());
+            reader.readInt();
+            SessionCommand.read(reader);
+        }
+        return requestIds;
+    }
+
+    private static class RecordingTransport implements NodeTransport {
+
+        private final List<String> destinations = new ArrayList<String>();
+        private final List<byte[]> sent = new ArrayList<byte[]>();
+
+        synchronized int getSentCount() {
+            return sent.size();
+        }
+
+        @Override
+        public String getNodeId() {
+            return "node1";
+        }
+
+        @Override
+        public void start(Receiver receiver) throws IOException {
+        }
+
+        @Override
+        public synchronized void send(String nodeId, byte[] message) throws IOException {
+            destinations.add(nodeId);
+            sent.add(message);
+        }
+
+        @Override
+        public synchronized void broadcast(byte[] message) {
+            destinations.add(null);
+            sent.add(message);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
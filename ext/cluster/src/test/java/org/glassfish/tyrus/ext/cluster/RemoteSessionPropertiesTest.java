@@ -0,0 +1,173 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.glassfish.tyrus.core.cluster.RemoteSession;
+import org.glassfish.tyrus.core.cluster.SessionEventListener;
+import org.glassfish.tyrus.core.cluster.SessionListener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests caching of distributed session properties in {@link RemoteSession}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class RemoteSessionPropertiesTest {
+
+    private static final String ENDPOINT_PATH = "/cached";
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        final InJvmTransport.Group group = new InJvmTransport.Group();
+        final TransportClusterContext owner = new TransportClusterContext(new InJvmTransport("owner", group));
+        final TransportClusterContext reader = new TransportClusterContext(new InJvmTransport("reader", group));
+
+        try {
+            final RemoteSession[] remoteSession = new RemoteSession[1];
+            reader.registerSessionListener(ENDPOINT_PATH, new SessionListener() {
+                @Override
+                public void onSessionOpened(String sessionId) {
+                }
+
+                @Override
+                public void onSessionClosed(String sessionId) {
+                }
+
+                @Override
+                public void onSessionPropertiesChanged(String sessionId) {
+                    remoteSession[0].invalidatePropertyCache();
+                }
+            });
+
+            final Map<RemoteSession.DistributedMapKey, Object> properties =
+                    owner.getDistributedSessionProperties("session");
+            properties.put(RemoteSession.DistributedMapKey.CONNECTION_ID, "connection");
+            properties.put(RemoteSession.DistributedMapKey.MAX_IDLE_TIMEOUT, 10L);
+            owner.registerSession("session", ENDPOINT_PATH, new SessionEventListener(null));
+
+            assertTrue(waitFor(reader, "session"));
+            remoteSession[0] = new RemoteSession("session", reader, reader.getDistributedSessionProperties("session"),
+                                                 null, null);
+            assertEquals(10L, remoteSession[0].getMaxIdleTimeout());
+
+            // local modification of the replica does not fire any event, cached value is returned
+            ((ReplicatedMap<RemoteSession.DistributedMapKey, Object>) reader.getDistributedSessionProperties("session"))
+                    .applyPut(RemoteSession.DistributedMapKey.MAX_IDLE_TIMEOUT, 15L);
+            assertEquals(10L, remoteSession[0].getMaxIdleTimeout());
+
+            // change made on the owning node invalidates the cache
+            properties.put(RemoteSession.DistributedMapKey.MAX_IDLE_TIMEOUT, 20L);
+            for (int i = 0; i < 300 && remoteSession[0].getMaxIdleTimeout() != 20L; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(20L, remoteSession[0].getMaxIdleTimeout());
+        } finally {
+            owner.shutdown();
+            reader.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidationDuringLoad() throws Exception {
+        final TransportClusterContext context =
+                new TransportClusterContext(new InJvmTransport("node", new InJvmTransport.Group()));
+
+        try {
+            final InvalidatingMap properties = new InvalidatingMap();
+            properties.put(RemoteSession.DistributedMapKey.CONNECTION_ID, "connection");
+            properties.put(RemoteSession.DistributedMapKey.MAX_IDLE_TIMEOUT, 10L);
+
+            final RemoteSession remoteSession = new RemoteSession("session", context, properties, null, null);
+            remoteSession.invalidatePropertyCache();
+
+            // property changes and the cache is invalidated after the load has copied the old value
+            properties.duringLoad = new Runnable() {
+                @Override
+                public void run() {
+                    properties.put(RemoteSession.DistributedMapKey.MAX_IDLE_TIMEOUT, 20L);
+                    remoteSession.invalidatePropertyCache();
+                }
+            };
+
+            // the in-flight load returns the value it has read, but must not be cached
+            assertEquals(10L, remoteSession.getMaxIdleTimeout());
+            assertEquals(20L, remoteSession.getMaxIdleTimeout());
+        } finally {
+            context.shutdown();
+        }
+    }
+
+    private static boolean waitFor(TransportClusterContext context, String sessionId) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            if (context.getRemoteSessionIds(ENDPOINT_PATH).contains(sessionId)) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static class InvalidatingMap extends HashMap<RemoteSession.DistributedMapKey, Object> {
+
+        private Runnable duringLoad;
+
+        @Override
+        public Set<Map.Entry<RemoteSession.DistributedMapKey, Object>> entrySet() {
+            final Runnable runnable = duringLoad;
+            if (runnable == null) {
+                return super.entrySet();
+            }
+
+            duringLoad = null;
+            final Set<Map.Entry<RemoteSession.DistributedMapKey, Object>> snapshot =
+                    new HashMap<RemoteSession.DistributedMapKey, Object>(this).entrySet();
+            runnable.run();
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TcpTransport} tests.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class TcpTransportTest {
+
+    private static final InetSocketAddress NODE1 = new InetSocketAddress("127.0.0.1", 8037);
+    private static final InetSocketAddress NODE2 = new InetSocketAddress("127.0.0.1", 8038);
+
+    @Test
+    public void testUnknownPeerRejected() throws Exception {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+        final TcpTransport transport = createTransport();
+        transport.start(new RecordingReceiver(events));
+        try {
+            final Socket socket = new Socket();
+            try {
+                socket.connect(NODE1);
+                final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+                output.writeUTF("intruder");
+                output.writeUTF("incarnation");
+                output.writeInt(1);
+                output.write(42);
+                output.flush();
+
+                // connection is closed without delivering anything
+                socket.setSoTimeout(3000);
+                assertEquals(-1, socket.getInputStream().read());
+                assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+            } finally {
+                socket.close();
+            }
+
+            final Socket peerSocket = new Socket();
+            try {
+                peerSocket.connect(NODE1);
+                final DataOutputStream output = new DataOutputStream(peerSocket.getOutputStream());
+                output.writeUTF("node2");
+                output.writeUTF("incarnation");
+                output.writeInt(1);
+                output.write(42);
+                output.flush();
+
+                assertEquals("joined:node2", events.poll(3, TimeUnit.SECONDS));
+                assertEquals("message:node2", events.poll(3, TimeUnit.SECONDS));
+            } finally {
+                peerSocket.close();
+            }
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test
+    public void testPeerAddressChecked() throws Exception {
+        final TcpTransport transport = createTransport();
+
+        assertTrue(transport.isKnownPeer("node2", InetAddress.getByName("127.0.0.1")));
+        assertFalse(transport.isKnownPeer("node2", InetAddress.getByAddress(new byte[]{10, 1, 2, 3})));
+        assertFalse(transport.isKnownPeer("node3", InetAddress.getByName("127.0.0.1")));
+        // local node id is not a peer
+        assertFalse(transport.isKnownPeer("node1", InetAddress.getByName("127.0.0.1")));
+    }
+
+    private static TcpTransport createTransport() {
+        final Map<String, InetSocketAddress> peers = new HashMap<String, InetSocketAddress>();
+        peers.put("node1", NODE1);
+        peers.put("node2", NODE2);
+        return new TcpTransport("node1", NODE1, peers);
+    }
+
+    private static class RecordingReceiver implements NodeTransport.Receiver {
+
+        private final BlockingQueue<String> events;
+
+        RecordingReceiver(BlockingQueue<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onMessage(String sourceNodeId, byte[] message) {
+            events.add("message:" + sourceNodeId);
+        }
+
+        @Override
+        public void onNodeJoined(String nodeId) {
+            events.add("joined:" + nodeId);
+        }
+
+        @Override
+        public void onNodeLeft(String nodeId) {
+            events.add("left:" + nodeId);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.cluster;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpoint;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusSession;
+import org.glassfish.tyrus.core.cluster.ClusterContext;
+import org.glassfish.tyrus.core.cluster.RemoteSession;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.tools.TestContainer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two servers sharing one cluster: broadcast, messages sent to {@link RemoteSession} and distributed properties.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class TransportClusterContextTest extends TestContainer {
+
+    private static final String CONTEXT_PATH = "/clusterTest";
+    private static final String ENDPOINT_PATH = CONTEXT_PATH + "/clusteredEndpoint";
+    private static final int SECOND_PORT = 8026;
+
+    @Test
+    public void testInJvmTransport() throws Exception {
+        final InJvmTransport.Group group = new InJvmTransport.Group();
+        test(new TransportClusterContext(new InJvmTransport("node1", group)),
+             new TransportClusterContext(new InJvmTransport("node2", group)));
+    }
+
+    @Test
+    public void testTcpTransport() throws Exception {
+        final Map<String, InetSocketAddress> peers = new HashMap<String, InetSocketAddress>();
+        peers.put("node1", new InetSocketAddress("localhost", 8035));
+        peers.put("node2", new InetSocketAddress("localhost", 8036));
+
+        test(new TransportClusterContext(new TcpTransport("node1", peers.get("node1"), peers)),
+             new TransportClusterContext(new TcpTransport("node2", peers.get("node2"), peers)));
+    }
+
+    private void test(ClusterContext clusterContext1, ClusterContext clusterContext2) throws Exception {
+        Server server1 = null;
+        Server server2 = null;
+        try {
+            setContextPath(CONTEXT_PATH);
+
+            final Map<String, Object> properties1 = new HashMap<String, Object>();
+            properties1.put(ClusterContext.CLUSTER_CONTEXT, clusterContext1);
+            server1 = new Server(getHost(), getPort(), CONTEXT_PATH, properties1, ClusteredEndpoint.class);
+            server1.start();
+
+            final Map<String, Object> properties2 = new HashMap<String, Object>();
+            properties2.put(ClusterContext.CLUSTER_CONTEXT, clusterContext2);
+            server2 = new Server(getHost(), SECOND_PORT, CONTEXT_PATH, properties2, ClusteredEndpoint.class);
+            server2.start();
+
+            final ClientManager client = createClient();
+            final ClientEndpointImpl client1 = new ClientEndpointImpl();
+            final ClientEndpointImpl client2 = new ClientEndpointImpl();
+            final Session session1 = client.connectToServer(client1, getURI(ClusteredEndpoint.class));
+            setDefaultPort(SECOND_PORT);
+            client.connectToServer(client2, getURI(ClusteredEndpoint.class));
+
+            // each node has to learn about the session opened on the other one
+            assertTrue(waitForRemoteSession(clusterContext1));
+            assertTrue(waitForRemoteSession(clusterContext2));
+
+            session1.getBasicRemote().sendText("broadcast");
+            assertEquals("broadcast", client1.messages.poll(3, TimeUnit.SECONDS));
+            assertEquals("broadcast", client2.messages.poll(3, TimeUnit.SECONDS));
+
+            session1.getBasicRemote().sendText("remote");
+            assertEquals("remote", client2.messages.poll(3, TimeUnit.SECONDS));
+
+            session1.getBasicRemote().sendText("property");
+            assertEquals("value", client2.messages.poll(3, TimeUnit.SECONDS));
+        } finally {
+            setDefaultPort(8025);
+            stopServer(server1);
+            stopServer(server2);
+            clusterContext1.shutdown();
+            clusterContext2.shutdown();
+        }
+    }
+
+    private static boolean waitForRemoteSession(ClusterContext clusterContext) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            if (clusterContext.getRemoteSessionIds(ENDPOINT_PATH).size() == 1) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    @ServerEndpoint("/clusteredEndpoint")
+    public static class ClusteredEndpoint {
+
+        @OnMessage
+        public void onMessage(Session session, String message) throws Exception {
+            final TyrusSession tyrusSession = (TyrusSession) session;
+
+            if ("broadcast".equals(message)) {
+                tyrusSession.broadcast(message);
+            } else if ("remote".equals(message)) {
+                for (RemoteSession remoteSession : tyrusSession.getRemoteSessions()) {
+                    remoteSession.getAsyncRemote().sendText(message).get(3, TimeUnit.SECONDS);
+                }
+            } else if ("property".equals(message)) {
+                for (RemoteSession remoteSession : tyrusSession.getRemoteSessions()) {
+                    remoteSession.getDistributedProperties().put("key", "value");
+                    remoteSession.getAsyncRemote().sendText("getProperty").get(3, TimeUnit.SECONDS);
+                }
+            } else if ("getProperty".equals(message)) {
+                session.getBasicRemote().sendText(String.valueOf(tyrusSession.getDistributedProperties().get("key")));
+            }
+        }
+    }
+
+    @ClientEndpoint
+    public static class ClientEndpointImpl {
+
+        private final LinkedBlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+        @OnMessage
+        public void onMessage(Session session, String message) throws Exception {
+            if ("getProperty".equals(message)) {
+                session.getBasicRemote().sendText(message);
+            } else {
+                messages.add(message);
+            }
+        }
+    }
+}
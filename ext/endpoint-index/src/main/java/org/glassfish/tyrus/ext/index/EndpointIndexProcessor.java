@@ -0,0 +1,472 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.index;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating the Tyrus endpoint index.
+ * <p/>
+ * Every {@code javax.websocket.server.ServerEndpoint} annotated class compiled with this processor on the class path
+ * is checked against the rules Tyrus enforces when the endpoint is deployed. Violations are reported as compilation
+ * errors. Valid endpoints are written to {@value #RESOURCE_NAME}, together with their {@code @OnOpen}, {@code
+ * @OnClose}, {@code @OnError} and {@code @OnMessage} methods and a hash of signatures of all their public methods. When
+ * the endpoint is deployed, Tyrus reads the index and does not need to introspect all public methods of the class,
+ * unless the signature hash shows that the class has changed since the index was generated.
+ * <p/>
+ * An endpoint is marked as {@code validated} only when all the checks could be done at compile time. Endpoints using
+ * decoded message types, primitive message types or encoded return types depend on the configured coders and are
+ * still validated when deployed.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class EndpointIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Name of the generated resource; has to be kept in sync with {@code org.glassfish.tyrus.core.EndpointIndex}.
+     */
+    public static final String RESOURCE_NAME = "META-INF/tyrus/endpoint.idx";
+
+    private static final String SERVER_ENDPOINT = "javax.websocket.server.ServerEndpoint";
+    private static final String PATH_PARAM = "javax.websocket.server.PathParam";
+    private static final String ON_OPEN = "javax.websocket.OnOpen";
+    private static final String ON_CLOSE = "javax.websocket.OnClose";
+    private static final String ON_ERROR = "javax.websocket.OnError";
+    private static final String ON_MESSAGE = "javax.websocket.OnMessage";
+    private static final String SESSION = "javax.websocket.Session";
+    private static final String ENDPOINT_CONFIG = "javax.websocket.EndpointConfig";
+    private static final String CLOSE_REASON = "javax.websocket.CloseReason";
+    private static final String PONG_MESSAGE = "javax.websocket.PongMessage";
+
+    /**
+     * Kind of messages consumed by an {@code @OnMessage} method.
+     */
+    private enum MessageKind {
+        TEXT, BINARY, PONG
+    }
+
+    // endpoint class name -> index line; entries survive rounds, the resource is written once processing is over
+    private final Map<String, String> entries = new LinkedHashMap<String, String>();
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(SERVER_ENDPOINT);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeElement serverEndpoint = elements.getTypeElement(SERVER_ENDPOINT);
+
+        if (serverEndpoint != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(serverEndpoint)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+
+                final TypeElement endpoint = (TypeElement) element;
+                final String line = processEndpoint(endpoint);
+                if (line != null) {
+                    entries.put(elements.getBinaryName(endpoint).toString(), line);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !roundEnv.errorRaised() && !entries.isEmpty()) {
+            writeIndex();
+        }
+
+        // other processors may be interested in @ServerEndpoint too
+        return false;
+    }
+
+    /**
+     * Check an endpoint class and create its index line.
+     *
+     * @param endpoint annotated endpoint class.
+     * @return index line or {@code null} when the endpoint should not be indexed.
+     */
+    private String processEndpoint(TypeElement endpoint) {
+        final Set<Modifier> modifiers = endpoint.getModifiers();
+
+        // abstract and inaccessible classes are reported by the runtime, no point in indexing them
+        if (modifiers.contains(Modifier.ABSTRACT) || !modifiers.contains(Modifier.PUBLIC)
+                || (endpoint.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+                || endpoint.getNestingKind() == NestingKind.LOCAL
+                || endpoint.getNestingKind() == NestingKind.ANONYMOUS) {
+            return null;
+        }
+
+        final List<String> methods = new ArrayList<String>();
+        final EnumSet<MessageKind> messageKinds = EnumSet.noneOf(MessageKind.class);
+        final Map<String, ExecutableElement> lifecycleMethods = new LinkedHashMap<String, ExecutableElement>();
+        boolean valid = true;
+        boolean validated = true;
+        // has to be computed the same way as org.glassfish.tyrus.core.EndpointIndex#getSignatureHash(Class)
+        int signatureHash = 0;
+
+        for (Element member : elements.getAllMembers(endpoint)) {
+            if (member.getKind() != ElementKind.METHOD || !member.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+
+            final ExecutableElement method = (ExecutableElement) member;
+            signatureHash += getDescriptor(method).hashCode();
+
+            final String annotation = getMethodAnnotation(method);
+            if (annotation == null) {
+                continue;
+            }
+
+            methods.add(getDescriptor(method));
+
+            if (ON_MESSAGE.equals(annotation)) {
+                final MessageKind kind = getMessageKind(endpoint, method);
+                if (kind == null) {
+                    validated = false;
+                } else if (!messageKinds.add(kind)) {
+                    valid = error(endpoint, method, "more than one @OnMessage method consumes %s messages.",
+                                  kind.name().toLowerCase());
+                }
+
+                if (!isBuiltInReturnType(method.getReturnType())) {
+                    // encoders are resolved at deployment
+                    validated = false;
+                }
+                continue;
+            }
+
+            final ExecutableElement previous = lifecycleMethods.put(annotation, method);
+            if (previous != null) {
+                valid = error(endpoint, method, "multiple methods annotated with @%s (%s, %s).",
+                              annotation.substring(annotation.lastIndexOf('.') + 1),
+                              previous.getSimpleName(), method.getSimpleName());
+            }
+
+            if (!checkLifecycleParameters(endpoint, method, annotation)) {
+                valid = false;
+            }
+        }
+
+        if (!valid) {
+            return null;
+        }
+
+        final StringBuilder sb = new StringBuilder(elements.getBinaryName(endpoint))
+                .append(' ').append(validated ? "validated" : "unvalidated")
+                .append(' ').append(Integer.toHexString(signatureHash));
+        for (String method : methods) {
+            sb.append(' ').append(method);
+        }
+        return sb.toString();
+    }
+
+    private boolean checkLifecycleParameters(TypeElement endpoint, ExecutableElement method, String annotation) {
+        final List<TypeMirror> unknown = getUnknownParameters(endpoint, method);
+        if (unknown == null) {
+            return false;
+        }
+
+        if (ON_OPEN.equals(annotation)) {
+            if (!unknown.isEmpty()) {
+                return error(endpoint, method, "@OnOpen method has a forbidden parameter of type %s.", unknown.get(0));
+            }
+        } else if (ON_CLOSE.equals(annotation)) {
+            for (TypeMirror type : unknown) {
+                if (!isType(type, CLOSE_REASON)) {
+                    return error(endpoint, method, "@OnClose method has a forbidden parameter of type %s.", type);
+                }
+            }
+        } else {
+            int throwables = 0;
+            for (TypeMirror type : unknown) {
+                if (!isType(type, Throwable.class.getName())) {
+                    return error(endpoint, method, "@OnError method has a forbidden parameter of type %s.", type);
+                }
+                throwables++;
+            }
+
+            if (throwables != 1) {
+                return error(endpoint, method, "@OnError method has to have exactly one Throwable parameter.");
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get kind of messages consumed by given {@code @OnMessage} method.
+     *
+     * @return message kind or {@code null} when the kind depends on configured decoders or when the method is not
+     * valid; the latter is reported by the runtime.
+     */
+    private MessageKind getMessageKind(TypeElement endpoint, ExecutableElement method) {
+        final List<TypeMirror> unknown = getUnknownParameters(endpoint, method);
+        if (unknown == null) {
+            return null;
+        }
+
+        if (unknown.size() == 1) {
+            final TypeMirror type = unknown.get(0);
+            if (isType(type, String.class.getName()) || isType(type, java.io.Reader.class.getName())) {
+                return MessageKind.TEXT;
+            } else if (isBinaryType(type) || isType(type, java.io.InputStream.class.getName())) {
+                return MessageKind.BINARY;
+            } else if (isType(type, PONG_MESSAGE)) {
+                return MessageKind.PONG;
+            }
+        } else if (unknown.size() == 2) {
+            final TypeMirror message = isBoolean(unknown.get(0)) ? unknown.get(1) : unknown.get(0);
+            final TypeMirror last = isBoolean(unknown.get(0)) ? unknown.get(0) : unknown.get(1);
+
+            if (isBoolean(last)) {
+                if (isType(message, String.class.getName())) {
+                    return MessageKind.TEXT;
+                } else if (isBinaryType(message)) {
+                    return MessageKind.BINARY;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get types of parameters which are not session, endpoint config nor path parameters.
+     *
+     * @return list of types or {@code null} when the method has more than one session parameter.
+     */
+    private List<TypeMirror> getUnknownParameters(TypeElement endpoint, ExecutableElement method) {
+        final List<TypeMirror> unknown = new ArrayList<TypeMirror>();
+        boolean sessionPresent = false;
+
+        for (VariableElement parameter : method.getParameters()) {
+            final TypeMirror type = parameter.asType();
+
+            if (hasAnnotation(parameter, PATH_PARAM) || isType(type, ENDPOINT_CONFIG)) {
+                continue;
+            }
+
+            if (isType(type, SESSION)) {
+                if (sessionPresent) {
+                    error(endpoint, method, "multiple Session parameters.");
+                    return null;
+                }
+                sessionPresent = true;
+                continue;
+            }
+
+            unknown.add(type);
+        }
+
+        return unknown;
+    }
+
+    private boolean isBuiltInReturnType(TypeMirror type) {
+        return type.getKind() == TypeKind.VOID || type.getKind().isPrimitive()
+                || isType(type, String.class.getName()) || isBinaryType(type);
+    }
+
+    private boolean isBinaryType(TypeMirror type) {
+        return isType(type, java.nio.ByteBuffer.class.getName())
+                || (type.getKind() == TypeKind.ARRAY
+                && ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE);
+    }
+
+    private boolean isBoolean(TypeMirror type) {
+        return type.getKind() == TypeKind.BOOLEAN || isType(type, Boolean.class.getName());
+    }
+
+    private boolean isType(TypeMirror type, String className) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+
+        final TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        return element.getQualifiedName().contentEquals(className);
+    }
+
+    private String getMethodAnnotation(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            final String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (ON_OPEN.equals(name) || ON_CLOSE.equals(name) || ON_ERROR.equals(name) || ON_MESSAGE.equals(name)) {
+                return name;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Create method descriptor in the index format - method name and erased parameter types in the format of {@link
+     * Class#getName()}.
+     */
+    private String getDescriptor(ExecutableElement method) {
+        final StringBuilder sb = new StringBuilder(method.getSimpleName()).append('(');
+        boolean first = true;
+        for (VariableElement parameter : method.getParameters()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(getClassName(types.erasure(parameter.asType())));
+        }
+        return sb.append(')').toString();
+    }
+
+    private String getClassName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase();
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            return "[" + getArrayComponentName(((ArrayType) type).getComponentType());
+        } else {
+            return elements.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+        }
+    }
+
+    private String getArrayComponentName(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case ARRAY:
+                return "[" + getArrayComponentName(((ArrayType) type).getComponentType());
+            default:
+                return "L" + getClassName(type) + ";";
+        }
+    }
+
+    private boolean error(TypeElement endpoint, ExecutableElement method, String format, Object... args) {
+        messager.printMessage(Diagnostic.Kind.ERROR, String.format(
+                "Endpoint %s, method %s: %s", endpoint.getQualifiedName(), method.getSimpleName(),
+                String.format(format, args)), method.getEnclosingElement().equals(endpoint) ? method : endpoint);
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            final FileObject resource =
+                    processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE_NAME);
+            final Writer writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+            try {
+                writer.write("# Generated by " + EndpointIndexProcessor.class.getName() + ", do not edit.\n");
+                for (String line : entries.values()) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Cannot write " + RESOURCE_NAME + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.index;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import javax.websocket.ClientEndpoint;
+import javax.websocket.Decoder;
+import javax.websocket.EndpointConfig;
+import javax.websocket.OnClose;
+import javax.websocket.OnError;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import javax.websocket.server.PathParam;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.core.EndpointIndex;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.tools.TestContainer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Endpoints in this class are compiled with {@link EndpointIndexProcessor}, so the test classes contain the generated
+ * index.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class EndpointIndexProcessorTest extends TestContainer {
+
+    @ServerEndpoint("/indexed/{prefix}")
+    public static class IndexedEndpoint {
+
+        @OnOpen
+        public void onOpen(Session session, EndpointConfig config) {
+        }
+
+        @OnMessage
+        public String onMessage(@PathParam("prefix") String prefix, String message, Session session) {
+            return prefix + message;
+        }
+
+        @OnMessage
+        public void onMessage(byte[] data, boolean last, Session session) {
+        }
+
+        @OnError
+        public void onError(Throwable t) {
+        }
+
+        @OnClose
+        public void onClose(Session session) {
+        }
+    }
+
+    @ServerEndpoint(value = "/decoded", decoders = DecodedEndpoint.PointDecoder.class)
+    public static class DecodedEndpoint {
+
+        public static class Point {
+        }
+
+        public static class PointDecoder implements Decoder.Binary<Point> {
+
+            @Override
+            public Point decode(ByteBuffer bytes) {
+                return new Point();
+            }
+
+            @Override
+            public boolean willDecode(ByteBuffer bytes) {
+                return true;
+            }
+
+            @Override
+            public void init(EndpointConfig config) {
+            }
+
+            @Override
+            public void destroy() {
+            }
+        }
+
+        @OnMessage
+        public void onMessage(Point point) {
+        }
+    }
+
+    @Test
+    public void testIndexGenerated() throws IOException {
+        final List<String[]> lines = readIndex(EndpointIndexProcessorTest.class.getClassLoader());
+
+        final String[] indexed = find(lines, IndexedEndpoint.class.getName());
+        assertNotNull(indexed);
+        assertEquals("validated", indexed[1]);
+        final List<String> methods = Arrays.asList(indexed).subList(3, indexed.length);
+        assertEquals(5, methods.size());
+        assertTrue(methods.contains("onOpen(javax.websocket.Session,javax.websocket.EndpointConfig)"));
+        assertTrue(methods.contains("onMessage(java.lang.String,java.lang.String,javax.websocket.Session)"));
+        assertTrue(methods.contains("onMessage([B,boolean,javax.websocket.Session)"));
+        assertTrue(methods.contains("onError(java.lang.Throwable)"));
+        assertTrue(methods.contains("onClose(javax.websocket.Session)"));
+
+        // decoded message types are checked against configured decoders when deployed
+        final String[] decoded = find(lines, DecodedEndpoint.class.getName());
+        assertNotNull(decoded);
+        assertEquals("unvalidated", decoded[1]);
+        assertEquals("onMessage(" + DecodedEndpoint.Point.class.getName() + ")", decoded[3]);
+
+        final EndpointIndex index = EndpointIndex.getInstance(EndpointIndexProcessorTest.class.getClassLoader());
+        assertTrue(index.getEndpointClassNames().contains(IndexedEndpoint.class.getName()));
+        // signature hash computed by the processor matches the compiled classes
+        assertTrue(index.isIndexed(IndexedEndpoint.class));
+        assertTrue(index.isIndexed(DecodedEndpoint.class));
+    }
+
+    @Test
+    public void testStaleEntryIgnored() throws Exception {
+        final String line = IndexedEndpoint.class.getName() + " validated 0 onClose(javax.websocket.Session)";
+        final ClassLoader classLoader = new ClassLoader(EndpointIndexProcessorTest.class.getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                if (!EndpointIndexProcessor.RESOURCE_NAME.equals(name)) {
+                    return super.getResources(name);
+                }
+
+                final File file = File.createTempFile("endpoint", ".idx");
+                file.deleteOnExit();
+                final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                try {
+                    writer.write(line);
+                } finally {
+                    writer.close();
+                }
+                return Collections.enumeration(Collections.singleton(file.toURI().toURL()));
+            }
+        };
+
+        // entry with a different signature hash (e.g. a method has been added since the index was generated)
+        final EndpointIndex index = EndpointIndex.getInstance(classLoader);
+        assertTrue(index.getEndpointClassNames().contains(IndexedEndpoint.class.getName()));
+        assertFalse(index.isIndexed(IndexedEndpoint.class));
+    }
+
+    @Test
+    public void testIndexedEndpointDeployed() throws Exception {
+        final Server server = startServer(IndexedEndpoint.class);
+        try {
+            final LinkedBlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+            final Session session = createClient().connectToServer(new ClientEndpointImpl(messages),
+                                                                    getURI("/indexed/echo-"));
+            session.getBasicRemote().sendText("message");
+            assertEquals("echo-message", messages.poll(3, TimeUnit.SECONDS));
+            session.close();
+        } finally {
+            stopServer(server);
+        }
+    }
+
+    @Test
+    public void testInvalidEndpointRejected() throws Exception {
+        final List<Diagnostic<? extends JavaFileObject>> errors = compile(
+                "import javax.websocket.*;\n"
+                        + "import javax.websocket.server.ServerEndpoint;\n"
+                        + "@ServerEndpoint(\"/invalid\")\n"
+                        + "public class InvalidEndpoint {\n"
+                        + "    @OnOpen public void open1(Session s) {}\n"
+                        + "    @OnOpen public void open2(Session s) {}\n"
+                        + "    @OnMessage public void text1(String m) {}\n"
+                        + "    @OnMessage public void text2(String m, boolean last) {}\n"
+                        + "    @OnError public void error(Session s) {}\n"
+                        + "}\n");
+
+        assertEquals(errors.toString(), 3, errors.size());
+    }
+
+    @Test
+    public void testValidEndpointCompiled() throws Exception {
+        final List<Diagnostic<? extends JavaFileObject>> errors = compile(
+                "import javax.websocket.*;\n"
+                        + "import javax.websocket.server.ServerEndpoint;\n"
+                        + "@ServerEndpoint(\"/valid\")\n"
+                        + "public class ValidEndpoint {\n"
+                        + "    @OnMessage public void text(java.io.Reader m) {}\n"
+                        + "    @OnMessage public void binary(java.nio.ByteBuffer m, boolean last) {}\n"
+                        + "    @OnMessage public void pong(PongMessage m) {}\n"
+                        + "    @OnClose public void close(CloseReason r, Session s) {}\n"
+                        + "}\n");
+
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> compile(final String source) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+        final File output = File.createTempFile("endpoint-index", "");
+        assertTrue(output.delete());
+        assertTrue(output.mkdir());
+
+        try {
+            final String className = source.substring(source.indexOf("public class ") + 13, source.indexOf(" {"));
+            final JavaFileObject file = new SimpleJavaFileObject(
+                    URI.create("string:///" + className + JavaFileObject.Kind.SOURCE.extension),
+                    JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+
+            final List<String> options = Arrays.asList(
+                    "-classpath", getLocation(ServerEndpoint.class), "-d", output.getAbsolutePath());
+            final JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, null, diagnostics, options, null, Collections.singletonList(file));
+            task.setProcessors(Collections.singletonList(new EndpointIndexProcessor()));
+            final boolean success = task.call();
+
+            final List<Diagnostic<? extends JavaFileObject>> errors =
+                    new ArrayList<Diagnostic<? extends JavaFileObject>>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(diagnostic);
+                }
+            }
+
+            assertEquals(errors.isEmpty(), success);
+            // invalid endpoints are never indexed
+            assertEquals(success, new File(output, EndpointIndexProcessor.RESOURCE_NAME).exists());
+            return errors;
+        } finally {
+            delete(output);
+        }
+    }
+
+    private static String getLocation(Class<?> c) throws URISyntaxException {
+        return new File(c.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+
+    private static List<String[]> readIndex(ClassLoader classLoader) throws IOException {
+        final InputStream is = classLoader.getResourceAsStream(EndpointIndexProcessor.RESOURCE_NAME);
+        assertNotNull(is);
+
+        final List<String[]> lines = new ArrayList<String[]>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    lines.add(line.split(" "));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        assertFalse(lines.isEmpty());
+        return lines;
+    }
+
+    private static String[] find(List<String[]> lines, String className) {
+        for (String[] line : lines) {
+            if (line[0].equals(className)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    @ClientEndpoint
+    public static class ClientEndpointImpl {
+
+        private final LinkedBlockingQueue<String> messages;
+
+        public ClientEndpointImpl(LinkedBlockingQueue<String> messages) {
+            this.messages = messages;
+        }
+
+        @OnMessage
+        public void onMessage(String message) {
+            messages.add(message);
+        }
+    }
+}
@@ -57,6 +57,7 @@ class ApplicationMXBeanImpl extends BaseMXBeanImpl implements ApplicationMXBean,
             new ConcurrentHashMap<String, EndpointMXBean>();
     private final Callable<Integer> openSessionsCount;
     private final Callable<Integer> maxOpenSessionsCount;
+    private final LatencyStatistics latencyStatistics;
 
     public ApplicationMXBeanImpl(MessageStatisticsSource sentMessageStatistics,
                                  MessageStatisticsSource receivedMessageStatistics,
@@ -65,9 +66,11 @@ class ApplicationMXBeanImpl extends BaseMXBeanImpl implements ApplicationMXBean,
                                  Callable<Integer> maxOpenSessionsCount, Callable<List<ErrorCount>> errorCounts,
                                  MessageStatisticsMXBean textMessageStatisticsMXBean,
                                  MessageStatisticsMXBean binaryMessageStatisticsMXBean,
-                                 MessageStatisticsMXBean controlMessageStatisticsMXBean) {
+                                 MessageStatisticsMXBean controlMessageStatisticsMXBean,
+                                 LatencyStatistics latencyStatistics) {
         super(sentMessageStatistics, receivedMessageStatistics, errorCounts, textMessageStatisticsMXBean,
               binaryMessageStatisticsMXBean, controlMessageStatisticsMXBean);
+        this.latencyStatistics = latencyStatistics;
         this.endpoints = endpoints;
         this.endpointPaths = endpointPaths;
         this.openSessionsCount = openSessionsCount;
@@ -99,6 +102,31 @@ class ApplicationMXBeanImpl extends BaseMXBeanImpl implements ApplicationMXBean,
         return maxOpenSessionsCount.call();
     }
 
+    @Override
+    public LatencyStatisticsMXBean getHandshakeLatencyStatisticsMXBean() {
+        return latencyStatistics.getHandshakeMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getMessageHandlingLatencyStatisticsMXBean() {
+        return latencyStatistics.getMessageHandlingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getDecodingLatencyStatisticsMXBean() {
+        return latencyStatistics.getDecodingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getEncodingLatencyStatisticsMXBean() {
+        return latencyStatistics.getEncodingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getSendLatencyStatisticsMXBean() {
+        return latencyStatistics.getSendingMXBean();
+    }
+
     void putEndpointMXBean(String endpointPath, EndpointMXBean endpointMXBean) {
         endpointMXBeans.put(endpointPath, endpointMXBean);
     }
@@ -79,6 +79,8 @@ class ApplicationMonitor extends BaseMonitor implements ApplicationEventListener
     private final ConcurrentMessageStatistics receivedBinaryMessageStatistics = new ConcurrentMessageStatistics();
     private final ConcurrentMessageStatistics receivedControlMessageStatistics = new ConcurrentMessageStatistics();
 
+    private final LatencyStatistics latencyStatistics = new LatencyStatistics(null);
+
     private volatile int maxOpenSessionCount = 0;
     private volatile String applicationName;
     private volatile ApplicationMXBeanImpl applicationMXBean;
@@ -116,10 +118,10 @@ class ApplicationMonitor extends BaseMonitor implements ApplicationEventListener
                 new ApplicationMXBeanImpl(sentTotalStatistics, receivedTotalStatistics, getEndpoints(),
                                           getEndpointPaths(), getOpenSessionsCount(), getMaxOpenSessionsCount(),
                                           getErrorCounts(), textMessagesMXBean, binaryMessagesMXBean,
-                                          controlMessagesMXBean);
+                                          controlMessagesMXBean, latencyStatistics);
 
         MBeanPublisher.registerApplicationMXBeans(applicationName, applicationMXBean, textMessagesMXBean,
-                                                  binaryMessagesMXBean, controlMessagesMXBean);
+                                                  binaryMessagesMXBean, controlMessagesMXBean, latencyStatistics);
     }
 
     @Override
@@ -224,6 +226,10 @@ class ApplicationMonitor extends BaseMonitor implements ApplicationEventListener
         openSessionsCount.decrementAndGet();
     }
 
+    LatencyStatistics getLatencyStatistics() {
+        return latencyStatistics;
+    }
+
     @Override
     public void onTextMessageSent(long length) {
         sentTextMessageStatistics.onMessage(length);
@@ -88,4 +88,40 @@ public interface EndpointMXBean extends BaseMXBean {
      * @return list of MXBeans representing currently open sessions.
      */
     public List<SessionMXBean> getSessionMXBeans();
+
+    /**
+     * Get MXBean exposing duration of opening handshakes.
+     *
+     * @return MXBean exposing duration of opening handshakes.
+     */
+    public LatencyStatisticsMXBean getHandshakeLatencyStatisticsMXBean();
+
+    /**
+     * Get MXBean exposing execution time of message handlers, including {@link javax.websocket.OnMessage} annotated
+     * methods.
+     *
+     * @return MXBean exposing execution time of message handlers.
+     */
+    public LatencyStatisticsMXBean getMessageHandlingLatencyStatisticsMXBean();
+
+    /**
+     * Get MXBean exposing time spent decoding incoming messages.
+     *
+     * @return MXBean exposing time spent decoding incoming messages.
+     */
+    public LatencyStatisticsMXBean getDecodingLatencyStatisticsMXBean();
+
+    /**
+     * Get MXBean exposing time spent encoding outgoing messages.
+     *
+     * @return MXBean exposing time spent encoding outgoing messages.
+     */
+    public LatencyStatisticsMXBean getEncodingLatencyStatisticsMXBean();
+
+    /**
+     * Get MXBean exposing time between passing a frame to the container and completion of its write.
+     *
+     * @return MXBean exposing send completion latency.
+     */
+    public LatencyStatisticsMXBean getSendLatencyStatisticsMXBean();
 }
@@ -57,15 +57,17 @@ class EndpointMXBeanImpl extends BaseMXBeanImpl implements EndpointMXBean, Seria
     private final Callable<Integer> openSessionsCount;
     private final Callable<Integer> maxOpenSessionsCount;
     private final Map<String, SessionMXBean> sessionMXBeans = new ConcurrentHashMap<String, SessionMXBean>();
+    private final LatencyStatistics latencyStatistics;
 
     public EndpointMXBeanImpl(
             MessageStatisticsSource sentMessageStatistics, MessageStatisticsSource receivedMessageStatistics,
             String endpointPath, String endpointClassName, Callable<Integer> openSessionsCount,
             Callable<Integer> maxOpenSessionsCount, Callable<List<ErrorCount>> errorCounts,
             MessageStatisticsMXBean textMessageStatisticsMXBean, MessageStatisticsMXBean binaryMessageStatisticsMXBean,
-            MessageStatisticsMXBean controlMessageStatisticsMXBean) {
+            MessageStatisticsMXBean controlMessageStatisticsMXBean, LatencyStatistics latencyStatistics) {
         super(sentMessageStatistics, receivedMessageStatistics, errorCounts, textMessageStatisticsMXBean,
               binaryMessageStatisticsMXBean, controlMessageStatisticsMXBean);
+        this.latencyStatistics = latencyStatistics;
         this.endpointPath = endpointPath;
         this.endpointClassName = endpointClassName;
         this.openSessionsCount = openSessionsCount;
@@ -97,6 +99,31 @@ class EndpointMXBeanImpl extends BaseMXBeanImpl implements EndpointMXBean, Seria
         return new ArrayList<SessionMXBean>(sessionMXBeans.values());
     }
 
+    @Override
+    public LatencyStatisticsMXBean getHandshakeLatencyStatisticsMXBean() {
+        return latencyStatistics.getHandshakeMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getMessageHandlingLatencyStatisticsMXBean() {
+        return latencyStatistics.getMessageHandlingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getDecodingLatencyStatisticsMXBean() {
+        return latencyStatistics.getDecodingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getEncodingLatencyStatisticsMXBean() {
+        return latencyStatistics.getEncodingMXBean();
+    }
+
+    @Override
+    public LatencyStatisticsMXBean getSendLatencyStatisticsMXBean() {
+        return latencyStatistics.getSendingMXBean();
+    }
+
     void putSessionMXBean(String sessionId, SessionMXBean sessionMXBean) {
         sessionMXBeans.put(sessionId, sessionMXBean);
     }
@@ -57,6 +57,7 @@ abstract class EndpointMonitor extends BaseMonitor implements EndpointEventListe
     final Object maxOpenSessionsCountLock = new Object();
     final ApplicationMonitor applicationMonitor;
     final EndpointMXBeanImpl endpointMXBean;
+    final LatencyStatistics latencyStatistics;
 
     private final ApplicationMXBeanImpl applicationMXBean;
 
@@ -76,6 +77,7 @@ abstract class EndpointMonitor extends BaseMonitor implements EndpointEventListe
         this.endpointClassNamePathPair = new EndpointClassNamePathPair(endpointPath, endpointClassName);
         this.applicationMonitor = applicationMonitor;
         this.applicationMXBean = applicationMXBean;
+        this.latencyStatistics = new LatencyStatistics(applicationMonitor.getLatencyStatistics());
 
         MessageStatisticsMXBeanImpl textMessagesMXBean =
                 new MessageStatisticsMXBeanImpl(sentTextMessageStatistics, receivedTextMessageStatistics);
@@ -93,10 +95,11 @@ abstract class EndpointMonitor extends BaseMonitor implements EndpointEventListe
         endpointMXBean =
                 new EndpointMXBeanImpl(sentTotalStatistics, receivedTotalStatistics, endpointPath, endpointClassName,
                                        getOpenSessionsCount(), getMaxOpenSessionsCount(), getErrorCounts(),
-                                       textMessagesMXBean, binaryMessagesMXBean, controlMessagesMXBean);
+                                       textMessagesMXBean, binaryMessagesMXBean, controlMessagesMXBean,
+                                       latencyStatistics);
 
         MBeanPublisher.registerEndpointMXBeans(applicationName, endpointPath, endpointMXBean, textMessagesMXBean,
-                                               binaryMessagesMXBean, controlMessagesMXBean);
+                                               binaryMessagesMXBean, controlMessagesMXBean, latencyStatistics);
         applicationMXBean.putEndpointMXBean(endpointPath, endpointMXBean);
     }
 
@@ -132,6 +135,11 @@ abstract class EndpointMonitor extends BaseMonitor implements EndpointEventListe
         };
     }
 
+    @Override
+    public void onHandshakeCompleted(long durationNanos) {
+        latencyStatistics.onHandshakeCompleted(durationNanos);
+    }
+
     @Override
     public void onTextMessageSent(long length) {
         sentTextMessageStatistics.onMessage(length);
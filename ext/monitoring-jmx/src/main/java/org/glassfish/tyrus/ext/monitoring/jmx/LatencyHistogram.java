@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.monitoring.jmx;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets.
+ * <p/>
+ * Every power of two range is split into 16 linear sub-buckets (in the same way as
+ * HdrHistogram does), so recorded values keep about 6% relative precision across the whole {@code long} range while
+ * the histogram occupies a fixed amount of memory. Recording is a single atomic increment and can be done by many
+ * threads concurrently; percentiles are computed from a (not necessarily atomic) snapshot of the buckets when read.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 4862106345817295503L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Record a value.
+     *
+     * @param value value to be recorded, negative values are recorded as {@code 0}.
+     */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (currentMax < value && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return number of recorded values.
+     */
+    long getCount() {
+        return count.longValue();
+    }
+
+    /**
+     * Get the average of recorded values.
+     *
+     * @return average of recorded values or {@code 0} if nothing has been recorded.
+     */
+    long getAverage() {
+        final long c = count.longValue();
+        return c == 0 ? 0 : sum.longValue() / c;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return largest recorded value.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get value at the given percentile.
+     * <p/>
+     * Returned value is the upper bound of the bucket the percentile falls into, capped by the largest recorded value.
+     *
+     * @param percentile percentile in range {@code (0, 100]}.
+     * @return value at the given percentile or {@code 0} if nothing has been recorded.
+     */
+    long getValueAtPercentile(double percentile) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.monitoring.jmx;
+
+/**
+ * Latency histograms of one monitored node (endpoint or application) together with MXBeans exposing them.
+ * <p/>
+ * Values are forwarded to the parent {@link LatencyListener} (if any), so that application-level histograms aggregate
+ * all its endpoints.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+class LatencyStatistics implements LatencyListener {
+
+    private final LatencyHistogram handshake = new LatencyHistogram();
+    private final LatencyHistogram messageHandling = new LatencyHistogram();
+    private final LatencyHistogram decoding = new LatencyHistogram();
+    private final LatencyHistogram encoding = new LatencyHistogram();
+    private final LatencyHistogram sending = new LatencyHistogram();
+
+    private final LatencyStatisticsMXBean handshakeMXBean = new LatencyStatisticsMXBeanImpl(handshake);
+    private final LatencyStatisticsMXBean messageHandlingMXBean = new LatencyStatisticsMXBeanImpl(messageHandling);
+    private final LatencyStatisticsMXBean decodingMXBean = new LatencyStatisticsMXBeanImpl(decoding);
+    private final LatencyStatisticsMXBean encodingMXBean = new LatencyStatisticsMXBeanImpl(encoding);
+    private final LatencyStatisticsMXBean sendingMXBean = new LatencyStatisticsMXBeanImpl(sending);
+
+    private final LatencyListener parent;
+
+    /**
+     * Constructor.
+     *
+     * @param parent listener all the recorded values are forwarded to, can be {@code null}.
+     */
+    LatencyStatistics(LatencyListener parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void onHandshakeCompleted(long durationNanos) {
+        handshake.record(durationNanos);
+        if (parent != null) {
+            parent.onHandshakeCompleted(durationNanos);
+        }
+    }
+
+    @Override
+    public void onMessageHandled(long durationNanos) {
+        messageHandling.record(durationNanos);
+        if (parent != null) {
+            parent.onMessageHandled(durationNanos);
+        }
+    }
+
+    @Override
+    public void onMessageDecoded(long durationNanos) {
+        decoding.record(durationNanos);
+        if (parent != null) {
+            parent.onMessageDecoded(durationNanos);
+        }
+    }
+
+    @Override
+    public void onMessageEncoded(long durationNanos) {
+        encoding.record(durationNanos);
+        if (parent != null) {
+            parent.onMessageEncoded(durationNanos);
+        }
+    }
+
+    @Override
+    public void onFrameSendCompleted(long latencyNanos) {
+        sending.record(latencyNanos);
+        if (parent != null) {
+            parent.onFrameSendCompleted(latencyNanos);
+        }
+    }
+
+    LatencyStatisticsMXBean getHandshakeMXBean() {
+        return handshakeMXBean;
+    }
+
+    LatencyStatisticsMXBean getMessageHandlingMXBean() {
+        return messageHandlingMXBean;
+    }
+
+    LatencyStatisticsMXBean getDecodingMXBean() {
+        return decodingMXBean;
+    }
+
+    LatencyStatisticsMXBean getEncodingMXBean() {
+        return encodingMXBean;
+    }
+
+    LatencyStatisticsMXBean getSendingMXBean() {
+        return sendingMXBean;
+    }
+}
@@ -66,6 +66,13 @@ class MBeanPublisher {
     private static final String SESSIONS_DIRECTORY = ",sessions=sessions";
     private static final String ENDPOINTS_DIRECTORY = ",endpoints=endpoints";
     private static final String MESSAGE_STATISTIC_DIRECTORY = ",message_statistics=message_statistics";
+    private static final String LATENCY_STATISTICS_DIRECTORY = ",latency_statistics=latency_statistics";
+    private static final String LATENCY_TYPE_KEY = ",latency_type=";
+    private static final String HANDSHAKE = "handshake";
+    private static final String MESSAGE_HANDLING = "message_handling";
+    private static final String DECODING = "decoding";
+    private static final String ENCODING = "encoding";
+    private static final String SENDING = "sending";
 
     /**
      * Register {@link org.glassfish.tyrus.ext.monitoring.jmx.ApplicationMXBean} and MXBeans exposing statistics
@@ -79,14 +86,17 @@ class MBeanPublisher {
      *                                       application.
      * @param controlMessageStatisticsMXBean MXBean exposing statistics about control messages sent and received by the
      *                                       application.
+     * @param latencyStatistics              latency statistics of the application.
      */
     static void registerApplicationMXBeans(String applicationName, ApplicationMXBean applicationMXBean,
                                            MessageStatisticsMXBean textMessageStatisticsMXBean,
                                            MessageStatisticsMXBean binaryMessageStatisticsMXBean,
-                                           MessageStatisticsMXBean controlMessageStatisticsMXBean) {
+                                           MessageStatisticsMXBean controlMessageStatisticsMXBean,
+                                           LatencyStatistics latencyStatistics) {
         String nameBase = getApplicationBeansBaseName(applicationName);
         registerStatisticsMXBeans(nameBase, applicationMXBean, textMessageStatisticsMXBean,
                                   binaryMessageStatisticsMXBean, controlMessageStatisticsMXBean);
+        registerLatencyStatisticsMXBeans(nameBase, latencyStatistics);
     }
 
     /**
@@ -102,14 +112,17 @@ class MBeanPublisher {
      *                                       endpoint.
      * @param controlMessageStatisticsMXBean MXBean exposing statistics about control messages sent and received by the
      *                                       endpoint
+     * @param latencyStatistics              latency statistics of the endpoint.
      */
     static void registerEndpointMXBeans(String applicationName, String endpointPath, EndpointMXBean endpointMXBean,
                                         MessageStatisticsMXBean textMessageStatisticsMXBean,
                                         MessageStatisticsMXBean binaryMessageStatisticsMXBean,
-                                        MessageStatisticsMXBean controlMessageStatisticsMXBean) {
+                                        MessageStatisticsMXBean controlMessageStatisticsMXBean,
+                                        LatencyStatistics latencyStatistics) {
         String nameBase = getEndpointBeansBaseName(applicationName, endpointPath);
         registerStatisticsMXBeans(nameBase, endpointMXBean, textMessageStatisticsMXBean, binaryMessageStatisticsMXBean,
                                   controlMessageStatisticsMXBean);
+        registerLatencyStatisticsMXBeans(nameBase, latencyStatistics);
     }
 
     /**
@@ -184,6 +197,15 @@ class MBeanPublisher {
         registerMXBean(name, controlMessageStatisticsMXBean);
     }
 
+    private static void registerLatencyStatisticsMXBeans(String nameBase, LatencyStatistics latencyStatistics) {
+        String name = nameBase + LATENCY_STATISTICS_DIRECTORY + LATENCY_TYPE_KEY;
+        registerMXBean(name + HANDSHAKE, latencyStatistics.getHandshakeMXBean());
+        registerMXBean(name + MESSAGE_HANDLING, latencyStatistics.getMessageHandlingMXBean());
+        registerMXBean(name + DECODING, latencyStatistics.getDecodingMXBean());
+        registerMXBean(name + ENCODING, latencyStatistics.getEncodingMXBean());
+        registerMXBean(name + SENDING, latencyStatistics.getSendingMXBean());
+    }
+
     private static String getApplicationBeansBaseName(String applicationName) {
         return APPLICATION_NAME_BASE + applicationName;
     }
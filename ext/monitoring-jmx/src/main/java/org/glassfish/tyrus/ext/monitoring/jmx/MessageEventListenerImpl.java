@@ -43,16 +43,18 @@ import org.glassfish.tyrus.core.frame.TyrusFrame;
 import org.glassfish.tyrus.core.monitoring.MessageEventListener;
 
 /**
- * Determines the type of a received or sent frame.
+ * Determines the type of a received or sent frame and passes timing events to a {@link LatencyListener}.
  *
  * @author Petr Janouch (petr.janouch at oracle.com)
  */
 class MessageEventListenerImpl implements MessageEventListener {
 
     private final MessageListener messageListener;
+    private final LatencyListener latencyListener;
 
-    MessageEventListenerImpl(MessageListener messageListener) {
+    MessageEventListenerImpl(MessageListener messageListener, LatencyListener latencyListener) {
         this.messageListener = messageListener;
+        this.latencyListener = latencyListener;
     }
 
     @Override
@@ -80,4 +82,24 @@ class MessageEventListenerImpl implements MessageEventListener {
             messageListener.onControlMessageReceived(payloadLength);
         }
     }
+
+    @Override
+    public void onFrameSendCompleted(TyrusFrame.FrameType frameType, long latencyNanos) {
+        latencyListener.onFrameSendCompleted(latencyNanos);
+    }
+
+    @Override
+    public void onMessageDecoded(long durationNanos) {
+        latencyListener.onMessageDecoded(durationNanos);
+    }
+
+    @Override
+    public void onMessageEncoded(long durationNanos) {
+        latencyListener.onMessageEncoded(durationNanos);
+    }
+
+    @Override
+    public void onMessageHandled(long durationNanos) {
+        latencyListener.onMessageHandled(durationNanos);
+    }
 }
@@ -76,7 +76,7 @@ class SessionAwareEndpointMonitor extends EndpointMonitor {
 
         applicationMonitor.onSessionOpened();
 
-        return new MessageEventListenerImpl(sessionMonitor);
+        return new MessageEventListenerImpl(sessionMonitor, latencyStatistics);
     }
 
     @Override
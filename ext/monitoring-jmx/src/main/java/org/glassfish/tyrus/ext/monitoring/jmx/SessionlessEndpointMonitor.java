@@ -82,7 +82,7 @@ class SessionlessEndpointMonitor extends EndpointMonitor {
             }
         }
 
-        return new MessageEventListenerImpl(this);
+        return new MessageEventListenerImpl(this, latencyStatistics);
     }
 
     @Override
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.monitoring.jmx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getAverage());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        long previousUpperBound = -1;
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+
+            assertTrue(value <= upperBound);
+            assertTrue(upperBound > previousUpperBound);
+            // at most 1/16 of relative error
+            assertTrue(upperBound - value <= value / 16);
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getAverage());
+        assertEquals(1000000, histogram.getMax());
+
+        assertWithinPrecision(500000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990000, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(999000, histogram.getValueAtPercentile(99.9));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testOutlier() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(100);
+        }
+        histogram.record(50000000);
+
+        assertWithinPrecision(100, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(100, histogram.getValueAtPercentile(99));
+        assertEquals(50000000, histogram.getValueAtPercentile(99.99));
+    }
+
+    @Test
+    public void testSerializable() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(5000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(histogram);
+        out.close();
+
+        LatencyHistogram copy = (LatencyHistogram) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(2, copy.getCount());
+        assertEquals(5000, copy.getMax());
+        assertWithinPrecision(100, copy.getValueAtPercentile(50));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("Expected " + expected + ", got " + actual,
+                   actual >= expected && actual - expected <= expected / 16);
+    }
+}
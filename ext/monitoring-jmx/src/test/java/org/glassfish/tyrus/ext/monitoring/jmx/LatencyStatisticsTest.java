@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.ext.monitoring.jmx;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpoint;
+import javax.websocket.EncodeException;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.monitoring.ApplicationEventListener;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.tools.TestContainer;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that handshake, message handling, decoding, encoding and send latencies are collected and exposed.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class LatencyStatisticsTest extends TestContainer {
+
+    private static final int MESSAGE_COUNT = 3;
+
+    @ServerEndpoint("/jmxLatencyEndpoint")
+    public static class AnnotatedServerEndpoint {
+
+        @OnMessage
+        public void onMessage(String message, Session session) throws IOException, EncodeException {
+            session.getBasicRemote().sendObject(message.length());
+        }
+    }
+
+    @ClientEndpoint
+    public static class AnnotatedClientEndpoint {
+
+        static volatile CountDownLatch messageLatch;
+
+        @OnMessage
+        public void onMessage(String message) {
+            messageLatch.countDown();
+        }
+    }
+
+    @Test
+    public void monitoringOnSessionLevelTest() {
+        test(true);
+    }
+
+    @Test
+    public void monitoringOnEndpointLevelTest() {
+        test(false);
+    }
+
+    private static void waitForCount(LatencyStatisticsMXBean statistics, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (statistics.getCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void test(boolean monitorOnSessionLevel) {
+        setContextPath("/jmxLatencyTestApp");
+        Server server = null;
+        try {
+            ApplicationMonitor applicationMonitor;
+            if (monitorOnSessionLevel) {
+                applicationMonitor = new SessionAwareApplicationMonitor();
+            } else {
+                applicationMonitor = new SessionlessApplicationMonitor();
+            }
+            getServerProperties().put(ApplicationEventListener.APPLICATION_EVENT_LISTENER, applicationMonitor);
+            server = startServer(AnnotatedServerEndpoint.class);
+
+            AnnotatedClientEndpoint.messageLatch = new CountDownLatch(MESSAGE_COUNT);
+            ClientManager client = createClient();
+            Session session =
+                    client.connectToServer(AnnotatedClientEndpoint.class, getURI(AnnotatedServerEndpoint.class));
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                session.getBasicRemote().sendText("Hello " + i);
+            }
+            assertTrue(AnnotatedClientEndpoint.messageLatch.await(1, TimeUnit.SECONDS));
+
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            String applicationMXBeanName = "org.glassfish.tyrus:type=/jmxLatencyTestApp";
+            ApplicationMXBean applicationMXBean =
+                    JMX.newMXBeanProxy(mBeanServer, new ObjectName(applicationMXBeanName), ApplicationMXBean.class);
+            String endpointMXBeanName = applicationMXBeanName + ",endpoints=endpoints,endpoint=/jmxLatencyEndpoint";
+            EndpointMXBean endpointMXBean =
+                    JMX.newMXBeanProxy(mBeanServer, new ObjectName(endpointMXBeanName), EndpointMXBean.class);
+
+            for (BaseMXBean mxBean : new BaseMXBean[]{applicationMXBean, endpointMXBean}) {
+                LatencyStatisticsMXBean handshake;
+                LatencyStatisticsMXBean messageHandling;
+                LatencyStatisticsMXBean decoding;
+                LatencyStatisticsMXBean encoding;
+                LatencyStatisticsMXBean sending;
+                if (mxBean instanceof ApplicationMXBean) {
+                    ApplicationMXBean bean = (ApplicationMXBean) mxBean;
+                    handshake = bean.getHandshakeLatencyStatisticsMXBean();
+                    messageHandling = bean.getMessageHandlingLatencyStatisticsMXBean();
+                    decoding = bean.getDecodingLatencyStatisticsMXBean();
+                    encoding = bean.getEncodingLatencyStatisticsMXBean();
+                    sending = bean.getSendLatencyStatisticsMXBean();
+                } else {
+                    EndpointMXBean bean = (EndpointMXBean) mxBean;
+                    handshake = bean.getHandshakeLatencyStatisticsMXBean();
+                    messageHandling = bean.getMessageHandlingLatencyStatisticsMXBean();
+                    decoding = bean.getDecodingLatencyStatisticsMXBean();
+                    encoding = bean.getEncodingLatencyStatisticsMXBean();
+                    sending = bean.getSendLatencyStatisticsMXBean();
+                }
+
+                assertEquals(1, handshake.getCount());
+
+                // latencies are recorded when the measured step returns, which can be after the client has already
+                // received the reply
+                waitForCount(messageHandling, MESSAGE_COUNT);
+                waitForCount(decoding, MESSAGE_COUNT);
+                waitForCount(encoding, MESSAGE_COUNT);
+                assertEquals(MESSAGE_COUNT, messageHandling.getCount());
+                assertEquals(MESSAGE_COUNT, decoding.getCount());
+                assertEquals(MESSAGE_COUNT, encoding.getCount());
+                assertTrue(handshake.getMaximalLatency() > 0);
+                assertTrue(messageHandling.getLatency50thPercentile() <= messageHandling.getLatency99thPercentile());
+                assertTrue(messageHandling.getLatency99thPercentile() <= messageHandling.getLatency999thPercentile());
+                assertTrue(messageHandling.getLatency999thPercentile() <= messageHandling.getMaximalLatency());
+
+                // write completion is reported from the container thread, it might trail the client receiving the
+                // message
+                waitForCount(sending, MESSAGE_COUNT);
+                assertEquals(MESSAGE_COUNT, sending.getCount());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            stopServer(server);
+        }
+    }
+}
@@ -150,6 +150,11 @@ class TestApplicationEventListener implements ApplicationEventListener {
                 errorLatch.countDown();
             }
         }
+
+        @Override
+        public void onHandshakeCompleted(long durationNanos) {
+            endpointEventListener.onHandshakeCompleted(durationNanos);
+        }
     }
 
     private class TestMessageEventListener implements MessageEventListener {
@@ -180,5 +185,25 @@ class TestApplicationEventListener implements ApplicationEventListener {
                 messageReceivedLatch.countDown();
             }
         }
+
+        @Override
+        public void onFrameSendCompleted(TyrusFrame.FrameType frameType, long latencyNanos) {
+            messageEventListener.onFrameSendCompleted(frameType, latencyNanos);
+        }
+
+        @Override
+        public void onMessageDecoded(long durationNanos) {
+            messageEventListener.onMessageDecoded(durationNanos);
+        }
+
+        @Override
+        public void onMessageEncoded(long durationNanos) {
+            messageEventListener.onMessageEncoded(durationNanos);
+        }
+
+        @Override
+        public void onMessageHandled(long durationNanos) {
+            messageEventListener.onMessageHandled(durationNanos);
+        }
     }
 }
@@ -46,10 +46,14 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
+import javax.websocket.CloseReason;
 import javax.websocket.DeploymentException;
 
+import org.glassfish.tyrus.core.Beta;
+import org.glassfish.tyrus.core.TyrusWebSocketEngine;
 import org.glassfish.tyrus.spi.ServerContainer;
 import org.glassfish.tyrus.spi.ServerContainerFactory;
 
@@ -223,6 +227,26 @@ public class Server {
         }
     }
 
+    /**
+     * Close all sessions of this server at once, e.g. before the server is stopped for restart.
+     *
+     * @param closeReason close reason sent to the peers and passed to the endpoints.
+     * @param shutdown    {@code true} when the server is going to be stopped afterwards.
+     * @param listener    listener notified about the progress, can be {@code null}.
+     * @return future completed when all sessions are closed, its value is the number of closed sessions.
+     * @throws IllegalStateException when the server is not started.
+     * @see TyrusWebSocketEngine#closeAll(CloseReason, boolean, TyrusWebSocketEngine.CloseProgressListener)
+     */
+    @Beta
+    public Future<Integer> closeAllSessions(CloseReason closeReason, boolean shutdown,
+                                            TyrusWebSocketEngine.CloseProgressListener listener) {
+        if (server == null) {
+            throw new IllegalStateException("Server is not started.");
+        }
+
+        return ((TyrusWebSocketEngine) server.getWebSocketEngine()).closeAll(closeReason, shutdown, listener);
+    }
+
     /**
      * Stop the server.
      */
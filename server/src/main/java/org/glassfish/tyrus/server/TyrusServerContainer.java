@@ -57,6 +57,7 @@ import javax.websocket.server.ServerEndpointConfig;
 
 import org.glassfish.tyrus.client.ClientManager;
 import org.glassfish.tyrus.core.BaseContainer;
+import org.glassfish.tyrus.core.EndpointIndex;
 import org.glassfish.tyrus.core.ErrorCollector;
 import org.glassfish.tyrus.spi.ServerContainer;
 
@@ -124,6 +125,12 @@ public abstract class TyrusServerContainer extends BaseContainer implements Serv
                 new TyrusServerConfiguration(classes, dynamicallyAddedClasses, dynamicallyAddedEndpointConfigs,
                                              this.collector);
 
+        // read the compile time endpoint index (if present) before any annotated endpoint is introspected; the index
+        // is looked up by the class loader of the endpoint class, same as in AnnotatedEndpoint
+        for (Class<?> endpointClass : configuration.getAnnotatedEndpointClasses(null)) {
+            EndpointIndex.getInstance(endpointClass.getClassLoader());
+        }
+
         // start the underlying server
         try {
             // deploy all the annotated endpoints
@@ -84,6 +84,39 @@ public interface Connection {
      */
     void close(CloseReason reason);
 
+    /**
+     * Provides tyrus a way to control reading from the underlying connection.
+     * <p/>
+     * A transport which is able to stop reading registers {@link ReadControl} right after the connection is created.
+     * Tyrus then pauses reading whenever the received data are not being consumed fast enough, so that the data stays
+     * in the transport (or network) instead of being buffered in memory. Transports which do not register it are read
+     * without any flow control.
+     *
+     * @param readControl transport read control.
+     */
+    default void setReadControl(ReadControl readControl) {
+        // read control not supported
+    }
+
+    /**
+     * Transport read control used by Tyrus to pause and resume reading of websocket data.
+     * <p/>
+     * Methods can be invoked from any thread, including the thread currently passing data to {@link
+     * ReadHandler#handle(java.nio.ByteBuffer)}. Pausing does not affect data already passed to the handler.
+     */
+    interface ReadControl {
+
+        /**
+         * Stop passing data to {@link ReadHandler}. Transport should stop reading from the underlying connection.
+         */
+        void pause();
+
+        /**
+         * Resume reading paused by {@link #pause()}.
+         */
+        void resume();
+    }
+
     /**
      * Transport close listener that receives connection close
      * notifications from Tyrus.
@@ -131,6 +131,43 @@ public class CustomMaskingKeyGeneratorTest extends TestContainer {
         }
     }
 
+    @Test
+    public void testNamedMaskingKeyGenerator() {
+        Server server = null;
+        try {
+            server = startServer(AnnotatedServerEndpoint.class);
+
+            final int messageCount = 3;
+            final CountDownLatch messageLatch = new CountDownLatch(messageCount);
+
+            ClientManager client = createClient();
+            client.getProperties().put(ClientProperties.MASKING_KEY_GENERATOR, MaskingKeyGenerator.CHACHA20);
+
+            client.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            messageLatch.countDown();
+                        }
+                    });
+
+                    for (int i = 0; i < messageCount; i++) {
+                        session.getAsyncRemote().sendText("hi");
+                    }
+                }
+            }, ClientEndpointConfig.Builder.create().build(), getURI(AnnotatedServerEndpoint.class));
+
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        } finally {
+            stopServer(server);
+        }
+    }
+
     private static class MaskingKeyCheckingExtension implements ExtendedExtension {
 
         private final boolean client;
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.test.standard_config;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusSession;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.tools.TestContainer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link TyrusSession#HIBERNATION_TIMEOUT}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class HibernationTest extends TestContainer {
+
+    private static final int MESSAGE_SIZE = 256 * 1024;
+
+    @ServerEndpoint(value = "/hibernation")
+    public static class EchoEndpoint {
+
+        @OnMessage
+        public String onMessage(String message) {
+            return message;
+        }
+    }
+
+    @Test
+    public void testHibernateAndWakeUp() throws DeploymentException {
+        final Server server = startServer(EchoEndpoint.class);
+
+        try {
+            final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+
+            final ClientEndpointConfig config = ClientEndpointConfig.Builder.create().build();
+            config.getUserProperties().put(TyrusSession.HIBERNATION_TIMEOUT, 200L);
+
+            final ClientManager client = createClient();
+            final TyrusSession session = (TyrusSession) client.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            received.add(message);
+                        }
+                    });
+                }
+            }, config, getURI(EchoEndpoint.class));
+
+            final char[] chars = new char[MESSAGE_SIZE];
+            Arrays.fill(chars, 'a');
+            final String message = new String(chars);
+
+            session.getBasicRemote().sendText(message);
+            assertEquals(message, received.poll(5, TimeUnit.SECONDS));
+            assertFalse(session.isHibernated());
+
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!session.isHibernated() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            assertTrue(session.isHibernated());
+            assertTrue(String.valueOf(session.getRetainedBufferSize()), session.getRetainedBufferSize() < 2048);
+
+            session.getBasicRemote().sendText(message);
+            assertEquals(message, received.poll(5, TimeUnit.SECONDS));
+            assertFalse(session.isHibernated());
+
+            session.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            stopServer(server);
+        }
+    }
+}
@@ -41,6 +41,7 @@
 package org.glassfish.tyrus.test.standard_config;
 
 import java.io.IOException;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -54,6 +55,7 @@ import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
 import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusSession;
 import org.glassfish.tyrus.server.Server;
 import org.glassfish.tyrus.test.tools.TestContainer;
 
@@ -79,6 +81,16 @@ public class SessionGetOpenSessionsTest extends TestContainer {
         public String onMessage(String message, Session session) {
             if (message.equals("count")) {
                 return String.valueOf(session.getOpenSessions().size());
+            } else if (message.equals("visit")) {
+                final Set<Session> openSessions = session.getOpenSessions();
+                final int visited = ((TyrusSession) session).forEachOpenSession(new TyrusSession.SessionVisitor() {
+                    @Override
+                    public boolean visit(int index, Session s) {
+                        return openSessions.contains(s);
+                    }
+                });
+
+                return String.valueOf(openSessions.contains(session) ? visited : -1);
             }
 
             return null;
@@ -170,4 +182,59 @@ public class SessionGetOpenSessionsTest extends TestContainer {
             stopServer(server);
         }
     }
+
+    @Test
+    public void testForEachOpenSession() throws DeploymentException {
+        final CountDownLatch messageLatch = new CountDownLatch(1);
+
+        Server server = startServer(SessionTestEndpoint.class);
+
+        final ClientEndpointConfig cec = ClientEndpointConfig.Builder.create().build();
+
+        try {
+            final ClientManager client = createClient();
+            for (int i = 0; i < 2; i++) {
+                client.connectToServer(new TestEndpointAdapter() {
+                    @Override
+                    public void onOpen(Session session) {
+                    }
+
+                    @Override
+                    public void onMessage(String s) {
+                    }
+                }, cec, getURI(SessionTestEndpoint.class));
+            }
+
+            client.connectToServer(new TestEndpointAdapter() {
+                @Override
+                public void onOpen(Session session) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            assertEquals("3", message);
+                            messageLatch.countDown();
+                        }
+                    });
+
+                    try {
+                        session.getBasicRemote().sendText("visit");
+                    } catch (IOException e) {
+                        // nothing
+                    }
+                }
+
+                @Override
+                public void onMessage(String s) {
+                }
+            }, cec, getURI(SessionTestEndpoint.class));
+
+            messageLatch.await(1, TimeUnit.SECONDS);
+            assertEquals(0, messageLatch.getCount());
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            stopServer(server);
+        }
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.tyrus.test.standard_config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusSession;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.tools.TestContainer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests binary messages streamed by {@link TyrusSession#sendBinary(java.io.InputStream, long)} and {@link
+ * TyrusSession#sendBinary(FileChannel, long, long)}.
+ *
+ * @author Pavel Bucek (pavel.bucek at oracle.com)
+ */
+public class StreamedBinaryMessageTest extends TestContainer {
+
+    private static final int LENGTH = 1024 * 1024 + 7;
+
+    @ServerEndpoint(value = "/streamedbinary")
+    public static class EchoEndpoint {
+
+        @OnMessage
+        public void onMessage(ByteBuffer message, Session session) throws Exception {
+            // large message is streamed as well
+            session.getBasicRemote().sendBinary(message);
+        }
+    }
+
+    @Test
+    public void testInputStream() throws Exception {
+        final byte[] payload = payload();
+
+        assertEcho(payload, new Sender() {
+            @Override
+            public void send(TyrusSession session) throws Exception {
+                session.sendBinary(new ByteArrayInputStream(payload), payload.length);
+            }
+        });
+    }
+
+    @Test
+    public void testFileRegion() throws Exception {
+        final byte[] payload = payload();
+        final int offset = 13;
+
+        final File file = File.createTempFile("tyrus", ".bin");
+        try {
+            final FileOutputStream fileOutputStream = new FileOutputStream(file);
+            try {
+                fileOutputStream.write(new byte[offset]);
+                fileOutputStream.write(payload);
+            } finally {
+                fileOutputStream.close();
+            }
+
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = randomAccessFile.getChannel();
+                assertEcho(payload, new Sender() {
+                    @Override
+                    public void send(TyrusSession session) throws Exception {
+                        session.sendBinary(channel, offset, payload.length);
+                    }
+                });
+            } finally {
+                randomAccessFile.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void assertEcho(byte[] payload, Sender sender) throws DeploymentException {
+        final Server server = startServer(EchoEndpoint.class);
+
+        try {
+            final CountDownLatch messageLatch = new CountDownLatch(1);
+            final AtomicReference<byte[]> received = new AtomicReference<byte[]>();
+
+            final ClientManager client = createClient();
+            final Session session = client.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<byte[]>() {
+                        @Override
+                        public void onMessage(byte[] message) {
+                            received.set(message);
+                            messageLatch.countDown();
+                        }
+                    });
+                }
+            }, ClientEndpointConfig.Builder.create().build(), getURI(EchoEndpoint.class));
+
+            sender.send((TyrusSession) session);
+
+            assertTrue(messageLatch.await(10, TimeUnit.SECONDS));
+            assertArrayEquals(payload, received.get());
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            stopServer(server);
+        }
+    }
+
+    private static byte[] payload() {
+        final byte[] payload = new byte[LENGTH];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (i * 31);
+        }
+        return payload;
+    }
+
+    private interface Sender {
+
+        void send(TyrusSession session) throws Exception;
+    }
+}